@@ -2,6 +2,7 @@ package org.example;
 
 import org.example.TransactionDatabase; // CHANGED
 import org.example.model.Product;
+import org.example.service.CategoryClassifier;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
@@ -81,7 +82,7 @@ public class DatabaseInspector extends JFrame {
                     product.getUpc(),
                     product.getDescription(),
                     String.format("$%.2f", product.getPrice()),
-                    determineCategory(product.getDescription()) // ADDED
+                    CategoryClassifier.categoryOf(product)
             });
         }
 
@@ -102,7 +103,7 @@ public class DatabaseInspector extends JFrame {
                     product.getUpc(),
                     product.getDescription(),
                     String.format("$%.2f", product.getPrice()),
-                    determineCategory(product.getDescription()) // ADDED
+                    CategoryClassifier.categoryOf(product)
             });
         }
 
@@ -112,7 +113,8 @@ public class DatabaseInspector extends JFrame {
     private void showStatistics() {
         StringBuilder stats = new StringBuilder();
         stats.append("Database Statistics:\n\n");
-        stats.append("Total Products: ").append(database.getProductCount()).append("\n");
+        stats.append("Total Products: ").append(database.getProductCount()).append("\n\n");
+        stats.append(database.getDatabaseStatistics());
         stats.append("\nNote: More detailed statistics available in Sales Reports\n");
 
         JTextArea textArea = new JTextArea(stats.toString());
@@ -124,31 +126,4 @@ public class DatabaseInspector extends JFrame {
                 "Database Statistics",
                 JOptionPane.INFORMATION_MESSAGE);
     }
-
-    private String determineCategory(String description) {
-        String desc = description.toUpperCase();
-
-        if (desc.contains("COKE") || desc.contains("PEPSI") || desc.contains("SPRITE") ||
-                desc.contains("MONSTER") || desc.contains("RED BULL") || desc.contains("GATORADE") ||
-                desc.contains("WATER") || desc.contains("TEA") || desc.contains("COFFEE")) {
-            return "BEVERAGE";
-        }
-
-        if (desc.contains("PIZZA") || desc.contains("HOT DOG") || desc.contains("BURGER") ||
-                desc.contains("SANDWICH") || desc.contains("DONUT") || desc.contains("TAQUITO")) {
-            return "FOOD";
-        }
-
-        if (desc.contains("MARLBORO") || desc.contains("CAMEL") || desc.contains("NEWPORT") ||
-                desc.contains("CIGAR") || desc.contains("VUSE") || desc.contains("JUUL")) {
-            return "TOBACCO";
-        }
-
-        if (desc.contains("CHIP") || desc.contains("LAYS") || desc.contains("DORITOS") ||
-                desc.contains("SNICKERS") || desc.contains("CANDY")) {
-            return "SNACK";
-        }
-
-        return "OTHER";
-    }
 }
\ No newline at end of file
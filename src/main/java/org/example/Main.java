@@ -1,6 +1,8 @@
 package org.example;
 import javax.swing.*;
 
+import org.example.config.PosConfig;
+import org.example.printer.PrintSpooler;
 import org.example.ui.RegisterWindow;
 
 public class Main {
@@ -10,19 +12,25 @@ public class Main {
         } catch (Exception e) {
             // Use default
         }
-        // Initialize Receipt Printer
-        ReceiptPrinter receiptPrinter = new ReceiptPrinter();
+        // Initialize Receipt Printer, printing through the background spooler if one is configured
+        PosConfig posConfig = new PosConfig();
+        ReceiptPrinter receiptPrinter = new ReceiptPrinter(posConfig);
+        PrintSpooler printSpooler = PrintSpooler.start(posConfig);
+        receiptPrinter.setSpooler(printSpooler);
 
         // Initialize VJ Client
         VirtualJournalClient vjClient = new VirtualJournalClient(receiptPrinter);
 
-        // Try to connect in background (non-blocking)
-        new Thread(vjClient::connect).start();
+        // Start the journal writer (connects in the background)
+        vjClient.connect();
 
         // Add shutdown hook to disconnect cleanly
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down...");
             vjClient.disconnect();
+            if (printSpooler != null) {
+                printSpooler.close();
+            }
         }));
         SwingUtilities.invokeLater(() -> new RegisterWindow(vjClient));
     }
@@ -1,9 +1,11 @@
 package org.example;
 
+import org.example.model.Money;
 import org.example.model.Product;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import org.example.pricebook.PricebookParser;
+
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 
 public class ProductDatabase {
@@ -11,6 +13,7 @@ public class ProductDatabase {
     private static final String DB_URL = "jdbc:h2:mem:pos;DB_CLOSE_DELAY=-1";
     private static final String DB_USER = "sa";
     private static final String DB_PASSWORD = "";
+    private static final int BATCH_SIZE = 1000;
     private org.h2.tools.Server webServer;
 
     public ProductDatabase() {
@@ -61,37 +64,23 @@ public class ProductDatabase {
     public void loadFromTSV(String filePath) throws IOException {
         String insertSQL = "INSERT INTO products (upc, description, price) VALUES (?, ?, ?)";
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath));
-             PreparedStatement insertStatement = connection.prepareStatement(insertSQL)) {
-
-            String line;
-            int batchCount = 0;
-
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\t");
-                if (parts.length >= 3) {
-                    String upc = parts[0].trim();
-                    String description = parts[1].trim();
-                    double price = Double.parseDouble(parts[2].trim());
-
-                    insertStatement.setString(1, upc);
-                    insertStatement.setString(2, description);
-                    insertStatement.setDouble(3, price);
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertSQL)) {
+            // Parallel parse, single writer with large batches
+            PricebookParser.IngestStats stats = PricebookParser.ingest(Path.of(filePath), null, chunk -> {
+                for (int i = 0; i < chunk.size; i++) {
+                    insertStatement.setString(1, chunk.upcs[i]);
+                    insertStatement.setString(2, chunk.descriptions[i]);
+                    insertStatement.setBigDecimal(3, Money.toBigDecimal(chunk.priceCents[i]));
                     insertStatement.addBatch();
 
-                    batchCount++;
-
-                    // Execute batch every 100 records
-                    if (batchCount % 100 == 0) {
+                    if ((i + 1) % BATCH_SIZE == 0) {
                         insertStatement.executeBatch();
                     }
                 }
-            }
-
-            // Execute remaining records
-            if (batchCount % 100 != 0) {
                 insertStatement.executeBatch();
-            }
+            });
+
+            System.out.println("Loaded pricebook: " + stats);
 
         } catch (SQLException e) {
             throw new IOException("Failed to load data into database", e);
@@ -106,10 +95,11 @@ public class ProductDatabase {
 
             try (ResultSet rs = queryByUPCStatement.executeQuery()) {
                 if (rs.next()) {
-                    return new Product(
+                    return Product.ofCents(
                             rs.getString("upc"),
                             rs.getString("description"),
-                            rs.getDouble("price")
+                            Money.fromBigDecimal(rs.getBigDecimal("price")),
+                            null
                     );
                 }
             }
@@ -1,24 +1,153 @@
 package org.example;
 
-import org.example.model.Product;
+import org.example.config.PosConfig;
+import org.example.model.Money;
 import org.example.model.Transaction;
+import org.example.printer.PrintSpooler;
+import org.example.sales.SequenceService;
 import org.example.service.DiscountService;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.example.ReceiptTemplate.*;
+
 public class ReceiptPrinter {
-    private static final int RECEIPT_WIDTH = 42;
-    private static final DateTimeFormatter DATE_FORMAT =
-            DateTimeFormatter.ofPattern("MM/dd/yyyy");
-    private static final DateTimeFormatter TIME_FORMAT =
-            DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final ReceiptTemplate TEMPLATE = ReceiptTemplate.compile(
+            // Header
+            center("CLYDE'S STORE"),
+            center("123 Main Street"),
+            center("Town, ST 12345"),
+            center("Tel: (555) 123-4567"),
+            rule(),
+
+            // Transaction info
+            text("Date: "), left(15, slot(Field.DATE)),
+            text(" Receipt #: "), zeroPadded(4, slot(Field.RECEIPT_NUMBER)), blank(),
+            text("Time: "), slot(Field.TIME), blank(),
+            text("Cashier: "), slot(Field.CASHIER), blank(),
+            text("Register: "), slot(Field.REGISTER), blank(),
+            rule(),
+
+            // Items
+            line(String.format("%-3s %-22s %7s %7s", "QTY", "DESCRIPTION", "PRICE", "TOTAL")),
+            rule(),
+            each(Rows.ITEMS,
+                    left(3, slot(Field.QUANTITY)), text(" "),
+                    left(22, slot(Field.DESCRIPTION, 22)), text(" "),
+                    right(7, slot(Field.PRICE)), text(" "),
+                    right(7, slot(Field.LINE_TOTAL)), blank(),
+                    text("    UPC: "), slot(Field.UPC), blank()),
+            rule(),
+
+            // Totals
+            amount("SUBTOTAL:", Field.SUBTOTAL),
+            when(Condition.DISCOUNTS,
+                    blank(),
+                    center("*** DISCOUNTS APPLIED ***"),
+                    rule(),
+                    each(Rows.DISCOUNTS,
+                            right(26, slot(Field.DISCOUNT, 26), text(":")), text(" -"),
+                            right(14, slot(Field.DISCOUNT_AMOUNT)), blank(),
+                            each(Rows.AFFECTED_ITEMS,
+                                    text("  * "), slot(Field.AFFECTED_ITEM, 38), blank())),
+                    rule(),
+                    label("TOTAL SAVINGS:", 26), text(" -"), right(14, slot(Field.TOTAL_SAVINGS)), blank(),
+                    rule(),
+                    amount("SUBTOTAL AFTER DISC:", Field.DISCOUNTED_SUBTOTAL)),
+            amount("TAX (7%):", Field.TAX),
+            doubleRule(),
+            bold(amount("TOTAL:", Field.TOTAL)),
+            doubleRule(),
+            when(Condition.SAVINGS,
+                    blank(),
+                    centered(text("YOU SAVED $"), slot(Field.TOTAL_SAVINGS), text(" TODAY!")),
+                    rule()),
+
+            // Payment
+            label("PAYMENT TYPE:", 26), text(" "), right(15, slot(Field.PAYMENT_TYPE)), blank(),
+            when(Condition.CASH,
+                    amount("CASH TENDERED:", Field.TENDERED),
+                    when(Condition.CHANGE_DUE, bold(amount("CHANGE DUE:", Field.CHANGE)))),
+            when(Condition.NOT_CASH, bold(amount("AMOUNT CHARGED:", Field.TOTAL))),
+            rule(),
+            text("Total Items: "), slot(Field.ITEM_COUNT), blank(),
+            rule(),
+
+            // Footer
+            center("THANK YOU FOR YOUR PURCHASE!"),
+            center("Please come again"),
+            rule(),
+            when(Condition.CREDIT,
+                    center("** CUSTOMER COPY **"),
+                    rule()),
+            center("Tax ID: 12-3456789"),
+            center("www.clyde.com"));
+
+    private final ReceiptTemplate.Data data = new ReceiptTemplate.Data();
+    private final StringBuilder receipt = new StringBuilder(4096);
+    private final String registerId;
+    private final String cashierId;
+
+    // Receipt numbers come from the database sequence once it is set;
+    // until then (e.g. in the benchmark) they count up from 1 in memory
+    private SequenceService.Sequence receiptNumbers;
+    private int localReceiptNumber;
+    private int lastReceiptNumber;
+
+    // Printing (optional)
+    private PrintSpooler spooler;
+    private int[] boldMarks = new int[8];
+    private int boldCount;
+    private final ReceiptTemplate.Styles markBold = (start, end) -> {
+        if (boldCount + 2 > boldMarks.length) {
+            boldMarks = Arrays.copyOf(boldMarks, boldMarks.length * 2);
+        }
+        boldMarks[boldCount++] = start;
+        boldMarks[boldCount++] = end;
+    };
+
+    // Same layout as "%26s %15.2f"
+    private static Part amount(String label, Field field) {
+        return group(label(label, 26), text(" "), right(15, slot(field)), blank());
+    }
+
+    public ReceiptPrinter() {
+        this(new PosConfig());
+    }
 
-    private int receiptNumber = 1;
+    public ReceiptPrinter(PosConfig config) {
+        this.registerId = config.getRegisterId();
+        this.cashierId = config.getCashierId();
+    }
+
+    /**
+     * Take receipt numbers from the register's persistent sequence.
+     */
+    public void setReceiptNumbers(SequenceService.Sequence receiptNumbers) {
+        this.receiptNumbers = receiptNumbers;
+    }
+
+    /**
+     * Send every receipt from now on to the printer as well; null stops printing.
+     */
+    public void setSpooler(PrintSpooler spooler) {
+        this.spooler = spooler;
+    }
 
+    /**
+     * Number of the last receipt generated, 0 before the first.
+     */
     public int getReceiptNumber() {
-        return receiptNumber - 1;
+        return lastReceiptNumber;
+    }
+
+    private int nextReceiptNumber() {
+        lastReceiptNumber = receiptNumbers != null
+                ? Math.toIntExact(receiptNumbers.next())
+                : ++localReceiptNumber;
+        return lastReceiptNumber;
     }
 
     public String generateReceipt(Transaction transaction, String paymentType,
@@ -29,178 +158,56 @@ public class ReceiptPrinter {
     public String generateReceipt(Transaction transaction, String paymentType,
                                   double tendered, double change,
                                   DiscountService.DiscountResponse discountInfo) {
-        StringBuilder receipt = new StringBuilder();
-        LocalDateTime now = LocalDateTime.now();
-
-        // Header
-        receipt.append(centerText("CLYDE'S STORE")).append("\n");
-        receipt.append(centerText("123 Main Street")).append("\n");
-        receipt.append(centerText("Town, ST 12345")).append("\n");
-        receipt.append(centerText("Tel: (555) 123-4567")).append("\n");
-        receipt.append(line()).append("\n");
-
-        // Transaction info
-        receipt.append(String.format("Date: %-15s Receipt #: %04d\n",
-                now.format(DATE_FORMAT), receiptNumber++));
-        receipt.append(String.format("Time: %s\n", now.format(TIME_FORMAT)));
-        receipt.append(String.format("Cashier: %s\n", "OPERATOR01"));
-        receipt.append(String.format("Register: %s\n", "REG-001"));
-        receipt.append(line()).append("\n");
-
-        // Items header
-        receipt.append(String.format("%-3s %-22s %7s %7s\n",
-                "QTY", "DESCRIPTION", "PRICE", "TOTAL"));
-        receipt.append(line()).append("\n");
-
-        // Items
-        List<Product> items = transaction.getItems();
-        for (Product product : items) {
-            // Description line
-            String desc = truncate(product.getDescription(), 22);
-            receipt.append(String.format("%-3d %-22s %7.2f %7.2f\n",
-                    product.getQuantity(),
-                    desc,
-                    product.getPrice(),
-                    product.getLineTotal()));
-
-            // UPC line
-            receipt.append(String.format("    UPC: %s\n", product.getUpc()));
-        }
-
-        receipt.append(line()).append("\n");
-
-        // Calculate values
-        double originalSubtotal;
-        double finalSubtotal;
-        double totalDiscount = 0.0;
-        double tax;
-        double total;
+        receipt.setLength(0);
+        return appendReceipt(receipt, transaction, paymentType, tendered, change, discountInfo).toString();
+    }
 
-        if (discountInfo != null && discountInfo.totalDiscount > 0) {
+    /**
+     * Render the next receipt onto the end of out; the same text
+     * generateReceipt returns, without building a String. With a spooler
+     * set, the receipt is also queued for the printer.
+     */
+    public StringBuilder appendReceipt(StringBuilder out, Transaction transaction, String paymentType,
+                                       double tendered, double change,
+                                       DiscountService.DiscountResponse discountInfo) {
+        data.time = LocalDateTime.now();
+        data.receiptNumber = nextReceiptNumber();
+        data.cashier = cashierId;
+        data.register = registerId;
+        data.items = transaction.getItemsView();
+        data.paymentType = paymentType;
+        data.tenderedCents = Money.toCents(tendered);
+        data.changeCents = Money.toCents(change);
+        data.changeDue = change > 0;
+
+        if (discountInfo != null && discountInfo.totalDiscountCents() > 0) {
             // With discounts
-            originalSubtotal = discountInfo.subtotal;
-            totalDiscount = discountInfo.totalDiscount;
-            finalSubtotal = originalSubtotal - totalDiscount;
-            tax = discountInfo.tax;
-            total = discountInfo.total;
+            data.subtotalCents = discountInfo.subtotalCents();
+            data.totalSavingsCents = discountInfo.totalDiscountCents();
+            data.taxCents = discountInfo.taxCents();
+            data.totalCents = discountInfo.totalCents();
         } else {
             // No discounts - use transaction values
-            originalSubtotal = transaction.getSubtotal();
-            finalSubtotal = originalSubtotal;
-            tax = transaction.getTax();
-            total = transaction.getTotal();
-        }
-
-        // Original subtotal
-        receipt.append(String.format("%26s %15.2f\n", "SUBTOTAL:", originalSubtotal));
-
-        // Show discounts if any
-        if (discountInfo != null && discountInfo.appliedDiscounts != null
-                && !discountInfo.appliedDiscounts.isEmpty()) {
-
-            receipt.append("\n");
-            receipt.append(centerText("*** DISCOUNTS APPLIED ***")).append("\n");
-            receipt.append(line()).append("\n");
-
-            // Each discount
-            for (DiscountService.DiscountResponse.AppliedDiscount discount :
-                    discountInfo.appliedDiscounts) {
-
-                String discDesc = truncate(discount.description, 26);
-                receipt.append(String.format("%26s -%14.2f\n",
-                        discDesc + ":", discount.amount));
-
-                // Show affected items (optional - can remove if too verbose)
-                if (discount.affectedItems != null && !discount.affectedItems.isEmpty()) {
-                    for (String item : discount.affectedItems) {
-                        String itemDesc = truncate(item, 38);
-                        receipt.append(String.format("  * %s\n", itemDesc));
-                    }
-                }
-            }
-
-            receipt.append(line()).append("\n");
-            receipt.append(String.format("%26s -%14.2f\n",
-                    "TOTAL SAVINGS:", totalDiscount));
-            receipt.append(line()).append("\n");
-
-            // Discounted subtotal
-            receipt.append(String.format("%26s %15.2f\n",
-                    "SUBTOTAL AFTER DISC:", finalSubtotal));
-        }
-
-        // Tax (calculated on discounted amount)
-        receipt.append(String.format("%26s %15.2f\n", "TAX (7%):", tax));
-        receipt.append(doubleLine()).append("\n");
-
-        // Final total
-        receipt.append(String.format("%26s %15.2f\n", "TOTAL:", total));
-        receipt.append(doubleLine()).append("\n");
-
-        // Savings callout (if significant)
-        if (totalDiscount > 0) {
-            receipt.append("\n");
-            receipt.append(centerText(String.format("YOU SAVED $%.2f TODAY!", totalDiscount)))
-                    .append("\n");
-            receipt.append(line()).append("\n");
+            data.subtotalCents = transaction.getSubtotalCents();
+            data.totalSavingsCents = 0;
+            data.taxCents = transaction.getTaxCents();
+            data.totalCents = transaction.getTotalCents();
         }
+        data.discountedSubtotalCents = data.subtotalCents - data.totalSavingsCents;
+        data.discounts = discountInfo == null || discountInfo.appliedDiscounts == null
+                ? List.of() : discountInfo.appliedDiscounts;
 
-        // Payment
-        receipt.append(String.format("%26s %15s\n", "PAYMENT TYPE:", paymentType));
-
-        if (paymentType.equals("CASH")) {
-            receipt.append(String.format("%26s %15.2f\n", "CASH TENDERED:", tendered));
-            if (change > 0) {
-                receipt.append(String.format("%26s %15.2f\n", "CHANGE DUE:", change));
-            }
-        } else {
-            receipt.append(String.format("%26s %15.2f\n", "AMOUNT CHARGED:", total));
+        if (spooler == null) {
+            return TEMPLATE.render(data, out);
         }
-
-        receipt.append(line()).append("\n");
-
-        // Item count
-        receipt.append(String.format("Total Items: %d\n", items.size()));
-        receipt.append(line()).append("\n");
-
-        // Footer
-        receipt.append(centerText("THANK YOU FOR YOUR PURCHASE!")).append("\n");
-        receipt.append(centerText("Please come again")).append("\n");
-        receipt.append(line()).append("\n");
-
-        if (paymentType.equals("CREDIT")) {
-            receipt.append(centerText("** CUSTOMER COPY **")).append("\n");
-            receipt.append(line()).append("\n");
+        int start = out.length();
+        boldCount = 0;
+        TEMPLATE.render(data, out, markBold);
+        int[] bold = Arrays.copyOf(boldMarks, boldCount);
+        for (int i = 0; i < bold.length; i++) {
+            bold[i] -= start;
         }
-
-        receipt.append(centerText("Tax ID: 12-3456789")).append("\n");
-        receipt.append(centerText("www.clyde.com")).append("\n");
-
-        return receipt.toString();
-    }
-
-    private String centerText(String text) {
-        int padding = (RECEIPT_WIDTH - text.length()) / 2;
-        if (padding < 0) padding = 0;
-        return " ".repeat(padding) + text;
-    }
-
-    private String line() {
-        return "-".repeat(RECEIPT_WIDTH);
-    }
-
-    private String doubleLine() {
-        return "=".repeat(RECEIPT_WIDTH);
-    }
-
-    private String truncate(String text, int maxLength) {
-        if (text.length() <= maxLength) {
-            return text;
-        }
-        return text.substring(0, maxLength - 3) + "...";
-    }
-
-    public void resetReceiptNumber() {
-        receiptNumber = 1;
+        spooler.submit(data.receiptNumber, out.substring(start), bold, "CASH".equals(paymentType));
+        return out;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,452 @@
+package org.example;
+
+import org.example.model.Money;
+import org.example.model.Product;
+import org.example.service.DiscountService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A receipt layout compiled once into static text segments and field slots.
+ *
+ * The layout is declared with the static part methods below. compile() joins
+ * neighbouring static text (store header, rules, column headings, labels)
+ * into single char arrays, so rendering copies those in one go and only
+ * formats the slots: numbers and money are written digit by digit, strings
+ * are truncated in place, and padding is inserted around what was written.
+ * render() appends to the caller's StringBuilder, so a printer that keeps
+ * one builder renders a receipt without per-line garbage.
+ */
+public final class ReceiptTemplate {
+    public static final int WIDTH = 42;
+
+    private static final char[] SPACES = new char[64];
+    private static final char[] ZEROS = new char[16];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+        Arrays.fill(ZEROS, '0');
+    }
+
+    /**
+     * Values a slot can show. Item, discount and affected-item fields refer
+     * to the current row of the enclosing each().
+     */
+    public enum Field {
+        DATE, TIME, RECEIPT_NUMBER, CASHIER, REGISTER,
+        QUANTITY, DESCRIPTION, PRICE, LINE_TOTAL, UPC,
+        DISCOUNT, DISCOUNT_AMOUNT, AFFECTED_ITEM,
+        SUBTOTAL, TOTAL_SAVINGS, DISCOUNTED_SUBTOTAL, TAX, TOTAL,
+        PAYMENT_TYPE, TENDERED, CHANGE, ITEM_COUNT
+    }
+
+    public enum Condition { DISCOUNTS, SAVINGS, CASH, CHANGE_DUE, NOT_CASH, CREDIT }
+
+    public enum Rows { ITEMS, DISCOUNTS, AFFECTED_ITEMS }
+
+    private enum Align { LEFT, RIGHT, ZERO, CENTER }
+
+    private final Part[] parts;
+
+    private ReceiptTemplate(Part[] parts) {
+        this.parts = parts;
+    }
+
+    public static ReceiptTemplate compile(Part... parts) {
+        return new ReceiptTemplate(join(parts));
+    }
+
+    /**
+     * Where emphasised text landed in the output, for printers that can show it.
+     */
+    public interface Styles {
+        void bold(int start, int end);
+    }
+
+    /**
+     * Append the receipt for the data.
+     */
+    public StringBuilder render(Data data, StringBuilder out) {
+        return render(data, out, null);
+    }
+
+    /**
+     * Append the receipt, reporting bold ranges (offsets into out) to styles.
+     */
+    public StringBuilder render(Data data, StringBuilder out, Styles styles) {
+        for (Part part : parts) {
+            part.render(data, out, styles);
+        }
+        return out;
+    }
+
+    // ========== PARTS ==========
+
+    public abstract static class Part {
+        abstract void render(Data data, StringBuilder out, Styles styles);
+    }
+
+    public static Part text(String text) {
+        return new Text(text.toCharArray());
+    }
+
+    /**
+     * Static text and a newline.
+     */
+    public static Part line(String text) {
+        return text(text + "\n");
+    }
+
+    /**
+     * Static text centered in the receipt width, then a newline.
+     */
+    public static Part center(String text) {
+        return line(" ".repeat(Math.max(0, (WIDTH - text.length()) / 2)) + text);
+    }
+
+    public static Part rule() {
+        return line("-".repeat(WIDTH));
+    }
+
+    public static Part doubleRule() {
+        return line("=".repeat(WIDTH));
+    }
+
+    public static Part blank() {
+        return text("\n");
+    }
+
+    /**
+     * A static label right-aligned in the given width, like "%{width}s".
+     */
+    public static Part label(String label, int width) {
+        return text(" ".repeat(Math.max(0, width - label.length())) + label);
+    }
+
+    public static Part slot(Field field) {
+        return new Slot(field, 0);
+    }
+
+    /**
+     * A string field cut to maxLength, ending in "..." when it was longer.
+     */
+    public static Part slot(Field field, int maxLength) {
+        return new Slot(field, maxLength);
+    }
+
+    /**
+     * The parts padded on the right to the width, like "%-{width}s".
+     */
+    public static Part left(int width, Part... parts) {
+        return new Pad(Align.LEFT, width, join(parts));
+    }
+
+    /**
+     * The parts padded on the left to the width, like "%{width}s".
+     */
+    public static Part right(int width, Part... parts) {
+        return new Pad(Align.RIGHT, width, join(parts));
+    }
+
+    /**
+     * A number zero-padded to the width, like "%0{width}d".
+     */
+    public static Part zeroPadded(int width, Part... parts) {
+        return new Pad(Align.ZERO, width, join(parts));
+    }
+
+    /**
+     * The parts centered in the receipt width, then a newline.
+     */
+    public static Part centered(Part... parts) {
+        return group(new Pad(Align.CENTER, WIDTH, join(parts)), text("\n"));
+    }
+
+    /**
+     * Several parts as one, e.g. a labelled amount line.
+     */
+    public static Part group(Part... parts) {
+        return new Section(null, join(parts));
+    }
+
+    /**
+     * The parts printed in bold. Wrap whole lines: padding inserted by an
+     * enclosing part would move the reported range.
+     */
+    public static Part bold(Part... parts) {
+        return new Bold(join(parts));
+    }
+
+    public static Part when(Condition condition, Part... parts) {
+        return new Section(condition, join(parts));
+    }
+
+    public static Part each(Rows rows, Part... parts) {
+        return new Each(rows, join(parts));
+    }
+
+    /**
+     * Flatten untested sections and merge neighbouring text into one segment.
+     */
+    private static Part[] join(Part[] parts) {
+        List<Part> joined = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (Part part : flatten(parts, new ArrayList<>())) {
+            if (part instanceof Text t) {
+                text.append(t.chars);
+                continue;
+            }
+            if (text.length() > 0) {
+                joined.add(text(text.toString()));
+                text.setLength(0);
+            }
+            joined.add(part);
+        }
+        if (text.length() > 0) {
+            joined.add(text(text.toString()));
+        }
+        return joined.toArray(new Part[0]);
+    }
+
+    private static List<Part> flatten(Part[] parts, List<Part> into) {
+        for (Part part : parts) {
+            if (part instanceof Section s && s.condition == null) {
+                flatten(s.parts, into);
+            } else {
+                into.add(part);
+            }
+        }
+        return into;
+    }
+
+    private static final class Text extends Part {
+        final char[] chars;
+
+        Text(char[] chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        void render(Data data, StringBuilder out, Styles styles) {
+            out.append(chars);
+        }
+    }
+
+    private static final class Slot extends Part {
+        final Field field;
+        final int maxLength;
+
+        Slot(Field field, int maxLength) {
+            this.field = field;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        void render(Data data, StringBuilder out, Styles styles) {
+            data.append(field, maxLength, out);
+        }
+    }
+
+    private static final class Pad extends Part {
+        final Align align;
+        final int width;
+        final Part[] parts;
+
+        Pad(Align align, int width, Part[] parts) {
+            this.align = align;
+            this.width = width;
+            this.parts = parts;
+        }
+
+        @Override
+        void render(Data data, StringBuilder out, Styles styles) {
+            int start = out.length();
+            for (Part part : parts) {
+                part.render(data, out, styles);
+            }
+            int missing = width - (out.length() - start);
+            switch (align) {
+                case LEFT -> fill(out, out.length(), SPACES, missing);
+                case RIGHT -> fill(out, start, SPACES, missing);
+                case ZERO -> fill(out, out.length() > start && out.charAt(start) == '-' ? start + 1 : start, ZEROS, missing);
+                case CENTER -> fill(out, start, SPACES, missing / 2);
+            }
+        }
+
+        private static void fill(StringBuilder out, int at, char[] with, int count) {
+            while (count > 0) {
+                int n = Math.min(count, with.length);
+                out.insert(at, with, 0, n);
+                count -= n;
+            }
+        }
+    }
+
+    private static final class Bold extends Part {
+        final Part[] parts;
+
+        Bold(Part[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        void render(Data data, StringBuilder out, Styles styles) {
+            int start = out.length();
+            for (Part part : parts) {
+                part.render(data, out, styles);
+            }
+            if (styles != null) {
+                styles.bold(start, out.length());
+            }
+        }
+    }
+
+    private static final class Section extends Part {
+        final Condition condition;
+        final Part[] parts;
+
+        Section(Condition condition, Part[] parts) {
+            this.condition = condition;
+            this.parts = parts;
+        }
+
+        @Override
+        void render(Data data, StringBuilder out, Styles styles) {
+            if (data.test(condition)) {
+                for (Part part : parts) {
+                    part.render(data, out, styles);
+                }
+            }
+        }
+    }
+
+    private static final class Each extends Part {
+        final Rows rows;
+        final Part[] parts;
+
+        Each(Rows rows, Part[] parts) {
+            this.rows = rows;
+            this.parts = parts;
+        }
+
+        @Override
+        void render(Data data, StringBuilder out, Styles styles) {
+            int count = data.count(rows);
+            for (int row = 0; row < count; row++) {
+                data.select(rows, row);
+                for (Part part : parts) {
+                    part.render(data, out, styles);
+                }
+            }
+        }
+    }
+
+    // ========== DATA ==========
+
+    /**
+     * The values for one receipt. Reusable: set the fields, render, repeat.
+     */
+    public static final class Data {
+        public LocalDateTime time;
+        public int receiptNumber;
+        public String cashier;
+        public String register;
+        public List<Product> items = List.of();
+        public List<DiscountService.DiscountResponse.AppliedDiscount> discounts = List.of();
+        public long subtotalCents;
+        public long totalSavingsCents;
+        public long discountedSubtotalCents;
+        public long taxCents;
+        public long totalCents;
+        public String paymentType;
+        public long tenderedCents;
+        public long changeCents;
+        public boolean changeDue;
+
+        private Product item;
+        private DiscountService.DiscountResponse.AppliedDiscount discount;
+        private String affectedItem;
+
+        boolean test(Condition condition) {
+            if (condition == null) {
+                return true;
+            }
+            return switch (condition) {
+                case DISCOUNTS -> discounts != null && !discounts.isEmpty();
+                case SAVINGS -> totalSavingsCents > 0;
+                case CASH -> "CASH".equals(paymentType);
+                case NOT_CASH -> !"CASH".equals(paymentType);
+                case CHANGE_DUE -> changeDue;
+                case CREDIT -> "CREDIT".equals(paymentType);
+            };
+        }
+
+        int count(Rows rows) {
+            List<?> list = switch (rows) {
+                case ITEMS -> items;
+                case DISCOUNTS -> discounts;
+                case AFFECTED_ITEMS -> discount == null ? null : discount.affectedItems;
+            };
+            return list == null ? 0 : list.size();
+        }
+
+        void select(Rows rows, int row) {
+            switch (rows) {
+                case ITEMS -> item = items.get(row);
+                case DISCOUNTS -> discount = discounts.get(row);
+                case AFFECTED_ITEMS -> affectedItem = discount.affectedItems.get(row);
+            }
+        }
+
+        void append(Field field, int maxLength, StringBuilder out) {
+            switch (field) {
+                case DATE -> digits(digits(digits(out, time.getMonthValue(), 2).append('/'),
+                        time.getDayOfMonth(), 2).append('/'), time.getYear(), 4);
+                case TIME -> digits(digits(digits(out, time.getHour(), 2).append(':'),
+                        time.getMinute(), 2).append(':'), time.getSecond(), 2);
+                case RECEIPT_NUMBER -> out.append(receiptNumber);
+                case CASHIER -> truncate(out, cashier, maxLength);
+                case REGISTER -> truncate(out, register, maxLength);
+                case QUANTITY -> out.append(item.getQuantity());
+                case DESCRIPTION -> truncate(out, item.getDescription(), maxLength);
+                case PRICE -> Money.append(out, item.getPriceCents());
+                case LINE_TOTAL -> Money.append(out, item.getLineTotalCents());
+                case UPC -> truncate(out, item.getUpc(), maxLength);
+                case DISCOUNT -> truncate(out, discount.description, maxLength);
+                case DISCOUNT_AMOUNT -> Money.append(out, discount.amountCents());
+                case AFFECTED_ITEM -> truncate(out, affectedItem, maxLength);
+                case SUBTOTAL -> Money.append(out, subtotalCents);
+                case TOTAL_SAVINGS -> Money.append(out, totalSavingsCents);
+                case DISCOUNTED_SUBTOTAL -> Money.append(out, discountedSubtotalCents);
+                case TAX -> Money.append(out, taxCents);
+                case TOTAL -> Money.append(out, totalCents);
+                case PAYMENT_TYPE -> truncate(out, paymentType, maxLength);
+                case TENDERED -> Money.append(out, tenderedCents);
+                case CHANGE -> Money.append(out, changeCents);
+                case ITEM_COUNT -> out.append(items.size());
+            }
+        }
+
+        private static StringBuilder digits(StringBuilder out, int value, int width) {
+            int divisor = 1;
+            for (int i = 1; i < width; i++) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                out.append((char) ('0' + value / divisor % 10));
+            }
+            return out;
+        }
+
+        private static void truncate(StringBuilder out, String text, int maxLength) {
+            if (text == null || maxLength <= 0 || text.length() <= maxLength) {
+                out.append(text);
+            } else {
+                out.append(text, 0, maxLength - 3).append("...");
+            }
+        }
+    }
+}
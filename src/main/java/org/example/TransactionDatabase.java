@@ -1,8 +1,23 @@
 package org.example;
 
+import org.example.config.PosConfig;
+import org.example.db.ConnectionPool;
+import org.example.db.PooledConnection;
+import org.example.model.Money;
 import org.example.model.Product;
 import org.example.model.Transaction;
-
+import org.example.pricebook.PricebookDelta;
+import org.example.pricebook.PricebookParser;
+import org.example.pricebook.PricebookSnapshot;
+import org.example.pricebook.ProductIndex;
+import org.example.sales.SaleRecord;
+import org.example.sales.SaleWriter;
+import org.example.sales.SequenceService;
+import org.example.service.CategoryClassifier;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -10,19 +25,60 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class TransactionDatabase {
-    private final Connection connection;
+    // Register work (lookups, sales, suspend/resume) and reports use separate
+    // pools, so a long report query never holds up the lane
+    private final ConnectionPool registerPool;
+    private final ConnectionPool reportPool;
+    private static final int REGISTER_POOL_SIZE = 3;
+    private static final int REPORT_POOL_SIZE = 2;
+    private static final int STATEMENT_CACHE_SIZE = 32;
     private static final String DB_URL = "jdbc:h2:./data/pos_transactions;AUTO_SERVER=TRUE";
     private static final String DB_USER = "sa";
     private static final String DB_PASSWORD = "";
     private org.h2.tools.Server server;
     private static final int TCP_PORT = 9093;
+    private static final int PRODUCT_BATCH_SIZE = 1000;
+
+    // Categories are computed once per SKU at load and stored with the product
+    private final CategoryClassifier classifier = CategoryClassifier.getDefault();
+
+    // In-memory product lookup index (primitive-keyed, no per-SKU objects)
+    private final ProductIndex productIndex = new ProductIndex();
+
+    // Compiled pricebook, memory-mapped at startup (see loadPricebook)
+    private static final Path SNAPSHOT_PATH = Path.of("./data/pricebook.bin");
+    private volatile PricebookSnapshot pricebookSnapshot;
+    private Path pricebookSource;
+    private final ExecutorService pricebookSync = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "pricebook-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    // In-memory product lookup cache (replaces ProductDatabase for products table)
-    private final Map<String, Product> productCache = new HashMap<>();
+    // Completed sales: local log + background batched writer (see recordSale)
+    private SaleWriter salesWriter;
+
+    // This lane's identity, stored with every sale
+    private final String registerId;
+    private final String cashierId;
+
+    // Receipt numbers, reserved in blocks per register (see reserveSequenceBlock).
+    // Transaction ids stay on the IDENTITY column: they key rows from every
+    // register sharing this database, and H2 hands them out in memory.
+    private final SequenceService sequences;
+    private final SequenceService.Sequence receiptNumbers;
 
     public TransactionDatabase() {
+        PosConfig config = new PosConfig();
+        this.registerId = config.getRegisterId();
+        this.cashierId = config.getCashierId();
         try {
             // Start TCP server for external connections
             server = org.h2.tools.Server.createTcpServer(
@@ -33,9 +89,21 @@ public class TransactionDatabase {
             System.out.println("H2 TCP Server started on port " + TCP_PORT);
             System.out.println("=".repeat(70));
 
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+            registerPool = new ConnectionPool("register", DB_URL, DB_USER, DB_PASSWORD,
+                    REGISTER_POOL_SIZE, STATEMENT_CACHE_SIZE);
+            reportPool = new ConnectionPool("report", DB_URL, DB_USER, DB_PASSWORD,
+                    REPORT_POOL_SIZE, STATEMENT_CACHE_SIZE);
             createTables();
 
+            sequences = new SequenceService(registerId, this::reserveSequenceBlock, config.getSequenceBlockSize());
+            receiptNumbers = sequences.open(SequenceService.RECEIPT);
+
+            try {
+                salesWriter = SaleWriter.start(config, getSaleLogCheckpoint(), this::writeSales, this::syncToDisk);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Sale log unavailable, sales will be saved synchronously: " + e.getMessage());
+            }
+
             // Get absolute path for IntelliJ
             String dbPath = new java.io.File("./data/pos_transactions").getAbsolutePath();
 
@@ -64,6 +132,32 @@ public class TransactionDatabase {
             )
         """;
 
+        String pricebookStateTable = """
+            CREATE TABLE IF NOT EXISTS pricebook_state (
+                name VARCHAR(50) PRIMARY KEY,
+                file_hash BIGINT,
+                synced_at TIMESTAMP
+            )
+        """;
+
+        String saleLogStateTable = """
+            CREATE TABLE IF NOT EXISTS sale_log_state (
+                name VARCHAR(50) PRIMARY KEY,
+                last_sequence BIGINT,
+                updated_at TIMESTAMP
+            )
+        """;
+
+        String sequencesTable = """
+            CREATE TABLE IF NOT EXISTS register_sequences (
+                register_id VARCHAR(50),
+                name VARCHAR(50),
+                reserved_through BIGINT NOT NULL,
+                updated_at TIMESTAMP,
+                PRIMARY KEY (register_id, name)
+            )
+        """;
+
         String transactionsTable = """
             CREATE TABLE IF NOT EXISTS transactions (
                 id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -111,14 +205,20 @@ public class TransactionDatabase {
         String indexSql = """
             CREATE INDEX IF NOT EXISTS idx_trans_date ON transactions(transaction_date);
             CREATE INDEX IF NOT EXISTS idx_trans_status ON transactions(status);
+            CREATE INDEX IF NOT EXISTS idx_trans_register_receipt ON transactions(register_id, receipt_number);
             CREATE INDEX IF NOT EXISTS idx_item_upc ON transaction_items(upc);
             CREATE INDEX IF NOT EXISTS idx_item_category ON transaction_items(category);
             CREATE INDEX IF NOT EXISTS idx_product_category ON products(category);
             CREATE INDEX IF NOT EXISTS idx_product_desc ON products(description);
         """;
 
-        try (Statement stmt = connection.createStatement()) {
+        try (PooledConnection conn = registerPool.borrow();
+             Statement stmt = conn.createStatement()) {
             stmt.execute(productsTable);
+            stmt.execute("ALTER TABLE products ADD COLUMN IF NOT EXISTS row_hash BIGINT");
+            stmt.execute(pricebookStateTable);
+            stmt.execute(saleLogStateTable);
+            stmt.execute(sequencesTable);
             stmt.execute(transactionsTable);
             stmt.execute(itemsTable);
             stmt.execute(discountsTable);
@@ -129,76 +229,236 @@ public class TransactionDatabase {
                     stmt.execute(index);
                 }
             }
+            conn.commit();
         }
     }
 
     // ========== PRODUCT MANAGEMENT (Replaces ProductDatabase) ==========
 
-    public void loadProductsFromTSV(String filePath) throws java.io.IOException, SQLException {
-        String insertSQL = """
-            MERGE INTO products (upc, description, price, category) 
-            VALUES (?, ?, ?, ?)
-        """;
+    /**
+     * Fast startup path: map the compiled pricebook (compiling it first if the TSV
+     * changed) so lookups work immediately, then sync the products table in the
+     * background.
+     */
+    public void loadPricebook(String filePath) throws IOException {
+        long start = System.nanoTime();
+        Path source = Path.of(filePath);
+
+        long rulesHash = classifier.getRulesHash();
+        PricebookSnapshot snapshot = PricebookSnapshot.openIfFresh(SNAPSHOT_PATH, source, rulesHash);
+        if (snapshot == null) {
+            PricebookSnapshot.compile(source, SNAPSHOT_PATH, classifier::classify, rulesHash);
+            snapshot = PricebookSnapshot.openIfFresh(SNAPSHOT_PATH, source, rulesHash);
+            System.out.println("Compiled pricebook snapshot: " + SNAPSHOT_PATH);
+        }
+        pricebookSnapshot = snapshot;
+        pricebookSource = source;
+
+        System.out.printf("Pricebook mapped: %d products in %d ms%n",
+                snapshot != null ? snapshot.size() : 0,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        pricebookSync.submit(() -> {
+            try {
+                syncProductsFromTSV(filePath);
+            } catch (IOException | SQLException e) {
+                System.err.println("Error syncing products table: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Bring the products table in line with the TSV, writing only what changed.
+     * Runs on its own connection so the whole delta commits as one transaction.
+     */
+    private void syncProductsFromTSV(String filePath) throws IOException, SQLException {
+        Path source = Path.of(filePath);
+        // Folding in the rules hash re-syncs stored categories when the rules change
+        long fileHash = PricebookDelta.fileHash(source) ^ classifier.getRulesHash();
+
+        try (Connection sync = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+            Long storedHash = getStoredPricebookHash(sync);
+            if (storedHash != null && storedHash == fileHash) {
+                System.out.println("Pricebook unchanged since last sync - products table left as is");
+                return;
+            }
+
+            // Parsing, classification and fingerprinting run in parallel; this thread diffs
+            PricebookDelta delta = new PricebookDelta(loadProductFingerprints(sync));
+            PricebookParser.IngestStats stats = PricebookParser.ingest(
+                    source,
+                    classifier::classify,
+                    delta::accept);
+            delta.finishFullSync();
+
+            applyProductDelta(sync, delta, fileHash);
+            System.out.println("Pricebook parsed: " + stats);
+            System.out.println("Products table synced: " + delta);
+        }
+    }
 
-        try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(filePath));
-             PreparedStatement stmt = connection.prepareStatement(insertSQL)) {
+    /**
+     * Apply a head-office delta-only file (see PricebookDelta for the format) and
+     * rebuild the mapped pricebook so lookups see the new prices immediately.
+     * Runs on the pricebook-sync thread, after any products table sync still in
+     * progress; the future completes with the delta summary.
+     */
+    public CompletableFuture<String> applyPricebookDelta(String deltaFilePath) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return applyDeltaFile(deltaFilePath);
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, pricebookSync);
+    }
 
-            String line;
-            int count = 0;
+    private String applyDeltaFile(String deltaFilePath) throws IOException, SQLException {
+        PricebookDelta delta = PricebookDelta.readDeltaFile(
+                Path.of(deltaFilePath), classifier::classify);
 
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\t");
-                if (parts.length >= 3) {
-                    String upc = parts[0].trim();
-                    String description = parts[1].trim();
-                    double price = Double.parseDouble(parts[2].trim());
-                    String category = determineCategory(description);
+        try (Connection sync = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+            applyProductDelta(sync, delta, null);
+        }
 
-                    stmt.setString(1, upc);
-                    stmt.setString(2, description);
-                    stmt.setDouble(3, price);
-                    stmt.setString(4, category);
-                    stmt.addBatch();
+        rebuildSnapshotFromDatabase();
+        productIndex.clear();
+        return delta.toString();
+    }
 
-                    // Also cache in memory for fast lookup
-                    Product product = new Product(upc, description, price);
-                    productCache.put(upc, product);
+    private void applyProductDelta(Connection sync, PricebookDelta delta, Long fileHash) throws SQLException {
+        String upsertSql = """
+            MERGE INTO products (upc, description, price, category, row_hash, last_updated)
+            KEY (upc) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+        """;
+        String deleteSql = "DELETE FROM products WHERE upc = ?";
+        String stateSql = "MERGE INTO pricebook_state (name, file_hash, synced_at) KEY (name) VALUES ('PRICEBOOK', ?, ?)";
 
-                    count++;
-                    if (count % 100 == 0) {
+        sync.setAutoCommit(false);
+        try {
+            try (PreparedStatement stmt = sync.prepareStatement(upsertSql)) {
+                int pending = 0;
+                for (PricebookDelta.Row row : delta.getInserts()) {
+                    addProductUpsert(stmt, row);
+                    if (++pending % PRODUCT_BATCH_SIZE == 0) {
                         stmt.executeBatch();
                     }
                 }
+                for (PricebookDelta.Row row : delta.getUpdates()) {
+                    addProductUpsert(stmt, row);
+                    if (++pending % PRODUCT_BATCH_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
             }
 
-            // Execute remaining batch
-            if (count % 100 != 0) {
+            try (PreparedStatement stmt = sync.prepareStatement(deleteSql)) {
+                for (String upc : delta.getDeletes()) {
+                    stmt.setString(1, upc);
+                    stmt.addBatch();
+                }
                 stmt.executeBatch();
             }
 
-            System.out.println("Loaded " + count + " products into persistent database");
+            if (fileHash != null) {
+                try (PreparedStatement stmt = sync.prepareStatement(stateSql)) {
+                    stmt.setLong(1, fileHash);
+                    stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                    stmt.executeUpdate();
+                }
+            }
+
+            sync.commit();
+        } catch (SQLException e) {
+            sync.rollback();
+            throw e;
+        } finally {
+            sync.setAutoCommit(true);
         }
     }
 
+    private void addProductUpsert(PreparedStatement stmt, PricebookDelta.Row row) throws SQLException {
+        stmt.setString(1, row.upc());
+        stmt.setString(2, row.description());
+        stmt.setBigDecimal(3, Money.toBigDecimal(row.priceCents()));
+        stmt.setString(4, row.category());
+        stmt.setLong(5, row.hash());
+        stmt.addBatch();
+    }
+
+    private Long getStoredPricebookHash(Connection sync) throws SQLException {
+        String sql = "SELECT file_hash FROM pricebook_state WHERE name = 'PRICEBOOK'";
+        try (Statement stmt = sync.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong("file_hash") : null;
+        }
+    }
+
+    private Map<String, Long> loadProductFingerprints(Connection sync) throws SQLException {
+        Map<String, Long> fingerprints = new HashMap<>();
+        try (Statement stmt = sync.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT upc, row_hash FROM products")) {
+            while (rs.next()) {
+                long hash = rs.getLong("row_hash");
+                fingerprints.put(rs.getString("upc"), rs.wasNull() ? 0L : hash);
+            }
+        }
+        return fingerprints;
+    }
+
+    private void rebuildSnapshotFromDatabase() throws IOException, SQLException {
+        PricebookSnapshot current = pricebookSnapshot;
+        if (current == null || pricebookSource == null) {
+            return;
+        }
+
+        PricebookParser.Chunk rows = new PricebookParser.Chunk(Math.max(16, current.size()));
+        try (PooledConnection conn = registerPool.borrow();
+             ResultSet rs = conn.prepare("SELECT upc, description, price, category FROM products").executeQuery()) {
+            while (rs.next()) {
+                rows.add(rs.getString("upc"), rs.getString("description"),
+                        Money.fromBigDecimal(rs.getBigDecimal("price")),
+                        rs.getString("category"));
+            }
+        }
+
+        long rulesHash = classifier.getRulesHash();
+        PricebookSnapshot.compile(pricebookSource, SNAPSHOT_PATH, List.of(rows), rulesHash);
+        pricebookSnapshot = PricebookSnapshot.openIfFresh(SNAPSHOT_PATH, pricebookSource, rulesHash);
+    }
+
     public Product findProductByUPC(String upc) {
-        // Try cache first (fast)
-        if (productCache.containsKey(upc)) {
-            return new Product(productCache.get(upc)); // Return copy
+        // Mapped pricebook first - available before the products table is synced
+        PricebookSnapshot snapshot = pricebookSnapshot;
+        if (snapshot != null) {
+            Product mapped = snapshot.get(upc);
+            if (mapped != null) {
+                return mapped;
+            }
+        }
+
+        // Then the in-memory index (fast, allocation-free probe)
+        Product cached = productIndex.get(upc);
+        if (cached != null) {
+            return cached;
         }
 
-        // Cache miss - query database and update cache
-        String sql = "SELECT upc, description, price FROM products WHERE upc = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        // Index miss - query database and update index
+        String sql = "SELECT upc, description, price, category FROM products WHERE upc = ?";
+        try (PooledConnection conn = registerPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setString(1, upc);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Product product = new Product(
+                    Product product = Product.ofCents(
                             rs.getString("upc"),
                             rs.getString("description"),
-                            rs.getDouble("price")
+                            Money.fromBigDecimal(rs.getBigDecimal("price")),
+                            rs.getString("category")
                     );
-                    productCache.put(upc, product); // Update cache
-                    return new Product(product); // Return copy
+                    productIndex.put(product); // Update index
+                    return product;
                 }
             }
         } catch (SQLException e) {
@@ -209,8 +469,8 @@ public class TransactionDatabase {
 
     public int getProductCount() {
         String sql = "SELECT COUNT(*) as count FROM products";
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (PooledConnection conn = registerPool.borrow();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
             if (rs.next()) {
                 return rs.getInt("count");
             }
@@ -223,24 +483,26 @@ public class TransactionDatabase {
     public List<Product> searchProducts(String keyword) {
         List<Product> results = new ArrayList<>();
         String sql = """
-            SELECT upc, description, price 
+            SELECT upc, description, price, category
             FROM products 
             WHERE description LIKE ? OR upc LIKE ?
             ORDER BY description
             LIMIT 100
         """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = registerPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             String pattern = "%" + keyword + "%";
             stmt.setString(1, pattern);
             stmt.setString(2, pattern);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    results.add(new Product(
+                    results.add(Product.ofCents(
                             rs.getString("upc"),
                             rs.getString("description"),
-                            rs.getDouble("price")
+                            Money.fromBigDecimal(rs.getBigDecimal("price")),
+                            rs.getString("category")
                     ));
                 }
             }
@@ -253,18 +515,7 @@ public class TransactionDatabase {
 
     // ========== TRANSACTION MANAGEMENT ==========
 
-    public long saveTransaction(
-            Transaction transaction,
-            String paymentType,
-            double tendered,
-            double change,
-            String status,
-            int receiptNumber,
-            Double discount,
-            org.example.service.DiscountService.DiscountResponse discountInfo
-    ) throws SQLException {
-
-        String transactionSql = """
+    private static final String TRANSACTION_INSERT_SQL = """
             INSERT INTO transactions (
                 transaction_date, cashier, register_id, 
                 subtotal, discount, tax, total,
@@ -273,93 +524,268 @@ public class TransactionDatabase {
             ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
 
-        String itemSql = """
+    private static final String ITEM_INSERT_SQL = """
             INSERT INTO transaction_items (
                 transaction_id, upc, description, price, quantity, line_total, category
             ) VALUES (?, ?, ?, ?, ?, ?, ?)
         """;
 
-        String discountSql = """
+    private static final String DISCOUNT_INSERT_SQL = """
             INSERT INTO applied_discounts (
                 transaction_id, rule_name, description, amount
             ) VALUES (?, ?, ?, ?)
         """;
 
-        connection.setAutoCommit(false);
+    /**
+     * Write-behind save for a completed sale: the sale is appended to the local
+     * sale log and this returns straight away with its log sequence number.
+     * The database insert happens on the sale-writer thread.
+     *
+     * @throws IOException if the sale log is unavailable - use saveTransaction instead
+     */
+    public long recordSale(
+            Transaction transaction,
+            String paymentType,
+            double tendered,
+            double change,
+            int receiptNumber,
+            Double discount,
+            org.example.service.DiscountService.DiscountResponse discountInfo
+    ) throws IOException {
+        if (salesWriter == null) {
+            throw new IOException("Sale log is not available");
+        }
+        SaleRecord sale = SaleRecord.of(transaction, paymentType, tendered, change,
+                "COMPLETED", receiptNumber, discount, discountInfo);
+        return salesWriter.submit(sale).sequence();
+    }
 
-        try {
-            // Insert transaction
-            long transactionId;
-            try (PreparedStatement stmt = connection.prepareStatement(transactionSql,
-                    Statement.RETURN_GENERATED_KEYS)) {
-
-                stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-                stmt.setString(2, "OPERATOR01");
-                stmt.setString(3, "REG-001");
-
-                double subtotal = discountInfo != null ? discountInfo.subtotal : transaction.getSubtotal();
-                double discountAmount = discount != null ? discount : 0.0;
-                double tax = discountInfo != null ? discountInfo.tax : transaction.getTax();
-                double total = discountInfo != null ? discountInfo.total : transaction.getTotal();
-
-                stmt.setDouble(4, subtotal);
-                stmt.setDouble(5, discountAmount);
-                stmt.setDouble(6, tax);
-                stmt.setDouble(7, total);
-                stmt.setString(8, paymentType);
-                stmt.setDouble(9, tendered);
-                stmt.setDouble(10, change);
-                stmt.setString(11, status);
-                stmt.setInt(12, receiptNumber);
-
-                stmt.executeUpdate();
-
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    transactionId = rs.getLong(1);
-                } else {
-                    throw new SQLException("Failed to get transaction ID");
-                }
+    /**
+     * Synchronous save, committed before returning. Returns the transaction ID.
+     */
+    public long saveTransaction(
+            Transaction transaction,
+            String paymentType,
+            double tendered,
+            double change,
+            String status,
+            int receiptNumber,
+            Double discount,
+            org.example.service.DiscountService.DiscountResponse discountInfo
+    ) throws SQLException {
+        SaleRecord sale = SaleRecord.of(transaction, paymentType, tendered, change,
+                status, receiptNumber, discount, discountInfo);
+
+        try (PooledConnection conn = registerPool.borrow()) {
+            PreparedStatement itemStmt = conn.prepare(ITEM_INSERT_SQL);
+            PreparedStatement discountStmt = conn.prepare(DISCOUNT_INSERT_SQL);
+
+            long transactionId = insertSale(conn.prepareWithKeys(TRANSACTION_INSERT_SQL), itemStmt, discountStmt, sale);
+            itemStmt.executeBatch();
+            discountStmt.executeBatch();
+
+            conn.commit();
+            return transactionId;
+        }
+    }
+
+    /**
+     * Sale-writer sink: insert a batch of logged sales and advance the sale log
+     * checkpoint in one commit, so a replay after a crash never duplicates a sale.
+     */
+    private void writeSales(List<SaleRecord> sales) throws SQLException {
+        String checkpointSql = """
+            MERGE INTO sale_log_state (name, last_sequence, updated_at)
+            KEY (name) VALUES ('sales', ?, CURRENT_TIMESTAMP)
+        """;
+
+        try (PooledConnection conn = registerPool.borrow()) {
+            PreparedStatement transactionStmt = conn.prepareWithKeys(TRANSACTION_INSERT_SQL);
+            PreparedStatement itemStmt = conn.prepare(ITEM_INSERT_SQL);
+            PreparedStatement discountStmt = conn.prepare(DISCOUNT_INSERT_SQL);
+            PreparedStatement checkpointStmt = conn.prepare(checkpointSql);
+
+            for (SaleRecord sale : sales) {
+                insertSale(transactionStmt, itemStmt, discountStmt, sale);
             }
+            itemStmt.executeBatch();
+            discountStmt.executeBatch();
 
-            // Insert items
-            try (PreparedStatement stmt = connection.prepareStatement(itemSql)) {
-                for (Product product : transaction.getItems()) {
-                    stmt.setLong(1, transactionId);
-                    stmt.setString(2, product.getUpc());
-                    stmt.setString(3, product.getDescription());
-                    stmt.setDouble(4, product.getPrice());
-                    stmt.setInt(5, product.getQuantity());
-                    stmt.setDouble(6, product.getLineTotal());
-                    stmt.setString(7, determineCategory(product.getDescription()));
-                    stmt.addBatch();
-                }
-                stmt.executeBatch();
+            checkpointStmt.setLong(1, sales.get(sales.size() - 1).sequence());
+            checkpointStmt.executeUpdate();
+
+            conn.commit(); // uncommitted work is rolled back when the connection is returned
+        }
+    }
+
+    /**
+     * Sale-writer sync: force every commit so far to disk.
+     */
+    private void syncToDisk() throws SQLException {
+        try (PooledConnection conn = registerPool.borrow()) {
+            checkpointSync(conn);
+        }
+    }
+
+    private static void checkpointSync(PooledConnection conn) throws SQLException {
+        try (Statement sync = conn.createStatement()) {
+            sync.execute("CHECKPOINT SYNC"); // H2 otherwise writes commits to disk lazily
+        }
+    }
+
+    /**
+     * Insert the transaction row; items and discounts are added to the batches
+     * for the caller to execute.
+     */
+    private long insertSale(PreparedStatement transactionStmt, PreparedStatement itemStmt,
+                            PreparedStatement discountStmt, SaleRecord sale) throws SQLException {
+        transactionStmt.setTimestamp(1, new Timestamp(sale.timestamp()));
+        transactionStmt.setString(2, cashierId);
+        transactionStmt.setString(3, registerId);
+        transactionStmt.setBigDecimal(4, Money.toBigDecimal(sale.subtotalCents()));
+        transactionStmt.setBigDecimal(5, Money.toBigDecimal(sale.discountCents()));
+        transactionStmt.setBigDecimal(6, Money.toBigDecimal(sale.taxCents()));
+        transactionStmt.setBigDecimal(7, Money.toBigDecimal(sale.totalCents()));
+        transactionStmt.setString(8, sale.paymentType());
+        transactionStmt.setBigDecimal(9, Money.toBigDecimal(sale.tenderedCents()));
+        transactionStmt.setBigDecimal(10, Money.toBigDecimal(sale.changeCents()));
+        transactionStmt.setString(11, sale.status());
+        transactionStmt.setInt(12, sale.receiptNumber());
+        transactionStmt.executeUpdate();
+
+        long transactionId;
+        try (ResultSet rs = transactionStmt.getGeneratedKeys()) {
+            if (rs.next()) {
+                transactionId = rs.getLong(1);
+            } else {
+                throw new SQLException("Failed to get transaction ID");
             }
+        }
+
+        for (SaleRecord.Line line : sale.lines()) {
+            itemStmt.setLong(1, transactionId);
+            itemStmt.setString(2, line.upc());
+            itemStmt.setString(3, line.description());
+            itemStmt.setBigDecimal(4, Money.toBigDecimal(line.priceCents()));
+            itemStmt.setInt(5, line.quantity());
+            itemStmt.setBigDecimal(6, Money.toBigDecimal(line.lineTotalCents()));
+            itemStmt.setString(7, line.category());
+            itemStmt.addBatch();
+        }
 
-            // Insert discounts
-            if (discountInfo != null && discountInfo.appliedDiscounts != null) {
-                try (PreparedStatement stmt = connection.prepareStatement(discountSql)) {
-                    for (var discount2 : discountInfo.appliedDiscounts) {
-                        stmt.setLong(1, transactionId);
-                        stmt.setString(2, discount2.ruleName);
-                        stmt.setString(3, discount2.description);
-                        stmt.setDouble(4, discount2.amount);
-                        stmt.addBatch();
+        for (SaleRecord.Discount discount : sale.discounts()) {
+            discountStmt.setLong(1, transactionId);
+            discountStmt.setString(2, discount.ruleName());
+            discountStmt.setString(3, discount.description());
+            discountStmt.setBigDecimal(4, Money.toBigDecimal(discount.amountCents()));
+            discountStmt.addBatch();
+        }
+
+        return transactionId;
+    }
+
+    private long getSaleLogCheckpoint() throws SQLException {
+        String sql = "SELECT last_sequence FROM sale_log_state WHERE name = 'sales'";
+        try (PooledConnection conn = registerPool.borrow();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            return rs.next() ? rs.getLong("last_sequence") : 0L;
+        }
+    }
+
+    // ========== SEQUENCES ==========
+
+    /**
+     * SequenceService block source: move the register's reservation on by
+     * size and return the new end, committed and synced to disk before any
+     * number in the block is used. The UPDATE takes the row lock, so
+     * concurrent reservations get separate blocks. A new register's receipt
+     * sequence starts after the highest receipt number it already has in
+     * transactions, so receipts from before the sequence existed are not
+     * repeated.
+     */
+    private long reserveSequenceBlock(String register, String name, int size) throws SQLException {
+        String advanceSql = """
+            UPDATE register_sequences
+            SET reserved_through = reserved_through + ?, updated_at = CURRENT_TIMESTAMP
+            WHERE register_id = ? AND name = ?
+        """;
+        String readSql = "SELECT reserved_through FROM register_sequences WHERE register_id = ? AND name = ?";
+        String insertSql = """
+            INSERT INTO register_sequences (register_id, name, reserved_through, updated_at)
+            VALUES (?, ?, ?, CURRENT_TIMESTAMP)
+        """;
+        String receiptSeedSql = "SELECT COALESCE(MAX(receipt_number), 0) FROM transactions WHERE register_id = ?";
+
+        try (PooledConnection conn = registerPool.borrow()) {
+            for (int attempt = 1; ; attempt++) {
+                PreparedStatement advance = conn.prepare(advanceSql);
+                advance.setInt(1, size);
+                advance.setString(2, register);
+                advance.setString(3, name);
+                long reservedThrough;
+                if (advance.executeUpdate() == 1) {
+                    PreparedStatement read = conn.prepare(readSql);
+                    read.setString(1, register);
+                    read.setString(2, name);
+                    try (ResultSet rs = read.executeQuery()) {
+                        rs.next();
+                        reservedThrough = rs.getLong(1);
+                    }
+                } else {
+                    long seed = 0;
+                    if (name.equals(SequenceService.RECEIPT)) {
+                        PreparedStatement max = conn.prepare(receiptSeedSql);
+                        max.setString(1, register);
+                        try (ResultSet rs = max.executeQuery()) {
+                            seed = rs.next() ? rs.getLong(1) : 0;
+                        }
+                    }
+                    reservedThrough = seed + size;
+                    PreparedStatement insert = conn.prepare(insertSql);
+                    insert.setString(1, register);
+                    insert.setString(2, name);
+                    insert.setLong(3, reservedThrough);
+                    try {
+                        insert.executeUpdate();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        if (attempt < 3 && "23505".equals(e.getSQLState())) {
+                            continue; // another connection created the row first
+                        }
+                        throw e;
                     }
-                    stmt.executeBatch();
                 }
+                conn.commit();
+                checkpointSync(conn);
+                return reservedThrough;
             }
+        }
+    }
 
-            connection.commit();
-            return transactionId;
+    /**
+     * This register's receipt numbers.
+     */
+    public SequenceService.Sequence getReceiptNumbers() {
+        return receiptNumbers;
+    }
 
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+    public SaleWriter getSalesWriter() {
+        return salesWriter;
+    }
+
+    /**
+     * Pool, statement-cache and sale-writer metrics for the inspector.
+     */
+    public String getDatabaseStatistics() {
+        StringBuilder stats = new StringBuilder();
+        stats.append(registerPool.getStatistics()).append("\n");
+        stats.append(reportPool.getStatistics()).append("\n");
+        if (salesWriter != null) {
+            stats.append(String.format("Sale writer: %d sales in %d commits, %d pending%n",
+                    salesWriter.getCommittedSales(), salesWriter.getCommittedBatches(),
+                    salesWriter.getPendingCount()));
         }
+        return stats.toString();
     }
 
     // ========== SUSPENDED TRANSACTION MANAGEMENT ==========
@@ -369,53 +795,34 @@ public class TransactionDatabase {
             return -1;
         }
 
-        String transactionSql = """
-            INSERT INTO transactions (
-                transaction_date, cashier, register_id, 
-                subtotal, discount, tax, total,
-                payment_type, tendered, change_amount, 
-                status, receipt_number
-            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
-
-        String itemSql = """
-            INSERT INTO transaction_items (
-                transaction_id, upc, description, price, quantity, line_total, category
-            ) VALUES (?, ?, ?, ?, ?, ?, ?)
-        """;
-
-        connection.setAutoCommit(false);
-
-        try {
+        try (PooledConnection conn = registerPool.borrow()) {
             // Check if this transaction was previously suspended
             Integer existingId = transaction.getSuspendedId();
 
             if (existingId != null) {
                 // Update existing suspended transaction
-                deleteSuspendedTransaction(existingId);
+                deleteSuspended(conn, existingId);
             }
 
             // Insert new suspended transaction
             long transactionId;
-            try (PreparedStatement stmt = connection.prepareStatement(transactionSql,
-                    Statement.RETURN_GENERATED_KEYS)) {
-
-                stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-                stmt.setString(2, "OPERATOR01");
-                stmt.setString(3, "REG-001");
-                stmt.setDouble(4, transaction.getSubtotal());
-                stmt.setDouble(5, 0.0); // No discount for suspended
-                stmt.setDouble(6, transaction.getTax());
-                stmt.setDouble(7, transaction.getTotal());
-                stmt.setString(8, null); // No payment yet
-                stmt.setDouble(9, 0.0);
-                stmt.setDouble(10, 0.0);
-                stmt.setString(11, "SUSPENDED");
-                stmt.setInt(12, 0); // No receipt number yet
-
-                stmt.executeUpdate();
-
-                ResultSet rs = stmt.getGeneratedKeys();
+            PreparedStatement stmt = conn.prepareWithKeys(TRANSACTION_INSERT_SQL);
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setString(2, cashierId);
+            stmt.setString(3, registerId);
+            stmt.setBigDecimal(4, Money.toBigDecimal(transaction.getSubtotalCents()));
+            stmt.setBigDecimal(5, BigDecimal.ZERO); // No discount for suspended
+            stmt.setBigDecimal(6, Money.toBigDecimal(transaction.getTaxCents()));
+            stmt.setBigDecimal(7, Money.toBigDecimal(transaction.getTotalCents()));
+            stmt.setString(8, null); // No payment yet
+            stmt.setBigDecimal(9, BigDecimal.ZERO);
+            stmt.setBigDecimal(10, BigDecimal.ZERO);
+            stmt.setString(11, "SUSPENDED");
+            stmt.setInt(12, 0); // No receipt number yet
+
+            stmt.executeUpdate();
+
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     transactionId = rs.getLong(1);
                 } else {
@@ -424,28 +831,21 @@ public class TransactionDatabase {
             }
 
             // Insert items
-            try (PreparedStatement stmt = connection.prepareStatement(itemSql)) {
-                for (Product product : transaction.getItems()) {
-                    stmt.setLong(1, transactionId);
-                    stmt.setString(2, product.getUpc());
-                    stmt.setString(3, product.getDescription());
-                    stmt.setDouble(4, product.getPrice());
-                    stmt.setInt(5, product.getQuantity());
-                    stmt.setDouble(6, product.getLineTotal());
-                    stmt.setString(7, determineCategory(product.getDescription()));
-                    stmt.addBatch();
-                }
-                stmt.executeBatch();
+            PreparedStatement itemStmt = conn.prepare(ITEM_INSERT_SQL);
+            for (Product product : transaction.getItems()) {
+                itemStmt.setLong(1, transactionId);
+                itemStmt.setString(2, product.getUpc());
+                itemStmt.setString(3, product.getDescription());
+                itemStmt.setBigDecimal(4, Money.toBigDecimal(product.getPriceCents()));
+                itemStmt.setInt(5, product.getQuantity());
+                itemStmt.setBigDecimal(6, Money.toBigDecimal(product.getLineTotalCents()));
+                itemStmt.setString(7, CategoryClassifier.categoryOf(product));
+                itemStmt.addBatch();
             }
+            itemStmt.executeBatch();
 
-            connection.commit();
+            conn.commit();
             return (int) transactionId;
-
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
         }
     }
 
@@ -457,7 +857,7 @@ public class TransactionDatabase {
         """;
 
         String itemsSql = """
-            SELECT upc, description, price, quantity, line_total
+            SELECT upc, description, price, quantity, line_total, category
             FROM transaction_items
             WHERE transaction_id = ?
         """;
@@ -466,7 +866,8 @@ public class TransactionDatabase {
         transaction.setSuspendedId(transactionId);
 
         // Get transaction details
-        try (PreparedStatement stmt = connection.prepareStatement(transactionSql)) {
+        try (PooledConnection conn = registerPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(transactionSql);
             stmt.setInt(1, transactionId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (!rs.next()) {
@@ -476,14 +877,16 @@ public class TransactionDatabase {
         }
 
         // Get items
-        try (PreparedStatement stmt = connection.prepareStatement(itemsSql)) {
+        try (PooledConnection conn = registerPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(itemsSql);
             stmt.setInt(1, transactionId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Product product = new Product(
+                    Product product = Product.ofCents(
                             rs.getString("upc"),
                             rs.getString("description"),
-                            rs.getDouble("price")
+                            Money.fromBigDecimal(rs.getBigDecimal("price")),
+                            rs.getString("category")
                     );
                     int quantity = rs.getInt("quantity");
                     transaction.addItem(product, quantity);
@@ -495,14 +898,19 @@ public class TransactionDatabase {
     }
 
     public void deleteSuspendedTransaction(int transactionId) throws SQLException {
-        String sql = "DELETE FROM transactions WHERE id = ? AND status = 'SUSPENDED'";
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, transactionId);
-            stmt.executeUpdate();
+        try (PooledConnection conn = registerPool.borrow()) {
+            deleteSuspended(conn, transactionId);
+            conn.commit();
         }
     }
 
+    private void deleteSuspended(PooledConnection conn, int transactionId) throws SQLException {
+        String sql = "DELETE FROM transactions WHERE id = ? AND status = 'SUSPENDED'";
+        PreparedStatement stmt = conn.prepare(sql);
+        stmt.setInt(1, transactionId);
+        stmt.executeUpdate();
+    }
+
     public List<SuspendedTransactionInfo> getSuspendedTransactions() throws SQLException {
         String sql = """
             SELECT 
@@ -519,8 +927,8 @@ public class TransactionDatabase {
 
         List<SuspendedTransactionInfo> suspended = new ArrayList<>();
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (PooledConnection conn = registerPool.borrow();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
 
             while (rs.next()) {
                 suspended.add(new SuspendedTransactionInfo(
@@ -538,8 +946,8 @@ public class TransactionDatabase {
     public boolean hasSuspendedTransactions() throws SQLException {
         String sql = "SELECT COUNT(*) as count FROM transactions WHERE status = 'SUSPENDED'";
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (PooledConnection conn = registerPool.borrow();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
 
             if (rs.next()) {
                 return rs.getInt("count") > 0;
@@ -549,35 +957,6 @@ public class TransactionDatabase {
         return false;
     }
 
-    private String determineCategory(String description) {
-        String desc = description.toUpperCase();
-
-        if (desc.contains("COKE") || desc.contains("PEPSI") || desc.contains("SPRITE") ||
-                desc.contains("MONSTER") || desc.contains("RED BULL") || desc.contains("GATORADE") ||
-                desc.contains("WATER") || desc.contains("TEA") || desc.contains("COFFEE")) {
-            return "BEVERAGE";
-        }
-
-        if (desc.contains("PIZZA") || desc.contains("HOT DOG") || desc.contains("BURGER") ||
-                desc.contains("SANDWICH") || desc.contains("DONUT") || desc.contains("TAQUITO") ||
-                desc.contains("CROISSANT") || desc.contains("SAUSAGE")) {
-            return "FOOD";
-        }
-
-        if (desc.contains("MARLBORO") || desc.contains("CAMEL") || desc.contains("NEWPORT") ||
-                desc.contains("CIGAR") || desc.contains("VUSE") || desc.contains("JUUL")) {
-            return "TOBACCO";
-        }
-
-        if (desc.contains("CHIP") || desc.contains("LAYS") || desc.contains("DORITOS") ||
-                desc.contains("CHEETOS") || desc.contains("SNICKERS") || desc.contains("REESE") ||
-                desc.contains("CANDY") || desc.contains("GUM")) {
-            return "SNACK";
-        }
-
-        return "OTHER";
-    }
-
     // ========== REPORTING METHODS ==========
 
     public DailySalesReport getDailySalesReport(LocalDateTime date) throws SQLException {
@@ -593,7 +972,8 @@ public class TransactionDatabase {
             AND status = 'COMPLETED'
         """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = reportPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setDate(1, java.sql.Date.valueOf(date.toLocalDate()));
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -631,7 +1011,8 @@ public class TransactionDatabase {
 
         List<CategorySalesReport> reports = new ArrayList<>();
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = reportPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setTimestamp(1, Timestamp.valueOf(startDate));
             stmt.setTimestamp(2, Timestamp.valueOf(endDate));
 
@@ -670,7 +1051,8 @@ public class TransactionDatabase {
 
         List<TopSellingItem> items = new ArrayList<>();
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = reportPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setTimestamp(1, Timestamp.valueOf(startDate));
             stmt.setTimestamp(2, Timestamp.valueOf(endDate));
             stmt.setInt(3, limit);
@@ -707,7 +1089,8 @@ public class TransactionDatabase {
         int cashCount = 0, creditCount = 0;
         double cashTotal = 0.0, creditTotal = 0.0;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = reportPool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setTimestamp(1, Timestamp.valueOf(startDate));
             stmt.setTimestamp(2, Timestamp.valueOf(endDate));
 
@@ -732,17 +1115,28 @@ public class TransactionDatabase {
     }
 
     public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Transaction database connection closed");
-            }
-            if (server != null) {
-                server.stop();
-                System.out.println("H2 TCP Server stopped");
+        sequences.close();
+        if (salesWriter != null) {
+            try {
+                salesWriter.close();
+            } catch (IOException e) {
+                System.err.println("Error closing sale log: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing transaction database: " + e.getMessage());
+        }
+
+        pricebookSync.shutdown();
+        try {
+            pricebookSync.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        registerPool.close();
+        reportPool.close();
+        System.out.println("Transaction database connections closed");
+        if (server != null) {
+            server.stop();
+            System.out.println("H2 TCP Server stopped");
         }
     }
 
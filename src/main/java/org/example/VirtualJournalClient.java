@@ -1,211 +1,135 @@
 package org.example;
 
 import lombok.Getter;
+import org.example.config.PosConfig;
 import org.example.config.VJConfig;
+import org.example.journal.JournalConsole;
+import org.example.journal.JournalEncoder;
+import org.example.journal.JournalWriter;
+import org.example.model.Money;
 import org.example.model.Product;
 import org.example.model.Transaction;
 import org.example.service.DiscountService;
 
-import java.io.*;
-import java.net.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
 /**
  * Virtual Journal Client - Connects to VJ Server via sockets
- * Now sends PRE-FORMATTED log messages for universal compatibility
+ *
+ * Each log call encodes a typed JournalEvent into the calling thread's
+ * JournalEncoder and hands the bytes to a JournalWriter, which owns the
+ * socket on its own thread, and to the console echo, which renders on its
+ * own thread - so logging from the EDT neither allocates nor waits on the
+ * server or the console. Text-only servers receive the same pre-formatted
+ * lines as always; binary servers receive the events and render them.
  */
 public class VirtualJournalClient {
-    private static final DateTimeFormatter TIME_FORMAT =
-            DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final String RECEIPT_SEPARATOR = "=".repeat(50);
 
-    private Socket socket;
-    private PrintWriter writer;
     @Getter
     private final VJConfig config;
     private final ReceiptPrinter receiptPrinter;
-    private boolean connected = false;
+    private final String registerId;
+    private final JournalConsole console; // null when console echo is off
+    private final ThreadLocal<JournalEncoder> encoders = ThreadLocal.withInitial(JournalEncoder::new);
+    private volatile JournalWriter writer;
+    private final StringBuilder receiptBlock = new StringBuilder(8192); // guarded by printReceipt
 
     public VirtualJournalClient(ReceiptPrinter receiptPrinter) {
         this.config = new VJConfig();
         this.receiptPrinter = receiptPrinter;
+        this.registerId = new PosConfig().getRegisterId();
+        this.console = config.isConsoleEcho() ? new JournalConsole(System.out) : null;
         config.displayConfig();
     }
 
-    public void connect() {
-        int maxAttempts = config.isRetryEnabled() ? config.getMaxRetryAttempts() : 1;
-        int delaySeconds = config.getRetryDelaySeconds();
-
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                System.out.println("Connecting to VJ Server at " +
-                        config.getServerHost() + ":" + config.getServerPort() +
-                        " (Attempt " + attempt + "/" + maxAttempts + ")");
-
-                socket = new Socket(config.getServerHost(), config.getServerPort());
-                writer = new PrintWriter(
-                        new OutputStreamWriter(socket.getOutputStream()),
-                        true);
-                connected = true;
-
-                System.out.println("✓ Successfully connected to Virtual Journal Server");
-                logSystem("Register connected to Virtual Journal Server");
-                return;
-
-            } catch (IOException e) {
-                System.err.println("✗ Connection attempt " + attempt + " failed: " + e.getMessage());
-
-                if (attempt < maxAttempts) {
-                    System.out.println("Retrying in " + delaySeconds + " seconds...");
-                    try {
-                        Thread.sleep(delaySeconds * 1000);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-            }
-        }
-
-        System.err.println("Failed to connect to VJ Server after " + maxAttempts + " attempts");
-        System.err.println("Register will continue WITHOUT virtual journal logging");
-        connected = false;
-    }
-
-    public void disconnect() {
-        try {
-            if (writer != null) {
-                logSystem("Register disconnecting from Virtual Journal Server");
-                writer.close();
-            }
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-            connected = false;
-            System.out.println("Disconnected from Virtual Journal Server");
-        } catch (IOException e) {
-            System.err.println("Error disconnecting: " + e.getMessage());
-        }
-    }
-
     /**
-     * Format log entry with timestamp - ALL formatting happens here
+     * Start the background journal writer. Returns immediately; the writer
+     * connects, and reconnects after failures, on its own thread.
      */
-    private String formatLogEntry(String message) {
-        String timestamp = LocalDateTime.now().format(TIME_FORMAT);
-        return String.format("[%s] %s", timestamp, message);
+    public synchronized void connect() {
+        if (writer != null) {
+            return;
+        }
+        System.out.println("Connecting to VJ Server at " + config.getServerHost() + ":" + config.getServerPort()
+                + " in the background");
+        writer = new JournalWriter(config, registerId, () -> logSystem("Register connected to Virtual Journal Server"));
     }
 
     /**
-     * Send pre-formatted message to VJ Server
+     * Send what is still queued (for a few seconds at most) and close the connection.
      */
-    private void send(String formattedMessage) {
-        // Also log to local console
-        System.out.println(formattedMessage);
-
-        if (!connected || writer == null) {
+    public synchronized void disconnect() {
+        if (writer == null) {
             return;
         }
-
-        try {
-            writer.println(formattedMessage);
-
-            if (writer.checkError()) {
-                System.err.println("Connection lost to VJ Server");
-                connected = false;
-
-                if (config.isRetryEnabled()) {
-                    reconnect();
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error sending to VJ: " + e.getMessage());
-            connected = false;
+        logSystem("Register disconnecting from Virtual Journal Server");
+        writer.close();
+        writer = null;
+        if (console != null) {
+            console.flush(1000);
         }
+        System.out.println("Disconnected from Virtual Journal Server");
     }
 
-    private void reconnect() {
-        System.out.println("Attempting to reconnect to VJ Server...");
-        disconnect();
+    /**
+     * Queue the encoded event for the console echo and the VJ Server.
+     * Both copy it, so the encoder is free for the next event.
+     */
+    private void send(JournalEncoder event) {
+        if (console != null) {
+            console.submit(event.buffer(), 0, event.length());
+        }
 
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        JournalWriter current = writer;
+        if (current != null) {
+            current.submit(event.buffer(), 0, event.length());
         }
+    }
 
-        connect();
+    private JournalEncoder encoder() {
+        return encoders.get();
     }
 
-    // ========== LOG METHODS - Pre-formatted for universal compatibility ==========
+    // ========== LOG METHODS - typed events, rendered as text for text-only servers ==========
 
     public void logScan(String source, String upc, Product product) {
-        String logEntry;
         if (product != null) {
-            logEntry = formatLogEntry(
-                    String.format("%s | UPC: %s | Desc: %s | Price: $%.2f",
-                            source, upc, product.getDescription(), product.getPrice())
-            );
+            send(encoder().scan(System.currentTimeMillis(), source, upc,
+                    product.getDescription(), product.getPriceCents()));
         } else {
-            logEntry = formatLogEntry(
-                    String.format("%s | UPC: %s | NOT FOUND", source, upc)
-            );
+            send(encoder().scan(System.currentTimeMillis(), source, upc, null, 0));
         }
-        send(logEntry);
     }
 
     public void logQuickKey(String description, double price) {
-        String logEntry = formatLogEntry(
-                String.format("QUICK_KEY | Desc: %s | Price: $%.2f", description, price)
-        );
-        send(logEntry);
+        send(encoder().quickKey(System.currentTimeMillis(), description, Money.toCents(price)));
     }
 
     public void logVoidItem(Product product) {
-        String logEntry = formatLogEntry(
-                String.format("VOID_ITEM | UPC: %s | Qty: %d | Desc: %s | Total: $%.2f",
-                        product.getUpc(), product.getQuantity(),
-                        product.getDescription(), product.getLineTotal())
-        );
-        send(logEntry);
+        send(encoder().voidItem(System.currentTimeMillis(), product.getUpc(), product.getQuantity(),
+                product.getDescription(), product.getLineTotalCents()));
     }
 
     public void logQuantityChange(Product product, int oldQty, int newQty) {
-        String logEntry = formatLogEntry(
-                String.format("QTY_CHANGE | UPC: %s | Desc: %s | Old Qty: %d | New Qty: %d",
-                        product.getUpc(), product.getDescription(), oldQty, newQty)
-        );
-        send(logEntry);
+        send(encoder().quantityChange(System.currentTimeMillis(), product.getUpc(),
+                product.getDescription(), oldQty, newQty));
     }
 
     public void logTender(String paymentType, double subtotal, double tax,
                           double total, double tendered, double change) {
-        String logEntry = formatLogEntry(
-                String.format("TENDER | Type: %s | Subtotal: $%.2f | Tax: $%.2f | Total: $%.2f | Tendered: $%.2f | Change: $%.2f",
-                        paymentType, subtotal, tax, total, tendered, change)
-        );
-        send(logEntry);
+        send(encoder().tender(System.currentTimeMillis(), paymentType, Money.toCents(subtotal),
+                Money.toCents(tax), Money.toCents(total), Money.toCents(tendered), Money.toCents(change)));
     }
 
     public void logTransaction(String event, double total) {
-        String logEntry = formatLogEntry(
-                String.format("TRANSACTION | %s | Total: $%.2f", event, total)
-        );
-        send(logEntry);
+        send(encoder().transaction(System.currentTimeMillis(), event, Money.toCents(total)));
     }
 
     public void logSystem(String message) {
-        String logEntry = formatLogEntry(
-                String.format("SYSTEM | %s", message)
-        );
-        send(logEntry);
+        send(encoder().system(System.currentTimeMillis(), message));
     }
 
     public void logCustomer(String message) {
-        String logEntry = formatLogEntry(
-                String.format("CUSTOMER | %s", message)
-        );
-        send(logEntry);
+        send(encoder().customer(System.currentTimeMillis(), message));
     }
 
     // ========== RECEIPT METHODS ==========
@@ -215,41 +139,37 @@ public class VirtualJournalClient {
         return printReceipt(transaction, paymentType, tendered, change, null);
     }
 
-    public String printReceipt(Transaction transaction, String paymentType,
-                               double tendered, double change,
-                               DiscountService.DiscountResponse discountInfo) {
+    public synchronized String printReceipt(Transaction transaction, String paymentType,
+                                            double tendered, double change,
+                                            DiscountService.DiscountResponse discountInfo) {
 
         // Log receipt printing event
-        send(formatLogEntry("RECEIPT PRINTING"));
-
-        // Generate receipt
-        String receipt = receiptPrinter.generateReceipt(
-                transaction, paymentType, tendered, change, discountInfo);
-
-        // Send receipt to VJ server (and console)
-        System.out.println("\n" + "=".repeat(50));
-        System.out.println("RECEIPT OUTPUT:");
-        System.out.println("=".repeat(50));
-        System.out.println(receipt);
-        System.out.println("=".repeat(50));
-        System.out.println("END OF RECEIPT");
-        System.out.println("=".repeat(50) + "\n");
-
-        // Send formatted receipt to VJ server
-        if (connected && writer != null) {
-            writer.println("\n" + "=".repeat(50));
-            writer.println("RECEIPT OUTPUT:");
-            writer.println("=".repeat(50));
-            writer.println(receipt);
-            writer.println("=".repeat(50));
-            writer.println("END OF RECEIPT");
-            writer.println("=".repeat(50) + "\n");
-        }
+        send(encoder().receiptPrinting(System.currentTimeMillis()));
 
-        return receipt;
+        // Render the receipt once, inside the block sent to console and VJ server as one entry
+        StringBuilder block = receiptBlock;
+        block.setLength(0);
+        block.append('\n').append(RECEIPT_SEPARATOR).append("\nRECEIPT OUTPUT:\n")
+                .append(RECEIPT_SEPARATOR).append('\n');
+        int start = block.length();
+        receiptPrinter.appendReceipt(block, transaction, paymentType, tendered, change, discountInfo);
+        int end = block.length();
+        block.append('\n').append(RECEIPT_SEPARATOR).append("\nEND OF RECEIPT\n")
+                .append(RECEIPT_SEPARATOR).append('\n');
+        send(encoder().receipt(System.currentTimeMillis(), block));
+
+        return block.substring(start, end);
+    }
+
+    /**
+     * The printer whose receipts this client journals.
+     */
+    public ReceiptPrinter getReceiptPrinter() {
+        return receiptPrinter;
     }
 
     public boolean isConnected() {
-        return connected && socket != null && !socket.isClosed();
+        JournalWriter current = writer;
+        return current != null && current.isConnected();
     }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+package org.example.config;
+
+import java.io.*;
+import java.util.Properties;
+
+public class PosConfig {
+    private static final String CONFIG_FILE = "src/main/resources/pos-config.properties";
+    private static final String DEFAULT_DISCOUNT_URL =
+            "http://discount-api-alb-1415305850.ap-southeast-2.elb.amazonaws.com/discount";
+    private final Properties properties;
+
+    public PosConfig() {
+        properties = new Properties();
+        loadConfig();
+    }
+
+    /**
+     * The configured settings with some replaced, e.g. to point a test at a stub server.
+     */
+    public PosConfig(Properties overrides) {
+        this();
+        properties.putAll(overrides);
+    }
+
+    private void loadConfig() {
+        try (InputStream input = new FileInputStream(CONFIG_FILE)) {
+            properties.load(input);
+            System.out.println("POS Configuration loaded from: " + CONFIG_FILE);
+        } catch (IOException e) {
+            System.err.println("Failed to load POS config, using defaults: " + e.getMessage());
+            setDefaults();
+        }
+    }
+
+    private void setDefaults() {
+        properties.setProperty("register.id", "REG-001");
+        properties.setProperty("cashier.id", "OPERATOR01");
+        properties.setProperty("sequence.block-size", "100");
+        properties.setProperty("sales.log.path", "./data/sales.log");
+        properties.setProperty("sales.log.durability", "GROUP");
+        properties.setProperty("sales.writer.group-commit-ms", "25");
+        properties.setProperty("sales.writer.batch-size", "256");
+        properties.setProperty("sales.writer.db-sync-ms", "1000");
+        properties.setProperty("printer.enabled", "false");
+        properties.setProperty("printer.device", "./data/printer.prn");
+        properties.setProperty("printer.queue-size", "32");
+        properties.setProperty("printer.drawer-kick", "true");
+        properties.setProperty("discount.shadow.enabled", "true");
+        properties.setProperty("discount.prefetch.debounce-ms", "150");
+        properties.setProperty("discount.pricing.mode", "PRIORITY");
+        properties.setProperty("discount.solver.budget-micros", "1000");
+        properties.setProperty("discount.cache.max-entries", "512");
+        properties.setProperty("discount.cache.ttl-seconds", "600");
+        properties.setProperty("discount.api.url", DEFAULT_DISCOUNT_URL);
+        properties.setProperty("discount.api.connect-timeout-ms", "1000");
+        properties.setProperty("discount.api.request-timeout-ms", "2000");
+        properties.setProperty("discount.breaker.failure-threshold", "3");
+        properties.setProperty("discount.breaker.open-seconds", "30");
+    }
+
+    // ========== REGISTER ==========
+
+    /**
+     * This lane's id, e.g. "REG-001"; unique within the store.
+     */
+    public String getRegisterId() {
+        return properties.getProperty("register.id", "REG-001").trim();
+    }
+
+    /**
+     * Operator printed on receipts and stored with each sale.
+     */
+    public String getCashierId() {
+        return properties.getProperty("cashier.id", "OPERATOR01").trim();
+    }
+
+    /**
+     * Receipt numbers reserved from the database at a time; a restart skips
+     * whatever was left of the last block.
+     */
+    public int getSequenceBlockSize() {
+        return Integer.parseInt(properties.getProperty("sequence.block-size", "100"));
+    }
+
+    // ========== SALES WRITE-BEHIND ==========
+
+    public String getSalesLogPath() {
+        return properties.getProperty("sales.log.path", "./data/sales.log");
+    }
+
+    /**
+     * SYNC or GROUP - see pos-config.properties.
+     */
+    public String getSalesLogDurability() {
+        return properties.getProperty("sales.log.durability", "GROUP").trim().toUpperCase();
+    }
+
+    public int getGroupCommitMillis() {
+        return Integer.parseInt(properties.getProperty("sales.writer.group-commit-ms", "25"));
+    }
+
+    public int getSalesBatchSize() {
+        return Integer.parseInt(properties.getProperty("sales.writer.batch-size", "256"));
+    }
+
+    /**
+     * How often committed sales are forced to disk in the database; 0 = every commit.
+     */
+    public int getDatabaseSyncMillis() {
+        return Integer.parseInt(properties.getProperty("sales.writer.db-sync-ms", "1000"));
+    }
+
+    // ========== RECEIPT PRINTER ==========
+
+    public boolean isPrinterEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("printer.enabled", "false"));
+    }
+
+    /**
+     * Printer device file or pipe (e.g. /dev/usb/lp0); an ordinary file works as a stand-in.
+     */
+    public String getPrinterDevice() {
+        return properties.getProperty("printer.device", "./data/printer.prn").trim();
+    }
+
+    /**
+     * Receipts waiting beyond this many are dropped rather than blocking the register.
+     */
+    public int getPrinterQueueSize() {
+        return Integer.parseInt(properties.getProperty("printer.queue-size", "32"));
+    }
+
+    /**
+     * Whether cash sales open the drawer through the printer's drawer port.
+     */
+    public boolean isDrawerKickEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("printer.drawer-kick", "true"));
+    }
+
+    // ========== DISCOUNT API ==========
+
+    /**
+     * Whether locally priced discounts are checked against the API in the background.
+     */
+    public boolean isDiscountShadowEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("discount.shadow.enabled", "true"));
+    }
+
+    /**
+     * Quiet time after the last scan before discounts are precomputed.
+     */
+    public int getDiscountPrefetchDebounceMillis() {
+        return Integer.parseInt(properties.getProperty("discount.prefetch.debounce-ms", "150"));
+    }
+
+    /**
+     * PRIORITY prices each item by its first matching promotion (as the API
+     * does); BEST_PRICE lets PromotionSolver pick the cheapest combination.
+     */
+    public String getDiscountPricingMode() {
+        return properties.getProperty("discount.pricing.mode", "PRIORITY").trim().toUpperCase();
+    }
+
+    /**
+     * Time allowed for a best-price solve before falling back to priority pricing.
+     */
+    public long getDiscountSolverBudgetMicros() {
+        return Long.parseLong(properties.getProperty("discount.solver.budget-micros", "1000"));
+    }
+
+    public int getDiscountCacheMaxEntries() {
+        return Integer.parseInt(properties.getProperty("discount.cache.max-entries", "512"));
+    }
+
+    public int getDiscountCacheTtlSeconds() {
+        return Integer.parseInt(properties.getProperty("discount.cache.ttl-seconds", "600"));
+    }
+
+    public String getDiscountApiUrl() {
+        return properties.getProperty("discount.api.url", DEFAULT_DISCOUNT_URL);
+    }
+
+    public int getDiscountConnectTimeoutMillis() {
+        return Integer.parseInt(properties.getProperty("discount.api.connect-timeout-ms", "1000"));
+    }
+
+    /**
+     * Deadline for the whole API call; past it the comparison is skipped.
+     */
+    public int getDiscountRequestTimeoutMillis() {
+        return Integer.parseInt(properties.getProperty("discount.api.request-timeout-ms", "2000"));
+    }
+
+    public int getDiscountBreakerFailureThreshold() {
+        return Integer.parseInt(properties.getProperty("discount.breaker.failure-threshold", "3"));
+    }
+
+    public int getDiscountBreakerOpenSeconds() {
+        return Integer.parseInt(properties.getProperty("discount.breaker.open-seconds", "30"));
+    }
+
+    public void displayConfig() {
+        System.out.println("=".repeat(60));
+        System.out.println("POS Configuration:");
+        System.out.println("  Register: " + getRegisterId() + " (cashier " + getCashierId() + ")");
+        System.out.println("  Sales Log: " + getSalesLogPath());
+        System.out.println("  Durability: " + getSalesLogDurability());
+        System.out.println("  Group Commit Window: " + getGroupCommitMillis() + "ms");
+        System.out.println("  Batch Size: " + getSalesBatchSize());
+        System.out.println("  Printer: " + (isPrinterEnabled() ? getPrinterDevice() : "off"));
+        System.out.println("  Discount Shadow: " + (isDiscountShadowEnabled() ? getDiscountApiUrl() : "off"));
+        System.out.println("  Discount Timeout: " + getDiscountRequestTimeoutMillis() + "ms");
+        System.out.println("  Discount Pricing: " + getDiscountPricingMode());
+        System.out.println("=".repeat(60));
+    }
+}
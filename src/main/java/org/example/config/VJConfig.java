@@ -12,6 +12,14 @@ public class VJConfig {
         loadConfig();
     }
 
+    /**
+     * The configured settings with some replaced, e.g. to point a test at a local server.
+     */
+    public VJConfig(Properties overrides) {
+        this();
+        properties.putAll(overrides);
+    }
+
     private void loadConfig() {
         try (InputStream input = new FileInputStream(CONFIG_FILE)) {
             properties.load(input);
@@ -28,6 +36,19 @@ public class VJConfig {
         properties.setProperty("vj.connection.retry.enabled", "true");
         properties.setProperty("vj.connection.retry.max-attempts", "5");
         properties.setProperty("vj.connection.retry.delay-seconds", "5");
+        properties.setProperty("vj.queue.capacity", "4096");
+        properties.setProperty("vj.queue.overflow", "SPILL");
+        properties.setProperty("vj.queue.block-timeout-ms", "50");
+        properties.setProperty("vj.batch.max-entries", "256");
+        properties.setProperty("vj.spool.dir", "./data/vj-spool");
+        properties.setProperty("vj.spool.segment-kb", "1024");
+        properties.setProperty("vj.spool.max-mb", "64");
+        properties.setProperty("vj.protocol", "AUTO");
+        properties.setProperty("vj.protocol.compression", "DEFLATE");
+        properties.setProperty("vj.protocol.hello-timeout-ms", "1000");
+        properties.setProperty("vj.protocol.max-unacked", "8192");
+        properties.setProperty("vj.protocol.ack-timeout-ms", "10000");
+        properties.setProperty("vj.console.echo", "true");
     }
 
     public String getServerHost() {
@@ -46,10 +67,92 @@ public class VJConfig {
         return Integer.parseInt(properties.getProperty("vj.connection.retry.max-attempts", "5"));
     }
 
+    /**
+     * Longest wait between reconnect attempts; the backoff doubles up to this.
+     */
     public int getRetryDelaySeconds() {
         return Integer.parseInt(properties.getProperty("vj.connection.retry.delay-seconds", "5"));
     }
 
+    public int getQueueCapacity() {
+        return Integer.parseInt(properties.getProperty("vj.queue.capacity", "4096"));
+    }
+
+    /**
+     * BLOCK, DROP_OLDEST or SPILL - see JournalWriter.OverflowPolicy.
+     */
+    public String getOverflowPolicy() {
+        return properties.getProperty("vj.queue.overflow", "SPILL").trim().toUpperCase();
+    }
+
+    public int getBlockTimeoutMillis() {
+        return Integer.parseInt(properties.getProperty("vj.queue.block-timeout-ms", "50"));
+    }
+
+    public int getBatchMaxEntries() {
+        return Integer.parseInt(properties.getProperty("vj.batch.max-entries", "256"));
+    }
+
+    /**
+     * Directory of the store-and-forward spool (see JournalSpool).
+     */
+    public String getSpoolDirectory() {
+        return properties.getProperty("vj.spool.dir", "./data/vj-spool");
+    }
+
+    public int getSpoolSegmentKilobytes() {
+        return Integer.parseInt(properties.getProperty("vj.spool.segment-kb", "1024"));
+    }
+
+    /**
+     * Disk budget for the spool; past it the oldest unsent entries are discarded.
+     */
+    public int getSpoolMaxMegabytes() {
+        return Integer.parseInt(properties.getProperty("vj.spool.max-mb", "64"));
+    }
+
+    /**
+     * AUTO offers the binary protocol and falls back to text; TEXT never offers it.
+     */
+    public String getProtocol() {
+        return properties.getProperty("vj.protocol", "AUTO").trim().toUpperCase();
+    }
+
+    /**
+     * DEFLATE or NONE, for binary batches.
+     */
+    public String getCompression() {
+        return properties.getProperty("vj.protocol.compression", "DEFLATE").trim().toUpperCase();
+    }
+
+    /**
+     * How long to wait for a server to accept the binary protocol before using text.
+     */
+    public int getHelloTimeoutMillis() {
+        return Integer.parseInt(properties.getProperty("vj.protocol.hello-timeout-ms", "1000"));
+    }
+
+    /**
+     * Entries sent in binary mode but not yet acknowledged before the writer waits.
+     */
+    public int getMaxUnacknowledged() {
+        return Integer.parseInt(properties.getProperty("vj.protocol.max-unacked", "8192"));
+    }
+
+    /**
+     * Reconnect if a binary server has not acknowledged anything for this long.
+     */
+    public int getAckTimeoutMillis() {
+        return Integer.parseInt(properties.getProperty("vj.protocol.ack-timeout-ms", "10000"));
+    }
+
+    /**
+     * Echo journal entries to the console (from a background thread).
+     */
+    public boolean isConsoleEcho() {
+        return Boolean.parseBoolean(properties.getProperty("vj.console.echo", "true"));
+    }
+
     public void saveConfig() {
         try (OutputStream output = new FileOutputStream(CONFIG_FILE)) {
             properties.store(output, "Virtual Journal Configuration");
@@ -75,6 +178,10 @@ public class VJConfig {
         System.out.println("  Retry Enabled: " + isRetryEnabled());
         System.out.println("  Max Retry Attempts: " + getMaxRetryAttempts());
         System.out.println("  Retry Delay: " + getRetryDelaySeconds() + "s");
+        System.out.println("  Queue: " + getQueueCapacity() + " entries, overflow " + getOverflowPolicy());
+        System.out.println("  Spool: " + getSpoolDirectory() + " (max " + getSpoolMaxMegabytes() + " MB)");
+        System.out.println("  Protocol: " + getProtocol() + " (" + getCompression() + ")");
+        System.out.println("  Console Echo: " + isConsoleEcho());
         System.out.println("=".repeat(60));
     }
 }
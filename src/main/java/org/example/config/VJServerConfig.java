@@ -0,0 +1,83 @@
+package org.example.config;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Settings for the journal server (org.example.journal.server.JournalServer).
+ */
+public class VJServerConfig {
+    private static final String CONFIG_FILE = "src/main/resources/vj-server.properties";
+    private final Properties properties;
+
+    public VJServerConfig() {
+        properties = new Properties();
+        loadConfig();
+    }
+
+    private void loadConfig() {
+        try (InputStream input = new FileInputStream(CONFIG_FILE)) {
+            properties.load(input);
+            System.out.println("VJ Server configuration loaded from: " + CONFIG_FILE);
+        } catch (IOException e) {
+            System.err.println("Failed to load VJ Server config, using defaults: " + e.getMessage());
+            setDefaults();
+        }
+    }
+
+    private void setDefaults() {
+        properties.setProperty("vj.server.bind", "0.0.0.0");
+        properties.setProperty("vj.server.port", "9993");
+        properties.setProperty("vj.server.journal-dir", "./data/vj-journal");
+        properties.setProperty("vj.server.segment-mb", "64");
+        properties.setProperty("vj.server.segment-minutes", "60");
+        properties.setProperty("vj.server.stats-seconds", "60");
+    }
+
+    public String getBindAddress() {
+        return properties.getProperty("vj.server.bind", "0.0.0.0");
+    }
+
+    public int getPort() {
+        return Integer.parseInt(properties.getProperty("vj.server.port", "9993"));
+    }
+
+    /**
+     * One subdirectory per register, holding its segments and index.
+     */
+    public String getJournalDirectory() {
+        return properties.getProperty("vj.server.journal-dir", "./data/vj-journal");
+    }
+
+    /**
+     * A segment is finished once it holds this much uncompressed text...
+     */
+    public int getSegmentMegabytes() {
+        return Integer.parseInt(properties.getProperty("vj.server.segment-mb", "64"));
+    }
+
+    /**
+     * ...or has been open this long.
+     */
+    public int getSegmentMinutes() {
+        return Integer.parseInt(properties.getProperty("vj.server.segment-minutes", "60"));
+    }
+
+    /**
+     * How often to print per-register statistics; 0 for only at shutdown.
+     */
+    public int getStatsSeconds() {
+        return Integer.parseInt(properties.getProperty("vj.server.stats-seconds", "60"));
+    }
+
+    public void displayConfig() {
+        System.out.println("=".repeat(60));
+        System.out.println("Virtual Journal Server Configuration:");
+        System.out.println("  Listen: " + getBindAddress() + ":" + getPort());
+        System.out.println("  Journal: " + getJournalDirectory());
+        System.out.println("  Segments: " + getSegmentMegabytes() + " MB or " + getSegmentMinutes() + " minutes");
+        System.out.println("=".repeat(60));
+    }
+}
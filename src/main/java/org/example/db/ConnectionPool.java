@@ -0,0 +1,159 @@
+package org.example.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small fixed-size JDBC connection pool.
+ *
+ * Connections are opened up front with auto-commit off and each keeps its own
+ * prepared-statement cache. Borrow with try-with-resources; returning a
+ * connection rolls back anything left uncommitted, so readers never hold a
+ * snapshot open and writers must commit() explicitly. A connection that breaks
+ * is replaced when it is returned; if the database cannot be reached then,
+ * the next borrow() of it tries to reopen it instead of handing it out dead.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long BORROW_TIMEOUT_MS = 10_000;
+
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int statementCacheSize;
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private volatile boolean closed;
+
+    // Metrics
+    final LongAdder borrows = new LongAdder();
+    final LongAdder waits = new LongAdder();
+    final LongAdder statementHits = new LongAdder();
+    final LongAdder statementMisses = new LongAdder();
+    final LongAdder statementEvictions = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+
+    public ConnectionPool(String name, String url, String user, String password,
+                          int size, int statementCacheSize) throws SQLException {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.statementCacheSize = statementCacheSize;
+        this.idle = new ArrayBlockingQueue<>(size);
+
+        for (int i = 0; i < size; i++) {
+            PooledConnection pooled = new PooledConnection(this, open(), statementCacheSize);
+            all.add(pooled);
+            idle.add(pooled);
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    /**
+     * Take a connection, waiting if all are in use.
+     */
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+
+        PooledConnection pooled = idle.poll();
+        if (pooled == null) {
+            waits.increment();
+            try {
+                pooled = idle.poll(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for a '" + name + "' connection", e);
+            }
+            if (pooled == null) {
+                throw new SQLException("Timed out waiting for a '" + name + "' connection");
+            }
+        }
+        if (pooled.isBroken()) {
+            // Could not be reopened when it was returned; try again now
+            try {
+                pooled.replaceConnection(open());
+                reconnects.increment();
+            } catch (SQLException e) {
+                idle.offer(pooled);
+                throw new SQLException("No '" + name + "' connection: " + e.getMessage(), e);
+            }
+        }
+        borrows.increment();
+        return pooled;
+    }
+
+    void release(PooledConnection pooled) {
+        if (!pooled.isBroken()) {
+            try {
+                pooled.reset();
+            } catch (SQLException e) {
+                // Broken connection - replace it rather than hand it out again
+                System.err.println("Replacing broken '" + name + "' connection: " + e.getMessage());
+                try {
+                    pooled.replaceConnection(open());
+                    reconnects.increment();
+                } catch (SQLException reopenError) {
+                    System.err.println("Failed to reopen '" + name + "' connection, will retry on borrow: "
+                            + reopenError.getMessage());
+                    pooled.replaceConnection(null);
+                }
+            }
+        }
+
+        if (closed) {
+            pooled.closeQuietly();
+        } else {
+            idle.offer(pooled);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return all.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public double getStatementHitRatio() {
+        long hits = statementHits.sum();
+        long total = hits + statementMisses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public String getStatistics() {
+        return String.format(
+                "%s pool: %d connections (%d idle), %d borrows, %d waited, %d reconnects%n" +
+                "  statement cache: %d hits, %d misses (%.1f%% hit), %d evictions, %d per connection",
+                name, getSize(), getIdleCount(), borrows.sum(), waits.sum(), reconnects.sum(),
+                statementHits.sum(), statementMisses.sum(), getStatementHitRatio() * 100,
+                statementEvictions.sum(), statementCacheSize);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (PooledConnection pooled : all) {
+            pooled.closeQuietly();
+        }
+    }
+}
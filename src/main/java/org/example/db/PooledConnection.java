@@ -0,0 +1,145 @@
+package org.example.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A connection borrowed from a ConnectionPool. Statements from prepare() are
+ * cached per connection and must not be closed by the caller (close the
+ * ResultSet only). close() returns the connection to the pool.
+ *
+ * Used by one thread at a time, so nothing here is synchronized.
+ */
+public class PooledConnection implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final int cacheSize;
+    private Connection connection;
+    private Map<String, PreparedStatement> statements;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int cacheSize) {
+        this.pool = pool;
+        this.cacheSize = cacheSize;
+        this.connection = connection;
+        this.statements = newCache();
+    }
+
+    private Map<String, PreparedStatement> newCache() {
+        // Access-ordered, so the least recently used statement is evicted first
+        return new LinkedHashMap<>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > cacheSize) {
+                    closeStatement(eldest.getValue());
+                    pool.statementEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached prepared statement for this SQL. Do not close it.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return cached(sql, false);
+    }
+
+    /**
+     * Cached prepared statement that returns generated keys. Do not close it.
+     */
+    public PreparedStatement prepareWithKeys(String sql) throws SQLException {
+        return cached(sql, true);
+    }
+
+    private PreparedStatement cached(String sql, boolean returnKeys) throws SQLException {
+        String key = returnKeys ? "K:" + sql : sql;
+        PreparedStatement stmt = statements.get(key);
+        if (stmt != null) {
+            pool.statementHits.increment();
+            stmt.clearParameters();
+            return stmt;
+        }
+
+        pool.statementMisses.increment();
+        stmt = returnKeys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
+        statements.put(key, stmt);
+        return stmt;
+    }
+
+    /**
+     * Uncached statement for one-off SQL (DDL, scripts). Caller closes it.
+     */
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    public void commit() throws SQLException {
+        connection.commit();
+    }
+
+    public void rollback() throws SQLException {
+        connection.rollback();
+    }
+
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+
+    // ========== POOL INTERNALS ==========
+
+    /**
+     * Drop anything the last borrower left behind: batches queued on cached
+     * statements (e.g. by a write that failed part-way) and the transaction.
+     */
+    void reset() throws SQLException {
+        for (PreparedStatement stmt : statements.values()) {
+            stmt.clearBatch();
+        }
+        connection.rollback();
+    }
+
+    /**
+     * Swap in a new connection; the old one and its statements are closed.
+     * Null leaves the connection broken for the pool to reopen on borrow.
+     */
+    void replaceConnection(Connection newConnection) {
+        closeQuietly();
+        this.connection = newConnection;
+        this.statements = newCache();
+    }
+
+    boolean isBroken() {
+        return connection == null;
+    }
+
+    void closeQuietly() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeStatement(stmt);
+        }
+        statements.clear();
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already broken or closed
+        }
+    }
+
+    private static void closeStatement(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // Ignore - the statement is being discarded
+        }
+    }
+}
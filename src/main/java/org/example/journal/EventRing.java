@@ -0,0 +1,146 @@
+package org.example.journal;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of journal events, copied into preallocated slots.
+ *
+ * Any thread may offer or poll (a Vyukov bounded MPMC queue: each slot
+ * carries a sequence number that says whose turn it is). Events up to
+ * SLOT_BYTES are copied into the slot's own array, so the scan path does not
+ * allocate; larger events (receipts) get a right-sized array of their own.
+ */
+class EventRing {
+    static final int SLOT_BYTES = 384;
+
+    private final int mask;
+    private final byte[][] slots;
+    private final byte[][] oversized;
+    private final int[] lengths;
+    private final AtomicLongArray turns;
+    private final AtomicLong head = new AtomicLong(); // next to poll
+    private final AtomicLong tail = new AtomicLong(); // next to offer
+
+    /**
+     * Capacity is rounded up to a power of two.
+     */
+    EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new byte[size][SLOT_BYTES];
+        this.oversized = new byte[size][];
+        this.lengths = new int[size];
+        this.turns = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            turns.set(i, i);
+        }
+    }
+
+    /**
+     * Copy the event in. Returns false if the ring is full.
+     */
+    boolean offer(byte[] event, int offset, int length) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = turns.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    if (length <= SLOT_BYTES) {
+                        System.arraycopy(event, offset, slots[index], 0, length);
+                    } else {
+                        byte[] copy = new byte[length];
+                        System.arraycopy(event, offset, copy, 0, length);
+                        oversized[index] = copy;
+                    }
+                    lengths[index] = length;
+                    turns.set(index, position + 1); // publish
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Receives a polled event; the array is only valid during the call.
+     */
+    interface Handler {
+        void accept(byte[] event, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Hand the oldest event to the handler. Returns false if the ring is empty.
+     */
+    boolean poll(Handler handler) throws IOException {
+        long position = claim();
+        if (position < 0) {
+            return false;
+        }
+        int index = (int) (position & mask);
+        try {
+            byte[] big = oversized[index];
+            handler.accept(big != null ? big : slots[index], 0, lengths[index]);
+        } finally {
+            release(index, position);
+        }
+        return true;
+    }
+
+    /**
+     * Take the oldest event as its own array, or null if the ring is empty.
+     */
+    byte[] poll() {
+        long position = claim();
+        if (position < 0) {
+            return null;
+        }
+        int index = (int) (position & mask);
+        byte[] big = oversized[index];
+        byte[] event = big != null ? big : Arrays.copyOf(slots[index], lengths[index]);
+        release(index, position);
+        return event;
+    }
+
+    private long claim() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = turns.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return -1;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    private void release(int index, long position) {
+        oversized[index] = null;
+        turns.set(index, position + mask + 1); // free for the offer one lap later
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.journal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Echoes journal events to the console from a "vj-console" thread.
+ *
+ * submit() copies the event into a ring and returns, so the EDT never
+ * renders a line or waits on the console lock. The echo is a convenience
+ * rather than a record: if the console falls behind, events are skipped and
+ * counted instead of holding up the register.
+ */
+public class JournalConsole {
+    private static final int CAPACITY = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final EventRing ring = new EventRing(CAPACITY);
+    private final OutputStream out;
+    private final Thread thread;
+    private volatile boolean idle;
+
+    // Console thread only
+    private final JournalRenderer renderer = new JournalRenderer();
+    private final EventRing.Handler printer = this::print;
+
+    private final LongAdder skipped = new LongAdder();
+
+    public JournalConsole(PrintStream out) {
+        this.out = out;
+        this.thread = new Thread(this::run, "vj-console");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue event[offset, offset + length) for echoing.
+     */
+    public void submit(byte[] event, int offset, int length) {
+        if (!ring.offer(event, offset, length)) {
+            skipped.increment();
+            return;
+        }
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Wait up to timeoutMillis for what is queued to be printed.
+     */
+    public void flush(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while ((!ring.isEmpty() || !idle) && System.nanoTime() < deadline) {
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    private void print(byte[] event, int offset, int length) throws IOException {
+        renderer.writeLine(event, offset, length, out);
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                boolean printed = false;
+                while (ring.poll(printer)) {
+                    printed = true;
+                }
+                if (printed) {
+                    out.flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Journal console echo failed: " + e.getMessage());
+            }
+            idle = true;
+            if (ring.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.journal;
+
+import java.util.Arrays;
+
+/**
+ * Writes JournalEvents into one reusable buffer.
+ *
+ * An encoder belongs to one thread: each method starts a new event in the
+ * same buffer, which stays valid until the next call, so encoding an event
+ * allocates nothing. Strings are written as UTF-8 straight from their chars.
+ * The layout is described in JournalEvent.
+ */
+public final class JournalEncoder {
+    static final int NULL_STRING = -1;
+
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    // ========== EVENTS ==========
+
+    /**
+     * A scan; description null means the UPC was not found.
+     */
+    public JournalEncoder scan(long millis, String source, String upc, String description, long priceCents) {
+        return begin(JournalEvent.Type.SCAN, millis).string(source).string(upc).string(description).cents(priceCents);
+    }
+
+    public JournalEncoder quickKey(long millis, String description, long priceCents) {
+        return begin(JournalEvent.Type.QUICK_KEY, millis).string(description).cents(priceCents);
+    }
+
+    public JournalEncoder voidItem(long millis, String upc, int quantity, String description, long totalCents) {
+        return begin(JournalEvent.Type.VOID_ITEM, millis).string(upc).number(quantity).string(description)
+                .cents(totalCents);
+    }
+
+    public JournalEncoder quantityChange(long millis, String upc, String description, int oldQuantity,
+                                         int newQuantity) {
+        return begin(JournalEvent.Type.QTY_CHANGE, millis).string(upc).string(description).number(oldQuantity)
+                .number(newQuantity);
+    }
+
+    public JournalEncoder tender(long millis, String paymentType, long subtotalCents, long taxCents,
+                                 long totalCents, long tenderedCents, long changeCents) {
+        return begin(JournalEvent.Type.TENDER, millis).string(paymentType).cents(subtotalCents).cents(taxCents)
+                .cents(totalCents).cents(tenderedCents).cents(changeCents);
+    }
+
+    public JournalEncoder transaction(long millis, String event, long totalCents) {
+        return begin(JournalEvent.Type.TRANSACTION, millis).string(event).cents(totalCents);
+    }
+
+    public JournalEncoder system(long millis, String message) {
+        return begin(JournalEvent.Type.SYSTEM, millis).string(message);
+    }
+
+    public JournalEncoder customer(long millis, String message) {
+        return begin(JournalEvent.Type.CUSTOMER, millis).string(message);
+    }
+
+    public JournalEncoder receiptPrinting(long millis) {
+        return begin(JournalEvent.Type.RECEIPT_PRINTING, millis);
+    }
+
+    public JournalEncoder receipt(long millis, CharSequence text) {
+        return begin(JournalEvent.Type.RECEIPT, millis).string(text);
+    }
+
+    // ========== RESULT ==========
+
+    /**
+     * The encoded event is buffer()[0, length()); overwritten by the next event.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    // ========== FIELDS ==========
+
+    private JournalEncoder begin(JournalEvent.Type type, long millis) {
+        length = 0;
+        buffer[length++] = (byte) type.ordinal();
+        return putLong(millis);
+    }
+
+    private JournalEncoder string(CharSequence value) {
+        if (value == null) {
+            return putInt(NULL_STRING);
+        }
+        int chars = value.length();
+        ensure(4 + chars * 3); // UTF-8 takes at most three bytes per char
+        int start = length;
+        length += 4;
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | c >> 6);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                buffer[length++] = '?'; // unpaired surrogate, as String.getBytes does
+            } else {
+                buffer[length++] = (byte) (0xE0 | c >> 12);
+                buffer[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        writeInt(start, length - start - 4);
+        return this;
+    }
+
+    private JournalEncoder cents(long value) {
+        return putLong(value);
+    }
+
+    private JournalEncoder number(int value) {
+        return putInt(value);
+    }
+
+    private JournalEncoder putInt(int value) {
+        ensure(4);
+        writeInt(length, value);
+        length += 4;
+        return this;
+    }
+
+    private JournalEncoder putLong(long value) {
+        ensure(8);
+        writeInt(length, (int) (value >>> 32));
+        writeInt(length + 4, (int) value);
+        length += 8;
+        return this;
+    }
+
+    private void writeInt(int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Journal events as compact typed records, and their text rendering.
+ *
+ * An event is [type][epoch millis][fields], with money in cents and strings
+ * as length-prefixed UTF-8. This is what the spool stores and what the
+ * binary protocol sends; render() produces the line the text protocol has
+ * always sent ("[12:34:56.789] SCAN | UPC: ..."), so a text-only server sees
+ * exactly what it did before and a binary server can render the same text.
+ *
+ * The methods here return fresh arrays and strings. Hot paths use a
+ * JournalEncoder and a JournalRenderer of their own, which reuse buffers.
+ */
+public final class JournalEvent {
+    private static final ThreadLocal<JournalRenderer> RENDERER = ThreadLocal.withInitial(JournalRenderer::new);
+
+    public enum Type {
+        SCAN, QUICK_KEY, VOID_ITEM, QTY_CHANGE, TENDER, TRANSACTION, SYSTEM, CUSTOMER, RECEIPT_PRINTING, RECEIPT;
+
+        private static final Type[] VALUES = values();
+
+        static Type of(byte code) {
+            return VALUES[code];
+        }
+    }
+
+    private JournalEvent() {
+    }
+
+    // ========== ENCODING ==========
+
+    /**
+     * A scan; description null means the UPC was not found.
+     */
+    public static byte[] scan(long millis, String source, String upc, String description, long priceCents) {
+        return new JournalEncoder().scan(millis, source, upc, description, priceCents).toByteArray();
+    }
+
+    public static byte[] quickKey(long millis, String description, long priceCents) {
+        return new JournalEncoder().quickKey(millis, description, priceCents).toByteArray();
+    }
+
+    public static byte[] voidItem(long millis, String upc, int quantity, String description, long totalCents) {
+        return new JournalEncoder().voidItem(millis, upc, quantity, description, totalCents).toByteArray();
+    }
+
+    public static byte[] quantityChange(long millis, String upc, String description, int oldQuantity, int newQuantity) {
+        return new JournalEncoder().quantityChange(millis, upc, description, oldQuantity, newQuantity).toByteArray();
+    }
+
+    public static byte[] tender(long millis, String paymentType, long subtotalCents, long taxCents, long totalCents,
+                                long tenderedCents, long changeCents) {
+        return new JournalEncoder().tender(millis, paymentType, subtotalCents, taxCents, totalCents,
+                tenderedCents, changeCents).toByteArray();
+    }
+
+    public static byte[] transaction(long millis, String event, long totalCents) {
+        return new JournalEncoder().transaction(millis, event, totalCents).toByteArray();
+    }
+
+    public static byte[] system(long millis, String message) {
+        return new JournalEncoder().system(millis, message).toByteArray();
+    }
+
+    public static byte[] customer(long millis, String message) {
+        return new JournalEncoder().customer(millis, message).toByteArray();
+    }
+
+    public static byte[] receiptPrinting(long millis) {
+        return new JournalEncoder().receiptPrinting(millis).toByteArray();
+    }
+
+    public static byte[] receipt(long millis, String text) {
+        return new JournalEncoder().receipt(millis, text).toByteArray();
+    }
+
+    // ========== DECODING AND RENDERING ==========
+
+    public static Type typeOf(byte[] event) {
+        return Type.of(event[0]);
+    }
+
+    public static long timeOf(byte[] event) {
+        return ByteBuffer.wrap(event, 1, Long.BYTES).getLong();
+    }
+
+    /**
+     * The text line for an event, as the text protocol sends it (without the newline).
+     */
+    public static String render(byte[] event) {
+        return RENDERER.get().render(event, 0, event.length, new StringBuilder(128)).toString();
+    }
+
+    /**
+     * Append the text for the event at the buffer's position, consuming it.
+     */
+    public static StringBuilder render(ByteBuffer event, StringBuilder sb) {
+        return RENDERER.get().render(event, sb);
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.journal;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Wire format of the binary VJ protocol, shared by JournalWriter and the server.
+ *
+ * Negotiation: the client opens with a HELLO line shaped like an ordinary
+ * journal entry, so a text-only server just records it. A server that speaks
+ * binary answers with a BINARY line; from then on both sides send frames.
+ * With no answer inside the hello timeout the client stays on text.
+ *
+ * Frames are [int length][byte kind][body]:
+ *   BATCH  client to server: [flags][first sequence][count][raw length][events]
+ *          where events are [int length][JournalEvent] with consecutive
+ *          sequences, deflated when the DEFLATED flag is set
+ *   ACK    server to client: [sequence] - everything up to it is stored
+ */
+public final class JournalProtocol {
+    public static final int VERSION = 1;
+    public static final String HELLO_MARKER = "SYSTEM | VJ-HELLO ";
+    public static final String BINARY_REPLY = "VJ-BINARY ";
+
+    public static final byte FRAME_BATCH = 1;
+    public static final byte FRAME_ACK = 2;
+    public static final byte FLAG_DEFLATED = 1;
+
+    public static final int ACK_FRAME_BYTES = 4 + 1 + Long.BYTES;
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final int BATCH_HEADER_BYTES = 1 + 1 + Long.BYTES + 4 + 4;
+
+    private JournalProtocol() {
+    }
+
+    /**
+     * Options from a HELLO or BINARY line, e.g. "binary/1 register=REG-001 compression=deflate spool=1718000000000".
+     * spool is the epoch of the client's spool (0 if it did not send one); a
+     * new epoch means sequences start again from 1. Unknown options are ignored.
+     */
+    public record Hello(int version, String register, boolean deflate, long epoch) {
+        public String toLine() {
+            return "binary/" + version + " register=" + register + " compression=" + (deflate ? "deflate" : "none")
+                    + (epoch != 0 ? " spool=" + epoch : "");
+        }
+
+        /**
+         * Throws IllegalArgumentException if there is no version, the register
+         * is empty or a number does not parse.
+         */
+        public static Hello parse(String text) {
+            int version = -1;
+            String register = "UNKNOWN";
+            boolean deflate = false;
+            long epoch = 0;
+            try {
+                for (String token : text.trim().split("\\s+")) {
+                    if (token.startsWith("binary/")) {
+                        version = Integer.parseInt(token.substring("binary/".length()));
+                    } else if (token.startsWith("register=")) {
+                        register = token.substring("register=".length());
+                    } else if (token.equals("compression=deflate")) {
+                        deflate = true;
+                    } else if (token.startsWith("spool=")) {
+                        epoch = Long.parseLong(token.substring("spool=".length()));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed VJ hello: " + text, e);
+            }
+            if (version < 0 || register.isEmpty()) {
+                throw new IllegalArgumentException("Malformed VJ hello: " + text);
+            }
+            return new Hello(version, register, deflate, epoch);
+        }
+    }
+
+    // ========== BATCH ==========
+
+    /**
+     * Encode a batch of events with consecutive sequences from firstSequence.
+     * The deflater, if any, is reset and reused by the caller's connection.
+     */
+    public static byte[] encodeBatch(long firstSequence, List<byte[]> events, Deflater deflater) {
+        int rawLength = 0;
+        for (byte[] event : events) {
+            rawLength += 4 + event.length;
+        }
+        ByteBuffer raw = ByteBuffer.allocate(rawLength);
+        for (byte[] event : events) {
+            raw.putInt(event.length).put(event);
+        }
+
+        byte[] body = raw.array();
+        int bodyLength = rawLength;
+        byte flags = 0;
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(body);
+            deflater.finish();
+            byte[] compressed = new byte[rawLength + 64];
+            int length = 0;
+            while (!deflater.finished() && length < compressed.length) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            if (deflater.finished() && length < rawLength) {
+                body = compressed;
+                bodyLength = length;
+                flags = FLAG_DEFLATED;
+            }
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(4 + BATCH_HEADER_BYTES + bodyLength);
+        frame.putInt(BATCH_HEADER_BYTES + bodyLength)
+                .put(FRAME_BATCH)
+                .put(flags)
+                .putLong(firstSequence)
+                .putInt(events.size())
+                .putInt(rawLength)
+                .put(body, 0, bodyLength);
+        return frame.array();
+    }
+
+    /**
+     * A decoded batch: events[i] has sequence firstSequence + i.
+     */
+    public record Batch(long firstSequence, List<byte[]> events) {
+        public long lastSequence() {
+            return firstSequence + events.size() - 1;
+        }
+    }
+
+    /**
+     * Decode the body of a BATCH frame (everything after the kind byte).
+     */
+    public static Batch decodeBatch(ByteBuffer body, Inflater inflater) throws IOException {
+        byte flags = body.get();
+        long firstSequence = body.getLong();
+        int count = body.getInt();
+        int rawLength = body.getInt();
+        if (rawLength < 0 || rawLength > MAX_FRAME_BYTES || count < 0) {
+            throw new IOException("Corrupt batch header");
+        }
+
+        ByteBuffer raw;
+        if ((flags & FLAG_DEFLATED) != 0) {
+            byte[] inflated = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            try {
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(inflated, length, rawLength - length);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += n;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Batch inflated to " + length + " bytes, expected " + rawLength);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt compressed batch", e);
+            }
+            raw = ByteBuffer.wrap(inflated);
+        } else {
+            raw = body.slice();
+        }
+
+        List<byte[]> events = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            int length = raw.remaining() >= 4 ? raw.getInt() : -1;
+            if (length < 0 || length > raw.remaining()) {
+                throw new IOException("Corrupt batch: event " + (i + 1) + " of " + count + " overruns it");
+            }
+            byte[] event = new byte[length];
+            raw.get(event);
+            events.add(event);
+        }
+        return new Batch(firstSequence, events);
+    }
+
+    // ========== ACK ==========
+
+    public static ByteBuffer ackFrame(long sequence) {
+        return ByteBuffer.allocate(ACK_FRAME_BYTES).putInt(1 + Long.BYTES).put(FRAME_ACK).putLong(sequence).flip();
+    }
+
+    /**
+     * Read one ACK frame; the caller has checked that ACK_FRAME_BYTES are available.
+     */
+    public static long readAck(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        byte kind = in.readByte();
+        if (length != 1 + Long.BYTES || kind != FRAME_ACK) {
+            throw new IOException("Unexpected frame " + kind + " of " + length + " bytes from VJ Server");
+        }
+        return in.readLong();
+    }
+}
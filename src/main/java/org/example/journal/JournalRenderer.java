@@ -0,0 +1,270 @@
+package org.example.journal;
+
+import org.example.model.Money;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+/**
+ * Renders JournalEvents as the text lines of the text protocol
+ * ("[12:34:56.789] SCAN | UPC: ...").
+ *
+ * A renderer belongs to one thread and reuses its buffers. The "HH:mm:ss."
+ * part of the timestamp is formatted once per second and only the millis
+ * are patched in; numbers and money are appended digit by digit and strings
+ * are decoded from the event's UTF-8 straight into the StringBuilder, so
+ * rendering a line allocates nothing.
+ */
+public final class JournalRenderer {
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final ZoneRules zone = ZoneId.systemDefault().getRules();
+    private final char[] second = new char[9]; // "HH:mm:ss."
+    private long cachedSecond = Long.MIN_VALUE;
+
+    private final StringBuilder line = new StringBuilder(256);
+    private byte[] lineBytes = new byte[256];
+
+    // Event being read
+    private byte[] event;
+    private int position;
+
+    // ========== RENDERING ==========
+
+    /**
+     * Append the text for the event in event[offset, offset + length); returns sb.
+     */
+    public StringBuilder render(byte[] event, int offset, int length, StringBuilder sb) {
+        this.event = event;
+        this.position = offset;
+        try {
+            return append(sb);
+        } finally {
+            this.event = null;
+        }
+    }
+
+    /**
+     * Append the text for the event at the buffer's position, consuming it.
+     */
+    public StringBuilder render(ByteBuffer event, StringBuilder sb) {
+        int start = event.arrayOffset() + event.position();
+        this.event = event.array();
+        this.position = start;
+        try {
+            append(sb);
+            event.position(event.position() + position - start);
+            return sb;
+        } finally {
+            this.event = null;
+        }
+    }
+
+    /**
+     * Write the event's line and a newline to out as UTF-8. Returns the bytes written.
+     */
+    public int writeLine(byte[] event, int offset, int length, OutputStream out) throws IOException {
+        int bytes = renderLine(event, offset, length);
+        out.write(lineBytes, 0, bytes);
+        return bytes;
+    }
+
+    /**
+     * Render the event's line and a newline as UTF-8 into lineBytes(); returns the length.
+     */
+    public int renderLine(byte[] event, int offset, int length) {
+        line.setLength(0);
+        render(event, offset, length, line).append('\n');
+        return encode(line);
+    }
+
+    /**
+     * The line from the last renderLine(), valid until the next call.
+     */
+    public byte[] lineBytes() {
+        return lineBytes;
+    }
+
+    public int writeLine(byte[] event, OutputStream out) throws IOException {
+        return writeLine(event, 0, event.length, out);
+    }
+
+    private StringBuilder append(StringBuilder sb) {
+        JournalEvent.Type type = JournalEvent.Type.of(event[position++]);
+        long millis = readLong();
+        if (type == JournalEvent.Type.RECEIPT) {
+            return string(sb); // printed as-is, no timestamp
+        }
+
+        time(sb.append('['), millis).append("] ");
+        switch (type) {
+            case SCAN -> {
+                string(sb);
+                string(sb.append(" | UPC: "));
+                int descriptionLength = peekInt();
+                if (descriptionLength == JournalEncoder.NULL_STRING) {
+                    position += 4 + Long.BYTES;
+                    sb.append(" | NOT FOUND");
+                } else {
+                    string(sb.append(" | Desc: "));
+                    money(sb.append(" | Price: "));
+                }
+            }
+            case QUICK_KEY -> {
+                string(sb.append("QUICK_KEY | Desc: "));
+                money(sb.append(" | Price: "));
+            }
+            case VOID_ITEM -> {
+                string(sb.append("VOID_ITEM | UPC: "));
+                sb.append(" | Qty: ").append(readInt());
+                string(sb.append(" | Desc: "));
+                money(sb.append(" | Total: "));
+            }
+            case QTY_CHANGE -> {
+                string(sb.append("QTY_CHANGE | UPC: "));
+                string(sb.append(" | Desc: "));
+                sb.append(" | Old Qty: ").append(readInt());
+                sb.append(" | New Qty: ").append(readInt());
+            }
+            case TENDER -> {
+                string(sb.append("TENDER | Type: "));
+                money(sb.append(" | Subtotal: "));
+                money(sb.append(" | Tax: "));
+                money(sb.append(" | Total: "));
+                money(sb.append(" | Tendered: "));
+                money(sb.append(" | Change: "));
+            }
+            case TRANSACTION -> {
+                string(sb.append("TRANSACTION | "));
+                money(sb.append(" | Total: "));
+            }
+            case SYSTEM -> string(sb.append("SYSTEM | "));
+            case CUSTOMER -> string(sb.append("CUSTOMER | "));
+            case RECEIPT_PRINTING -> sb.append("RECEIPT PRINTING");
+            default -> throw new IllegalArgumentException("Unexpected journal event " + type);
+        }
+        return sb;
+    }
+
+    /**
+     * "HH:mm:ss.SSS" in the system time zone, like DateTimeFormatter would.
+     */
+    private StringBuilder time(StringBuilder sb, long millis) {
+        long epochSecond = Math.floorDiv(millis, 1000);
+        if (epochSecond != cachedSecond) {
+            int offset = zone.isFixedOffset()
+                    ? zone.getOffset(Instant.EPOCH).getTotalSeconds()
+                    : zone.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+            int secondOfDay = (int) Math.floorMod(epochSecond + offset, (long) SECONDS_PER_DAY);
+            twoDigits(0, secondOfDay / 3600);
+            second[2] = ':';
+            twoDigits(3, secondOfDay / 60 % 60);
+            second[5] = ':';
+            twoDigits(6, secondOfDay % 60);
+            second[8] = '.';
+            cachedSecond = epochSecond;
+        }
+        int milli = (int) Math.floorMod(millis, 1000L);
+        return sb.append(second)
+                .append((char) ('0' + milli / 100))
+                .append((char) ('0' + milli / 10 % 10))
+                .append((char) ('0' + milli % 10));
+    }
+
+    private void twoDigits(int at, int value) {
+        second[at] = (char) ('0' + value / 10);
+        second[at + 1] = (char) ('0' + value % 10);
+    }
+
+    private void money(StringBuilder sb) {
+        Money.append(sb.append('$'), readLong());
+    }
+
+    // ========== DECODING ==========
+
+    /**
+     * Append a length-prefixed UTF-8 string ("null" for a null string, as StringBuilder would).
+     */
+    private StringBuilder string(StringBuilder sb) {
+        int length = readInt();
+        if (length == JournalEncoder.NULL_STRING) {
+            return sb.append("null");
+        }
+        int end = position + length;
+        while (position < end) {
+            int b = event[position++];
+            if (b >= 0) {
+                sb.append((char) b);
+            } else if ((b & 0xE0) == 0xC0 && position < end) {
+                sb.append((char) ((b & 0x1F) << 6 | event[position++] & 0x3F));
+            } else if ((b & 0xF0) == 0xE0 && position + 1 < end) {
+                sb.append((char) ((b & 0x0F) << 12 | (event[position] & 0x3F) << 6 | event[position + 1] & 0x3F));
+                position += 2;
+            } else if ((b & 0xF8) == 0xF0 && position + 2 < end) {
+                sb.appendCodePoint((b & 0x07) << 18 | (event[position] & 0x3F) << 12
+                        | (event[position + 1] & 0x3F) << 6 | event[position + 2] & 0x3F);
+                position += 3;
+            } else {
+                sb.append('\uFFFD');
+            }
+        }
+        position = end;
+        return sb;
+    }
+
+    private int peekInt() {
+        return (event[position] & 0xFF) << 24 | (event[position + 1] & 0xFF) << 16
+                | (event[position + 2] & 0xFF) << 8 | event[position + 3] & 0xFF;
+    }
+
+    private int readInt() {
+        int value = peekInt();
+        position += 4;
+        return value;
+    }
+
+    private long readLong() {
+        long high = readInt();
+        return high << 32 | readInt() & 0xFFFFFFFFL;
+    }
+
+    // ========== ENCODING ==========
+
+    /**
+     * UTF-8 encode the line into lineBytes; returns the length.
+     */
+    private int encode(CharSequence text) {
+        int chars = text.length();
+        if (lineBytes.length < chars * 3) {
+            lineBytes = new byte[Math.max(lineBytes.length * 2, chars * 3)];
+        }
+        byte[] out = lineBytes;
+        int length = 0;
+        for (int i = 0; i < chars; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out[length++] = (byte) c;
+            } else if (c < 0x800) {
+                out[length++] = (byte) (0xC0 | c >> 6);
+                out[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out[length++] = (byte) (0xF0 | codePoint >> 18);
+                out[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                out[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                out[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                out[length++] = '?';
+            } else {
+                out[length++] = (byte) (0xE0 | c >> 12);
+                out[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return length;
+    }
+}
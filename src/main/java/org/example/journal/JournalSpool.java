@@ -0,0 +1,359 @@
+package org.example.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Store-and-forward spool of journal entries, numbered by sequence.
+ *
+ * Entries are appended to fixed-size memory-mapped segment files, so an
+ * append is a copy into the page cache. The writer reads entries after its
+ * cursor and sends them; once the server confirms a sequence, acknowledge()
+ * persists it and deletes the segments that are wholly confirmed. After a
+ * reconnect - or a restart - sending resumes after the last acknowledged
+ * sequence, so nothing is skipped and nothing confirmed is resent.
+ *
+ * A new spool starts numbering at 1 under a new epoch, kept next to the
+ * acknowledged sequence. The writer sends it in its HELLO, so the server can
+ * tell a spool that was reset from one resending what it already has.
+ *
+ * Disk use is capped: when a new segment would exceed the budget the oldest
+ * segment is discarded, acknowledged or not, and counted as dropped.
+ *
+ * Segment layout: magic, version, first sequence, then records of
+ * [length][sequence][payload]. The length is written last, so a record torn
+ * by a crash reads as the end of the segment.
+ */
+public class JournalSpool implements Closeable {
+    private static final int MAGIC = 0x564A5350; // "VJSP"
+    private static final int FORMAT_VERSION = 2; // 2: payloads are JournalEvents
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String ACK_FILE = "ack";
+
+    /**
+     * One spooled entry.
+     */
+    public record Entry(long sequence, byte[] payload) {}
+
+    private static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        final long firstSequence;
+        long lastSequence;   // firstSequence - 1 while empty
+        int writePosition;
+
+        Segment(Path path, MappedByteBuffer buffer, long firstSequence) {
+            this.path = path;
+            this.buffer = buffer;
+            this.firstSequence = firstSequence;
+            this.lastSequence = firstSequence - 1;
+            this.writePosition = HEADER_BYTES;
+        }
+
+        int size() {
+            return (int) (lastSequence - firstSequence + 1);
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();
+    private final MappedByteBuffer ackBuffer;
+    private final FileChannel ackChannel;
+    private final long epoch;
+    private long lastSequence;
+    private long acknowledged;
+
+    // Read cursor, so sequential reads do not rescan a segment
+    private Segment readSegment;
+    private int readPosition;
+    private long readSequence = -1;
+    private boolean overflowing;
+
+    // Statistics
+    private long appended;
+    private long dropped;
+
+    public JournalSpool(Path directory, int segmentBytes, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentBytes);
+        Files.createDirectories(directory);
+
+        this.ackChannel = FileChannel.open(directory.resolve(ACK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.ackBuffer = ackChannel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * Long.BYTES); // [ack][epoch]
+        this.acknowledged = ackBuffer.getLong(0);
+        if (ackBuffer.getLong(Long.BYTES) == 0) {
+            ackBuffer.putLong(Long.BYTES, System.currentTimeMillis());
+            ackBuffer.force();
+        }
+        this.epoch = ackBuffer.getLong(Long.BYTES);
+
+        recover();
+        this.lastSequence = segments.isEmpty()
+                ? acknowledged
+                : Math.max(acknowledged, segments.get(segments.size() - 1).lastSequence);
+        compact();
+    }
+
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null); // zero-padded first sequence, so name order is sequence order
+
+        for (Path path : paths) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() < HEADER_BYTES) {
+                    Files.delete(path);
+                    continue;
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                System.err.println("Ignoring unrecognised VJ spool segment " + path);
+                continue;
+            }
+
+            Segment segment = new Segment(path, buffer, buffer.getLong(8));
+            while (segment.writePosition + RECORD_HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(segment.writePosition);
+                if (length <= 0 || segment.writePosition + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+                    break;
+                }
+                segment.lastSequence = buffer.getLong(segment.writePosition + 4);
+                segment.writePosition += RECORD_HEADER_BYTES + length;
+            }
+            segments.add(segment);
+        }
+
+        if (!segments.isEmpty()) {
+            long pending = Math.max(0, segments.get(segments.size() - 1).lastSequence - acknowledged);
+            System.out.println("VJ spool recovered " + segments.size() + " segments, "
+                    + pending + " entries not yet acknowledged");
+        }
+    }
+
+    // ========== WRITING ==========
+
+    /**
+     * Append one entry and return its sequence number.
+     */
+    public synchronized long append(byte[] payload, int offset, int length) throws IOException {
+        int recordBytes = RECORD_HEADER_BYTES + length;
+        if (HEADER_BYTES + recordBytes > segmentBytes) {
+            throw new IOException("Journal entry of " + length + " bytes is larger than a spool segment");
+        }
+
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.writePosition + recordBytes > segment.buffer.capacity()) {
+            segment = newSegment(lastSequence + 1);
+        }
+
+        long sequence = ++lastSequence;
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.writePosition;
+        buffer.putLong(position + 4, sequence);
+        buffer.put(position + RECORD_HEADER_BYTES, payload, offset, length);
+        buffer.putInt(position, length); // last, so a torn record is never read
+        segment.writePosition = position + recordBytes;
+        segment.lastSequence = sequence;
+        appended++;
+        return sequence;
+    }
+
+    public long append(byte[] payload) throws IOException {
+        return append(payload, 0, payload.length);
+    }
+
+    private Segment newSegment(long firstSequence) throws IOException {
+        while (segments.size() >= maxSegments) {
+            Segment oldest = segments.remove(0);
+            long lost = Math.max(0, oldest.lastSequence - Math.max(acknowledged, oldest.firstSequence - 1));
+            if (lost > 0) {
+                dropped += lost;
+                if (!overflowing) {
+                    overflowing = true; // reported once until the server catches up
+                    System.err.println("VJ spool full - discarding the oldest unsent journal entries"
+                            + " (first lost: #" + (Math.max(acknowledged, oldest.firstSequence - 1) + 1) + ")");
+                }
+                setAcknowledged(oldest.lastSequence);
+            }
+            deleteSegment(oldest);
+        }
+
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(8, firstSequence);
+
+        Segment segment = new Segment(path, buffer, firstSequence);
+        segments.add(segment);
+        return segment;
+    }
+
+    // ========== READING AND ACKNOWLEDGING ==========
+
+    /**
+     * Read up to max entries with sequence greater than after, in order.
+     */
+    public synchronized List<Entry> read(long after, int max) {
+        List<Entry> entries = new ArrayList<>(Math.min(max, 64));
+        if (after >= lastSequence) {
+            return entries;
+        }
+        if (readSequence != after || readSegment == null || !segments.contains(readSegment)) {
+            seek(after);
+        }
+
+        while (entries.size() < max && readSegment != null) {
+            if (readPosition >= readSegment.writePosition) {
+                int index = segments.indexOf(readSegment);
+                if (index + 1 >= segments.size()) {
+                    break;
+                }
+                readSegment = segments.get(index + 1);
+                readPosition = HEADER_BYTES;
+                continue;
+            }
+            ByteBuffer buffer = readSegment.buffer;
+            int length = buffer.getInt(readPosition);
+            long sequence = buffer.getLong(readPosition + 4);
+            byte[] payload = new byte[length];
+            buffer.get(readPosition + RECORD_HEADER_BYTES, payload);
+            readPosition += RECORD_HEADER_BYTES + length;
+            if (sequence > after) {
+                entries.add(new Entry(sequence, payload));
+                readSequence = sequence;
+            }
+        }
+        return entries;
+    }
+
+    private void seek(long after) {
+        readSegment = null;
+        readSequence = after;
+        for (Segment segment : segments) {
+            if (segment.lastSequence > after) {
+                readSegment = segment;
+                readPosition = HEADER_BYTES;
+                // Skip records up to 'after' within the segment
+                while (readPosition < segment.writePosition && segment.buffer.getLong(readPosition + 4) <= after) {
+                    readPosition += RECORD_HEADER_BYTES + segment.buffer.getInt(readPosition);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * The server has everything up to and including sequence.
+     */
+    public synchronized void acknowledge(long sequence) {
+        if (sequence <= acknowledged) {
+            return;
+        }
+        setAcknowledged(Math.min(sequence, lastSequence));
+        overflowing = false;
+        compact();
+    }
+
+    private void setAcknowledged(long sequence) {
+        acknowledged = sequence;
+        ackBuffer.putLong(0, sequence);
+    }
+
+    /**
+     * Delete segments whose entries are all acknowledged, keeping the one being written.
+     */
+    private void compact() {
+        while (segments.size() > 1 && segments.get(0).lastSequence <= acknowledged) {
+            deleteSegment(segments.remove(0));
+        }
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.size() > 0 && last.lastSequence <= acknowledged
+                && last.writePosition > segmentBytes / 2) {
+            // Past halfway and fully sent - start afresh rather than keep a mostly dead file
+            segments.remove(last);
+            deleteSegment(last);
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        if (segment == readSegment) {
+            readSegment = null;
+            readSequence = -1;
+        }
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            System.err.println("Could not delete VJ spool segment " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    // ========== STATUS ==========
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Identifies this spool's numbering: a spool created afresh has a new epoch.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized long getAcknowledged() {
+        return acknowledged;
+    }
+
+    public synchronized long getPendingCount() {
+        return lastSequence - acknowledged;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized String getStatistics() {
+        return String.format("VJ spool: %d appended, %d unacknowledged, %d dropped, %d segments (%d KB)",
+                appended, lastSequence - acknowledged, dropped, segments.size(),
+                (long) segments.size() * segmentBytes / 1024);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        ackBuffer.force();
+        ackChannel.close();
+    }
+
+    @Override
+    public String toString() {
+        return directory.toString();
+    }
+}
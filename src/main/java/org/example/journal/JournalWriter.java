@@ -0,0 +1,583 @@
+package org.example.journal;
+
+import org.example.config.VJConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+/**
+ * Background delivery of journal entries to the VJ server.
+ *
+ * submit() copies the entry into a bounded lock-free ring of preallocated
+ * slots (see EventRing) and returns without allocating. A single
+ * "vj-writer" thread moves queued entries into the JournalSpool, which
+ * numbers them, and sends from the spool in batches with one flush per
+ * batch. Delivered entries are acknowledged in the spool; after a reconnect
+ * or a restart sending resumes after the last acknowledged entry, so
+ * network blips leave no holes in the journal. Reconnects run in the
+ * background with exponential backoff, so the till never waits on the
+ * network. If the queue fills up the overflow policy decides what gives.
+ * SPILL never does disk I/O or takes the spool lock on the caller's thread:
+ * the entry is parked in an unbounded overflow list (the one place submit()
+ * allocates) and the writer thread moves the queue and the overflow, in
+ * order, into the spool.
+ *
+ * Entries are JournalEvents. On connect the writer offers the binary
+ * protocol (see JournalProtocol); a server that accepts gets deflated
+ * batches of events and acknowledges them by sequence, and the spool is
+ * only trimmed on its acknowledgement. A text-only server gets the rendered
+ * lines as before, and a completed flush counts as delivery.
+ */
+public class JournalWriter implements Closeable {
+    private static final long INITIAL_BACKOFF_MS = 250;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long ACK_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * What submit() does when the queue is full.
+     */
+    public enum OverflowPolicy {
+        BLOCK,       // wait for room, up to the block timeout, then drop the new entry
+        DROP_OLDEST, // discard the oldest queued entry
+        SPILL        // park the entry for the writer thread to spool, after the queue
+    }
+
+    private final VJConfig config;
+    private final String registerId;
+    private final Runnable onConnect;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final JournalSpool spool; // null if it could not be opened - entries are then sent from memory only
+    private final boolean offerBinary;
+    private final boolean deflate;
+    private final int maxUnacknowledged;
+    private final long ackTimeoutNanos;
+
+    private final EventRing ring;
+    private final Queue<byte[]> overflow = new ConcurrentLinkedQueue<>(); // SPILL: newer than anything in the ring
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    private volatile boolean connected;
+
+    // Writer thread only (close() may close the socket to unblock it)
+    private volatile Socket socket;
+    private OutputStream out;
+    private DataInputStream in;
+    private boolean binary;                                     // negotiated for this connection
+    private Deflater deflater;
+    private long sentSequence;                                  // last sequence written to the socket
+    private long lastAckNanos;                                  // when acknowledgements last moved
+    private final List<byte[]> batch = new ArrayList<>();      // unsent entries when there is no spool
+    private final JournalRenderer renderer = new JournalRenderer();
+    private final EventRing.Handler toSpool = this::appendToSpool;
+
+    // Statistics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+
+    /**
+     * Start the writer; it connects on its own thread. onConnect runs on that
+     * thread after every successful (re)connect. The register id names this
+     * lane to a binary server.
+     */
+    public JournalWriter(VJConfig config, String registerId, Runnable onConnect) {
+        this.config = config;
+        this.registerId = registerId;
+        this.onConnect = onConnect;
+        this.ring = new EventRing(Math.max(1, config.getQueueCapacity()));
+        this.batchSize = Math.max(1, config.getBatchMaxEntries());
+        this.policy = OverflowPolicy.valueOf(config.getOverflowPolicy());
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getBlockTimeoutMillis());
+        this.spool = openSpool(config);
+        this.offerBinary = spool != null && config.getProtocol().equals("AUTO"); // acks need sequences
+        this.deflate = config.getCompression().equals("DEFLATE");
+        this.maxUnacknowledged = Math.max(batchSize, config.getMaxUnacknowledged());
+        this.ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getAckTimeoutMillis());
+
+        this.thread = new Thread(this::run, "vj-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private static JournalSpool openSpool(VJConfig config) {
+        try {
+            JournalSpool spool = new JournalSpool(Path.of(config.getSpoolDirectory()),
+                    config.getSpoolSegmentKilobytes() * 1024, config.getSpoolMaxMegabytes() * 1024L * 1024L);
+            System.out.println("VJ spool opened: " + spool + " (" + spool.getPendingCount() + " entries to send)");
+            return spool;
+        } catch (IOException e) {
+            System.err.println("Cannot open VJ spool " + config.getSpoolDirectory()
+                    + ", journal entries will be held in memory only: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ========== PRODUCER SIDE ==========
+
+    /**
+     * Queue an event (see JournalEvent) for the server. Never touches the network.
+     */
+    public void submit(byte[] entry) {
+        submit(entry, 0, entry.length);
+    }
+
+    /**
+     * Queue the event in entry[offset, offset + length); the bytes are copied,
+     * so the caller may reuse the array (see JournalEncoder).
+     */
+    public void submit(byte[] entry, int offset, int length) {
+        if (!running) {
+            return;
+        }
+        submitted.increment();
+
+        // Once entries are parked, later ones queue behind them until the writer has spooled them
+        if (policy == OverflowPolicy.SPILL && spool != null && !overflow.isEmpty()) {
+            spill(entry, offset, length);
+            return;
+        }
+        while (!ring.offer(entry, offset, length)) {
+            switch (policy) {
+                case SPILL -> {
+                    if (spool != null) {
+                        spill(entry, offset, length);
+                        return;
+                    }
+                    dropOldest();
+                }
+                case DROP_OLDEST -> dropOldest();
+                case BLOCK -> {
+                    if (!awaitRoom()) {
+                        dropped.increment();
+                        return;
+                    }
+                }
+            }
+        }
+        wakeWriter();
+    }
+
+    private void dropOldest() {
+        if (ring.poll() != null) {
+            dropped.increment();
+        }
+    }
+
+    private boolean awaitRoom() {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (ring.size() >= ring.capacity()) {
+            if (System.nanoTime() > deadline || !running) {
+                return false;
+            }
+            wakeWriter();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+        }
+        return true;
+    }
+
+    /**
+     * Queue full: park a copy of the entry and let the writer spool it.
+     */
+    private void spill(byte[] entry, int offset, int length) {
+        byte[] copy = new byte[length];
+        System.arraycopy(entry, offset, copy, 0, length);
+        overflow.add(copy);
+        spilled.increment();
+        LockSupport.unpark(thread);
+    }
+
+    private void wakeWriter() {
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // ========== WRITER THREAD ==========
+
+    private void run() {
+        long backoffMs = INITIAL_BACKOFF_MS;
+        int failures = 0;
+        while ((running || hasUnsent()) && !Thread.currentThread().isInterrupted()) {
+            if (spool != null) {
+                moveToSpool(batchSize * 4);
+            }
+
+            if (!connected) {
+                if (!running) {
+                    break; // the spool keeps the rest for the next start
+                }
+                if (connect()) {
+                    backoffMs = INITIAL_BACKOFF_MS;
+                    failures = 0;
+                    continue;
+                }
+                failures++;
+                if (failures == config.getMaxRetryAttempts()) {
+                    System.err.println("VJ Server unreachable after " + failures
+                            + " attempts - register continues, journal entries are held and retried");
+                }
+                if (!config.isRetryEnabled() && failures >= config.getMaxRetryAttempts()) {
+                    break;
+                }
+                pause(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                backoffMs = Math.min(backoffMs * 2, TimeUnit.SECONDS.toMillis(config.getRetryDelaySeconds()));
+                continue;
+            }
+
+            try {
+                if (binary) {
+                    readAcknowledgements();
+                }
+                if (!sendBatch()) {
+                    idle = true;
+                    if (ring.isEmpty() && overflow.isEmpty() && (running || binary)) {
+                        // Poll for acknowledgements while any are outstanding
+                        LockSupport.parkNanos(this, binary && sentSequence > spool.getAcknowledged()
+                                ? ACK_POLL_NANOS : IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                }
+            } catch (IOException e) {
+                // Unacknowledged entries are resent after reconnecting
+                System.err.println("Connection lost to VJ Server: " + e.getMessage());
+                closeSocket();
+            }
+        }
+        closeSocket();
+    }
+
+    /**
+     * Move up to max queued entries into the spool; if entries were spilled,
+     * the whole queue and then the spilled entries, so they stay in order.
+     */
+    private void moveToSpool(int max) {
+        synchronized (spool) {
+            if (overflow.isEmpty()) {
+                transferQueue(max);
+                return;
+            }
+            transferQueue(Integer.MAX_VALUE);
+            byte[] entry;
+            while ((entry = overflow.poll()) != null) {
+                appendToSpool(entry, 0, entry.length);
+            }
+        }
+    }
+
+    /**
+     * Move up to max queued entries into the spool. Caller holds the spool lock.
+     */
+    private void transferQueue(int max) {
+        int moved = 0;
+        try {
+            while (moved < max && ring.poll(toSpool)) {
+                moved++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown - appendToSpool handles its own failures
+        }
+    }
+
+    private void appendToSpool(byte[] entry, int offset, int length) {
+        try {
+            spool.append(entry, offset, length);
+        } catch (IOException e) {
+            dropped.increment();
+            System.err.println("VJ spool append failed, entry dropped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the next batch and flush. Returns false if there was nothing to send
+     * (or, in binary mode, if the server is too far behind on acknowledgements).
+     */
+    private boolean sendBatch() throws IOException {
+        if (spool == null) {
+            byte[] entry;
+            while (batch.size() < batchSize && (entry = ring.poll()) != null) {
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                return false;
+            }
+            for (byte[] event : batch) {
+                writeLine(event);
+            }
+            out.flush();
+            written.add(batch.size());
+            flushes.increment();
+            batch.clear();
+            return true;
+        }
+
+        if (binary && sentSequence - spool.getAcknowledged() >= maxUnacknowledged) {
+            return false;
+        }
+        if (binary && sentSequence == spool.getAcknowledged()) {
+            lastAckNanos = System.nanoTime(); // the acknowledgement clock starts with the first unacknowledged batch
+        }
+        List<JournalSpool.Entry> entries = spool.read(sentSequence, batchSize);
+        if (entries.isEmpty()) {
+            return false;
+        }
+
+        if (binary) {
+            List<byte[]> events = new ArrayList<>(entries.size());
+            for (JournalSpool.Entry entry : entries) {
+                events.add(entry.payload());
+            }
+            byte[] frame = JournalProtocol.encodeBatch(entries.get(0).sequence(), events, deflater);
+            out.write(frame);
+            bytesSent.add(frame.length);
+        } else {
+            for (JournalSpool.Entry entry : entries) {
+                writeLine(entry.payload());
+            }
+        }
+        out.flush();
+        sentSequence = entries.get(entries.size() - 1).sequence();
+        written.add(entries.size());
+        flushes.increment();
+
+        if (!binary) {
+            // A text server cannot confirm receipt; a completed flush is as close as it gets
+            spool.acknowledge(sentSequence);
+        }
+        return true;
+    }
+
+    private void writeLine(byte[] event) throws IOException {
+        bytesSent.add(renderer.writeLine(event, out));
+    }
+
+    /**
+     * Apply any acknowledgements that have arrived. A server that stops
+     * acknowledging may be gone without the socket noticing, so after the ack
+     * timeout the connection is dropped and the unacknowledged entries resent.
+     */
+    private void readAcknowledgements() throws IOException {
+        long acknowledged = -1;
+        while (in.available() >= JournalProtocol.ACK_FRAME_BYTES) {
+            acknowledged = JournalProtocol.readAck(in);
+        }
+        if (acknowledged > spool.getAcknowledged()) {
+            spool.acknowledge(acknowledged);
+            lastAckNanos = System.nanoTime();
+        } else if (sentSequence > spool.getAcknowledged() && System.nanoTime() - lastAckNanos > ackTimeoutNanos) {
+            throw new IOException("no acknowledgement for " + TimeUnit.NANOSECONDS.toMillis(ackTimeoutNanos) + "ms");
+        }
+    }
+
+    private boolean hasUnsent() {
+        if (spool == null) {
+            return !batch.isEmpty() || !ring.isEmpty();
+        }
+        long delivered = binary ? spool.getAcknowledged() : sentSequence;
+        return !ring.isEmpty() || !overflow.isEmpty() || spool.getLastSequence() > delivered;
+    }
+
+    private boolean connect() {
+        try {
+            Socket candidate = new Socket();
+            candidate.connect(new InetSocketAddress(config.getServerHost(), config.getServerPort()), CONNECT_TIMEOUT_MS);
+            candidate.setTcpNoDelay(true);
+            socket = candidate;
+            out = new BufferedOutputStream(candidate.getOutputStream(), 16 * 1024);
+            in = new DataInputStream(candidate.getInputStream());
+            binary = offerBinary && negotiateBinary();
+            deflater = binary && deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+            connected = true;
+            reconnects.increment();
+            if (spool != null) {
+                // Resume after what the server has confirmed
+                sentSequence = spool.getAcknowledged();
+                long backlog = spool.getLastSequence() - sentSequence;
+                if (backlog > 0) {
+                    replayed.add(backlog);
+                    System.out.println("Replaying " + backlog + " journal entries from the spool");
+                }
+            }
+            System.out.println("✓ Connected to Virtual Journal Server at "
+                    + config.getServerHost() + ":" + config.getServerPort()
+                    + (binary ? " (binary protocol" + (deflater != null ? ", deflate)" : ")") : " (text protocol)"));
+            if (onConnect != null) {
+                onConnect.run();
+            }
+            return true;
+        } catch (IOException e) {
+            closeSocket();
+            return false;
+        }
+    }
+
+    /**
+     * Offer the binary protocol. A text-only server never answers, so after
+     * the hello timeout the connection carries text.
+     */
+    private boolean negotiateBinary() throws IOException {
+        JournalProtocol.Hello hello = new JournalProtocol.Hello(JournalProtocol.VERSION, registerId, deflate,
+                spool.getEpoch());
+        byte[] helloEvent = JournalEvent.system(System.currentTimeMillis(), "VJ-HELLO " + hello.toLine());
+        writeLine(helloEvent);
+        out.flush();
+
+        socket.setSoTimeout(config.getHelloTimeoutMillis());
+        StringBuilder reply = new StringBuilder();
+        try {
+            int b;
+            while ((b = in.read()) != -1 && b != '\n' && reply.length() < 256) {
+                reply.append((char) b);
+            }
+            if (b == -1) {
+                throw new IOException("VJ Server closed the connection during negotiation");
+            }
+        } catch (SocketTimeoutException e) {
+            return false;
+        } finally {
+            if (!socket.isClosed()) {
+                socket.setSoTimeout(0);
+            }
+        }
+        if (!reply.toString().startsWith(JournalProtocol.BINARY_REPLY)) {
+            return false;
+        }
+        try {
+            return JournalProtocol.Hello.parse(reply.substring(JournalProtocol.BINARY_REPLY.length())).version()
+                    == JournalProtocol.VERSION;
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    private void closeSocket() {
+        connected = false;
+        binary = false;
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // Already gone
+        }
+        socket = null;
+        out = null;
+        in = null;
+    }
+
+    /**
+     * Back off between connection attempts; entries spilled meanwhile are
+     * still spooled straight away.
+     */
+    private void pause(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > 0) {
+            if (spool != null && !overflow.isEmpty()) {
+                moveToSpool(0);
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    // ========== STATUS ==========
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public int getQueuedCount() {
+        return ring.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public String getStatistics() {
+        String writer = String.format("VJ writer: %d submitted, %d written in %d flushes (%d KB), %d replayed, "
+                        + "%d spilled, %d dropped, %d connects, %d queued",
+                submitted.sum(), written.sum(), flushes.sum(), bytesSent.sum() / 1024, replayed.sum(),
+                spilled.sum(), dropped.sum(), reconnects.sum(), ring.size());
+        return spool == null ? writer : writer + "\n" + spool.getStatistics();
+    }
+
+    /**
+     * Stop accepting entries and give the writer up to timeoutMillis to deliver
+     * what is queued. Anything left stays in the spool for the next start.
+     */
+    public void close(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            // Out of time: stop the writer, closing the socket in case it is blocked on a write
+            thread.interrupt();
+            Socket current = socket;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    // Already gone
+                }
+            }
+        }
+        // The spool is only touched here once the writer has exited
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (spool != null) {
+            moveToSpool(Integer.MAX_VALUE);
+            try {
+                spool.close();
+            } catch (IOException e) {
+                System.err.println("Error closing VJ spool: " + e.getMessage());
+            }
+        }
+        System.out.println(getStatistics());
+    }
+
+    @Override
+    public void close() {
+        close(TimeUnit.SECONDS.toMillis(5));
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.journal.server;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Finds entries in a register's journal by time or receipt number, using the
+ * index.tsv that RegisterJournal writes next to its segments.
+ */
+public class JournalIndex {
+    private static final int RECEIPT_MAX_LINES = 120;
+
+    /**
+     * A line within a segment.
+     */
+    public record Location(String segment, long line, long millis) {}
+
+    private final Path directory;
+    private final TreeMap<Long, Location> times = new TreeMap<>();
+    private final Map<Integer, List<Location>> receipts = new HashMap<>();
+
+    private JournalIndex(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read the index of one register's journal directory.
+     */
+    public static JournalIndex load(Path registerDirectory) throws IOException {
+        JournalIndex index = new JournalIndex(registerDirectory);
+        for (String line : Files.readAllLines(registerDirectory.resolve(RegisterJournal.INDEX_FILE),
+                StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            try {
+                if (fields[0].equals("time") && fields.length == 4) {
+                    long millis = Long.parseLong(fields[1]);
+                    index.times.put(millis, new Location(fields[2], Long.parseLong(fields[3]), millis));
+                } else if (fields[0].equals("receipt") && fields.length == 5) {
+                    long millis = Long.parseLong(fields[2]);
+                    index.receipts.computeIfAbsent(Integer.parseInt(fields[1]), n -> new ArrayList<>())
+                            .add(new Location(fields[3], Long.parseLong(fields[4]), millis));
+                }
+            } catch (NumberFormatException e) {
+                // A line torn by a crash; skip it
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The indexed point at or before the time, or the earliest if none is.
+     */
+    public Location findTime(long millis) {
+        Map.Entry<Long, Location> entry = times.floorEntry(millis);
+        if (entry == null) {
+            entry = times.firstEntry();
+        }
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Every receipt printed with this number, oldest first (numbers restart
+     * with the register, so there may be several).
+     */
+    public List<Location> findReceipt(int number) {
+        return receipts.getOrDefault(number, List.of());
+    }
+
+    /**
+     * Up to maxLines lines from the location on. A segment still being written
+     * has no gzip trailer yet; reading stops at the last flushed line.
+     */
+    public List<String> read(Location from, int maxLines) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(directory.resolve(from.segment())), 64 * 1024),
+                StandardCharsets.UTF_8))) {
+            long skipped = 0;
+            while (skipped < from.line() && reader.readLine() != null) {
+                skipped++;
+            }
+            String line;
+            while (lines.size() < maxLines && (line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (EOFException e) {
+            // Unfinished segment
+        }
+        return lines;
+    }
+
+    /**
+     * Look up a register's journal, e.g.
+     *   java org.example.journal.server.JournalIndex ./data/vj-journal REG-001 receipt 42
+     *   java org.example.journal.server.JournalIndex ./data/vj-journal REG-001 time 2025-03-14T15:09 [lines]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: JournalIndex <journal-dir> <register> receipt <number>");
+            System.err.println("       JournalIndex <journal-dir> <register> time <yyyy-MM-ddTHH:mm[:ss]> [lines]");
+            return;
+        }
+        JournalIndex index = load(RegisterJournal.directoryFor(Path.of(args[0]), args[1]));
+        if (args[2].equals("receipt")) {
+            List<Location> found = index.findReceipt(Integer.parseInt(args[3]));
+            if (found.isEmpty()) {
+                System.out.println("Receipt #" + args[3] + " is not in the index");
+            }
+            for (Location location : found) {
+                System.out.println("---- " + location.segment() + " line " + location.line() + " ----");
+                for (String line : index.read(location, RECEIPT_MAX_LINES)) {
+                    System.out.println(line);
+                    if (line.equals("END OF RECEIPT")) {
+                        break;
+                    }
+                }
+            }
+        } else {
+            long millis = LocalDateTime.parse(args[3]).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            int lines = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+            Location location = index.findTime(millis);
+            if (location == null) {
+                System.out.println("The journal is empty");
+                return;
+            }
+            System.out.println("---- " + location.segment() + " line " + location.line() + " ----");
+            index.read(location, lines).forEach(System.out::println);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package org.example.journal.server;
+
+import org.example.journal.JournalEncoder;
+import org.example.journal.JournalProtocol;
+import org.example.journal.JournalRenderer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+/**
+ * Drives a journal server with simulated registers and reports sustained
+ * throughput and ingest latency per lane.
+ *
+ * Each lane speaks the binary protocol like JournalWriter: scans, a tender
+ * and a receipt per sale, batched and deflated, with up to MAX_UNACKED
+ * events outstanding. Events are scheduled at a fixed rate and latency runs
+ * from an event's scheduled time to the acknowledgement that covers it, so a
+ * server that falls behind shows up in the latency rather than slowing the
+ * load down. Run as
+ *   java org.example.journal.server.JournalLoadGenerator [lanes] [seconds] [events/s per lane, 0 = flat out] [host:port]
+ * Without host:port it starts a server of its own on a temporary directory.
+ */
+public class JournalLoadGenerator {
+    private static final int BATCH_MAX = 256;
+    private static final int MAX_UNACKED = 8192;
+    private static final int PENDING_SLOTS = 16384; // power of two above MAX_UNACKED
+
+    /**
+     * Log-linear latency histogram in microseconds, about 6% resolution.
+     */
+    static final class Histogram {
+        private final long[] counts = new long[1024];
+        private long total;
+        private long max;
+
+        void record(long micros) {
+            counts[bucket(Math.max(0, micros))]++;
+            total++;
+            max = Math.max(max, micros);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        /**
+         * Upper bound of the bucket holding the given fraction of samples.
+         */
+        long percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return max;
+        }
+
+        private static int bucket(long micros) {
+            if (micros < 16) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            return (exponent - 3) * 16 + (int) ((micros >> (exponent - 4)) & 15);
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < 16) {
+                return bucket;
+            }
+            int exponent = bucket / 16 + 3;
+            return ((16L + bucket % 16 + 1) << (exponent - 4)) - 1;
+        }
+    }
+
+    // ========== LANE ==========
+
+    private static final class Lane {
+        final String register;
+        final InetSocketAddress server;
+        final int rate;
+        final long durationNanos;
+        final long warmUpNanos;
+        final Histogram latency = new Histogram();
+        final AtomicLongArray scheduled = new AtomicLongArray(PENDING_SLOTS);
+        final AtomicLong acknowledged = new AtomicLong();
+        final JournalEncoder encoder = new JournalEncoder();
+        final long epoch = System.currentTimeMillis(); // every run numbers from #1, like a new spool
+        long sent;
+        long startNanos;
+        long endNanos;
+        int receiptNumber;
+        String error;
+
+        Lane(String register, InetSocketAddress server, int rate, long durationNanos, long warmUpNanos) {
+            this.register = register;
+            this.server = server;
+            this.rate = rate;
+            this.durationNanos = durationNanos;
+            this.warmUpNanos = warmUpNanos;
+        }
+
+        void run() {
+            try (Socket socket = new Socket()) {
+                socket.connect(server, 5000);
+                socket.setTcpNoDelay(true);
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                negotiate(out, in);
+
+                Thread reader = new Thread(() -> readAcknowledgements(in), register + "-acks");
+                reader.setDaemon(true);
+                reader.start();
+
+                send(out);
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (acknowledged.get() < sent && System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+                endNanos = System.nanoTime();
+            } catch (IOException e) {
+                error = e.getMessage();
+                endNanos = System.nanoTime();
+            }
+        }
+
+        private void negotiate(OutputStream out, DataInputStream in) throws IOException {
+            JournalProtocol.Hello hello = new JournalProtocol.Hello(JournalProtocol.VERSION, register, true, epoch);
+            new JournalRenderer().writeLine(
+                    encoder.system(System.currentTimeMillis(), "VJ-HELLO " + hello.toLine()).toByteArray(), out);
+            out.flush();
+            StringBuilder reply = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                reply.append((char) b);
+            }
+            if (!reply.toString().startsWith(JournalProtocol.BINARY_REPLY)) {
+                throw new IOException("server did not accept the binary protocol: " + reply);
+            }
+        }
+
+        private void send(OutputStream out) throws IOException {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            List<byte[]> batch = new ArrayList<>(BATCH_MAX);
+            startNanos = System.nanoTime();
+            long end = startNanos + durationNanos;
+            try {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    int count = BATCH_MAX;
+                    if (rate > 0) {
+                        long due = (now - startNanos) * rate / 1_000_000_000L;
+                        count = (int) Math.min(BATCH_MAX, due - sent);
+                        if (count <= 0) {
+                            long next = startNanos + (sent + 1) * 1_000_000_000L / rate;
+                            LockSupport.parkNanos(Math.max(10_000, next - now));
+                            continue;
+                        }
+                    }
+                    while (sent + count - acknowledged.get() > MAX_UNACKED) {
+                        LockSupport.parkNanos(100_000);
+                    }
+
+                    batch.clear();
+                    for (int i = 1; i <= count; i++) {
+                        long sequence = sent + i;
+                        scheduled.set((int) (sequence & (PENDING_SLOTS - 1)),
+                                rate > 0 ? startNanos + sequence * 1_000_000_000L / rate : now);
+                        batch.add(event(sequence));
+                    }
+                    out.write(JournalProtocol.encodeBatch(sent + 1, batch, deflater));
+                    out.flush();
+                    sent += count;
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        /**
+         * A sale is ten scans, a tender, the transaction, and the receipt.
+         */
+        private byte[] event(long sequence) {
+            long millis = System.currentTimeMillis();
+            int step = (int) (sequence % 14);
+            if (step < 10) {
+                return encoder.scan(millis, "SCANNER", "04900000" + (4000 + step), "POLAR POP 32OZ", 129 + step)
+                        .toByteArray();
+            }
+            return switch (step) {
+                case 10 -> encoder.tender(millis, "CASH", 1335, 93, 1428, 2000, 572).toByteArray();
+                case 11 -> encoder.transaction(millis, "COMPLETED", 1428).toByteArray();
+                case 12 -> encoder.receiptPrinting(millis).toByteArray();
+                default -> encoder.receipt(millis, receipt(++receiptNumber)).toByteArray();
+            };
+        }
+
+        private String receipt(int number) {
+            StringBuilder receipt = new StringBuilder("\nRECEIPT OUTPUT:\n");
+            receipt.append(String.format("Date: %-15s Receipt #: %04d\n", "01/01/2025", number));
+            receipt.append("Register: ").append(register).append('\n');
+            for (int i = 0; i < 10; i++) {
+                receipt.append(String.format("%-3d %-22s %7.2f %7.2f\n", 1, "POLAR POP 32OZ", 1.29 + i / 100.0,
+                        1.29 + i / 100.0));
+            }
+            return receipt.append("TOTAL $14.28\nEND OF RECEIPT\n").toString();
+        }
+
+        private void readAcknowledgements(DataInputStream in) {
+            try {
+                while (true) {
+                    long sequence = JournalProtocol.readAck(in);
+                    long now = System.nanoTime();
+                    for (long s = acknowledged.get() + 1; s <= sequence; s++) {
+                        long at = scheduled.get((int) (s & (PENDING_SLOTS - 1)));
+                        if (at - startNanos >= warmUpNanos) {
+                            latency.record((now - at) / 1000);
+                        }
+                    }
+                    acknowledged.set(Math.max(acknowledged.get(), sequence));
+                }
+            } catch (IOException e) {
+                // Connection closed
+            }
+        }
+
+        double eventsPerSecond() {
+            return acknowledged.get() * 1e9 / Math.max(1, endNanos - startNanos);
+        }
+    }
+
+    // ========== MAIN ==========
+
+    public static void main(String[] args) throws Exception {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long warmUpNanos = TimeUnit.SECONDS.toNanos(Math.min(5, seconds / 5));
+
+        JournalServer embedded = null;
+        InetSocketAddress address;
+        if (args.length > 3) {
+            String[] hostPort = args[3].split(":");
+            address = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+        } else {
+            Path directory = Files.createTempDirectory("vj-load");
+            embedded = new JournalServer(new InetSocketAddress("127.0.0.1", 0), directory,
+                    64L * 1024 * 1024, TimeUnit.MINUTES.toMillis(60), 0);
+            address = new InetSocketAddress("127.0.0.1", embedded.getPort());
+        }
+
+        System.out.println("Load: " + lanes + " lanes x " + (rate > 0 ? rate + " events/s" : "unthrottled")
+                + " for " + seconds + "s against " + address
+                + " (latency after " + TimeUnit.NANOSECONDS.toSeconds(warmUpNanos) + "s warm-up)");
+        List<Lane> all = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i <= lanes; i++) {
+            Lane lane = new Lane(String.format("LOAD-%02d", i), address, rate, TimeUnit.SECONDS.toNanos(seconds),
+                    warmUpNanos);
+            Thread thread = new Thread(lane::run, lane.register);
+            all.add(lane);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Histogram overall = new Histogram();
+        double totalRate = 0;
+        long totalSent = 0;
+        long totalAcknowledged = 0;
+        for (Lane lane : all) {
+            if (lane.error != null) {
+                System.out.println(String.format("  %-8s failed: %s", lane.register, lane.error));
+                continue;
+            }
+            System.out.println(String.format("  %-8s %9d events %10.0f events/s   p50 %7.2f ms   p99 %7.2f ms   max %7.2f ms",
+                    lane.register, lane.acknowledged.get(), lane.eventsPerSecond(),
+                    lane.latency.percentile(0.50) / 1000.0, lane.latency.percentile(0.99) / 1000.0,
+                    lane.latency.max / 1000.0));
+            overall.add(lane.latency);
+            totalRate += lane.eventsPerSecond();
+            totalSent += lane.sent;
+            totalAcknowledged += lane.acknowledged.get();
+        }
+        System.out.println(String.format("Total: %d sent, %d acknowledged, %.0f events/s; p50 %.2f ms, p99 %.2f ms, "
+                        + "p99.9 %.2f ms, max %.2f ms",
+                totalSent, totalAcknowledged, totalRate, overall.percentile(0.50) / 1000.0,
+                overall.percentile(0.99) / 1000.0, overall.percentile(0.999) / 1000.0, overall.max / 1000.0));
+
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
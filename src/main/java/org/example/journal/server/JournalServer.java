@@ -0,0 +1,484 @@
+package org.example.journal.server;
+
+import org.example.config.VJServerConfig;
+import org.example.journal.JournalEvent;
+import org.example.journal.JournalProtocol;
+import org.example.journal.JournalRenderer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+/**
+ * Virtual Journal server for a store's registers.
+ *
+ * One thread runs a NIO selector over every register connection. Each
+ * connection starts in text mode; a client that opens with a VJ-HELLO line
+ * is answered with VJ-BINARY and switches to batched binary frames (see
+ * JournalProtocol), anything else is an older client sending text lines.
+ * Binary events are rendered with the same JournalRenderer the register
+ * uses, so the stored journal reads the same whichever protocol delivered it.
+ *
+ * Each register writes to its own RegisterJournal. Batches are deduplicated
+ * by sequence, since a client resends whatever was unacknowledged when its
+ * connection dropped. After each round of reads the journals that changed are
+ * flushed and forced to disk and only then are the batches acknowledged, so an
+ * ACK means the entries survive a power loss and one force covers every batch
+ * that arrived together.
+ */
+public class JournalServer implements Closeable {
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_LINE_BYTES = 1024 * 1024;
+    private static final byte[] HELLO_MARKER = JournalProtocol.HELLO_MARKER.getBytes(StandardCharsets.UTF_8);
+
+    private final Path journalDirectory;
+    private final long segmentBytes;
+    private final long segmentMillis;
+    private final long statsNanos;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Map<String, RegisterJournal> journals = new HashMap<>();
+    private final List<Connection> acknowledging = new ArrayList<>();
+    private final JournalRenderer renderer = new JournalRenderer();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Statistics
+    private long accepted;
+    private long frames;
+    private long flushes;
+
+    public JournalServer(VJServerConfig config) throws IOException {
+        this(new InetSocketAddress(config.getBindAddress(), config.getPort()), Path.of(config.getJournalDirectory()),
+                config.getSegmentMegabytes() * 1024L * 1024L, TimeUnit.MINUTES.toMillis(config.getSegmentMinutes()),
+                TimeUnit.SECONDS.toNanos(config.getStatsSeconds()));
+    }
+
+    /**
+     * Bind and start serving on a "vj-server" thread.
+     */
+    public JournalServer(InetSocketAddress address, Path journalDirectory, long segmentBytes, long segmentMillis,
+                         long statsNanos) throws IOException {
+        this.journalDirectory = journalDirectory;
+        this.segmentBytes = segmentBytes;
+        this.segmentMillis = segmentMillis;
+        this.statsNanos = statsNanos;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address, 128);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        System.out.println("VJ Server listening on " + server.getLocalAddress() + ", journal in " + journalDirectory);
+
+        this.thread = new Thread(this::run, "vj-server");
+        this.thread.start();
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+    }
+
+    // ========== SELECTOR LOOP ==========
+
+    private void run() {
+        long nextStats = System.nanoTime() + statsNanos;
+        while (running) {
+            try {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.writePending();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        connection.close("connection error: " + e.getMessage());
+                    }
+                }
+                commit();
+                if (statsNanos > 0 && System.nanoTime() > nextStats) {
+                    printStatistics();
+                    nextStats = System.nanoTime() + statsNanos;
+                }
+            } catch (IOException e) {
+                System.err.println("VJ Server error: " + e.getMessage());
+            }
+        }
+        shutdown();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            accepted++;
+        }
+    }
+
+    /**
+     * Flush the journals written this round, then acknowledge what they hold.
+     */
+    private void commit() {
+        for (RegisterJournal journal : journals.values()) {
+            try {
+                if (journal.flush()) {
+                    flushes++;
+                }
+            } catch (IOException e) {
+                // Not acknowledged, so the register will resend it
+                System.err.println("VJ journal write failed for " + journal.getRegister() + ": " + e.getMessage());
+                dropConnections(journal);
+            }
+        }
+        for (Connection connection : acknowledging) {
+            try {
+                connection.acknowledge();
+            } catch (IOException e) {
+                connection.close("acknowledgement failed: " + e.getMessage());
+            }
+        }
+        acknowledging.clear();
+    }
+
+    private void dropConnections(RegisterJournal journal) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection && connection.journal == journal) {
+                connection.acknowledgeUpTo = connection.acknowledged; // nothing new is confirmed
+                connection.close("journal not writable");
+            }
+        }
+    }
+
+    private RegisterJournal journal(String register) throws IOException {
+        RegisterJournal journal = journals.get(register);
+        if (journal == null) {
+            journal = new RegisterJournal(register, RegisterJournal.directoryFor(journalDirectory, register),
+                    segmentBytes, segmentMillis);
+            journals.put(register, journal);
+        }
+        return journal;
+    }
+
+    // ========== CONNECTIONS ==========
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final String remote;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final ByteBuffer out = ByteBuffer.allocate(1024);
+        private boolean binary;
+        private boolean negotiated;  // first line seen
+        private Inflater inflater;
+        private RegisterJournal journal;
+        private long acknowledgeUpTo;
+        private long acknowledged;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remote = String.valueOf(channel.getRemoteAddress());
+        }
+
+        void read() throws IOException {
+            int n = channel.read(in);
+            if (n < 0) {
+                close("closed by register");
+                return;
+            }
+            in.flip();
+            if (binary) {
+                readFrames();
+            } else {
+                readLines();
+            }
+            in.compact();
+        }
+
+        /**
+         * Text lines; the first may be a HELLO offering the binary protocol.
+         */
+        private void readLines() throws IOException {
+            byte[] data = in.array();
+            int start = in.position();
+            for (int i = start; i < in.limit(); i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                if (!negotiated) {
+                    negotiated = true;
+                    int marker = indexOf(data, start, i, HELLO_MARKER);
+                    if (marker >= 0) {
+                        String offer = new String(data, marker + HELLO_MARKER.length, i - marker - HELLO_MARKER.length,
+                                StandardCharsets.UTF_8);
+                        in.position(i + 1);
+                        JournalProtocol.Hello hello;
+                        try {
+                            hello = JournalProtocol.Hello.parse(offer);
+                        } catch (IllegalArgumentException e) {
+                            throw new IOException(e.getMessage());
+                        }
+                        startBinary(hello);
+                        if (binary) {
+                            readFrames(); // in case frames followed the hello in the same read
+                            return;
+                        }
+                        start = i + 1;
+                        continue;
+                    }
+                    String register = "text-" + remote.replaceAll("^/|:\\d+$", "");
+                    journal = journal(register);
+                    System.out.println("Register " + register + " connected from " + remote + " (text protocol)");
+                }
+                journal.append(System.currentTimeMillis(), data, start, i + 1 - start);
+                start = i + 1;
+            }
+            in.position(start);
+            if (in.remaining() >= MAX_LINE_BYTES) {
+                throw new IOException("line longer than " + MAX_LINE_BYTES + " bytes");
+            }
+            growIfFull();
+        }
+
+        private void startBinary(JournalProtocol.Hello hello) throws IOException {
+            if (hello.version() != JournalProtocol.VERSION) {
+                // Stay on text; the client falls back after its hello timeout
+                journal = journal("text-" + hello.register());
+                System.out.println("Register " + hello.register() + " offered binary/" + hello.version()
+                        + ", continuing with text");
+                return;
+            }
+            binary = true;
+            journal = journal(hello.register());
+            long previous = journal.getLastSequence();
+            if (journal.useEpoch(hello.epoch())) {
+                System.out.println("Register " + hello.register() + " reset its spool (epoch " + hello.epoch()
+                        + "), sequences start again at #1 (was #" + previous + ")");
+            }
+            inflater = new Inflater();
+            String reply = JournalProtocol.BINARY_REPLY + new JournalProtocol.Hello(JournalProtocol.VERSION,
+                    hello.register(), hello.deflate(), hello.epoch()).toLine() + "\n";
+            send(ByteBuffer.wrap(reply.getBytes(StandardCharsets.UTF_8)));
+            System.out.println("Register " + hello.register() + " connected from " + remote
+                    + " (binary protocol" + (hello.deflate() ? ", deflate)" : ")")
+                    + ", last stored #" + journal.getLastSequence());
+        }
+
+        /**
+         * Whole BATCH frames in the buffer; a partial frame waits for more data.
+         */
+        private void readFrames() throws IOException {
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (length <= 0 || length > JournalProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("bad frame length " + length);
+                }
+                if (in.remaining() < 4 + length) {
+                    if (in.capacity() < 4 + length) {
+                        grow(4 + length);
+                    }
+                    return;
+                }
+                int frameStart = in.position() + 4;
+                byte kind = in.get(frameStart);
+                if (kind != JournalProtocol.FRAME_BATCH) {
+                    throw new IOException("unexpected frame " + kind);
+                }
+                JournalProtocol.Batch batch = JournalProtocol.decodeBatch(in.slice(frameStart + 1, length - 1), inflater);
+                in.position(frameStart + length);
+                store(batch);
+                frames++;
+            }
+        }
+
+        private void store(JournalProtocol.Batch batch) throws IOException {
+            // A reset spool is recognised by its epoch at HELLO; anything at or below last is a resend
+            long last = journal.getLastSequence();
+            if (batch.firstSequence() > last + 1) {
+                System.err.println("Register " + journal.getRegister() + " skipped #" + (last + 1) + " to #"
+                        + (batch.firstSequence() - 1) + " (discarded by its spool)");
+            }
+
+            int skipped = 0;
+            for (int i = 0; i < batch.events().size(); i++) {
+                long sequence = batch.firstSequence() + i;
+                if (sequence <= last) {
+                    skipped++;
+                    continue;
+                }
+                byte[] event = batch.events().get(i);
+                int length = renderer.renderLine(event, 0, event.length);
+                journal.append(JournalEvent.timeOf(event), renderer.lineBytes(), 0, length);
+                last = sequence;
+            }
+            journal.countDuplicates(skipped);
+            journal.setLastSequence(last);
+            if (acknowledgeUpTo == acknowledged) {
+                acknowledging.add(this);
+            }
+            acknowledgeUpTo = Math.max(acknowledgeUpTo, batch.lastSequence());
+        }
+
+        void acknowledge() throws IOException {
+            if (acknowledgeUpTo > acknowledged && key.isValid()) {
+                send(JournalProtocol.ackFrame(acknowledgeUpTo));
+                acknowledged = acknowledgeUpTo;
+            }
+        }
+
+        /**
+         * Queue bytes for the register; whatever the socket will not take now
+         * goes out when it is writable. ACKs are tiny, so this rarely waits.
+         */
+        private void send(ByteBuffer data) throws IOException {
+            if (out.position() > 0) {
+                writePending();
+            }
+            if (out.position() == 0) {
+                channel.write(data);
+            }
+            if (data.hasRemaining()) {
+                if (data.remaining() > out.remaining()) {
+                    throw new IOException("register is not reading acknowledgements");
+                }
+                out.put(data);
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void writePending() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() == 0) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void growIfFull() {
+            if (in.position() == 0 && in.limit() == in.capacity()) {
+                grow(in.capacity() * 2);
+            }
+        }
+
+        private void grow(int capacity) {
+            ByteBuffer bigger = ByteBuffer.allocate(capacity);
+            bigger.put(in);
+            bigger.flip();
+            in = bigger;
+        }
+
+        void close(String reason) {
+            String register = journal != null ? journal.getRegister() : remote;
+            System.out.println("Register " + register + " disconnected: " + reason);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
+            }
+        }
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    // ========== STATUS AND SHUTDOWN ==========
+
+    private void printStatistics() {
+        System.out.println(String.format("VJ Server: %d connections accepted, %d open, %d batches, %d flushes",
+                accepted, selector.keys().size() - 1, frames, flushes));
+        for (RegisterJournal journal : journals.values()) {
+            System.out.println("  " + journal.getStatistics());
+        }
+    }
+
+    private void shutdown() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                connection.close("server stopping");
+            }
+        }
+        for (RegisterJournal journal : journals.values()) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal for " + journal.getRegister() + ": " + e.getMessage());
+            }
+        }
+        printStatistics();
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Error closing VJ Server socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop serving, finish the segments and wait for the server thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        VJServerConfig config = new VJServerConfig();
+        config.displayConfig();
+        JournalServer server = new JournalServer(config);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "vj-server-shutdown"));
+    }
+}
@@ -0,0 +1,312 @@
+package org.example.journal.server;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One register's journal on the server: rolling gzip segments of text lines,
+ * an index by time and receipt number, and the last sequence stored with
+ * the epoch of the register spool it came from.
+ *
+ * Text goes into the current segment through a GZIPOutputStream with sync
+ * flush. flush() writes the segment and index out and forces them and the
+ * sequence to the device, so after it returns everything written so far is
+ * on disk as readable gzip, even after a power loss; the server acknowledges
+ * only after flushing. A segment is finished (and forced) and the next one
+ * started when it reaches the size or age limit.
+ *
+ * index.tsv has one line per entry (line numbers count from 0 within the
+ * uncompressed segment):
+ *   segment  [file]  [opened millis]
+ *   time     [millis]  [file]  [line]   first line of a segment, then once a minute
+ *   receipt  [number]  [millis]  [file]  [line]
+ */
+class RegisterJournal implements Closeable {
+    static final String INDEX_FILE = "index.tsv";
+    static final String SEGMENT_SUFFIX = ".log.gz";
+    private static final String SEQUENCE_FILE = "sequence";
+    private static final long TIME_INDEX_INTERVAL_MS = 60_000;
+    private static final byte[] RECEIPT_MARKER = "Receipt #: ".getBytes(StandardCharsets.US_ASCII);
+    private static final DateTimeFormatter SEGMENT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final String register;
+    private final Path directory;
+    private final long segmentBytes;
+    private final long segmentMillis;
+    private final FileChannel indexChannel;
+    private final Writer index;
+    private final FileChannel sequenceChannel;
+    private final MappedByteBuffer sequenceBuffer;
+    private long epoch;
+    private long lastSequence;
+    private long flushedSequence;
+
+    // Current segment
+    private String segmentName;
+    private FileChannel segmentChannel;
+    private GZIPOutputStream segment;
+    private long segmentOpened;
+    private long segmentLength;      // uncompressed
+    private long lineNumber;
+    private long lastTimeIndexed;
+    private boolean dirty;
+
+    // Statistics
+    private long events;
+    private long rawBytes;
+    private long duplicates;
+    private int segments;
+
+    RegisterJournal(String register, Path directory, long segmentBytes, long segmentMillis) throws IOException {
+        this.register = register;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.segmentMillis = segmentMillis;
+        Files.createDirectories(directory);
+        this.indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        this.index = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(indexChannel),
+                StandardCharsets.UTF_8));
+        this.sequenceChannel = FileChannel.open(directory.resolve(SEQUENCE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.sequenceBuffer = sequenceChannel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * Long.BYTES); // [sequence][epoch]
+        this.lastSequence = sequenceBuffer.getLong(0);
+        this.epoch = sequenceBuffer.getLong(Long.BYTES);
+        this.flushedSequence = lastSequence;
+    }
+
+    /**
+     * The register's directory under root: its id with anything unsafe
+     * replaced, and an id of only dots (or none) prefixed with '_' so it
+     * cannot name root or its parent.
+     */
+    static Path directoryFor(Path root, String register) throws IOException {
+        String name = register.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.matches("\\.*")) {
+            name = "_" + name;
+        }
+        Path base = root.toAbsolutePath().normalize();
+        Path directory = base.resolve(name).normalize();
+        if (!directory.startsWith(base) || directory.equals(base)) {
+            throw new IOException("Register id " + register + " does not name a directory under " + root);
+        }
+        return directory;
+    }
+
+    // ========== WRITING ==========
+
+    /**
+     * Append one event's text: UTF-8, one or more whole lines ending in '\n'.
+     */
+    void append(long millis, byte[] text, int offset, int length) throws IOException {
+        if (segment == null || segmentLength >= segmentBytes
+                || System.currentTimeMillis() - segmentOpened >= segmentMillis) {
+            roll();
+        }
+        if (millis - lastTimeIndexed >= TIME_INDEX_INTERVAL_MS || segmentLength == 0) {
+            index.write("time\t" + millis + "\t" + segmentName + "\t" + lineNumber + "\n");
+            lastTimeIndexed = millis;
+        }
+        int marker = indexOf(text, offset, offset + length, RECEIPT_MARKER);
+        if (marker >= 0) {
+            int number = parseNumber(text, marker + RECEIPT_MARKER.length, offset + length);
+            if (number >= 0) {
+                // Point at the start of the event, so a lookup shows the whole receipt
+                index.write("receipt\t" + number + "\t" + millis + "\t" + segmentName + "\t" + lineNumber + "\n");
+            }
+        }
+
+        segment.write(text, offset, length);
+        for (int i = offset; i < offset + length; i++) {
+            if (text[i] == '\n') {
+                lineNumber++;
+            }
+        }
+        segmentLength += length;
+        rawBytes += length;
+        events++;
+        dirty = true;
+    }
+
+    /**
+     * Push everything appended to disk and force it to the device, then the
+     * last sequence; returns true if there was anything. Called once per
+     * commit round, before the ACKs. On failure the last sequence goes back
+     * to what is known to be on disk, so the entries are accepted again when
+     * the register resends them.
+     */
+    boolean flush() throws IOException {
+        if (!dirty) {
+            return false;
+        }
+        try {
+            if (segment != null) {
+                segment.flush();
+                segmentChannel.force(false);
+            }
+            index.flush();
+            indexChannel.force(false);
+        } catch (IOException e) {
+            lastSequence = flushedSequence;
+            abandonSegment();
+            throw e;
+        }
+        // The sequence only claims what the forced segment holds
+        sequenceBuffer.putLong(0, lastSequence);
+        sequenceBuffer.force();
+        flushedSequence = lastSequence;
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * Leave a segment that could not be written; the next append starts a new one.
+     */
+    private void abandonSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            // Already failing
+        }
+        segment = null;
+    }
+
+    /**
+     * Write the gzip trailer and force the finished segment to disk.
+     */
+    private void finishSegment() throws IOException {
+        segment.finish();
+        segment.flush();
+        segmentChannel.force(false);
+        segment.close();
+        segment = null;
+    }
+
+    private void roll() throws IOException {
+        if (segment != null) {
+            finishSegment();
+        }
+        segmentOpened = System.currentTimeMillis();
+        String base = LocalDateTime.now().format(SEGMENT_NAME);
+        String name = base + SEGMENT_SUFFIX;
+        for (int n = 1; Files.exists(directory.resolve(name)); n++) {
+            name = base + "-" + n + SEGMENT_SUFFIX;
+        }
+        segmentChannel = FileChannel.open(directory.resolve(name), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        segment = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(segmentChannel), 64 * 1024),
+                64 * 1024, true);
+        segmentName = name;
+        segmentLength = 0;
+        lineNumber = 0;
+        segments++;
+        index.write("segment\t" + name + "\t" + segmentOpened + "\n");
+        dirty = true;
+    }
+
+    private static int indexOf(byte[] text, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (text[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int parseNumber(byte[] text, int from, int to) {
+        int value = 0;
+        int digits = 0;
+        for (int i = from; i < to && text[i] >= '0' && text[i] <= '9' && digits < 9; i++, digits++) {
+            value = value * 10 + (text[i] - '0');
+        }
+        return digits == 0 ? -1 : value;
+    }
+
+    // ========== SEQUENCES ==========
+
+    /**
+     * Highest sequence stored from this register's binary connection.
+     */
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Start storing from the register spool with this epoch (0: the register
+     * did not send one). A different epoch from the one stored means the
+     * spool was reset and numbers from #1 again, so the last sequence goes
+     * back to 0; returns true in that case. Persisted straight away.
+     */
+    boolean useEpoch(long spoolEpoch) throws IOException {
+        if (spoolEpoch == 0 || spoolEpoch == epoch) {
+            return false;
+        }
+        boolean reset = epoch != 0;
+        if (reset) {
+            flush(); // the old numbering's last sequence goes with what is already appended
+            lastSequence = 0;
+            flushedSequence = 0;
+        }
+        epoch = spoolEpoch;
+        sequenceBuffer.putLong(0, lastSequence).putLong(Long.BYTES, epoch);
+        sequenceBuffer.force();
+        return reset;
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    void setLastSequence(long sequence) {
+        if (sequence != lastSequence) {
+            lastSequence = sequence;
+            dirty = true;
+        }
+    }
+
+    void countDuplicates(int count) {
+        duplicates += count;
+    }
+
+    // ========== STATUS ==========
+
+    String getRegister() {
+        return register;
+    }
+
+    String getStatistics() {
+        return String.format("%s: %d entries, %d KB text, %d duplicates skipped, %d segments this run, last #%d",
+                register, events, rawBytes / 1024, duplicates, segments, lastSequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (segment != null) {
+            finishSegment();
+        }
+        index.close();
+        sequenceChannel.close();
+    }
+}
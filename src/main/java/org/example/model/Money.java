@@ -0,0 +1,87 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers. Amounts are held as long cents from the scan
+ * through totals, receipt and database, so every layer sees the same rounded
+ * value and the arithmetic never allocates.
+ */
+public final class Money {
+    private Money() {
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Exact DECIMAL(10,2) value for JDBC.
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long fromBigDecimal(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * cents x basisPoints / 10000, rounded half up to the cent (e.g. tax at 700 = 7%).
+     */
+    public static long percentOf(long cents, long basisPoints) {
+        return Math.floorDiv(cents * basisPoints + 5_000, 10_000);
+    }
+
+    // ========== FORMATTING ==========
+
+    /**
+     * Append as "1234.56" / "-0.05" without creating intermediate strings.
+     */
+    public static StringBuilder append(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        return sb.append(cents / 100)
+                .append('.')
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Append right-aligned in a field of the given width, like "%{width}.2f".
+     */
+    public static StringBuilder appendPadded(StringBuilder sb, long cents, int width) {
+        for (int i = length(cents); i < width; i++) {
+            sb.append(' ');
+        }
+        return append(sb, cents);
+    }
+
+    /**
+     * "$1234.56"
+     */
+    public static String format(long cents) {
+        return append(new StringBuilder(12).append('$'), cents).toString();
+    }
+
+    /**
+     * Number of characters append() writes for this amount.
+     */
+    public static int length(long cents) {
+        int length = cents < 0 ? 4 : 3; // sign, '.', two decimals
+        long whole = Math.abs(cents / 100);
+        do {
+            length++;
+            whole /= 10;
+        } while (whole > 0);
+        return length;
+    }
+}
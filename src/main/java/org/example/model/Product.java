@@ -6,33 +6,60 @@ import lombok.Data;
 public class Product {
     private String upc;
     private String description;
-    private double price;
+    private long priceCents;
     private int quantity;
+    private String category; // set once at pricebook load, see CategoryClassifier
 
     // Constructor for database lookups (without quantity)
     public Product(String upc, String description, double price) {
         this.upc = upc;
         this.description = description;
-        this.price = price;
+        this.priceCents = Money.toCents(price);
         this.quantity = 1; // Default quantity
     }
 
+    // Constructor for pricebook lookups, with the precomputed category
+    public Product(String upc, String description, double price, String category) {
+        this(upc, description, price);
+        this.category = category;
+    }
+
+    // Pricebook lookups already hold the exact price in cents
+    public static Product ofCents(String upc, String description, long priceCents, String category) {
+        Product product = new Product(upc, description, 0.0, category);
+        product.priceCents = priceCents;
+        return product;
+    }
+
     // Copy constructor for creating new instances
     public Product(Product other) {
         this.upc = other.upc;
         this.description = other.description;
-        this.price = other.price;
+        this.priceCents = other.priceCents;
         this.quantity = other.quantity;
+        this.category = other.category;
+    }
+
+    public double getPrice() {
+        return Money.toDouble(priceCents);
+    }
+
+    public void setPrice(double price) {
+        this.priceCents = Money.toCents(price);
+    }
+
+    public long getLineTotalCents() {
+        return priceCents * quantity;
     }
 
     public double getLineTotal() {
-        return price * quantity;
+        return Money.toDouble(getLineTotalCents());
     }
 
     @Override
     public String toString() {
         return String.format("%dx %s @ $%.2f = $%.2f",
-                quantity, description, price, getLineTotal());
+                quantity, description, getPrice(), getLineTotal());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package org.example.model;
+
+import org.example.promo.Promotion;
+import org.example.promo.PromotionBook;
+import org.example.service.CategoryClassifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Running per-promotion counters for a Transaction, so promo checks on each
+ * scan read a few fields instead of rescanning the basket.
+ *
+ * Transaction calls add/remove on every basket change. Each line only
+ * touches the promotions PromotionBook says apply to it (looked up once per
+ * product), so updates are O(1) apart from the cheapest-unit multiset, which
+ * is O(log distinct prices).
+ */
+public class PromoState {
+    private final PromotionBook book;
+    private final int[] units;
+    private final long[] cents;
+    private final List<TreeMap<Long, Integer>> prices; // price cents -> units, per promotion
+
+    public PromoState(PromotionBook book) {
+        this.book = book;
+        this.units = new int[book.size()];
+        this.cents = new long[book.size()];
+        this.prices = new ArrayList<>(Collections.nCopies(book.size(), null));
+    }
+
+    void add(Product line, int quantity) {
+        update(line, quantity);
+    }
+
+    void remove(Product line, int quantity) {
+        update(line, -quantity);
+    }
+
+    void clear() {
+        Arrays.fill(units, 0);
+        Arrays.fill(cents, 0);
+        Collections.fill(prices, null);
+    }
+
+    private void update(Product line, int quantity) {
+        if (quantity == 0) {
+            return;
+        }
+        for (Promotion promotion : applicable(line)) {
+            int p = promotion.id();
+            units[p] += quantity;
+            cents[p] += line.getPriceCents() * quantity;
+            if (promotion.type() != Promotion.Type.PERCENT_OFF) {
+                TreeMap<Long, Integer> byPrice = prices.get(p);
+                if (byPrice == null) {
+                    byPrice = new TreeMap<>();
+                    prices.set(p, byPrice);
+                }
+                byPrice.merge(line.getPriceCents(), quantity, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+    }
+
+    /**
+     * Promotions this product counts toward, in file order: the pricing
+     * promotion that owns it and any display-only ones.
+     */
+    public List<Promotion> applicable(Product product) {
+        return book.match(product.getUpc(), product.getDescription(),
+                CategoryClassifier.categoryOf(product)).applicable();
+    }
+
+    public int getUnits(Promotion promotion) {
+        return units[promotion.id()];
+    }
+
+    public long getCents(Promotion promotion) {
+        return cents[promotion.id()];
+    }
+
+    /**
+     * Cheapest unit counted toward the promotion, or 0 if none.
+     */
+    public long getCheapestCents(Promotion promotion) {
+        TreeMap<Long, Integer> byPrice = prices.get(promotion.id());
+        return byPrice == null || byPrice.isEmpty() ? 0 : byPrice.firstKey();
+    }
+
+    public PromotionBook getBook() {
+        return book;
+    }
+}
@@ -2,19 +2,35 @@ package org.example.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.example.promo.PromotionBook;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Transaction {
-    private final List<Product> items;
-    private static final double TAX_RATE = 0.07;
+    private final List<Product> items;               // display order
+    private final List<Product> itemsView;           // read-only, no copy
+    private final Map<String, Product> linesByUpc;   // UPC -> line in items, for O(1) merge
+    @Getter
+    private final PromoState promoState = new PromoState(PromotionBook.getDefault());
+    public static final long TAX_RATE_BASIS_POINTS = 700; // 7%
+
+    // Running aggregates in exact cents, updated on every basket change
+    private long subtotalCents;
+    // Bumped on every basket change, so work done on a snapshot can be matched to it
+    @Getter
+    private long version;
     @Getter
     @Setter
     private Integer suspendedId;
 
     public Transaction() {
         this.items = new ArrayList<>();
+        this.itemsView = Collections.unmodifiableList(items);
+        this.linesByUpc = new HashMap<>();
         this.suspendedId = null;
     }
 
@@ -23,35 +39,52 @@ public class Transaction {
     }
 
     public void addItem(Product product, int quantity) {
+        version++;
         // Check if product already exists in transaction
-        for (Product existingProduct : items) {
-            if (existingProduct.getUpc().equals(product.getUpc())) {
-                // Product exists, increment quantity
-                existingProduct.setQuantity(existingProduct.getQuantity() + quantity);
-                return;
-            }
+        Product existingProduct = linesByUpc.get(product.getUpc());
+        if (existingProduct != null) {
+            // Product exists, increment quantity
+            existingProduct.setQuantity(existingProduct.getQuantity() + quantity);
+            subtotalCents += existingProduct.getPriceCents() * quantity;
+            promoState.add(existingProduct, quantity);
+            return;
         }
 
         // Product doesn't exist, add new copy
         Product newProduct = new Product(product);
         newProduct.setQuantity(quantity);
         items.add(newProduct);
+        linesByUpc.put(newProduct.getUpc(), newProduct);
+        subtotalCents += newProduct.getLineTotalCents();
+        promoState.add(newProduct, quantity);
     }
 
     public void voidItem(int index) {
         if (index >= 0 && index < items.size()) {
-            items.remove(index);
+            version++;
+            Product removed = items.remove(index);
+            linesByUpc.remove(removed.getUpc());
+            subtotalCents -= removed.getLineTotalCents();
+            promoState.remove(removed, removed.getQuantity());
         }
     }
 
     public void changeQuantity(int index, int newQuantity) {
         if (index >= 0 && index < items.size()) {
-            items.get(index).setQuantity(newQuantity);
+            version++;
+            Product line = items.get(index);
+            subtotalCents += line.getPriceCents() * (newQuantity - line.getQuantity());
+            promoState.add(line, newQuantity - line.getQuantity());
+            line.setQuantity(newQuantity);
         }
     }
 
     public void clear() {
+        version++;
         items.clear();
+        linesByUpc.clear();
+        subtotalCents = 0;
+        promoState.clear();
         suspendedId = null;
     }
 
@@ -59,6 +92,13 @@ public class Transaction {
         return new ArrayList<>(items);
     }
 
+    /**
+     * Read-only live view of the items, for rendering without copying the list.
+     */
+    public List<Product> getItemsView() {
+        return itemsView;
+    }
+
     public Product getItem(int index) {
         if (index >= 0 && index < items.size()) {
             return items.get(index);
@@ -67,17 +107,30 @@ public class Transaction {
     }
 
     public double getSubtotal() {
-        return items.stream()
-                .mapToDouble(Product::getLineTotal)
-                .sum();
+        return Money.toDouble(subtotalCents);
     }
 
     public double getTax() {
-        return getSubtotal() * TAX_RATE;
+        return Money.toDouble(getTaxCents());
     }
 
     public double getTotal() {
-        return getSubtotal() + getTax();
+        return Money.toDouble(getTotalCents());
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * Tax on the running subtotal, rounded half up to the cent.
+     */
+    public long getTaxCents() {
+        return Money.percentOf(subtotalCents, TAX_RATE_BASIS_POINTS);
+    }
+
+    public long getTotalCents() {
+        return subtotalCents + getTaxCents();
     }
 
     public int getItemCount() {
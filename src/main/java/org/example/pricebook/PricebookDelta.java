@@ -0,0 +1,180 @@
+package org.example.pricebook;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Difference between a pricebook and what is already stored in the products table.
+ *
+ * Rows are compared by a 64-bit fingerprint of (upc, description, price, category),
+ * so only inserts, changed rows and deletes need to be written.
+ *
+ * Head office can also send a delta-only file, one change per line:
+ *   U &lt;tab&gt; upc &lt;tab&gt; description &lt;tab&gt; price    (insert or update)
+ *   D &lt;tab&gt; upc                                      (delete)
+ */
+public class PricebookDelta {
+    private static final long SEEN = Long.MIN_VALUE;
+
+    public record Row(String upc, String description, long priceCents, String category, long hash) {}
+
+    private final Map<String, Long> stored;
+    private final Map<String, Row> inserts = new LinkedHashMap<>();
+    private final Map<String, Row> updates = new LinkedHashMap<>();
+    private final List<String> deletes = new ArrayList<>();
+
+    /**
+     * @param stored fingerprints currently in the database, keyed by UPC (consumed)
+     */
+    public PricebookDelta(Map<String, Long> stored) {
+        this.stored = stored;
+    }
+
+    /**
+     * Compare one parsed chunk of a full pricebook against the stored fingerprints.
+     */
+    public void accept(PricebookParser.Chunk chunk) {
+        for (int i = 0; i < chunk.size; i++) {
+            Row row = new Row(chunk.upcs[i], chunk.descriptions[i], chunk.priceCents[i], chunk.categories[i],
+                    rowHash(chunk.upcs[i], chunk.descriptions[i], chunk.priceCents[i], chunk.categories[i]));
+            Long previous = stored.put(row.upc(), SEEN);
+
+            if (previous == null) {
+                inserts.put(row.upc(), row);
+            } else if (previous == SEEN) {
+                // Duplicate UPC in the file - the last row wins, as with MERGE
+                if (inserts.containsKey(row.upc())) {
+                    inserts.put(row.upc(), row);
+                } else {
+                    updates.put(row.upc(), row);
+                }
+            } else if (previous != row.hash()) {
+                updates.put(row.upc(), row);
+            }
+        }
+    }
+
+    /**
+     * After a full pricebook has been accepted, anything not seen in it is deleted.
+     */
+    public void finishFullSync() {
+        for (Map.Entry<String, Long> entry : stored.entrySet()) {
+            if (entry.getValue() != SEEN) {
+                deletes.add(entry.getKey());
+            }
+        }
+        stored.clear();
+    }
+
+    /**
+     * Read a head-office delta-only file. Upserts go to updates (applied with MERGE).
+     */
+    public static PricebookDelta readDeltaFile(Path file, Function<String, String> classifier) throws IOException {
+        PricebookDelta delta = new PricebookDelta(new LinkedHashMap<>());
+
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] parts = line.split("\t");
+                String op = parts[0].trim();
+                if (op.equals("D") && parts.length >= 2) {
+                    String upc = parts[1].trim();
+                    delta.updates.remove(upc);
+                    delta.deletes.add(upc);
+                } else if (op.equals("U") && parts.length >= 4) {
+                    String upc = parts[1].trim();
+                    String description = parts[2].trim();
+                    byte[] priceBytes = parts[3].getBytes(StandardCharsets.US_ASCII);
+                    long cents = PricebookParser.parseCents(priceBytes, 0, priceBytes.length);
+                    if (cents == Long.MIN_VALUE) {
+                        throw new IOException("Invalid price on line " + lineNumber + ": " + parts[3]);
+                    }
+                    String category = classifier != null ? classifier.apply(description) : null;
+                    delta.deletes.remove(upc);
+                    delta.updates.put(upc, new Row(upc, description, cents, category,
+                            rowHash(upc, description, cents, category)));
+                } else {
+                    throw new IOException("Invalid delta line " + lineNumber + ": " + line);
+                }
+            }
+        }
+        return delta;
+    }
+
+    public Collection<Row> getInserts() {
+        return inserts.values();
+    }
+
+    public Collection<Row> getUpdates() {
+        return updates.values();
+    }
+
+    public List<String> getDeletes() {
+        return deletes;
+    }
+
+    public boolean isEmpty() {
+        return inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return inserts.size() + " inserts, " + updates.size() + " updates, " + deletes.size() + " deletes";
+    }
+
+    // ========== FINGERPRINTS ==========
+
+    /**
+     * FNV-1a over the row's fields.
+     */
+    public static long rowHash(String upc, String description, long priceCents, String category) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, upc);
+        h = mix(h, description);
+        for (int shift = 0; shift < 64; shift += 8) {
+            h = (h ^ ((priceCents >>> shift) & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(h, category != null ? category : "");
+    }
+
+    private static long mix(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (h ^ 0x1F) * 0x100000001b3L; // field separator
+    }
+
+    /**
+     * Whole-file fingerprint (CRC32C plus length) used to skip unchanged pricebooks.
+     */
+    public static long fileHash(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        long length = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+                length += read;
+            }
+        }
+        return (length << 32) ^ crc.getValue();
+    }
+}
@@ -0,0 +1,268 @@
+package org.example.pricebook;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Parallel TSV pricebook ingest.
+ *
+ * Stage 1 splits the file into newline-aligned byte ranges. Stage 2 parses and
+ * classifies each range on the fork/join pool, reading fields straight from the
+ * bytes (no regex, prices parsed to cents without an intermediate String).
+ * Stage 3 hands finished chunks, in file order, to a single writer, which can
+ * start on the first chunk while later ones are still being parsed.
+ */
+public class PricebookParser {
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+
+    /**
+     * Columnar block of parsed rows.
+     */
+    public static final class Chunk {
+        public int size;
+        public String[] upcs;
+        public String[] descriptions;
+        public long[] priceCents;
+        public String[] categories;
+        public int rejected;
+
+        public Chunk(int capacity) {
+            upcs = new String[capacity];
+            descriptions = new String[capacity];
+            priceCents = new long[capacity];
+            categories = new String[capacity];
+        }
+
+        public void add(String upc, String description, long cents) {
+            add(upc, description, cents, null);
+        }
+
+        public void add(String upc, String description, long cents, String category) {
+            if (size == upcs.length) {
+                int newCapacity = Math.max(16, size * 2);
+                upcs = Arrays.copyOf(upcs, newCapacity);
+                descriptions = Arrays.copyOf(descriptions, newCapacity);
+                priceCents = Arrays.copyOf(priceCents, newCapacity);
+                categories = Arrays.copyOf(categories, newCapacity);
+            }
+            upcs[size] = upc;
+            descriptions[size] = description;
+            priceCents[size] = cents;
+            categories[size] = category;
+            size++;
+        }
+    }
+
+    public interface ChunkWriter {
+        void write(Chunk chunk) throws SQLException;
+    }
+
+    public record IngestStats(int rows, int rejected, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos > 0 ? rows * 1_000_000_000.0 / elapsedNanos : rows;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows (%d rejected) in %d ms - %.0f rows/sec",
+                    rows, rejected, elapsedNanos / 1_000_000, rowsPerSecond());
+        }
+    }
+
+    /**
+     * Parse the file in parallel and feed chunks, in order, to a single writer.
+     * Pass a null classifier to skip category classification.
+     */
+    public static IngestStats ingest(Path file, Function<String, String> classifier,
+                                     ChunkWriter writer) throws IOException, SQLException {
+        long start = System.nanoTime();
+        List<CompletableFuture<Chunk>> pending = parseAsync(file, classifier);
+
+        int rows = 0;
+        int rejected = 0;
+        for (CompletableFuture<Chunk> future : pending) {
+            Chunk chunk = join(future);
+            writer.write(chunk);
+            rows += chunk.size;
+            rejected += chunk.rejected;
+        }
+
+        return new IngestStats(rows, rejected, System.nanoTime() - start);
+    }
+
+    /**
+     * Parse the whole file in parallel and return the chunks in file order.
+     */
+    public static List<Chunk> parse(Path file, Function<String, String> classifier) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        for (CompletableFuture<Chunk> future : parseAsync(file, classifier)) {
+            chunks.add(join(future));
+        }
+        return chunks;
+    }
+
+    private static List<CompletableFuture<Chunk>> parseAsync(Path file, Function<String, String> classifier)
+            throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkCount = Math.max(1, Math.min(parallelism * 4, data.length / MIN_CHUNK_BYTES));
+        int chunkSize = data.length / chunkCount + 1;
+
+        List<CompletableFuture<Chunk>> futures = new ArrayList<>(chunkCount);
+        int from = 0;
+        while (from < data.length) {
+            int to = Math.min(data.length, from + chunkSize);
+            // Extend the range to the end of the line it stops in
+            while (to < data.length && data[to - 1] != '\n') {
+                to++;
+            }
+
+            final int rangeStart = from;
+            final int rangeEnd = to;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> parseRange(data, rangeStart, rangeEnd, classifier),
+                    ForkJoinPool.commonPool()));
+            from = to;
+        }
+        return futures;
+    }
+
+    private static Chunk join(CompletableFuture<Chunk> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IOException("Failed to parse pricebook", e.getCause());
+        }
+    }
+
+    // ========== BYTE-LEVEL PARSING ==========
+
+    private static Chunk parseRange(byte[] data, int from, int to, Function<String, String> classifier) {
+        Chunk chunk = new Chunk(Math.max(16, (to - from) / 32));
+
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            parseLine(data, lineStart, lineEnd, chunk);
+            lineStart = lineEnd + 1;
+        }
+
+        if (classifier != null) {
+            for (int i = 0; i < chunk.size; i++) {
+                chunk.categories[i] = classifier.apply(chunk.descriptions[i]);
+            }
+        }
+        return chunk;
+    }
+
+    private static void parseLine(byte[] data, int start, int end, Chunk chunk) {
+        int tab1 = indexOf(data, start, end, (byte) '\t');
+        if (tab1 < 0) {
+            return; // not a data row (blank line etc.)
+        }
+        int tab2 = indexOf(data, tab1 + 1, end, (byte) '\t');
+        if (tab2 < 0) {
+            chunk.rejected++;
+            return;
+        }
+        int tab3 = indexOf(data, tab2 + 1, end, (byte) '\t');
+        int priceEnd = tab3 < 0 ? end : tab3;
+
+        long cents = parseCents(data, tab2 + 1, priceEnd);
+        if (cents == Long.MIN_VALUE) {
+            chunk.rejected++;
+            return;
+        }
+
+        chunk.add(trimmedString(data, start, tab1), trimmedString(data, tab1 + 1, tab2), cents);
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String trimmedString(byte[] data, int from, int to) {
+        while (from < to && (data[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (data[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a decimal amount like "8.91" or "9" into cents, rounding half up past
+     * two decimals. Returns Long.MIN_VALUE if the field is not a number.
+     */
+    static long parseCents(byte[] data, int from, int to) {
+        while (from < to && (data[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (data[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return Long.MIN_VALUE;
+        }
+
+        boolean negative = data[from] == '-';
+        if (negative) {
+            from++;
+        }
+
+        long whole = 0;
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        boolean seenDot = false;
+        boolean seenDigit = false;
+
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (b == '.' && !seenDot) {
+                seenDot = true;
+            } else if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (!seenDot) {
+                    whole = whole * 10 + (b - '0');
+                } else if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (b - '0');
+                    fractionDigits++;
+                } else if (fractionDigits == 2) {
+                    roundUp = b >= '5';
+                    fractionDigits++;
+                }
+            } else {
+                return Long.MIN_VALUE;
+            }
+        }
+        if (!seenDigit) {
+            return Long.MIN_VALUE;
+        }
+
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long cents = whole * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+}
@@ -0,0 +1,269 @@
+package org.example.pricebook;
+
+import org.example.model.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compiled, memory-mapped pricebook.
+ *
+ * The TSV is compiled once into a binary file (sorted UPC keys, fixed-width
+ * price column, string heap) and mapped read-only on startup, so lookups can
+ * be served immediately without parsing or touching H2.
+ *
+ * Layout (big-endian):
+ *   int magic, int version, long sourceSize, long sourceModified, long rulesHash,
+ *   int count, int heapSize, int categoryCount,
+ *   long[count] keys, long[count] priceCents, int[count + 1] descOffsets,
+ *   byte[count] categoryIds, byte[heapSize] heap,
+ *   categoryCount x (short length, UTF-8 name)
+ *
+ * Category id 0 means "not classified"; ids 1..n index the name table. The
+ * snapshot is stale if either the source file or the category rules change.
+ *
+ * Only numeric codes are compiled; anything else is left to the database.
+ */
+public class PricebookSnapshot {
+    private static final int MAGIC = 0x50424B31; // "PBK1"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4;
+    private static final int MAX_CATEGORIES = 255;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int keysOffset;
+    private final int pricesOffset;
+    private final int descOffsetsOffset;
+    private final int categoryIdsOffset;
+    private final int heapOffset;
+    private final String[] categoryNames; // index 0 is null (unclassified)
+
+    private PricebookSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.count = buffer.getInt(32);
+        int heapSize = buffer.getInt(36);
+        int categoryCount = buffer.getInt(40);
+        this.keysOffset = HEADER_SIZE;
+        this.pricesOffset = keysOffset + count * 8;
+        this.descOffsetsOffset = pricesOffset + count * 8;
+        this.categoryIdsOffset = descOffsetsOffset + (count + 1) * 4;
+        this.heapOffset = categoryIdsOffset + count;
+
+        this.categoryNames = new String[categoryCount + 1];
+        int position = heapOffset + heapSize;
+        for (int i = 1; i <= categoryCount; i++) {
+            byte[] name = new byte[buffer.getShort(position)];
+            buffer.get(position + 2, name);
+            categoryNames[i] = new String(name, StandardCharsets.UTF_8).intern();
+            position += 2 + name.length;
+        }
+    }
+
+    /**
+     * Map the snapshot if it exists and was compiled from the current source file
+     * and category rules. Returns null when it is missing or stale.
+     */
+    public static PricebookSnapshot openIfFresh(Path snapshotPath, Path sourcePath,
+                                                long rulesHash) throws IOException {
+        if (!Files.exists(snapshotPath) || Files.size(snapshotPath) < HEADER_SIZE) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            if (buffer.getLong(8) != Files.size(sourcePath)
+                    || buffer.getLong(16) != Files.getLastModifiedTime(sourcePath).toMillis()
+                    || buffer.getLong(24) != rulesHash) {
+                return null;
+            }
+            return new PricebookSnapshot(buffer);
+        }
+    }
+
+    /**
+     * Compile the TSV pricebook into a snapshot file. The file is written next to
+     * its final location and moved into place, so readers never see a partial file.
+     */
+    public static void compile(Path sourcePath, Path snapshotPath,
+                               Function<String, String> classifier, long rulesHash) throws IOException {
+        compile(sourcePath, snapshotPath, PricebookParser.parse(sourcePath, classifier), rulesHash);
+    }
+
+    /**
+     * Compile already-parsed rows (e.g. the products table after a delta was applied),
+     * stamped as current for the given source file.
+     */
+    public static void compile(Path sourcePath, Path snapshotPath,
+                               List<PricebookParser.Chunk> chunks, long rulesHash) throws IOException {
+        List<long[]> entries = new ArrayList<>(); // {key, priceCents, rowIndex}
+        List<byte[]> descriptions = new ArrayList<>();
+        List<String> categories = new ArrayList<>();
+
+        for (PricebookParser.Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                long key = ProductIndex.encode(chunk.upcs[i]);
+                if (key == ProductIndex.EMPTY) {
+                    continue;
+                }
+                entries.add(new long[]{key, chunk.priceCents[i], descriptions.size()});
+                descriptions.add(chunk.descriptions[i].getBytes(StandardCharsets.UTF_8));
+                categories.add(chunk.categories[i]);
+            }
+        }
+
+        write(sourcePath, snapshotPath, rulesHash, entries, descriptions, categories);
+    }
+
+    static void write(Path sourcePath, Path snapshotPath, long rulesHash, List<long[]> entries,
+                      List<byte[]> descriptions, List<String> categories) throws IOException {
+        // Sort by key; on duplicate UPCs the last row in the file wins (same as MERGE)
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[2], b[2]));
+        List<long[]> unique = new ArrayList<>(entries.size());
+        for (long[] entry : entries) {
+            if (!unique.isEmpty() && unique.get(unique.size() - 1)[0] == entry[0]) {
+                unique.set(unique.size() - 1, entry);
+            } else {
+                unique.add(entry);
+            }
+        }
+
+        int count = unique.size();
+        int heapSize = 0;
+        Map<String, Integer> categoryIds = new LinkedHashMap<>();
+        int categoryTableSize = 0;
+        for (long[] entry : unique) {
+            heapSize += descriptions.get((int) entry[2]).length;
+            String category = categories.get((int) entry[2]);
+            if (category != null && !categoryIds.containsKey(category)) {
+                if (categoryIds.size() == MAX_CATEGORIES) {
+                    throw new IOException("Too many product categories for snapshot");
+                }
+                categoryIds.put(category, categoryIds.size() + 1);
+                categoryTableSize += 2 + category.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        int totalSize = HEADER_SIZE + count * 16 + (count + 1) * 4 + count + heapSize + categoryTableSize;
+        ByteBuffer out = ByteBuffer.allocate(totalSize);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putLong(Files.size(sourcePath));
+        out.putLong(Files.getLastModifiedTime(sourcePath).toMillis());
+        out.putLong(rulesHash);
+        out.putInt(count);
+        out.putInt(heapSize);
+        out.putInt(categoryIds.size());
+
+        for (long[] entry : unique) {
+            out.putLong(entry[0]);
+        }
+        for (long[] entry : unique) {
+            out.putLong(entry[1]);
+        }
+        int offset = 0;
+        for (long[] entry : unique) {
+            out.putInt(offset);
+            offset += descriptions.get((int) entry[2]).length;
+        }
+        out.putInt(offset);
+        for (long[] entry : unique) {
+            String category = categories.get((int) entry[2]);
+            out.put(category != null ? categoryIds.get(category).byteValue() : 0);
+        }
+        for (long[] entry : unique) {
+            out.put(descriptions.get((int) entry[2]));
+        }
+        for (String category : categoryIds.keySet()) {
+            byte[] name = category.getBytes(StandardCharsets.UTF_8);
+            out.putShort((short) name.length);
+            out.put(name);
+        }
+        out.flip();
+
+        Path parent = snapshotPath.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "pricebook", ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Binary search the mapped key column. Returns the row or -1.
+     */
+    public int find(String upc) {
+        long key = ProductIndex.encode(upc);
+        if (key == ProductIndex.EMPTY) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(keysOffset + mid * 8);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public long getPriceCents(int row) {
+        return buffer.getLong(pricesOffset + row * 8);
+    }
+
+    public String getCategory(int row) {
+        return categoryNames[buffer.get(categoryIdsOffset + row) & 0xFF];
+    }
+
+    public String getDescription(int row) {
+        int start = buffer.getInt(descOffsetsOffset + row * 4);
+        int end = buffer.getInt(descOffsetsOffset + (row + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        buffer.get(heapOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Product get(String upc) {
+        int row = find(upc);
+        if (row < 0) {
+            return null;
+        }
+        return Product.ofCents(upc, getDescription(row), getPriceCents(row), getCategory(row));
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "PricebookSnapshot[" + count + " products, " + buffer.capacity() + " bytes]";
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.pricebook;
+
+import org.example.model.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-optimised product lookup table.
+ *
+ * Numeric UPCs/PLUs are encoded as longs (digits plus length, so leading zeros
+ * survive) and stored in an open-addressing table. Descriptions and prices live
+ * in parallel arrays, so a lookup is a hash probe over primitives with no
+ * boxing and no per-entry objects. Non-numeric codes fall back to a small map.
+ *
+ * Not thread-safe: populate it from one thread, or guard it externally.
+ */
+public class ProductIndex {
+    private static final int MAX_NUMERIC_DIGITS = 17;
+    static final long EMPTY = 0L; // encoded keys always carry a non-zero length
+    private static final int NOT_FOUND = -1;
+
+    // Open-addressing table: encoded key -> row
+    private long[] keys;
+    private int[] rowsBySlot;
+    private int mask;
+
+    // Row storage (struct of arrays)
+    private long[] priceCents;
+    private String[] categories; // shared instances from the classifier
+    private int[] descStart;
+    private int[] descLength;
+    private byte[] descHeap;
+    private int heapUsed;
+    private int rowCount;
+
+    // Codes that are not purely numeric (rare in the pricebook)
+    private final Map<String, Integer> textKeys = new HashMap<>();
+
+    public ProductIndex() {
+        this(1024);
+    }
+
+    public ProductIndex(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        keys = new long[capacity];
+        rowsBySlot = new int[capacity];
+        mask = capacity - 1;
+
+        int rows = Math.max(16, expectedSize);
+        priceCents = new long[rows];
+        categories = new String[rows];
+        descStart = new int[rows];
+        descLength = new int[rows];
+        descHeap = new byte[rows * 24];
+    }
+
+    /**
+     * Add or replace a product. Price is stored in cents.
+     */
+    public void put(String upc, String description, long cents, String category) {
+        int row = find(upc);
+        if (row == NOT_FOUND) {
+            row = newRow();
+            long key = encode(upc);
+            if (key == EMPTY) {
+                textKeys.put(upc, row);
+            } else {
+                insertKey(key, row);
+            }
+        }
+
+        priceCents[row] = cents;
+        categories[row] = category;
+        storeDescription(row, description);
+    }
+
+    public void put(Product product) {
+        put(product.getUpc(), product.getDescription(), product.getPriceCents(), product.getCategory());
+    }
+
+    /**
+     * Returns the row for this UPC, or -1 if it is not indexed. Allocation-free.
+     */
+    public int find(String upc) {
+        long key = encode(upc);
+        if (key == EMPTY) {
+            Integer row = textKeys.get(upc);
+            return row != null ? row : NOT_FOUND;
+        }
+
+        int slot = mix(key) & mask;
+        while (true) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return rowsBySlot[slot];
+            }
+            if (existing == EMPTY) {
+                return NOT_FOUND;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean contains(String upc) {
+        return find(upc) != NOT_FOUND;
+    }
+
+    public long getPriceCents(int row) {
+        return priceCents[row];
+    }
+
+    public String getCategory(int row) {
+        return categories[row];
+    }
+
+    public String getDescription(int row) {
+        return new String(descHeap, descStart[row], descLength[row], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Materialise a fresh Product for the caller (callers mutate quantity).
+     */
+    public Product get(String upc) {
+        int row = find(upc);
+        if (row == NOT_FOUND) {
+            return null;
+        }
+        return Product.ofCents(upc, getDescription(row), priceCents[row], categories[row]);
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(categories, null);
+        textKeys.clear();
+        rowCount = 0;
+        heapUsed = 0;
+    }
+
+    // ========== ENCODING ==========
+
+    /**
+     * Encode a numeric code as (value << 5) | digitCount, or EMPTY if the code
+     * is not a plain run of up to 17 digits.
+     */
+    static long encode(String upc) {
+        int length = upc.length();
+        if (length == 0 || length > MAX_NUMERIC_DIGITS) {
+            return EMPTY;
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = upc.charAt(i);
+            if (c < '0' || c > '9') {
+                return EMPTY;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return (value << 5) | length;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // Keep load factor at or below 0.5 for short probe chains
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+        return Math.max(capacity, 32);
+    }
+
+    // ========== STORAGE ==========
+
+    private void insertKey(long key, int row) {
+        if ((rowCount - textKeys.size()) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        rowsBySlot[slot] = row;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldRows = rowsBySlot;
+
+        keys = new long[newCapacity];
+        rowsBySlot = new int[newCapacity];
+        mask = newCapacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                rowsBySlot[slot] = oldRows[i];
+            }
+        }
+    }
+
+    private int newRow() {
+        if (rowCount == priceCents.length) {
+            int newSize = rowCount * 2;
+            priceCents = Arrays.copyOf(priceCents, newSize);
+            categories = Arrays.copyOf(categories, newSize);
+            descStart = Arrays.copyOf(descStart, newSize);
+            descLength = Arrays.copyOf(descLength, newSize);
+        }
+        return rowCount++;
+    }
+
+    private void storeDescription(int row, String description) {
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        // Replaced descriptions are appended; the old bytes stay until the next clear()
+        if (heapUsed + bytes.length > descHeap.length) {
+            descHeap = Arrays.copyOf(descHeap, Math.max(descHeap.length * 2, heapUsed + bytes.length));
+        }
+        System.arraycopy(bytes, 0, descHeap, heapUsed, bytes.length);
+        descStart[row] = heapUsed;
+        descLength[row] = bytes.length;
+        heapUsed += bytes.length;
+    }
+}
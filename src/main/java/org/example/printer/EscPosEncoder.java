@@ -0,0 +1,177 @@
+package org.example.printer;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Writes ESC/POS printer commands into one reusable buffer.
+ *
+ * Text goes out in code page 437, the power-on default of most receipt
+ * printers; characters it lacks print as '?'. Like JournalEncoder, an
+ * encoder belongs to one thread and the buffer stays valid until reset().
+ */
+public final class EscPosEncoder {
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final byte LF = 0x0A;
+    private static final int FEED_BEFORE_CUT = 4;
+
+    // chars for bytes 0x80-0xFF in code page 437
+    private static final char[] CP437_HIGH = new char[128];
+
+    static {
+        byte[] high = new byte[128];
+        for (int i = 0; i < high.length; i++) {
+            high[i] = (byte) (0x80 + i);
+        }
+        try {
+            new String(high, Charset.forName("IBM437")).getChars(0, 128, CP437_HIGH, 0);
+        } catch (IllegalArgumentException e) {
+            // Charset not available: non-ASCII prints as '?'
+        }
+    }
+
+    private byte[] buffer = new byte[4096];
+    private int length;
+
+    // ========== COMMANDS ==========
+
+    public EscPosEncoder reset() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * ESC @ then ESC t 0: clear earlier modes and select code page 437.
+     */
+    public EscPosEncoder initialize() {
+        return put(ESC, (byte) '@').put(ESC, (byte) 't').put((byte) 0);
+    }
+
+    /**
+     * ESC E n
+     */
+    public EscPosEncoder bold(boolean on) {
+        return put(ESC, (byte) 'E').put((byte) (on ? 1 : 0));
+    }
+
+    /**
+     * ESC d n: print and feed n lines.
+     */
+    public EscPosEncoder feed(int lines) {
+        return put(ESC, (byte) 'd').put((byte) Math.min(255, Math.max(0, lines)));
+    }
+
+    /**
+     * GS V 66 0: feed to the cutter and partial cut.
+     */
+    public EscPosEncoder cut() {
+        return put(GS, (byte) 'V').put((byte) 66, (byte) 0);
+    }
+
+    /**
+     * ESC p 0 25 250: pulse drawer pin 2 for 50 ms, then 500 ms off.
+     */
+    public EscPosEncoder kickDrawer() {
+        return put(ESC, (byte) 'p').put((byte) 0).put((byte) 25, (byte) 250);
+    }
+
+    /**
+     * Text from start to end; '\n' prints the line, '\r' is dropped, and a
+     * character outside code page 437 is one '?', even if it takes a
+     * surrogate pair.
+     */
+    public EscPosEncoder text(CharSequence text, int start, int end) {
+        ensure(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                buffer[length++] = LF;
+            } else if (c >= 0x20 && c < 0x7F) {
+                buffer[length++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                buffer[length++] = '?';
+                i++;
+            } else if (c >= 0x80) {
+                buffer[length++] = toCodePage(c);
+            } else if (c != '\r') {
+                buffer[length++] = '?';
+            }
+        }
+        return this;
+    }
+
+    /**
+     * A whole receipt: text with the bold ranges (start/end pairs, in order),
+     * then feed and cut. The drawer opens first so the cashier can make
+     * change while it prints.
+     */
+    public EscPosEncoder receipt(CharSequence text, int[] bold, boolean openDrawer) {
+        initialize();
+        if (openDrawer) {
+            kickDrawer();
+        }
+        int position = 0;
+        for (int i = 0; i + 1 < bold.length; i += 2) {
+            int start = Math.max(position, bold[i]);
+            int end = Math.min(text.length(), bold[i + 1]);
+            if (start >= end) {
+                continue;
+            }
+            text(text, position, start).bold(true).text(text, start, end).bold(false);
+            position = end;
+        }
+        text(text, position, text.length());
+        if (text.length() > 0 && text.charAt(text.length() - 1) != '\n') {
+            put(LF);
+        }
+        return feed(FEED_BEFORE_CUT).cut();
+    }
+
+    // ========== RESULT ==========
+
+    /**
+     * The commands are buffer()[0, length()).
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    // ========== BYTES ==========
+
+    private static byte toCodePage(char c) {
+        for (int i = 0; i < CP437_HIGH.length; i++) {
+            if (CP437_HIGH[i] == c) {
+                return (byte) (0x80 + i);
+            }
+        }
+        return '?';
+    }
+
+    private EscPosEncoder put(byte b) {
+        ensure(1);
+        buffer[length++] = b;
+        return this;
+    }
+
+    private EscPosEncoder put(byte first, byte second) {
+        ensure(2);
+        buffer[length++] = first;
+        buffer[length++] = second;
+        return this;
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.printer;
+
+import org.example.config.PosConfig;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints receipts on a background thread so the next sale can start while
+ * the last receipt is still coming out.
+ *
+ * submit() queues the receipt text and returns. The spooler thread encodes
+ * it to ESC/POS and writes it to the device: a printer device file such as
+ * /dev/usb/lp0, a named pipe, or an ordinary file standing in for one. A
+ * write that fails (printer offline, out of paper) is retried with backoff,
+ * reopening the device, while later receipts wait in the queue; when the
+ * queue is full new receipts are dropped with a warning rather than holding
+ * up the register.
+ */
+public class PrintSpooler implements Closeable {
+    private static final long MAX_RETRY_DELAY_MS = 5_000;
+
+    private record Job(int receiptNumber, String text, int[] bold, boolean openDrawer, long queuedNanos) {}
+
+    private final Path device;
+    private final boolean drawerKick;
+    private final BlockingQueue<Job> queue;
+    private final EscPosEncoder encoder = new EscPosEncoder(); // spooler thread only
+    private final Thread thread;
+    private volatile boolean running = true;
+    private OutputStream out;
+
+    // Statistics
+    private final AtomicLong printed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong totalLatencyMicros = new AtomicLong();
+    private volatile long maxLatencyMicros;
+    private volatile long lastLatencyMicros;
+
+    public PrintSpooler(Path device, int queueSize, boolean drawerKick) {
+        this.device = device;
+        this.drawerKick = drawerKick;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.thread = new Thread(this::run, "print-spooler");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * The spooler for the configured printer, or null when printing is off.
+     */
+    public static PrintSpooler start(PosConfig config) {
+        if (!config.isPrinterEnabled()) {
+            return null;
+        }
+        System.out.println("Print spooler started: " + config.getPrinterDevice());
+        return new PrintSpooler(Path.of(config.getPrinterDevice()), config.getPrinterQueueSize(),
+                config.isDrawerKickEnabled());
+    }
+
+    /**
+     * Queue a receipt. bold holds start/end offsets into text, in order;
+     * openDrawer kicks the cash drawer if that is enabled. Returns false if
+     * the queue is full or the spooler is closed.
+     */
+    public boolean submit(int receiptNumber, String text, int[] bold, boolean openDrawer) {
+        if (running && queue.offer(new Job(receiptNumber, text, bold, openDrawer, System.nanoTime()))) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        System.err.printf("Print %s, receipt #%04d not printed%n",
+                running ? "queue full" : "spooler closed", receiptNumber);
+        return false;
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Job job = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    encoder.reset().receipt(job.text(), job.bold(), job.openDrawer() && drawerKick);
+                    writeWithRetry(job);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        while (queue.poll() != null) {
+            dropped.incrementAndGet(); // left unprinted at shutdown
+        }
+        closeDevice();
+    }
+
+    private void writeWithRetry(Job job) throws InterruptedException {
+        long delay = 250;
+        while (true) {
+            try {
+                if (out == null) {
+                    out = open(device);
+                }
+                out.write(encoder.buffer(), 0, encoder.length());
+                out.flush();
+                break;
+            } catch (IOException e) {
+                closeDevice();
+                if (!running) {
+                    dropped.incrementAndGet();
+                    throw new InterruptedException("Shutting down with the printer unavailable");
+                }
+                System.err.printf("Printer error on receipt #%04d, retrying in %dms (%d queued): %s%n",
+                        job.receiptNumber(), delay, queue.size(), e.getMessage());
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+
+        long micros = (System.nanoTime() - job.queuedNanos()) / 1000;
+        lastLatencyMicros = micros;
+        maxLatencyMicros = Math.max(maxLatencyMicros, micros);
+        totalLatencyMicros.addAndGet(micros);
+        printed.incrementAndGet();
+    }
+
+    private static OutputStream open(Path device) throws IOException {
+        Path parent = device.toAbsolutePath().getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        return new FileOutputStream(device.toFile(), true);
+    }
+
+    private void closeDevice() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Already failing or shutting down
+            }
+            out = null;
+        }
+    }
+
+    // ========== STATUS ==========
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getPrintedCount() {
+        return printed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Submit-to-written time of the last receipt, in milliseconds.
+     */
+    public double getLastLatencyMillis() {
+        return lastLatencyMicros / 1000.0;
+    }
+
+    public double getAverageLatencyMillis() {
+        long count = printed.get();
+        return count == 0 ? 0 : totalLatencyMicros.get() / 1000.0 / count;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyMicros / 1000.0;
+    }
+
+    public String getStatistics() {
+        return String.format("%d printed, %d dropped, %d queued; latency avg %.1fms, max %.1fms",
+                getPrintedCount(), getDroppedCount(), getQueueDepth(), getAverageLatencyMillis(),
+                getMaxLatencyMillis());
+    }
+
+    /**
+     * Print what is queued (up to the timeout), then close the device.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            thread.interrupt();
+        }
+        System.out.println("Print spooler stopped: " + getStatistics());
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.promo;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One promotion from discount-rules.txt.
+ *
+ * An item matches if its UPC, its category, or a substring of its
+ * description is listed; several terms make a mix-and-match group. Only the
+ * fields for the promotion's type are meaningful: buy/get for BUY_X_GET_Y,
+ * basisPoints for PERCENT_OFF, groupSize/groupPriceCents for MIX_AND_MATCH.
+ */
+public record Promotion(int id, String name, Type type,
+                        Set<String> upcs, Set<String> categories, List<String> descriptionTexts,
+                        int buy, int get, long basisPoints, int groupSize, long groupPriceCents,
+                        String description, boolean displayOnly) {
+
+    public enum Type {
+        BUY_X_GET_Y,    // in each group of buy + get units, the get cheapest are free
+        PERCENT_OFF,    // basis points off the matched lines
+        MIX_AND_MATCH   // any groupSize matched units for groupPriceCents
+    }
+
+    /**
+     * Units that make one complete deal (1 for PERCENT_OFF).
+     */
+    public int unitsPerDeal() {
+        return switch (type) {
+            case BUY_X_GET_Y -> buy + get;
+            case MIX_AND_MATCH -> groupSize;
+            case PERCENT_OFF -> 1;
+        };
+    }
+
+    boolean matchesDescription(String description) {
+        if (description == null) {
+            return false;
+        }
+        for (String text : descriptionTexts) {
+            if (containsIgnoreCase(description, text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String text, String upperNeedle) {
+        int last = text.length() - upperNeedle.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, upperNeedle, 0, upperNeedle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,305 @@
+package org.example.promo;
+
+import org.example.model.Money;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The promotions in discount-rules.txt, compiled into an index from UPC and
+ * category to the promotions that can apply.
+ *
+ * A scan looks up only the promotions relevant to that item, and the result
+ * is memoised per UPC, so promo checks and pricing stay constant time per
+ * item however many promotions are running. Used by LocalDiscountEngine for
+ * pricing and by PromoState/PromoChecker for the customer display.
+ */
+public class PromotionBook {
+    private static final String RULES_FILE = "src/main/resources/discount-rules.txt";
+    private static final String RULES_RESOURCE = "/discount-rules.txt";
+    private static final String DEFAULT_RULES = """
+            version: 2
+            POLAR_POP_B2G1 | BUY_X_GET_Y | desc:POLAR POP    | 2+1 | Polar Pop Buy 2 Get 1 Free
+            MONSTER_BOGO   | BUY_X_GET_Y | desc:MONSTER      | 1+1 | Monster Buy 1 Get 1 Free | DISPLAY
+            FOOD_5_PERCENT | PERCENT_OFF | category:FOOD     | 5%  | 5% Off Food
+            BEVERAGE_BOGO  | BUY_X_GET_Y | category:BEVERAGE | 1+1 | BOGO Beverages
+            """;
+
+    private static volatile PromotionBook defaultInstance;
+
+    /**
+     * Promotions that apply to one product: the pricing promotion that owns
+     * it (or null), any display-only promotions it counts toward, and every
+     * pricing promotion it could be priced by - all in file order.
+     */
+    public record Match(Promotion owner, List<Promotion> applicable, List<Promotion> candidates) {
+        static final Match NONE = new Match(null, List.of(), List.of());
+    }
+
+    private final String version;
+    private final List<Promotion> promotions;
+    private final Map<String, List<Promotion>> byUpc = new HashMap<>();
+    private final Map<String, List<Promotion>> byCategory = new HashMap<>();
+    private final List<Promotion> byDescription = new ArrayList<>();
+    private final Map<Item, Match> matches = new ConcurrentHashMap<>();
+
+    // Everything a match depends on, so a renamed or reclassified product is matched afresh
+    private record Item(String upc, String description, String category) {}
+
+    private PromotionBook(String version, List<Promotion> promotions) {
+        this.version = version;
+        this.promotions = List.copyOf(promotions);
+
+        for (Promotion promotion : promotions) {
+            for (String upc : promotion.upcs()) {
+                byUpc.computeIfAbsent(upc, k -> new ArrayList<>()).add(promotion);
+            }
+            for (String category : promotion.categories()) {
+                byCategory.computeIfAbsent(category, k -> new ArrayList<>()).add(promotion);
+            }
+            if (!promotion.descriptionTexts().isEmpty()) {
+                byDescription.add(promotion);
+            }
+        }
+    }
+
+    /**
+     * Shared book built from discount-rules.txt (or the built-in rules).
+     */
+    public static PromotionBook getDefault() {
+        PromotionBook instance = defaultInstance;
+        if (instance == null) {
+            synchronized (PromotionBook.class) {
+                instance = defaultInstance;
+                if (instance == null) {
+                    instance = loadDefault();
+                    defaultInstance = instance;
+                    System.out.println("Promotions loaded: " + instance);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static PromotionBook loadDefault() {
+        try (Reader reader = new InputStreamReader(new FileInputStream(RULES_FILE), StandardCharsets.UTF_8)) {
+            return fromRules(reader);
+        } catch (IOException e) {
+            // Fall through to the packaged copy
+        }
+
+        try (InputStream input = PromotionBook.class.getResourceAsStream(RULES_RESOURCE)) {
+            if (input != null) {
+                return fromRules(new InputStreamReader(input, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load discount rules, using defaults: " + e.getMessage());
+        }
+
+        try {
+            return fromRules(new StringReader(DEFAULT_RULES));
+        } catch (IOException e) {
+            throw new IllegalStateException("Built-in discount rules are invalid", e);
+        }
+    }
+
+    /**
+     * Parse promotions in the "NAME | TYPE | MATCH | VALUE | DESCRIPTION [| DISPLAY]" format.
+     */
+    public static PromotionBook fromRules(Reader reader) throws IOException {
+        List<Promotion> promotions = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        String version = null;
+
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            if (line.startsWith("version:")) {
+                version = line.substring("version:".length()).trim();
+                continue;
+            }
+
+            String[] fields = line.split("\\|");
+            if (fields.length != 5 && fields.length != 6) {
+                throw new IOException("Invalid promotion on line " + lineNumber + ": " + line);
+            }
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fields[i].trim();
+            }
+            if (!names.add(fields[0])) {
+                throw new IOException("Duplicate promotion " + fields[0] + " on line " + lineNumber);
+            }
+
+            try {
+                promotions.add(parsePromotion(promotions.size(), fields));
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IOException("Invalid promotion on line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+
+        if (version == null) {
+            throw new IOException("Discount rules have no version line");
+        }
+        return new PromotionBook(version, promotions);
+    }
+
+    private static Promotion parsePromotion(int id, String[] fields) {
+        Promotion.Type type = Promotion.Type.valueOf(fields[1].toUpperCase());
+
+        Set<String> upcs = new LinkedHashSet<>();
+        Set<String> categories = new LinkedHashSet<>();
+        List<String> texts = new ArrayList<>();
+        for (String term : fields[2].split(",")) {
+            int colon = term.indexOf(':');
+            String kind = colon > 0 ? term.substring(0, colon).trim().toLowerCase() : "";
+            String text = term.substring(colon + 1).trim();
+            if (text.isEmpty()) {
+                throw new IllegalArgumentException("empty match term '" + term.trim() + "'");
+            }
+            switch (kind) {
+                case "upc" -> upcs.add(text);
+                case "category" -> categories.add(text.toUpperCase());
+                case "desc" -> texts.add(text.toUpperCase());
+                default -> throw new IllegalArgumentException("unknown match '" + term.trim() + "'");
+            }
+        }
+
+        int buy = 0;
+        int get = 0;
+        long basisPoints = 0;
+        int groupSize = 0;
+        long groupPriceCents = 0;
+        String value = fields[3].replace(" ", "");
+        switch (type) {
+            case BUY_X_GET_Y -> {
+                String[] parts = value.split("\\+");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("BUY_X_GET_Y value must be X+Y, got '" + value + "'");
+                }
+                buy = Integer.parseInt(parts[0]);
+                get = Integer.parseInt(parts[1]);
+                if (buy < 1 || get < 1) {
+                    throw new IllegalArgumentException("BUY_X_GET_Y needs X and Y of at least 1");
+                }
+            }
+            case PERCENT_OFF -> {
+                if (!value.endsWith("%")) {
+                    throw new IllegalArgumentException("PERCENT_OFF value must be a percentage, got '" + value + "'");
+                }
+                basisPoints = new BigDecimal(value.substring(0, value.length() - 1))
+                        .movePointRight(2).longValueExact();
+                if (basisPoints <= 0 || basisPoints > 10_000) {
+                    throw new IllegalArgumentException("PERCENT_OFF must be between 0% and 100%");
+                }
+            }
+            case MIX_AND_MATCH -> {
+                String[] parts = value.split("@");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("MIX_AND_MATCH value must be N@PRICE, got '" + value + "'");
+                }
+                groupSize = Integer.parseInt(parts[0]);
+                groupPriceCents = Money.fromBigDecimal(new BigDecimal(parts[1]));
+                if (groupSize < 2 || groupPriceCents < 0) {
+                    throw new IllegalArgumentException("MIX_AND_MATCH needs N of at least 2 and a price");
+                }
+            }
+        }
+
+        boolean displayOnly = false;
+        if (fields.length == 6) {
+            if (!fields[5].equalsIgnoreCase("DISPLAY")) {
+                throw new IllegalArgumentException("unknown flag '" + fields[5] + "'");
+            }
+            displayOnly = true;
+        }
+
+        return new Promotion(id, fields[0], type, Set.copyOf(upcs), Set.copyOf(categories), List.copyOf(texts),
+                buy, get, basisPoints, groupSize, groupPriceCents, fields[4], displayOnly);
+    }
+
+    /**
+     * Promotions for an item, looked up once per UPC, description and category.
+     */
+    public Match match(String upc, String description, String category) {
+        if (upc == null) {
+            return computeMatch(null, description, category);
+        }
+        Item item = new Item(upc, description, category);
+        Match match = matches.get(item);
+        if (match == null) {
+            match = computeMatch(upc, description, category);
+            matches.put(item, match);
+        }
+        return match;
+    }
+
+    private Match computeMatch(String upc, String description, String category) {
+        TreeMap<Integer, Promotion> candidates = new TreeMap<>();
+        addAll(candidates, upc == null ? null : byUpc.get(upc));
+        addAll(candidates, category == null ? null : byCategory.get(category));
+        for (Promotion promotion : byDescription) {
+            if (promotion.matchesDescription(description)) {
+                candidates.put(promotion.id(), promotion);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Match.NONE;
+        }
+
+        // Earliest pricing promotion owns the item; display promotions always count
+        Promotion owner = null;
+        List<Promotion> applicable = new ArrayList<>(2);
+        List<Promotion> pricing = new ArrayList<>(2);
+        for (Promotion promotion : candidates.values()) {
+            if (promotion.displayOnly()) {
+                applicable.add(promotion);
+                continue;
+            }
+            if (owner == null) {
+                owner = promotion;
+                applicable.add(promotion);
+            }
+            pricing.add(promotion);
+        }
+        return new Match(owner, List.copyOf(applicable), List.copyOf(pricing));
+    }
+
+    private static void addAll(TreeMap<Integer, Promotion> candidates, List<Promotion> promotions) {
+        if (promotions != null) {
+            for (Promotion promotion : promotions) {
+                candidates.put(promotion.id(), promotion);
+            }
+        }
+    }
+
+    public List<Promotion> getPromotions() {
+        return promotions;
+    }
+
+    public int size() {
+        return promotions.size();
+    }
+
+    /**
+     * Version line from the rules file.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "version " + version + ", " + promotions.size() + " promotions, "
+                + byUpc.size() + " UPCs and " + byCategory.size() + " categories indexed";
+    }
+}
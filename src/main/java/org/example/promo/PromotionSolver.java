@@ -0,0 +1,226 @@
+package org.example.promo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Best-price assignment of basket units to overlapping promotions.
+ *
+ * Priority pricing gives each item to the first promotion it matches, which
+ * can leave savings on the table: a fourth Polar Pop cannot complete a B2G1
+ * group, but could pair with a Coke for the beverage BOGO. The solver instead
+ * picks, for every unit, the promotion (or none) that maximises total savings.
+ *
+ * Dynamic programming over units in descending price order. The state is, for
+ * each buy-X-get-Y and mix-and-match promotion in play, how many units it
+ * holds modulo its deal size - which is exactly what decides whether the next
+ * unit it takes is free or closes a group. Percent-off promotions need no
+ * state. Units left in an incomplete group save nothing, so only states with
+ * every group complete are accepted at the end. Cost is
+ * units x states x candidates, with states the product of the deal sizes.
+ *
+ * If the state space is too large or the time budget runs out, the solver
+ * falls back to the priority assignment, so it is never worse than the
+ * fixed order and never overruns the budget by more than a few units' work.
+ */
+public class PromotionSolver {
+    private static final int MAX_STATES = 4096;
+    private static final long MAX_TABLE_CELLS = 4_000_000; // units x states, for the choice table
+    private static final long SCALE = 10_000;              // savings in 1/10000 cent, so percent-off is exact
+    private static final long UNREACHABLE = Long.MIN_VALUE;
+    private static final int CLOCK_CHECK_MASK = 15;        // read the clock every 16 units
+
+    private final long budgetNanos;
+
+    // Statistics
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public PromotionSolver(long budgetMicros) {
+        this.budgetNanos = TimeUnit.MICROSECONDS.toNanos(budgetMicros);
+    }
+
+    /**
+     * Choose a promotion for each unit. Units must be sorted by price,
+     * dearest first; candidates.get(u) lists the pricing promotions unit u may
+     * take, in file order (the first is its priority owner). Returns the
+     * chosen promotion per unit, or null where the unit takes none.
+     */
+    public Promotion[] solve(long[] priceCents, List<List<Promotion>> candidates) {
+        int unitCount = priceCents.length;
+        Promotion[] priority = priorityAssignment(candidates);
+
+        // Number the promotions in play; each stateful one gets a digit in a mixed-radix state
+        Map<Promotion, Integer> index = new HashMap<>();
+        List<Promotion> inPlay = new ArrayList<>();
+        Map<List<Promotion>, int[]> unitLists = new IdentityHashMap<>();
+        int[][] unitPromotions = new int[unitCount][];
+        long states = 1;
+        for (int u = 0; u < unitCount; u++) {
+            List<Promotion> unitCandidates = candidates.get(u);
+            int[] ids = unitLists.get(unitCandidates);
+            if (ids == null) {
+                ids = new int[unitCandidates.size()];
+                for (int c = 0; c < ids.length; c++) {
+                    Promotion promotion = unitCandidates.get(c);
+                    Integer id = index.get(promotion);
+                    if (id == null) {
+                        id = inPlay.size();
+                        index.put(promotion, id);
+                        inPlay.add(promotion);
+                        if (promotion.type() != Promotion.Type.PERCENT_OFF) {
+                            states *= promotion.unitsPerDeal();
+                            if (states > MAX_STATES) {
+                                fallbacks.increment();
+                                return priority;
+                            }
+                        }
+                    }
+                    ids[c] = id;
+                }
+                unitLists.put(unitCandidates, ids);
+            }
+            unitPromotions[u] = ids;
+        }
+        int stateCount = (int) states;
+        if ((long) unitCount * stateCount > MAX_TABLE_CELLS) {
+            fallbacks.increment();
+            return priority;
+        }
+
+        int promotionCount = inPlay.size();
+        Promotion.Type[] type = new Promotion.Type[promotionCount];
+        int[] radix = new int[promotionCount];
+        int[] stride = new int[promotionCount];
+        int stateStride = 1;
+        for (int i = 0; i < promotionCount; i++) {
+            Promotion promotion = inPlay.get(i);
+            type[i] = promotion.type();
+            if (type[i] != Promotion.Type.PERCENT_OFF) {
+                radix[i] = promotion.unitsPerDeal();
+                stride[i] = stateStride;
+                stateStride *= radix[i];
+            }
+        }
+
+        // choice[u][state] = 1 + index of the candidate unit u took to reach state, 0 = none
+        byte[][] choice = new byte[unitCount][];
+        long[] current = new long[stateCount];
+        long[] next = new long[stateCount];
+        Arrays.fill(current, UNREACHABLE);
+        current[0] = 0;
+
+        long deadline = System.nanoTime() + budgetNanos;
+        for (int u = 0; u < unitCount; u++) {
+            if ((u & CLOCK_CHECK_MASK) == 0 && System.nanoTime() > deadline) {
+                fallbacks.increment();
+                return priority;
+            }
+
+            Arrays.fill(next, UNREACHABLE);
+            byte[] unitChoice = new byte[stateCount];
+            choice[u] = unitChoice;
+            long price = priceCents[u];
+            int[] ids = unitPromotions[u];
+
+            for (int state = 0; state < stateCount; state++) {
+                long value = current[state];
+                if (value == UNREACHABLE) {
+                    continue;
+                }
+
+                // Take no promotion
+                if (value > next[state]) {
+                    next[state] = value;
+                    unitChoice[state] = 0;
+                }
+
+                for (int c = 0; c < ids.length; c++) {
+                    int id = ids[c];
+                    Promotion promotion = inPlay.get(id);
+                    long gain;
+                    int target = state;
+                    if (type[id] == Promotion.Type.PERCENT_OFF) {
+                        gain = price * promotion.basisPoints();
+                    } else {
+                        int k = radix[id];
+                        int held = (state / stride[id]) % k;
+                        if (type[id] == Promotion.Type.BUY_X_GET_Y) {
+                            gain = held >= promotion.buy() ? price * SCALE : 0;
+                        } else {
+                            // Mix and match: count the unit's price now, the group price when it closes
+                            gain = price * SCALE - (held == k - 1 ? promotion.groupPriceCents() * SCALE : 0);
+                        }
+                        target = held == k - 1 ? state - held * stride[id] : state + stride[id];
+                    }
+
+                    long candidate = value + gain;
+                    if (candidate > next[target]) {
+                        next[target] = candidate;
+                        unitChoice[target] = (byte) (c + 1);
+                    }
+                }
+            }
+
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+
+        if (current[0] == UNREACHABLE) {
+            fallbacks.increment();
+            return priority;
+        }
+
+        // Walk the choices back from the all-groups-complete state
+        Promotion[] assignment = new Promotion[unitCount];
+        int state = 0;
+        for (int u = unitCount - 1; u >= 0; u--) {
+            int c = choice[u][state] - 1;
+            if (c < 0) {
+                continue;
+            }
+            int id = unitPromotions[u][c];
+            assignment[u] = inPlay.get(id);
+            if (type[id] != Promotion.Type.PERCENT_OFF) {
+                int k = radix[id];
+                int held = (state / stride[id]) % k;
+                int before = (held + k - 1) % k;
+                state += (before - held) * stride[id];
+            }
+        }
+        solved.increment();
+        return assignment;
+    }
+
+    /**
+     * Each unit to its first candidate, as priority pricing does.
+     */
+    static Promotion[] priorityAssignment(List<List<Promotion>> candidates) {
+        Promotion[] assignment = new Promotion[candidates.size()];
+        for (int u = 0; u < assignment.length; u++) {
+            List<Promotion> unitCandidates = candidates.get(u);
+            assignment[u] = unitCandidates.isEmpty() ? null : unitCandidates.get(0);
+        }
+        return assignment;
+    }
+
+    public long getSolvedCount() {
+        return solved.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    public String getStatistics() {
+        return String.format("Promotion solver: %d solved, %d fell back to priority (budget %d us)",
+                solved.sum(), fallbacks.sum(), TimeUnit.NANOSECONDS.toMicros(budgetNanos));
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.sales;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only local log of completed sales (one JSON object per line).
+ *
+ * A sale is acknowledged to the cashier once it is in this log; the database
+ * insert happens later on the writer thread. Each record carries a sequence
+ * number, and the database stores the last sequence it committed, so on
+ * startup anything past that checkpoint is replayed exactly once.
+ */
+public class SaleLog implements Closeable {
+    public enum Durability {
+        SYNC,  // fsync before append() returns
+        GROUP  // fsync once per writer batch (group commit window)
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Durability durability;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private long lastSequence;
+    private boolean dirty;
+
+    public SaleLog(Path path, Durability durability, long lastSequence) throws IOException {
+        this.path = path;
+        this.durability = durability;
+        this.lastSequence = lastSequence;
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        terminateTornLine();
+    }
+
+    // After a crash mid-append, start the next record on a fresh line
+    private void terminateTornLine() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            reader.read(last, size - 1);
+            if (last.get(0) != '\n') {
+                channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Assign the next sequence number and append the sale. Returns the
+     * sequenced record.
+     */
+    public synchronized SaleRecord append(SaleRecord sale) throws IOException {
+        SaleRecord sequenced = sale.withSequence(lastSequence + 1);
+        byte[] json = objectMapper.writeValueAsBytes(sequenced);
+
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+        buffer.put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        if (durability == Durability.SYNC) {
+            channel.force(false);
+        } else {
+            dirty = true;
+        }
+        lastSequence = sequenced.sequence();
+        return sequenced;
+    }
+
+    /**
+     * Make everything appended so far durable. One call covers a whole batch.
+     */
+    public synchronized void sync() throws IOException {
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Empty the log once the database has committed everything in it.
+     */
+    public synchronized void truncateIfCaughtUp(long committedSequence) throws IOException {
+        if (committedSequence >= lastSequence && channel.size() > 0) {
+            channel.truncate(0);
+            channel.force(true);
+            dirty = false;
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    /**
+     * Read sales after the given checkpoint. A torn final line (crash mid-write)
+     * is ignored - that sale was never acknowledged.
+     */
+    public static List<SaleRecord> readPending(Path path, long checkpoint) throws IOException {
+        List<SaleRecord> pending = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return pending;
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    SaleRecord sale = mapper.readValue(line, SaleRecord.class);
+                    if (sale.sequence() > checkpoint) {
+                        pending.add(sale);
+                    }
+                } catch (JsonProcessingException e) {
+                    System.err.println("Skipping unreadable sale log line " + lineNumber + ": " + e.getOriginalMessage());
+                }
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public String toString() {
+        return "SaleLog[" + path + ", " + durability + ", last #" + getLastSequence() + "]";
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.sales;
+
+import org.example.model.Money;
+import org.example.model.Product;
+import org.example.model.Transaction;
+import org.example.service.CategoryClassifier;
+import org.example.service.DiscountService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable copy of a completed sale, taken on the EDT at tender time.
+ * This is what goes into the sale log and, later, into the database, so it
+ * must not reference the live Transaction (which is cleared for the next
+ * customer).
+ */
+public record SaleRecord(
+        long sequence,
+        long timestamp,
+        String status,
+        String paymentType,
+        long subtotalCents,
+        long discountCents,
+        long taxCents,
+        long totalCents,
+        long tenderedCents,
+        long changeCents,
+        int receiptNumber,
+        List<Line> lines,
+        List<Discount> discounts
+) {
+    public record Line(String upc, String description, long priceCents, int quantity,
+                       long lineTotalCents, String category) {}
+
+    public record Discount(String ruleName, String description, long amountCents) {}
+
+    public static SaleRecord of(Transaction transaction, String paymentType, double tendered, double change,
+                                String status, int receiptNumber, Double discount,
+                                DiscountService.DiscountResponse discountInfo) {
+        List<Line> lines = new ArrayList<>(transaction.getItemCount());
+        for (Product product : transaction.getItems()) {
+            lines.add(new Line(product.getUpc(), product.getDescription(), product.getPriceCents(),
+                    product.getQuantity(), product.getLineTotalCents(), CategoryClassifier.categoryOf(product)));
+        }
+
+        List<Discount> discounts = new ArrayList<>();
+        if (discountInfo != null && discountInfo.appliedDiscounts != null) {
+            for (var applied : discountInfo.appliedDiscounts) {
+                discounts.add(new Discount(applied.ruleName, applied.description, applied.amountCents()));
+            }
+        }
+
+        return new SaleRecord(
+                0,
+                System.currentTimeMillis(),
+                status,
+                paymentType,
+                discountInfo != null ? discountInfo.subtotalCents() : transaction.getSubtotalCents(),
+                discount != null ? Money.toCents(discount) : 0,
+                discountInfo != null ? discountInfo.taxCents() : transaction.getTaxCents(),
+                discountInfo != null ? discountInfo.totalCents() : transaction.getTotalCents(),
+                Money.toCents(tendered),
+                Money.toCents(change),
+                receiptNumber,
+                List.copyOf(lines),
+                List.copyOf(discounts)
+        );
+    }
+
+    public SaleRecord withSequence(long newSequence) {
+        return new SaleRecord(newSequence, timestamp, status, paymentType, subtotalCents, discountCents,
+                taxCents, totalCents, tenderedCents, changeCents, receiptNumber, lines, discounts);
+    }
+}
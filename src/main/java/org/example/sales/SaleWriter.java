@@ -0,0 +1,269 @@
+package org.example.sales;
+
+import org.example.config.PosConfig;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence for completed sales.
+ *
+ * submit() appends the sale to the local SaleLog and returns immediately.
+ * A background thread collects whatever arrives within the group-commit
+ * window (up to the batch size), makes the log durable with one fsync, and
+ * hands the whole batch to the database in a single commit. At rush hour many
+ * sales share one fsync and one H2 commit, so throughput is set by the
+ * cashiers rather than the disk.
+ *
+ * H2 writes commits to disk lazily, so a committed sale is not yet safe from
+ * power loss. The log is only truncated after the database has been forced
+ * to disk, which happens at most once per sync interval (and when the writer
+ * goes idle); until then the log still holds every sale the sync has not
+ * covered.
+ */
+public class SaleWriter implements Closeable {
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    /**
+     * Inserts a batch and records its last sequence number in one database transaction.
+     */
+    public interface BatchSink {
+        void write(List<SaleRecord> batch) throws SQLException;
+    }
+
+    /**
+     * Forces everything the database has committed so far to disk.
+     */
+    public interface DatabaseSync {
+        void sync() throws SQLException;
+    }
+
+    private final SaleLog log;
+    private final BatchSink sink;
+    private final DatabaseSync databaseSync;
+    private final long groupCommitNanos;
+    private final long syncIntervalNanos;
+    private final int batchSize;
+    private final BlockingQueue<SaleRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Statistics
+    private final AtomicLong committedSales = new AtomicLong();
+    private final AtomicLong committedBatches = new AtomicLong();
+    private volatile long lastCommittedSequence;
+    private volatile long lastSyncedSequence;
+    private long lastSyncNanos = System.nanoTime();
+
+    private SaleWriter(SaleLog log, BatchSink sink, DatabaseSync databaseSync, int groupCommitMillis,
+                       int syncMillis, int batchSize, List<SaleRecord> pending, long checkpoint) {
+        this.log = log;
+        this.sink = sink;
+        this.databaseSync = databaseSync;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, syncMillis));
+        this.batchSize = Math.max(1, batchSize);
+        this.lastCommittedSequence = checkpoint;
+        this.lastSyncedSequence = checkpoint;
+        this.queue.addAll(pending);
+
+        this.thread = new Thread(this::run, "sale-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Open the sale log, queue any sales that were logged but not yet committed
+     * (checkpoint = last sequence the database has), and start the writer.
+     */
+    public static SaleWriter start(PosConfig config, long checkpoint, BatchSink sink,
+                                   DatabaseSync databaseSync) throws IOException {
+        Path path = Path.of(config.getSalesLogPath());
+        SaleLog.Durability durability = SaleLog.Durability.valueOf(config.getSalesLogDurability());
+
+        List<SaleRecord> pending = SaleLog.readPending(path, checkpoint);
+        long lastSequence = pending.isEmpty() ? checkpoint : pending.get(pending.size() - 1).sequence();
+        if (!pending.isEmpty()) {
+            System.out.println("Replaying " + pending.size() + " logged sales not yet in the database");
+        }
+
+        SaleLog log = new SaleLog(path, durability, lastSequence);
+        System.out.println("Sale writer started: " + log);
+        return new SaleWriter(log, sink, databaseSync, config.getGroupCommitMillis(),
+                config.getDatabaseSyncMillis(), config.getSalesBatchSize(), pending, checkpoint);
+    }
+
+    /**
+     * Log the sale and queue it for the database. Returns once the sale is in
+     * the log (and fsynced, in SYNC mode).
+     */
+    public SaleRecord submit(SaleRecord sale) throws IOException {
+        if (!running) {
+            throw new IOException("Sale writer is closed");
+        }
+        SaleRecord logged = log.append(sale);
+        queue.add(logged);
+        return logged;
+    }
+
+    private void run() {
+        List<SaleRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                SaleRecord first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    syncDatabase(); // idle: cover the last commits now
+                    continue;
+                }
+                batch.add(first);
+                collectGroup(batch);
+
+                syncLogWithRetry(batch); // one fsync for the whole group
+                commitWithRetry(batch);
+                batch.clear();
+                if (System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+                    syncDatabase();
+                }
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    break; // still in the log - replayed on next start
+                }
+            } catch (IOException e) {
+                System.err.println("Sale log error: " + e.getMessage());
+            }
+        }
+        try {
+            syncDatabase();
+        } catch (IOException e) {
+            System.err.println("Sale log error: " + e.getMessage());
+        }
+    }
+
+    private void collectGroup(List<SaleRecord> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + groupCommitNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            SaleRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Make the batch durable in the log before it goes to the database,
+     * retrying a failed fsync rather than waiting for the next sale.
+     */
+    private void syncLogWithRetry(List<SaleRecord> batch) throws InterruptedException {
+        long delay = 250;
+        while (true) {
+            try {
+                log.sync();
+                return;
+            } catch (IOException e) {
+                System.err.println("Failed to sync the sale log for " + batch.size() + " sales, retrying in "
+                        + delay + "ms: " + e.getMessage());
+                if (!running) {
+                    throw new InterruptedException("Shutting down with the sale log not synced");
+                }
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    private void commitWithRetry(List<SaleRecord> batch) throws InterruptedException, IOException {
+        long delay = 250;
+        while (true) {
+            try {
+                sink.write(batch);
+                break;
+            } catch (SQLException e) {
+                System.err.println("Failed to write " + batch.size() + " sales, retrying in "
+                        + delay + "ms: " + e.getMessage());
+                if (!running) {
+                    throw new InterruptedException("Shutting down with sales still in the log");
+                }
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+
+        lastCommittedSequence = batch.get(batch.size() - 1).sequence();
+        committedSales.addAndGet(batch.size());
+        committedBatches.incrementAndGet();
+    }
+
+    /**
+     * Force the database to disk if anything was committed since the last
+     * sync; only then can the log drop the sales it holds.
+     */
+    private void syncDatabase() throws IOException {
+        long committed = lastCommittedSequence;
+        if (committed <= lastSyncedSequence) {
+            return;
+        }
+        try {
+            databaseSync.sync();
+        } catch (SQLException e) {
+            System.err.println("Failed to sync the database, keeping the sale log: " + e.getMessage());
+            return;
+        } finally {
+            lastSyncNanos = System.nanoTime();
+        }
+        lastSyncedSequence = committed;
+        log.truncateIfCaughtUp(committed);
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getCommittedSales() {
+        return committedSales.get();
+    }
+
+    public long getCommittedBatches() {
+        return committedBatches.get();
+    }
+
+    public long getLastCommittedSequence() {
+        return lastCommittedSequence;
+    }
+
+    /**
+     * Last sale known to be on disk in the database.
+     */
+    public long getLastSyncedSequence() {
+        return lastSyncedSequence;
+    }
+
+    /**
+     * Drain what is queued (up to the timeout), then close the log. Anything
+     * not committed by then stays in the log for the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            thread.interrupt();
+        }
+        log.close();
+        System.out.printf("Sale writer stopped: %d sales in %d commits, %d left in log%n",
+                getCommittedSales(), getCommittedBatches(), getPendingCount());
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.sales;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receipt (and other) numbers for one register, reserved from the database
+ * in blocks.
+ *
+ * A sequence hands out numbers from its current block with one atomic
+ * increment. When a quarter of the block is left the next block is reserved
+ * on a background thread, so taking a number normally never waits on the
+ * database. A block is committed and synced to disk before any number in it
+ * is used; after a crash or power loss the sequence carries on past the last
+ * block reserved. Numbers may be skipped (the rest of a block), never reused.
+ * Reservations are kept per register id, so registers sharing one database
+ * each have their own numbers.
+ */
+public class SequenceService implements Closeable {
+    public static final String RECEIPT = "receipt";
+
+    /**
+     * Reserves numbers in the database.
+     */
+    public interface BlockSource {
+        /**
+         * Durably reserve the next size numbers of the register's sequence;
+         * returns the last number reserved.
+         */
+        long reserve(String register, String name, int size) throws SQLException;
+    }
+
+    private final String register;
+    private final BlockSource source;
+    private final int blockSize;
+    private final Map<String, Sequence> sequences = new HashMap<>(); // guarded by this
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "sequence-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SequenceService(String register, BlockSource source, int blockSize) {
+        this.register = register;
+        this.source = source;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * The named sequence, reserving its first block now if it is not open yet.
+     */
+    public synchronized Sequence open(String name) throws SQLException {
+        Sequence sequence = sequences.get(name);
+        if (sequence == null) {
+            sequence = new Sequence(name);
+            sequences.put(name, sequence);
+        }
+        return sequence;
+    }
+
+    public String getRegister() {
+        return register;
+    }
+
+    @Override
+    public void close() {
+        prefetcher.shutdownNow();
+    }
+
+    // ========== SEQUENCE ==========
+
+    private static final class Block {
+        final AtomicLong next;
+        final long last;
+        final long prefetchAt;
+
+        Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+            this.prefetchAt = last - (last - first + 1) / 4;
+        }
+    }
+
+    public final class Sequence {
+        private final String name;
+        private volatile Block current;
+        private Future<Block> pending; // guarded by this
+
+        private Sequence(String name) throws SQLException {
+            this.name = name;
+            this.current = reserve();
+        }
+
+        /**
+         * The next number. Waits on the database only if the background
+         * reservation has not finished (or failed).
+         *
+         * @throws IllegalStateException if no block can be reserved
+         */
+        public long next() {
+            while (true) {
+                Block block = current;
+                long number = block.next.getAndIncrement();
+                if (number <= block.last) {
+                    if (number == block.prefetchAt) {
+                        prefetch();
+                    }
+                    return number;
+                }
+                advance(block);
+            }
+        }
+
+        private synchronized void prefetch() {
+            if (pending == null) {
+                try {
+                    pending = prefetcher.submit(this::reserve);
+                } catch (RejectedExecutionException e) {
+                    // Closed; the next block is reserved when this one runs out
+                }
+            }
+        }
+
+        private synchronized void advance(Block exhausted) {
+            if (current != exhausted) {
+                return;
+            }
+            Block next = takePending();
+            if (next == null) {
+                try {
+                    next = reserve();
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Could not reserve " + name + " numbers for " + register, e);
+                }
+            }
+            current = next;
+        }
+
+        private Block takePending() {
+            Future<Block> future = pending;
+            pending = null;
+            if (future == null) {
+                return null;
+            }
+            try {
+                return future.get(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                System.err.println("Background reservation of " + name + " numbers failed, retrying: "
+                        + e.getMessage());
+            } catch (CancellationException e) {
+                // Shutting down
+            }
+            return null;
+        }
+
+        private Block reserve() throws SQLException {
+            long last = source.reserve(register, name, blockSize);
+            System.out.println("Reserved " + name + " numbers " + (last - blockSize + 1) + "-" + last
+                    + " for " + register);
+            return new Block(last - blockSize + 1, last);
+        }
+
+        /**
+         * Numbers left in the current block.
+         */
+        public long getRemaining() {
+            Block block = current;
+            return Math.max(0, block.last - block.next.get() + 1);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keyword-based product categoriser shared by the pricebook loader, discounts
+ * and promotions.
+ *
+ * Rules are read from category-rules.txt and compiled into an Aho-Corasick
+ * automaton, so a description is classified in one pass over its characters
+ * regardless of how many keywords there are. Categories are computed once per
+ * SKU when the pricebook is loaded and stored on Product; use categoryOf() to
+ * read it.
+ */
+public class CategoryClassifier {
+    private static final String RULES_FILE = "src/main/resources/category-rules.txt";
+    private static final String RULES_RESOURCE = "/category-rules.txt";
+    private static final String DEFAULT_RULES = """
+            BEVERAGE: COKE, PEPSI, SPRITE, MONSTER, RED BULL, GATORADE, WATER, TEA, COFFEE, POLAR POP, ROCKSTAR, ENERGY, SODA, DRINK
+            FOOD: PIZZA, HOT DOG, BURGER, SANDWICH, DONUT, TAQUITO, CROISSANT, SAUSAGE, BREAKFAST, BURRITO, WRAP
+            TOBACCO: MARLBORO, CAMEL, NEWPORT, CIGAR, VUSE, JUUL, TOBACCO, CIGARETTE
+            SNACK: CHIP, LAYS, DORITOS, CHEETOS, SNICKERS, REESE, CANDY, GUM, CHOCOLATE
+            """;
+    public static final String OTHER = "OTHER";
+
+    private static final int ALPHABET = 128; // descriptions are ASCII; anything else resets the match
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+    // Part of the rules hash, so stored categories are redone when matching changes (2: accents stripped)
+    private static final int MATCHING_VERSION = 2;
+
+    private static volatile CategoryClassifier defaultInstance;
+
+    private final String[] categories;
+    private final int[][] transitions; // full DFA: state x char -> state
+    private final int[] bestMatch;     // lowest category index matched on reaching this state
+    private final long rulesHash;
+
+    private CategoryClassifier(List<String> categories, List<List<String>> keywords, long rulesHash) {
+        this.categories = categories.toArray(new String[0]);
+        this.rulesHash = rulesHash;
+
+        // Build the keyword trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        trie.add(newNode());
+        outputs.add(NO_MATCH);
+
+        for (int category = 0; category < keywords.size(); category++) {
+            for (String keyword : keywords.get(category)) {
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int c = keyword.charAt(i);
+                    if (c >= ALPHABET) {
+                        throw new IllegalArgumentException("Keyword is not ASCII: " + keyword);
+                    }
+                    if (trie.get(state)[c] < 0) {
+                        trie.get(state)[c] = trie.size();
+                        trie.add(newNode());
+                        outputs.add(NO_MATCH);
+                    }
+                    state = trie.get(state)[c];
+                }
+                outputs.set(state, Math.min(outputs.get(state), category));
+            }
+        }
+
+        // Breadth-first pass: failure links folded into a full transition table
+        int size = trie.size();
+        transitions = trie.toArray(new int[0][]);
+        bestMatch = new int[size];
+        int[] failure = new int[size];
+        for (int i = 0; i < size; i++) {
+            bestMatch[i] = outputs.get(i);
+        }
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = transitions[0][c];
+            if (next < 0) {
+                transitions[0][c] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            bestMatch[state] = Math.min(bestMatch[state], bestMatch[failure[state]]);
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions[state][c];
+                if (next < 0) {
+                    transitions[state][c] = transitions[failure[state]][c];
+                } else {
+                    failure[next] = transitions[failure[state]][c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    /**
+     * Shared classifier built from category-rules.txt (or the built-in rules).
+     */
+    public static CategoryClassifier getDefault() {
+        CategoryClassifier instance = defaultInstance;
+        if (instance == null) {
+            synchronized (CategoryClassifier.class) {
+                instance = defaultInstance;
+                if (instance == null) {
+                    instance = loadDefault();
+                    defaultInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static CategoryClassifier loadDefault() {
+        try (Reader reader = new InputStreamReader(new FileInputStream(RULES_FILE), StandardCharsets.UTF_8)) {
+            return fromRules(reader);
+        } catch (IOException e) {
+            // Fall through to the packaged copy
+        }
+
+        try (InputStream input = CategoryClassifier.class.getResourceAsStream(RULES_RESOURCE)) {
+            if (input != null) {
+                return fromRules(new InputStreamReader(input, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load category rules, using defaults: " + e.getMessage());
+        }
+
+        try {
+            return fromRules(new StringReader(DEFAULT_RULES));
+        } catch (IOException e) {
+            throw new IllegalStateException("Built-in category rules are invalid", e);
+        }
+    }
+
+    /**
+     * Compile rules in the "CATEGORY: KEYWORD, KEYWORD" line format.
+     */
+    public static CategoryClassifier fromRules(Reader reader) throws IOException {
+        List<String> categories = new ArrayList<>();
+        List<List<String>> keywords = new ArrayList<>();
+        long hash = (0xcbf29ce484222325L ^ MATCHING_VERSION) * 0x100000001b3L;
+
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IOException("Invalid category rule on line " + lineNumber + ": " + line);
+            }
+
+            List<String> words = new ArrayList<>();
+            for (String keyword : line.substring(colon + 1).split(",")) {
+                String word = toAscii(keyword.trim().toUpperCase());
+                if (word == null) {
+                    System.err.println("Skipping non-ASCII category keyword on line " + lineNumber + ": "
+                            + keyword.trim());
+                } else if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            categories.add(line.substring(0, colon).trim().toUpperCase());
+            keywords.add(words);
+
+            for (int i = 0; i < line.length(); i++) {
+                hash = (hash ^ line.charAt(i)) * 0x100000001b3L;
+            }
+        }
+
+        return new CategoryClassifier(categories, keywords, hash);
+    }
+
+    /**
+     * The keyword with accents stripped (CAFÉ becomes CAFE), or null if it
+     * still has characters outside the automaton's ASCII alphabet.
+     */
+    private static String toAscii(String keyword) {
+        String word = stripAccents(keyword);
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) >= ALPHABET) {
+                return null;
+            }
+        }
+        return word;
+    }
+
+    private static String stripAccents(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+
+    /**
+     * Classify a description in a single pass; no upper-casing copy is made.
+     * Accented letters match their keywords as toAscii() compiles them
+     * (CRÈME matches CREME); only a non-ASCII description pays for that.
+     */
+    public String classify(String description) {
+        if (description == null) {
+            return OTHER;
+        }
+        int best = match(description, true);
+        return best == NO_MATCH ? OTHER : categories[best];
+    }
+
+    /**
+     * Lowest category index matched in the text, or NO_MATCH. At the first
+     * non-ASCII character, starts over on the text with its accents stripped
+     * if that has not been done yet.
+     */
+    private int match(String text, boolean stripAccents) {
+        int state = 0;
+        int best = NO_MATCH;
+        for (int i = 0; i < text.length() && best != 0; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if (c >= ALPHABET && stripAccents) {
+                return match(stripAccents(text), false);
+            }
+            state = c < ALPHABET ? transitions[state][c] : 0;
+            best = Math.min(best, bestMatch[state]);
+        }
+        return best;
+    }
+
+    /**
+     * Category stored on the product at pricebook load; classifies (and stores)
+     * only for products that did not come from the pricebook, e.g. quick keys.
+     */
+    public static String categoryOf(Product product) {
+        String category = product.getCategory();
+        if (category == null) {
+            category = getDefault().classify(product.getDescription());
+            product.setCategory(category);
+        }
+        return category;
+    }
+
+    /**
+     * Fingerprint of the rule set, so stored categories can be invalidated when it changes.
+     */
+    public long getRulesHash() {
+        return rulesHash;
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.service;
+
+import org.example.model.Money;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of discount results keyed by basket fingerprint.
+ *
+ * Convenience-store baskets repeat exactly (the same coffee, the same two
+ * Monsters), so the same fingerprint is priced - and shadow-checked against
+ * the API - once. Entries expire after the TTL and the least recently used
+ * entry is evicted past the size limit. The rules version is part of the
+ * fingerprint, so new rules never see old results; a pricebook change clears
+ * the cache outright. Shared by the EDT and the prefetch thread, so every
+ * method is synchronized.
+ */
+public class DiscountCache {
+    private static final Comparator<DiscountService.DiscountRequest.Item> CANONICAL_ORDER =
+            Comparator.comparing((DiscountService.DiscountRequest.Item item) -> item.upc)
+                    .thenComparingDouble(item -> item.price)
+                    .thenComparingInt(item -> item.quantity)
+                    .thenComparing(item -> item.category, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(item -> item.description, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final class Entry {
+        final DiscountService.DiscountResponse response;
+        final long createdAt;
+        boolean reconciled;
+
+        Entry(DiscountService.DiscountResponse response, long createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    // Statistics
+    private long hits;
+    private long misses;
+    private long expirations;
+    private long evictions;
+    private long invalidations;
+
+    public DiscountCache(int maxEntries, int ttlSeconds) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        // Access-ordered, so the least recently used basket is evicted first
+        this.entries = new LinkedHashMap<>(this.maxEntries * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > DiscountCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Canonical key for a basket: rules version, then UPC/quantity/price and
+     * the category and description the rules match on, for every line sorted
+     * by UPC, so scan order does not matter. A reclassified or renamed item
+     * gets a new key even before the cache is cleared.
+     */
+    public static String fingerprint(List<DiscountService.DiscountRequest.Item> items, String rulesVersion) {
+        List<DiscountService.DiscountRequest.Item> sorted = new ArrayList<>(items);
+        sorted.sort(CANONICAL_ORDER);
+
+        StringBuilder sb = new StringBuilder(rulesVersion.length() + sorted.size() * 56);
+        sb.append(rulesVersion);
+        for (DiscountService.DiscountRequest.Item item : sorted) {
+            String description = String.valueOf(item.description);
+            sb.append('|').append(item.upc)
+                    .append(':').append(item.quantity)
+                    .append(':').append(Money.toCents(item.price))
+                    .append(':').append(item.category)
+                    .append(':').append(description.length()).append(':').append(description);
+        }
+        return sb.toString();
+    }
+
+    public synchronized DiscountService.DiscountResponse get(String fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt > ttlNanos) {
+            entries.remove(fingerprint);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.response;
+    }
+
+    public synchronized void put(String fingerprint, DiscountService.DiscountResponse response) {
+        entries.put(fingerprint, new Entry(response, System.nanoTime()));
+    }
+
+    /**
+     * Claim the shadow check for this basket. True the first time for a
+     * cached basket (or always, for one that is not cached).
+     */
+    public synchronized boolean markReconciled(String fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            return true;
+        }
+        if (entry.reconciled) {
+            return false;
+        }
+        entry.reconciled = true;
+        return true;
+    }
+
+    /**
+     * Drop every entry, e.g. after a pricebook change.
+     */
+    public synchronized void invalidateAll(String reason) {
+        if (!entries.isEmpty()) {
+            System.out.println("Discount cache cleared (" + reason + "): " + entries.size() + " entries");
+        }
+        entries.clear();
+        invalidations++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public synchronized String getStatistics() {
+        return String.format(
+                "Discount cache: %d/%d entries, %d hits, %d misses (%.1f%% hit), " +
+                "%d expired, %d evicted, %d invalidations",
+                entries.size(), maxEntries, hits, misses, getHitRatio() * 100,
+                expirations, evictions, invalidations);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.service;
+
+import org.example.model.Transaction;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Precomputes discounts while items are being scanned, so tender can show the
+ * discounted total without pricing the basket on the spot.
+ *
+ * basketChanged() is called on the EDT after every basket change. It copies
+ * the basket there and schedules pricing on a background thread once scanning
+ * has been quiet for the debounce window; a newer change cancels the pending
+ * one. Results are tagged with the transaction and its version, and take()
+ * only returns a result computed for exactly the current basket.
+ */
+public class DiscountPrefetcher implements AutoCloseable {
+
+    /**
+     * A priced basket snapshot and the basket version it belongs to.
+     */
+    public record Prefetched(Transaction transaction, long version,
+                             List<DiscountService.DiscountRequest.Item> items,
+                             DiscountService.DiscountResponse response) {}
+
+    private final DiscountService discountService;
+    private final long debounceMillis;
+    private final ScheduledExecutorService executor;
+
+    // Owned by the EDT
+    private ScheduledFuture<?> pending;
+    private Transaction scheduledTransaction;
+    private long scheduledVersion = -1;
+
+    private volatile Prefetched latest;
+
+    // Statistics
+    private final AtomicLong computed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DiscountPrefetcher(DiscountService discountService, int debounceMillis) {
+        this.discountService = discountService;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "discount-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedule pricing of the current basket. Call on the EDT.
+     */
+    public void basketChanged(Transaction transaction) {
+        long version = transaction.getVersion();
+        if (transaction == scheduledTransaction && version == scheduledVersion) {
+            return; // already scheduled or priced
+        }
+
+        if (pending != null && pending.cancel(false)) {
+            cancelled.incrementAndGet();
+        }
+        scheduledTransaction = transaction;
+        scheduledVersion = version;
+
+        if (transaction.getItemCount() == 0) {
+            pending = null;
+            return;
+        }
+
+        List<DiscountService.DiscountRequest.Item> items = DiscountService.snapshotItems(transaction);
+        pending = executor.schedule(() -> {
+            latest = new Prefetched(transaction, version, items, discountService.price(items));
+            computed.incrementAndGet();
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The precomputed result for the transaction as it is now, or null if
+     * the basket changed since (or pricing has not finished yet).
+     */
+    public Prefetched take(Transaction transaction) {
+        Prefetched current = latest;
+        if (current != null && current.transaction() == transaction
+                && current.version() == transaction.getVersion()) {
+            hits.incrementAndGet();
+            return current;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public String getStatistics() {
+        return String.format("Discount prefetch: %d computed, %d cancelled, %d tender hits, %d misses",
+                computed.get(), cancelled.get(), hits.get(), misses.get());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.PosConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shadow reconciliation of local discounts against the discount API.
+ *
+ * After the register prices a basket locally, the same basket is sent to the
+ * API in the background and the two answers are compared; the register never
+ * waits for it. Divergences are logged with the local rules version. Calls go
+ * through a circuit breaker with the configured timeouts, so a dead API costs
+ * nothing but a skipped comparison.
+ */
+public class DiscountReconciler {
+    private final boolean enabled;
+    private final String apiUrl;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final CircuitBreaker circuitBreaker;
+
+    // Statistics
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder divergences = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder remoteNanos = new LongAdder();
+    private final AtomicLong maxRemoteNanos = new AtomicLong();
+
+    public DiscountReconciler(PosConfig config) {
+        this.enabled = config.isDiscountShadowEnabled();
+        this.apiUrl = config.getDiscountApiUrl();
+        this.requestTimeout = Duration.ofMillis(config.getDiscountRequestTimeoutMillis());
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.getDiscountConnectTimeoutMillis()))
+                .build();
+        this.objectMapper = new ObjectMapper();
+        this.circuitBreaker = new CircuitBreaker(
+                config.getDiscountBreakerFailureThreshold(),
+                config.getDiscountBreakerOpenSeconds());
+    }
+
+    /**
+     * Compare a local result with the API's answer for the same items, in the
+     * background. Returns immediately; the future completes once the
+     * comparison is recorded (or at once if it is skipped).
+     */
+    public CompletableFuture<Void> reconcile(List<DiscountService.DiscountRequest.Item> items,
+                                             DiscountService.DiscountResponse local, String rulesVersion) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!circuitBreaker.allowRequest()) {
+            skipped.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long start = System.nanoTime();
+        return fetchRemote(items).handle((remote, error) -> {
+            if (error != null) {
+                circuitBreaker.recordFailure();
+                failures.increment();
+                return null;
+            }
+            circuitBreaker.recordSuccess();
+            recordLatency(System.nanoTime() - start);
+
+            compared.increment();
+            String divergence = describeDivergence(local, remote);
+            if (divergence != null) {
+                divergences.increment();
+                System.err.println("Discount divergence (rules v" + rulesVersion + "): " + divergence);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Ask the discount API, with the request deadline applied. Completes
+     * exceptionally on timeout, connection failure or a non-200 status.
+     */
+    public CompletableFuture<DiscountService.DiscountResponse> fetchRemote(
+            List<DiscountService.DiscountRequest.Item> items) {
+        HttpRequest httpRequest;
+        try {
+            DiscountService.DiscountRequest request = new DiscountService.DiscountRequest();
+            request.items = items;
+            httpRequest = HttpRequest.newBuilder()
+                    .uri(URI.create(apiUrl))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(request)))
+                    .build();
+        } catch (IOException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+                .orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(this::parse);
+    }
+
+    private DiscountService.DiscountResponse parse(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new UncheckedIOException(
+                    new IOException("Discount API returned status: " + response.statusCode()));
+        }
+        try {
+            return objectMapper.readValue(response.body(), DiscountService.DiscountResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Null if both answers charge the customer the same; otherwise a one-line
+     * description of the two results.
+     */
+    public static String describeDivergence(DiscountService.DiscountResponse local,
+                                            DiscountService.DiscountResponse remote) {
+        if (local.subtotalCents() == remote.subtotalCents()
+                && local.totalDiscountCents() == remote.totalDiscountCents()
+                && local.totalCents() == remote.totalCents()) {
+            return null;
+        }
+        return "local " + summarize(local) + " vs remote " + summarize(remote);
+    }
+
+    private static String summarize(DiscountService.DiscountResponse response) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("[subtotal $%.2f, discount $%.2f, total $%.2f",
+                response.subtotal, response.totalDiscount, response.total));
+        if (response.appliedDiscounts != null) {
+            for (DiscountService.DiscountResponse.AppliedDiscount discount : response.appliedDiscounts) {
+                sb.append(String.format(", %s $%.2f", discount.ruleName, discount.amount));
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private void recordLatency(long nanos) {
+        remoteNanos.add(nanos);
+        maxRemoteNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getComparedCount() {
+        return compared.sum();
+    }
+
+    public long getDivergenceCount() {
+        return divergences.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public String getStatistics() {
+        long n = compared.sum();
+        return String.format(
+                "Discount reconciliation: %d compared, %d divergent, %d failed, %d skipped (circuit %s)%n" +
+                "  API latency: avg %.1f ms, max %.1f ms",
+                n, divergences.sum(), failures.sum(), skipped.sum(), circuitBreaker.getState(),
+                n == 0 ? 0.0 : remoteNanos.sum() / (n * 1e6), maxRemoteNanos.get() / 1e6);
+    }
+}
@@ -1,98 +1,121 @@
 package org.example.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.PosConfig;
+import org.example.model.Money;
 import org.example.model.Product;
 import org.example.model.Transaction;
+import org.example.promo.PromotionBook;
+import org.example.promo.PromotionSolver;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Prices discounts for a transaction.
+ *
+ * The local rules engine is authoritative, so tendering never waits on the
+ * network. Results are cached by basket fingerprint, and each distinct basket
+ * is also checked against the discount API in the background by
+ * DiscountReconciler.
+ */
 public class DiscountService {
-    private static final String DISCOUNT_API_URL = "http://discount-api-alb-1415305850.ap-southeast-2.elb.amazonaws.com/discount";
-    private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final LocalDiscountEngine engine;
+    private final DiscountReconciler reconciler;
+    private final DiscountCache cache;
 
     public DiscountService() {
-        this.httpClient = HttpClient.newHttpClient();
-        this.objectMapper = new ObjectMapper();
+        this(new PosConfig());
     }
 
-    public DiscountResponse calculateDiscount(Transaction transaction) throws IOException, InterruptedException {
-        // Build request payload
-        DiscountRequest request = new DiscountRequest();
-        request.items = new ArrayList<>();
+    public DiscountService(PosConfig config) {
+        this.engine = createEngine(config);
+        this.reconciler = new DiscountReconciler(config);
+        this.cache = new DiscountCache(config.getDiscountCacheMaxEntries(), config.getDiscountCacheTtlSeconds());
+    }
 
-        for (Product product : transaction.getItems()) {
-            DiscountRequest.Item item = new DiscountRequest.Item();
-            item.upc = product.getUpc();
-            item.description = product.getDescription();
-            item.price = product.getPrice();
-            item.quantity = product.getQuantity();
-            item.category = determineCategory(product);
-            request.items.add(item);
+    private static LocalDiscountEngine createEngine(PosConfig config) {
+        String mode = config.getDiscountPricingMode();
+        if (mode.equals("BEST_PRICE")) {
+            return new LocalDiscountEngine(PromotionBook.getDefault(),
+                    new PromotionSolver(config.getDiscountSolverBudgetMicros()));
         }
-
-        // Serialize request
-        String jsonBody = objectMapper.writeValueAsString(request);
-
-        // Create HTTP request
-        HttpRequest httpRequest = HttpRequest.newBuilder()
-                .uri(URI.create(DISCOUNT_API_URL))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
-
-        // Send request
-        HttpResponse<String> response = httpClient.send(
-                httpRequest,
-                HttpResponse.BodyHandlers.ofString()
-        );
-
-        // Check response status
-        if (response.statusCode() != 200) {
-            throw new IOException("Discount API returned status: " + response.statusCode());
+        if (!mode.equals("PRIORITY")) {
+            System.err.println("Unknown discount.pricing.mode '" + mode + "', using PRIORITY");
         }
-
-        // Parse response
-        return objectMapper.readValue(response.body(), DiscountResponse.class);
+        return LocalDiscountEngine.getDefault();
     }
 
-    private String determineCategory(Product product) {
-        String desc = product.getDescription().toUpperCase();
+    /**
+     * Price the transaction now and queue a shadow check against the API.
+     */
+    public DiscountResponse calculateDiscount(Transaction transaction) {
+        List<DiscountRequest.Item> items = snapshotItems(transaction);
+        DiscountResponse response = price(items);
+        reconcile(items, response);
+        return response;
+    }
 
-        // Beverage keywords
-        if (desc.contains("COKE") || desc.contains("PEPSI") || desc.contains("SPRITE") ||
-                desc.contains("MONSTER") || desc.contains("RED BULL") || desc.contains("GATORADE") ||
-                desc.contains("WATER") || desc.contains("TEA") || desc.contains("COFFEE")) {
-            return "BEVERAGE";
+    /**
+     * Local pricing only (through the cache) - no API traffic. Safe to call
+     * from any thread. The returned response may be shared; do not modify it.
+     */
+    public DiscountResponse price(List<DiscountRequest.Item> items) {
+        String fingerprint = DiscountCache.fingerprint(items, engine.getVersion());
+        DiscountResponse response = cache.get(fingerprint);
+        if (response == null) {
+            response = engine.calculate(items);
+            cache.put(fingerprint, response);
         }
+        return response;
+    }
 
-        // Food keywords
-        if (desc.contains("PIZZA") || desc.contains("HOT DOG") || desc.contains("BURGER") ||
-                desc.contains("SANDWICH") || desc.contains("DONUT") || desc.contains("TAQUITO") ||
-                desc.contains("CROISSANT") || desc.contains("SAUSAGE")) {
-            return "FOOD";
+    /**
+     * Shadow-check a priced basket, once per cached basket.
+     */
+    public void reconcile(List<DiscountRequest.Item> items, DiscountResponse response) {
+        if (cache.markReconciled(DiscountCache.fingerprint(items, engine.getVersion()))) {
+            reconciler.reconcile(items, response, engine.getVersion());
         }
+    }
 
-        // Tobacco keywords
-        if (desc.contains("MARLBORO") || desc.contains("CAMEL") || desc.contains("NEWPORT") ||
-                desc.contains("CIGAR") || desc.contains("VUSE") || desc.contains("JUUL")) {
-            return "TOBACCO";
-        }
+    /**
+     * Forget cached results, e.g. after the pricebook changes.
+     */
+    public void invalidateCache(String reason) {
+        cache.invalidateAll(reason);
+    }
 
-        // Snack keywords
-        if (desc.contains("CHIP") || desc.contains("LAYS") || desc.contains("DORITOS") ||
-                desc.contains("CHEETOS") || desc.contains("SNICKERS") || desc.contains("REESE") ||
-                desc.contains("CANDY") || desc.contains("GUM")) {
-            return "SNACK";
+    /**
+     * Copy of the basket as sent to the API. Call on the thread that owns the transaction.
+     */
+    public static List<DiscountRequest.Item> snapshotItems(Transaction transaction) {
+        List<DiscountRequest.Item> items = new ArrayList<>();
+        for (Product product : transaction.getItems()) {
+            DiscountRequest.Item item = new DiscountRequest.Item();
+            item.upc = product.getUpc();
+            item.description = product.getDescription();
+            item.price = product.getPrice();
+            item.quantity = product.getQuantity();
+            item.category = CategoryClassifier.categoryOf(product);
+            items.add(item);
         }
+        return items;
+    }
+
+    public String getRulesVersion() {
+        return engine.getVersion();
+    }
+
+    public DiscountReconciler getReconciler() {
+        return reconciler;
+    }
+
+    public DiscountCache getCache() {
+        return cache;
+    }
 
-        return "OTHER";
+    public LocalDiscountEngine getEngine() {
+        return engine;
     }
 
     // Request classes
@@ -116,11 +139,32 @@ public class DiscountService {
         public double totalDiscount;
         public List<AppliedDiscount> appliedDiscounts;
 
+        // Cent views of the API's decimal amounts (not JSON properties)
+        public long subtotalCents() {
+            return Money.toCents(subtotal);
+        }
+
+        public long taxCents() {
+            return Money.toCents(tax);
+        }
+
+        public long totalCents() {
+            return Money.toCents(total);
+        }
+
+        public long totalDiscountCents() {
+            return Money.toCents(totalDiscount);
+        }
+
         public static class AppliedDiscount {
             public String ruleName;
             public String description;
             public double amount;
             public List<String> affectedItems;
+
+            public long amountCents() {
+                return Money.toCents(amount);
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,256 @@
+package org.example.service;
+
+import org.example.model.Money;
+import org.example.model.Transaction;
+import org.example.promo.Promotion;
+import org.example.promo.PromotionBook;
+import org.example.promo.PromotionSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-process discount engine; the register's source of truth for discounts.
+ *
+ * Prices baskets with the promotions in discount-rules.txt (see PromotionBook)
+ * and produces the same DiscountResponse the discount API returns, in cents
+ * and in microseconds. The API itself is only called in the background by
+ * DiscountReconciler to check that the two agree.
+ */
+public class LocalDiscountEngine {
+    private static volatile LocalDiscountEngine defaultInstance;
+
+    private final PromotionBook book;
+    private final PromotionSolver solver; // null = priority pricing
+
+    public LocalDiscountEngine(PromotionBook book) {
+        this(book, null);
+    }
+
+    /**
+     * With a solver, items matching several promotions are given whichever
+     * combination saves the customer most; without, each takes its first.
+     */
+    public LocalDiscountEngine(PromotionBook book, PromotionSolver solver) {
+        this.book = book;
+        this.solver = solver;
+    }
+
+    /**
+     * Shared engine over the default PromotionBook, priority pricing.
+     */
+    public static LocalDiscountEngine getDefault() {
+        LocalDiscountEngine instance = defaultInstance;
+        if (instance == null) {
+            synchronized (LocalDiscountEngine.class) {
+                instance = defaultInstance;
+                if (instance == null) {
+                    instance = new LocalDiscountEngine(PromotionBook.getDefault());
+                    defaultInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Price a basket snapshot (the same items that would be sent to the API).
+     */
+    public DiscountService.DiscountResponse calculate(List<DiscountService.DiscountRequest.Item> items) {
+        // One entry per unit that some promotion could price
+        List<Unit> pending = new ArrayList<>();
+        long subtotal = 0;
+        for (int line = 0; line < items.size(); line++) {
+            DiscountService.DiscountRequest.Item item = items.get(line);
+            long priceCents = Money.toCents(item.price);
+            subtotal += priceCents * item.quantity;
+
+            List<Promotion> candidates = book.match(item.upc, item.description, item.category).candidates();
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            for (int i = 0; i < item.quantity; i++) {
+                pending.add(new Unit(line, item.description, priceCents, candidates));
+            }
+        }
+        Promotion[] assignment = assign(pending);
+
+        int count = book.size();
+        long[] matchedCents = new long[count];
+        int[] lastLine = new int[count];
+        List<List<String>> affected = new ArrayList<>(count);
+        List<List<Unit>> units = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            lastLine[p] = -1;
+            affected.add(null);
+            units.add(null);
+        }
+
+        for (int u = 0; u < pending.size(); u++) {
+            Promotion promotion = assignment[u];
+            if (promotion == null) {
+                continue;
+            }
+            Unit unit = pending.get(u);
+            int p = promotion.id();
+            if (affected.get(p) == null) {
+                affected.set(p, new ArrayList<>());
+                units.set(p, new ArrayList<>());
+            }
+            if (promotion.type() == Promotion.Type.PERCENT_OFF) {
+                matchedCents[p] += unit.priceCents();
+                if (lastLine[p] != unit.line()) {
+                    lastLine[p] = unit.line();
+                    affected.get(p).add(unit.description());
+                }
+            } else {
+                units.get(p).add(unit);
+            }
+        }
+
+        List<DiscountService.DiscountResponse.AppliedDiscount> applied = new ArrayList<>();
+        long totalDiscount = 0;
+        for (Promotion promotion : book.getPromotions()) {
+            int p = promotion.id();
+            if (affected.get(p) == null) {
+                continue;
+            }
+            long amount = switch (promotion.type()) {
+                case PERCENT_OFF -> Money.percentOf(matchedCents[p], promotion.basisPoints());
+                case BUY_X_GET_Y -> freeUnits(units.get(p), promotion, affected.get(p));
+                case MIX_AND_MATCH -> groupSavings(units.get(p), promotion, affected.get(p));
+            };
+            if (amount > 0) {
+                applied.add(discount(promotion, amount, affected.get(p)));
+                totalDiscount += amount;
+            }
+        }
+
+        long tax = Money.percentOf(subtotal - totalDiscount, Transaction.TAX_RATE_BASIS_POINTS);
+
+        DiscountService.DiscountResponse response = new DiscountService.DiscountResponse();
+        response.subtotal = Money.toDouble(subtotal);
+        response.totalDiscount = Money.toDouble(totalDiscount);
+        response.tax = Money.toDouble(tax);
+        response.total = Money.toDouble(subtotal - totalDiscount + tax);
+        response.appliedDiscounts = applied;
+        return response;
+    }
+
+    private record Unit(int line, String description, long priceCents, List<Promotion> candidates) {}
+
+    /**
+     * Promotion for each pending unit, in basket order. Priority pricing takes
+     * the first candidate; the solver wants units dearest first, so sort for
+     * it and map the answer back.
+     */
+    private Promotion[] assign(List<Unit> pending) {
+        Promotion[] assignment = new Promotion[pending.size()];
+        if (solver == null) {
+            for (int u = 0; u < assignment.length; u++) {
+                assignment[u] = pending.get(u).candidates().get(0);
+            }
+            return assignment;
+        }
+
+        Integer[] order = new Integer[pending.size()];
+        for (int u = 0; u < order.length; u++) {
+            order[u] = u;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(pending.get(b).priceCents(), pending.get(a).priceCents()));
+
+        long[] priceCents = new long[order.length];
+        List<List<Promotion>> candidates = new ArrayList<>(order.length);
+        for (int i = 0; i < order.length; i++) {
+            Unit unit = pending.get(order[i]);
+            priceCents[i] = unit.priceCents();
+            candidates.add(unit.candidates());
+        }
+
+        Promotion[] solved = solver.solve(priceCents, candidates);
+        for (int i = 0; i < order.length; i++) {
+            assignment[order[i]] = solved[i];
+        }
+        return assignment;
+    }
+
+    /**
+     * Buy X get Y: sort by price descending and make the last (cheapest) Y
+     * units of every full group of X + Y free.
+     */
+    private static long freeUnits(List<Unit> units, Promotion promotion, List<String> affected) {
+        int groupSize = promotion.unitsPerDeal();
+        if (units.size() < groupSize) {
+            return 0;
+        }
+        units.sort((a, b) -> Long.compare(b.priceCents(), a.priceCents()));
+
+        long amount = 0;
+        int fullGroups = units.size() / groupSize;
+        for (int g = 0; g < fullGroups; g++) {
+            for (int i = g * groupSize + promotion.buy(); i < (g + 1) * groupSize; i++) {
+                amount += units.get(i).priceCents();
+                affected.add(units.get(i).description());
+            }
+        }
+        return amount;
+    }
+
+    /**
+     * Mix and match: group the dearest units first, so each group of N saves
+     * as much as possible against the group price.
+     */
+    private static long groupSavings(List<Unit> units, Promotion promotion, List<String> affected) {
+        int groupSize = promotion.unitsPerDeal();
+        units.sort((a, b) -> Long.compare(b.priceCents(), a.priceCents()));
+
+        long amount = 0;
+        for (int start = 0; start + groupSize <= units.size(); start += groupSize) {
+            long groupCents = 0;
+            for (int i = start; i < start + groupSize; i++) {
+                groupCents += units.get(i).priceCents();
+            }
+            if (groupCents <= promotion.groupPriceCents()) {
+                break; // cheaper units only save less
+            }
+            amount += groupCents - promotion.groupPriceCents();
+            for (int i = start; i < start + groupSize; i++) {
+                affected.add(units.get(i).description());
+            }
+        }
+        return amount;
+    }
+
+    private static DiscountService.DiscountResponse.AppliedDiscount discount(Promotion promotion, long amountCents,
+                                                                             List<String> items) {
+        DiscountService.DiscountResponse.AppliedDiscount discount =
+                new DiscountService.DiscountResponse.AppliedDiscount();
+        discount.ruleName = promotion.name();
+        discount.description = promotion.description();
+        discount.amount = Money.toDouble(amountCents);
+        discount.affectedItems = items;
+        return discount;
+    }
+
+    public PromotionBook getBook() {
+        return book;
+    }
+
+    public PromotionSolver getSolver() {
+        return solver;
+    }
+
+    /**
+     * Version line from the rules file, marked when best-price pricing is on
+     * so cached results and reconciliation logs keep the two modes apart.
+     */
+    public String getVersion() {
+        return solver == null ? book.getVersion() : book.getVersion() + "-best";
+    }
+
+    @Override
+    public String toString() {
+        return book + (solver == null ? ", priority pricing" : ", best-price pricing");
+    }
+}
@@ -3,11 +3,15 @@ package org.example.ui;
 import org.example.TransactionDatabase;
 import org.example.ReceiptPrinter;
 import org.example.VirtualJournalClient;
+import org.example.config.PosConfig;
 import org.example.input.ScanGunListener;
 import org.example.model.Product;
 import org.example.model.Transaction;
 import org.example.model.TransactionManager;
+import org.example.promo.Promotion;
+import org.example.service.DiscountPrefetcher;
 import org.example.service.DiscountService;
+import org.example.service.PromoChecker;
 import org.example.ui.components.*;
 import org.example.ui.dialogs.SuspendedTransactionsDialog;
 import org.example.ui.dialogs.VJConfigDialog;
@@ -16,7 +20,9 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.concurrent.CompletionException;
 
 public class RegisterWindow extends JFrame {
     private final TransactionDatabase database;
@@ -24,6 +30,8 @@ public class RegisterWindow extends JFrame {
     private final ReceiptPrinter receiptPrinter;
     private final TransactionManager transactionManager;
     private final DiscountService discountService;
+    private final DiscountPrefetcher discountPrefetcher;
+    private final PromoChecker promoChecker = new PromoChecker();
     private Transaction transaction;
     private CustomerDisplay customerDisplay;
 
@@ -54,10 +62,15 @@ public class RegisterWindow extends JFrame {
 
     public RegisterWindow(VirtualJournalClient vjClient) {
         this.database = new TransactionDatabase();
-        this.receiptPrinter = new ReceiptPrinter();
         this.journal = vjClient;
+        // The printer that renders the journaled receipts, so the number saved with the sale is the one printed
+        this.receiptPrinter = vjClient.getReceiptPrinter();
+        receiptPrinter.setReceiptNumbers(database.getReceiptNumbers());
         this.transactionManager = new TransactionManager(database);
-        this.discountService = new DiscountService();
+        PosConfig posConfig = new PosConfig();
+        this.discountService = new DiscountService(posConfig);
+        this.discountPrefetcher = new DiscountPrefetcher(discountService,
+                posConfig.getDiscountPrefetchDebounceMillis());
         this.transaction = new Transaction();
 
         loadPricebook();
@@ -75,6 +88,13 @@ public class RegisterWindow extends JFrame {
     private void setupShutdownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             journal.logSystem("Shutting down - closing database connection");
+            discountPrefetcher.close();
+            System.out.println(discountPrefetcher.getStatistics());
+            System.out.println(discountService.getCache().getStatistics());
+            if (discountService.getEngine().getSolver() != null) {
+                System.out.println(discountService.getEngine().getSolver().getStatistics());
+            }
+            System.out.println(discountService.getReconciler().getStatistics());
             database.close();
             journal.disconnect();
 
@@ -91,7 +111,8 @@ public class RegisterWindow extends JFrame {
         for (String path : paths) {
             if (new File(path).exists()) {
                 try {
-                    database.loadProductsFromTSV(path);
+                    database.loadPricebook(path);
+                    discountService.invalidateCache("pricebook loaded");
                     journal.logSystem("Loaded pricebook from: " + path);
                     return;
                 } catch (Exception e) {
@@ -130,6 +151,11 @@ public class RegisterWindow extends JFrame {
         reportsItem.addActionListener(e -> openReportsWindow());
         toolsMenu.add(reportsItem);
 
+        JMenuItem priceDeltaItem = new JMenuItem("Apply Price Update...");
+        priceDeltaItem.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        priceDeltaItem.addActionListener(e -> applyPriceDelta());
+        toolsMenu.add(priceDeltaItem);
+
         JMenuItem vjConfigItem = new JMenuItem("VJ Server Settings");
         vjConfigItem.setFont(new Font("SansSerif", Font.PLAIN, 12));
         vjConfigItem.addActionListener(e -> openVJConfig());
@@ -156,6 +182,33 @@ public class RegisterWindow extends JFrame {
         VJConfigDialog.showDialog(this, journal.getConfig());
     }
 
+    private void applyPriceDelta() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setDialogTitle("Select head office price update file");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        String path = chooser.getSelectedFile().getPath();
+        journal.logSystem("Applying price update " + path);
+        database.applyPricebookDelta(path).whenComplete((summary, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                journal.logSystem("Error applying price update: " + cause.getMessage());
+                JOptionPane.showMessageDialog(this,
+                        "Could not apply price update:\n" + cause.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            discountService.invalidateCache("price update");
+            journal.logSystem("Applied price update " + path + ": " + summary);
+            JOptionPane.showMessageDialog(this,
+                    "Price update applied\n\n" + summary,
+                    "Price Update", JOptionPane.INFORMATION_MESSAGE);
+        }));
+    }
+
     private void openReportsWindow() {
         new org.example.ui.ReportsWindow(database);
     }
@@ -335,152 +388,42 @@ public class RegisterWindow extends JFrame {
         }
     }
 
-    // Update the checkForPromoMessages method in RegisterWindow.java
-
     private void checkForPromoMessages(Product product) {
-        String desc = product.getDescription().toUpperCase();
-
         System.out.println("🔍 Checking promos for: " + product.getDescription());
 
-        // Check for BOGO beverages (excluding POLAR POP which has its own promo)
-        if ((desc.contains("COKE") || desc.contains("PEPSI") ||
-                desc.contains("MONSTER") || desc.contains("RED BULL") ||
-                desc.contains("SPRITE") || desc.contains("GATORADE") ||
-                desc.contains("WATER") || desc.contains("ENERGY")) &&
-                !desc.contains("POLAR POP")) {
-
-            long beverageCount = transaction.getItems().stream()
-                    .filter(p -> {
-                        String d = p.getDescription().toUpperCase();
-                        return (d.contains("COKE") || d.contains("PEPSI") ||
-                                d.contains("MONSTER") || d.contains("RED BULL") ||
-                                d.contains("SPRITE") || d.contains("GATORADE") ||
-                                d.contains("WATER") || d.contains("ENERGY")) &&
-                                !d.contains("POLAR POP");
-                    })
-                    .mapToInt(Product::getQuantity)
-                    .sum();
-
-            System.out.println("  → Beverage count: " + beverageCount);
-
-            if (beverageCount % 2 == 1) {
-                // INTERACTIVE PROMO: Offer to add 1 more beverage
-                customerDisplay.showClickablePromo(
-                        "⚡ Add 1 More Beverage for BOGO! ⚡",
-                        (accepted) -> {
-                            if (accepted) {
-                                // Customer clicked - auto-add 1 more of the same beverage
-                                transaction.addItem(product);
-                                updateDisplay();
-                                customerDisplay.updateTransaction(transaction);
-                                journal.logCustomer("✓ Auto-added 1x " + product.getDescription() + " via promo click");
-
-                                // Show confirmation that they now qualify
-                                customerDisplay.showPromo("🎉 BOGO Activated! You Qualify! 🎉", 3000);
-                            } else {
-                                System.out.println("📢 Customer declined beverage BOGO");
-                            }
-                        }
-                );
-            } else if (beverageCount >= 2) {
-                System.out.println("  ✓ BOGO Promo qualified!");
-                customerDisplay.showPromo("🎉 Buy 1 Get 1 on Beverages - You Qualify! 🎉", 5000);
-            }
+        // Only the promotions that apply to this item are evaluated
+        PromoChecker.PromoOpportunity opportunity = promoChecker.checkForPromoOpportunity(product, transaction);
+        if (opportunity == null) {
+            return;
         }
 
-        // Check for Polar Pop Buy 2 Get 1 promotion
-        if (desc.contains("POLAR POP")) {
-            long polarPopCount = transaction.getItems().stream()
-                    .filter(p -> p.getDescription().toUpperCase().contains("POLAR POP"))
-                    .mapToInt(Product::getQuantity)
-                    .sum();
-
-            System.out.println("  → Polar Pop count: " + polarPopCount);
-
-            int remainder = (int) (polarPopCount % 3);
-
-            if (remainder == 1) {
-                // Need 2 more for Buy 2 Get 1
-                customerDisplay.showClickablePromo(
-                        "🥤 Add 2 More Polar Pops - Get 1 FREE! 🥤",
-                        (accepted) -> {
-                            if (accepted) {
-                                transaction.addItem(product, 2);
-                                updateDisplay();
-                                customerDisplay.updateTransaction(transaction);
-                                journal.logCustomer("✓ Auto-added 2x Polar Pop via promo click");
-                                customerDisplay.showPromo("🎁 Buy 2 Get 1 Activated! 🎁", 3000);
-                            } else {
-                                System.out.println("📢 Customer declined Polar Pop promo");
-                            }
-                        }
-                );
-            } else if (remainder == 2) {
-                // Need 1 more for Buy 2 Get 1
-                customerDisplay.showClickablePromo(
-                        "🥤 Add 1 More Polar Pop - Get 1 FREE! 🥤",
-                        (accepted) -> {
-                            if (accepted) {
-                                transaction.addItem(product);
-                                updateDisplay();
-                                customerDisplay.updateTransaction(transaction);
-                                journal.logCustomer("✓ Auto-added 1x Polar Pop via promo click");
-                                customerDisplay.showPromo("🎁 Buy 2 Get 1 Activated! 🎁", 3000);
-                            } else {
-                                System.out.println("📢 Customer declined Polar Pop promo");
-                            }
-                        }
-                );
-            } else if (polarPopCount >= 3 && remainder == 0) {
-                System.out.println("  ✓ Polar Pop Buy 2 Get 1 qualified!");
-                customerDisplay.showPromo("🎁 Buy 2 Get 1 Polar Pop - You Qualify! 🎁", 5000);
-            }
-        }
+        Promotion promotion = opportunity.getPromotion();
+        System.out.println("  → " + promotion.name() + ": " + opportunity.getDescription());
 
-        // Check for Monster specific promotion
-        if (desc.contains("MONSTER")) {
-            long monsterCount = transaction.getItems().stream()
-                    .filter(p -> p.getDescription().toUpperCase().contains("MONSTER"))
-                    .mapToInt(Product::getQuantity)
-                    .sum();
-
-            System.out.println("  → Monster count: " + monsterCount);
-
-            // BOGO means: Buy in pairs (2, 4, 6, etc.) to get discount
-            // If customer has odd number (1, 3, 5, etc.), offer to complete the pair
-            if (monsterCount % 2 == 1) {
-                // Odd number - need 1 more to complete BOGO pair
-                int needMore = 1;
-
-                customerDisplay.showClickablePromo(
-                        "⚡ Add " + needMore + " More Monster for BOGO! Get 1 FREE! ⚡",
-                        (accepted) -> {
-                            if (accepted) {
-                                // Customer clicked - auto-add the remaining Monster(s)
-                                transaction.addItem(product, needMore);
-                                updateDisplay();
-                                customerDisplay.updateTransaction(transaction);
-                                journal.logCustomer("✓ Auto-added " + needMore + "x Monster via BOGO promo click");
-                                customerDisplay.showPromo("🎁 Monster BOGO Activated! 🎁", 3000);
-                            } else {
-                                System.out.println("📢 Customer declined Monster BOGO");
-                            }
+        if (promotion.type() == Promotion.Type.PERCENT_OFF) {
+            customerDisplay.showPromo("💰 " + promotion.description() + "! 💰", 4000);
+        } else if (opportunity.isQualified()) {
+            System.out.println("  ✓ " + promotion.name() + " qualified!");
+            customerDisplay.showPromo("🎁 " + promotion.description() + " - You Qualify! 🎁", 5000);
+        } else {
+            // INTERACTIVE PROMO: Offer to add the units that complete the deal
+            int needed = opportunity.getUnitsNeeded();
+            customerDisplay.showClickablePromo(
+                    "🎁 Add " + needed + " More - " + promotion.description() + "! 🎁",
+                    (accepted) -> {
+                        if (accepted) {
+                            // Customer clicked - auto-add more of the same item
+                            transaction.addItem(product, needed);
+                            updateDisplay();
+                            customerDisplay.updateTransaction(transaction);
+                            journal.logCustomer("✓ Auto-added " + needed + "x " + product.getDescription()
+                                    + " via " + promotion.name() + " promo click");
+                            customerDisplay.showPromo("🎉 " + promotion.description() + " Activated! 🎉", 3000);
+                        } else {
+                            System.out.println("📢 Customer declined " + promotion.name());
                         }
-                );
-            } else if (monsterCount >= 2) {
-                // Even number (2, 4, 6, etc.) - already qualifies for BOGO!
-                System.out.println("  ✓ Monster BOGO promo qualified!");
-                customerDisplay.showPromo("🎁 Monster BOGO - You Qualify! Get 1 FREE! 🎁", 5000);
-            }
-        }
-
-        // Check for food discount (informational only - already applies automatically)
-        if (desc.contains("PIZZA") || desc.contains("HOT DOG") ||
-                desc.contains("BURGER") || desc.contains("DONUT") ||
-                desc.contains("SANDWICH") || desc.contains("TAQUITO") ||
-                desc.contains("FOOD")) {
-            System.out.println("  ✓ Food discount promo triggered!");
-            customerDisplay.showPromo("💰 10% OFF All Food Items! 💰", 4000);
+                    }
+            );
         }
     }
 
@@ -509,9 +452,7 @@ public class RegisterWindow extends JFrame {
 
         scanGunListener.setEnabled(false);
 
-        if (!calculateDiscount()) {
-            return;
-        }
+        calculateDiscount();
 
         // Update customer display with discount info
         customerDisplay.updateWithDiscount(transaction, currentDiscount);
@@ -564,10 +505,17 @@ public class RegisterWindow extends JFrame {
         }
     }
 
-    private boolean calculateDiscount() {
+    private void calculateDiscount() {
         try {
-            journal.logSystem("Calculating discounts...");
-            currentDiscount = discountService.calculateDiscount(transaction);
+            DiscountPrefetcher.Prefetched prefetched = discountPrefetcher.take(transaction);
+            if (prefetched != null) {
+                journal.logSystem("Discounts precomputed (rules v" + discountService.getRulesVersion() + ")");
+                currentDiscount = prefetched.response();
+                discountService.reconcile(prefetched.items(), currentDiscount);
+            } else {
+                journal.logSystem("Calculating discounts (rules v" + discountService.getRulesVersion() + ")...");
+                currentDiscount = discountService.calculateDiscount(transaction);
+            }
 
             if (currentDiscount.totalDiscount > 0) {
                 journal.logSystem(String.format("Discount applied: $%.2f", currentDiscount.totalDiscount));
@@ -579,9 +527,7 @@ public class RegisterWindow extends JFrame {
                 journal.logSystem("No discounts applied");
             }
 
-            return true;
-
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             journal.logSystem("Error calculating discount: " + e.getMessage());
             JOptionPane.showMessageDialog(this,
                     "Could not calculate discounts. Proceeding without discounts.\n\n" +
@@ -594,8 +540,6 @@ public class RegisterWindow extends JFrame {
             currentDiscount.tax = transaction.getTax();
             currentDiscount.total = transaction.getTotal();
             currentDiscount.totalDiscount = 0.0;
-
-            return true;
         }
     }
 
@@ -621,22 +565,36 @@ public class RegisterWindow extends JFrame {
                 currentDiscount
         );
 
-        // Save transaction to database
+        // Save transaction: logged locally now, written to the database in the background
         try {
-            long txId = database.saveTransaction(
+            long logId = database.recordSale(
                     transaction,
                     paymentType,
                     tendered,
                     change,
-                    "COMPLETED",
                     receiptPrinter.getReceiptNumber(),
                     discount,
                     currentDiscount
             );
-            journal.logSystem("Transaction saved to database (ID: " + txId + ")");
-        } catch (SQLException e) {
-            journal.logSystem("ERROR: Failed to save transaction - " + e.getMessage());
-            e.printStackTrace();
+            journal.logSystem("Transaction logged for database (log #" + logId + ")");
+        } catch (IOException logError) {
+            journal.logSystem("WARNING: Sale log failed, saving directly - " + logError.getMessage());
+            try {
+                long txId = database.saveTransaction(
+                        transaction,
+                        paymentType,
+                        tendered,
+                        change,
+                        "COMPLETED",
+                        receiptPrinter.getReceiptNumber(),
+                        discount,
+                        currentDiscount
+                );
+                journal.logSystem("Transaction saved to database (ID: " + txId + ")");
+            } catch (SQLException e) {
+                journal.logSystem("ERROR: Failed to save transaction - " + e.getMessage());
+                e.printStackTrace();
+            }
         }
 
         if (change > 0) {
@@ -1042,6 +1000,7 @@ public class RegisterWindow extends JFrame {
 
     private void updateDisplay() {
         itemsPanel.updateItems(transaction.getItems());
+        discountPrefetcher.basketChanged(transaction);
 
         if (currentDiscount == null) {
             totalPanel.updateTotals(
@@ -0,0 +1,52 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.Transaction;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Time and bytes allocated per receipt for a 100-line basket, rendered into
+ * a reused builder. Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class ReceiptBenchmark {
+    private static final int LINES = 100;
+    private static final int RECEIPTS = 100_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    void renderReceipt() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        Transaction transaction = new Transaction();
+        for (int i = 0; i < LINES; i++) {
+            transaction.addItem(Product.ofCents(String.format("0490000%05d", i), "GROCERY ITEM NUMBER " + i,
+                    99 + i * 37L, "GROCERY"), 1 + i % 3);
+        }
+        ReceiptPrinter printer = new ReceiptPrinter();
+        StringBuilder out = new StringBuilder(16 * 1024);
+
+        System.out.println("Receipt rendering, " + LINES + "-line basket, " + RECEIPTS + " receipts");
+        double bytesPerReceipt = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < RECEIPTS; i++) {
+                out.setLength(0);
+                printer.appendReceipt(out, transaction, "CASH", 500.0, 12.34, null);
+            }
+            long nanos = System.nanoTime() - start;
+            bytesPerReceipt = (double) (threads.getCurrentThreadAllocatedBytes() - allocated) / RECEIPTS;
+            System.out.printf("  Round %d%s: %8.2f us/receipt %8.1f bytes/receipt (%d chars)%n", round,
+                    round < ROUNDS ? " (warm-up)" : "", nanos / 1000.0 / RECEIPTS, bytesPerReceipt, out.length());
+        }
+        // Only the clock reading allocates; a String per line would be kilobytes
+        assertTrue(bytesPerReceipt < 1024, "rendering allocates " + bytesPerReceipt + " bytes/receipt");
+    }
+}
@@ -0,0 +1,175 @@
+package org.example;
+
+import org.example.config.PosConfig;
+import org.example.model.Money;
+import org.example.model.Product;
+import org.example.model.Transaction;
+import org.example.sales.SequenceService;
+import org.example.service.DiscountService;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Receipts from ReceiptTemplate against golden copies of what the
+ * String.format renderer printed for the same sales, in
+ * src/test/resources/org/example/receipts. The date and time are masked.
+ */
+class ReceiptPrinterTest {
+
+    /**
+     * One sale and the receipt number it gets.
+     */
+    record Sale(String name, int receiptNumber, Transaction transaction, String paymentType,
+                double tendered, double change, DiscountService.DiscountResponse discounts) {}
+
+    static List<Sale> sales() {
+        Transaction groceries = basket(
+                item("049000028911", "COKE 20OZ", 229, 1),
+                item("028400090858", "DORITOS NACHO CHEESE", 199, 2),
+                item("070847811169", "MONSTER ENERGY 16OZ", 329, 3));
+        Transaction exact = basket(item("012345678905", "ORGANIC WHOLE MILK 1GAL", 499, 1));
+        Transaction combo = basket(
+                item("000000000101", "POLAR POP 32OZ", 99, 2),
+                item("000000000202", "PIZZA SLICE", 299, 2),
+                item("000000000303", "HOT DOG QUARTER POUND ALL BEEF", 249, 1));
+        Transaction unicode = basket(
+                item("041196010657", "CRÈME BRÛLÉE 4OZ", 349, 1),
+                item("490123456789", "日本茶 緑茶 500ML", 275, 2),
+                item("071921001122", "JALAPEÑO POPPERS FAMILY SIZE 24CT", 1099, 1),
+                item("000000000404", "🍕 PIZZA SLICE PEPPERONI", 399, 1));
+
+        return List.of(
+                cash("cash-change", 1, groceries, 50.00),
+                cash("cash-exact", 42, exact, Money.toDouble(exact.getTotalCents())),
+                new Sale("credit-discounts", 9999, combo, "CREDIT", 0, 0, discounts(combo,
+                        discount("POLAR POP 2 FOR $1.50", 48, "POLAR POP 32OZ", "POLAR POP 32OZ"),
+                        discount("PIZZA AND FOUNTAIN DRINK COMBO DEAL", 100, "PIZZA SLICE",
+                                "HOT DOG QUARTER POUND ALL BEEF - CHILI CHEESE ONION"))),
+                new Sale("debit-unicode", 10000, unicode, "DEBIT", 0, 0, null),
+                cashWithDiscounts("cash-discounts", 123456, unicode, 50.00,
+                        discount("CAFÉ SPECIAL – 10% OFF", 35, "CRÈME BRÛLÉE 4OZ")));
+    }
+
+    private static Product item(String upc, String description, long priceCents, int quantity) {
+        Product product = Product.ofCents(upc, description, priceCents, "OTHER");
+        product.setQuantity(quantity);
+        return product;
+    }
+
+    private static Transaction basket(Product... items) {
+        Transaction transaction = new Transaction();
+        for (Product item : items) {
+            transaction.addItem(item, item.getQuantity());
+        }
+        return transaction;
+    }
+
+    private static Sale cash(String name, int receiptNumber, Transaction transaction, double tendered) {
+        double change = Money.toDouble(Money.toCents(tendered) - transaction.getTotalCents());
+        return new Sale(name, receiptNumber, transaction, "CASH", tendered, change, null);
+    }
+
+    private static Sale cashWithDiscounts(String name, int receiptNumber, Transaction transaction, double tendered,
+                                          DiscountService.DiscountResponse.AppliedDiscount... applied) {
+        DiscountService.DiscountResponse response = discounts(transaction, applied);
+        double change = Money.toDouble(Money.toCents(tendered) - response.totalCents());
+        return new Sale(name, receiptNumber, transaction, "CASH", tendered, change, response);
+    }
+
+    private static DiscountService.DiscountResponse.AppliedDiscount discount(String description, long cents,
+                                                                             String... affectedItems) {
+        DiscountService.DiscountResponse.AppliedDiscount discount = new DiscountService.DiscountResponse.AppliedDiscount();
+        discount.ruleName = description.toLowerCase().replace(' ', '_');
+        discount.description = description;
+        discount.amount = Money.toDouble(cents);
+        discount.affectedItems = List.of(affectedItems);
+        return discount;
+    }
+
+    private static DiscountService.DiscountResponse discounts(Transaction transaction,
+                                                              DiscountService.DiscountResponse.AppliedDiscount... applied) {
+        long discountCents = 0;
+        for (DiscountService.DiscountResponse.AppliedDiscount discount : applied) {
+            discountCents += discount.amountCents();
+        }
+        long subtotal = transaction.getSubtotalCents();
+        long tax = Money.percentOf(subtotal - discountCents, 700);
+        DiscountService.DiscountResponse response = new DiscountService.DiscountResponse();
+        response.subtotal = Money.toDouble(subtotal);
+        response.totalDiscount = Money.toDouble(discountCents);
+        response.tax = Money.toDouble(tax);
+        response.total = Money.toDouble(subtotal - discountCents + tax);
+        response.appliedDiscounts = List.of(applied);
+        return response;
+    }
+
+    /**
+     * Replace the date and time, checking they have the expected shape.
+     */
+    static String maskClock(String receipt) {
+        return receipt.replaceFirst("(?m)^Date: \\d{2}/\\d{2}/\\d{4}", "Date: MM/DD/YYYY")
+                .replaceFirst("(?m)^Time: \\d{2}:\\d{2}:\\d{2}$", "Time: HH:MM:SS");
+    }
+
+    private static String golden(String name) throws IOException {
+        try (InputStream in = ReceiptPrinterTest.class.getResourceAsStream("receipts/" + name + ".txt")) {
+            assertNotNull(in, "missing golden receipt " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static ReceiptPrinter printer(int firstReceiptNumber) throws SQLException {
+        Properties ids = new Properties();
+        ids.setProperty("register.id", "REG-001");
+        ids.setProperty("cashier.id", "OPERATOR01");
+        ReceiptPrinter printer = new ReceiptPrinter(new PosConfig(ids));
+        SequenceService sequences = new SequenceService("REG-001",
+                (register, name, size) -> firstReceiptNumber + size - 1L, 100);
+        printer.setReceiptNumbers(sequences.open(SequenceService.RECEIPT));
+        return printer;
+    }
+
+    @Test
+    void receiptsMatchGoldenOutput() throws IOException, SQLException {
+        for (Sale sale : sales()) {
+            ReceiptPrinter printer = printer(sale.receiptNumber());
+            String receipt = printer.generateReceipt(sale.transaction(), sale.paymentType(), sale.tendered(),
+                    sale.change(), sale.discounts());
+
+            assertEquals(golden(sale.name()), maskClock(receipt), sale.name());
+            assertEquals(sale.receiptNumber(), printer.getReceiptNumber(), sale.name());
+        }
+    }
+
+    @Test
+    void appendReceiptWritesTheSameText() throws SQLException {
+        for (Sale sale : sales()) {
+            String generated = printer(sale.receiptNumber()).generateReceipt(sale.transaction(), sale.paymentType(),
+                    sale.tendered(), sale.change(), sale.discounts());
+            StringBuilder out = new StringBuilder("BEFORE\n");
+            printer(sale.receiptNumber()).appendReceipt(out, sale.transaction(), sale.paymentType(),
+                    sale.tendered(), sale.change(), sale.discounts());
+
+            assertTrue(out.toString().startsWith("BEFORE\n"), sale.name());
+            assertEquals(maskClock(generated), maskClock(out.substring("BEFORE\n".length())), sale.name());
+        }
+    }
+
+    @Test
+    void receiptNumbersPastFourDigitsAreNotCut() throws SQLException {
+        ReceiptPrinter printer = printer(9998);
+        Transaction transaction = basket(item("012345678905", "ORGANIC WHOLE MILK 1GAL", 499, 1));
+        for (String expected : new String[]{"9998", "9999", "10000", "10001"}) {
+            String receipt = printer.generateReceipt(transaction, "CREDIT", 0, 0);
+            assertTrue(receipt.contains(" Receipt #: " + expected + "\n"), receipt);
+        }
+    }
+}
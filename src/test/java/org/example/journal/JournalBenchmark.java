@@ -0,0 +1,107 @@
+package org.example.journal;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes allocated and time per journal event on the logging thread, for the
+ * old String.format path, the JournalEvent convenience methods, and an
+ * encoder feeding the writer's ring; then for rendering a line on the writer
+ * or console thread. Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class JournalBenchmark {
+    private static final int EVENTS = 1_000_000;
+    private static final int ROUNDS = 3;
+
+    private interface Step {
+        void run(int i) throws IOException;
+    }
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void allocationPerEvent() throws IOException {
+        DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+        EventRing ring = new EventRing(4096);
+        EventRing.Handler discard = (event, offset, length) -> { };
+        Thread drainer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (!ring.poll(discard)) {
+                        LockSupport.parkNanos(50_000);
+                    }
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "benchmark-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        JournalEncoder encoder = new JournalEncoder();
+        JournalRenderer renderer = new JournalRenderer();
+        OutputStream sink = OutputStream.nullOutputStream();
+        byte[] sample = new JournalEncoder().scan(System.currentTimeMillis(), "SCAN", "012345678905",
+                "ORGANIC WHOLE MILK 1GAL", 499).toByteArray();
+        String[] sinks = new String[1];
+
+        System.out.println("Journal event cost over " + EVENTS + " scans (bytes are allocated on the measured thread)");
+        double ringBytes = 0;
+        double renderBytes = 0;
+        try {
+            for (int round = 1; round <= ROUNDS; round++) {
+                System.out.println("Round " + round + (round < ROUNDS ? " (warm-up)" : ""));
+                measure("String.format (before)", i -> {
+                    String message = String.format("%s | UPC: %s | Desc: %s | Price: $%.2f",
+                            "SCAN", "012345678905", "ORGANIC WHOLE MILK 1GAL", 4.99 + (i & 7));
+                    sinks[0] = String.format("[%s] %s", LocalDateTime.now().format(timeFormat), message);
+                });
+                measure("JournalEvent.scan + render", i -> {
+                    byte[] event = JournalEvent.scan(System.currentTimeMillis(), "SCAN", "012345678905",
+                            "ORGANIC WHOLE MILK 1GAL", 499 + (i & 7));
+                    sinks[0] = JournalEvent.render(event);
+                });
+                ringBytes = measure("encoder + ring (EDT path)", i -> {
+                    encoder.scan(System.currentTimeMillis(), "SCAN", "012345678905", "ORGANIC WHOLE MILK 1GAL",
+                            499 + (i & 7));
+                    while (!ring.offer(encoder.buffer(), 0, encoder.length())) {
+                        Thread.onSpinWait();
+                    }
+                });
+                renderBytes = measure("renderer.writeLine", i -> renderer.writeLine(sample, sink));
+            }
+        } finally {
+            drainer.interrupt();
+        }
+
+        // Warmed up, the register and writer paths allocate nothing per event
+        assertTrue(ringBytes < 1, "encoder + ring allocates " + ringBytes + " bytes/event");
+        assertTrue(renderBytes < 1, "renderer.writeLine allocates " + renderBytes + " bytes/event");
+    }
+
+    /**
+     * Run the step EVENTS times and print its cost; returns the bytes allocated per event.
+     */
+    private double measure(String name, Step step) throws IOException {
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            step.run(i);
+        }
+        long nanos = System.nanoTime() - start;
+        double bytesPerEvent = (double) (threads.getCurrentThreadAllocatedBytes() - allocated) / EVENTS;
+        System.out.printf("  %-28s %8.2f bytes/event %8.1f ns/event%n", name, bytesPerEvent, (double) nanos / EVENTS);
+        return bytesPerEvent;
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.journal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Frames encoded by JournalProtocol decode back to what was sent, and HELLO
+ * lines round-trip and are refused when malformed.
+ */
+class JournalProtocolTest {
+
+    private static List<byte[]> events(int count) {
+        List<byte[]> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(JournalEvent.scan(1_700_000_000_000L + i, "SCAN", "012345678905",
+                    "ORGANIC WHOLE MILK 1GAL", 499 + i));
+        }
+        return events;
+    }
+
+    /**
+     * Decode a frame the way the server does: from a slice after the length and kind.
+     */
+    private static JournalProtocol.Batch decode(byte[] frame) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        assertEquals(frame.length - 4, buffer.getInt(0));
+        assertEquals(JournalProtocol.FRAME_BATCH, buffer.get(4));
+        Inflater inflater = new Inflater();
+        try {
+            return JournalProtocol.decodeBatch(buffer.slice(5, frame.length - 5), inflater);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void assertBatch(long firstSequence, List<byte[]> expected, JournalProtocol.Batch batch) {
+        assertEquals(firstSequence, batch.firstSequence());
+        assertEquals(firstSequence + expected.size() - 1, batch.lastSequence());
+        assertEquals(expected.size(), batch.events().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), batch.events().get(i));
+        }
+    }
+
+    @Test
+    void batchesRoundTripDeflatedAndRaw() throws IOException {
+        List<byte[]> events = events(200);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            byte[] deflated = JournalProtocol.encodeBatch(41, events, deflater);
+            byte[] raw = JournalProtocol.encodeBatch(41, events, null);
+            assertEquals(JournalProtocol.FLAG_DEFLATED, deflated[5]);
+            assertEquals(0, raw[5]);
+            assertTrue(deflated.length < raw.length / 2, "repetitive events compress");
+
+            assertBatch(41, events, decode(deflated));
+            assertBatch(41, events, decode(raw));
+
+            // The connection's deflater is reused for the next batch
+            assertBatch(241, events.subList(0, 3), decode(JournalProtocol.encodeBatch(241, events.subList(0, 3),
+                    deflater)));
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Test
+    void emptyBatchRoundTrips() throws IOException {
+        Deflater deflater = new Deflater();
+        try {
+            byte[] frame = JournalProtocol.encodeBatch(7, List.of(), deflater);
+            assertEquals(0, frame[5], "nothing to gain from deflating nothing");
+            JournalProtocol.Batch batch = decode(frame);
+            assertEquals(7, batch.firstSequence());
+            assertTrue(batch.events().isEmpty());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Test
+    void corruptDeflatedBatchIsRefused() {
+        byte[] frame = JournalProtocol.encodeBatch(1, events(50), new Deflater());
+        frame[frame.length - 10] ^= 0x5A;
+        frame[frame.length - 20] ^= 0x5A;
+        assertThrows(IOException.class, () -> decode(frame));
+    }
+
+    @Test
+    void acknowledgementsRoundTrip() throws IOException {
+        ByteBuffer frames = ByteBuffer.allocate(3 * JournalProtocol.ACK_FRAME_BYTES);
+        for (long sequence : new long[]{1, 123_456_789_012L, Long.MAX_VALUE}) {
+            ByteBuffer ack = JournalProtocol.ackFrame(sequence);
+            assertEquals(JournalProtocol.ACK_FRAME_BYTES, ack.remaining());
+            frames.put(ack);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frames.array()));
+        assertEquals(1, JournalProtocol.readAck(in));
+        assertEquals(123_456_789_012L, JournalProtocol.readAck(in));
+        assertEquals(Long.MAX_VALUE, JournalProtocol.readAck(in));
+
+        // A batch where an ACK is expected
+        byte[] batch = JournalProtocol.encodeBatch(1, events(1), null);
+        assertThrows(IOException.class,
+                () -> JournalProtocol.readAck(new DataInputStream(new ByteArrayInputStream(batch))));
+    }
+
+    @Test
+    void helloRoundTrips() {
+        for (JournalProtocol.Hello hello : new JournalProtocol.Hello[]{
+                new JournalProtocol.Hello(1, "REG-001", true, 1_718_000_000_000L),
+                new JournalProtocol.Hello(1, "REG-002", false, 0),
+                new JournalProtocol.Hello(2, "LANE_7", true, 0)}) {
+            assertEquals(hello, JournalProtocol.Hello.parse(hello.toLine()));
+        }
+        // Options this version does not know are skipped
+        assertEquals(new JournalProtocol.Hello(1, "REG-001", false, 5),
+                JournalProtocol.Hello.parse("  binary/1 window=64 register=REG-001 spool=5 tls=off "));
+    }
+
+    @Test
+    void malformedHelloIsRefused() {
+        for (String text : new String[]{"", "   ", "register=REG-001", "binary/ register=REG-001",
+                "binary/one register=REG-001", "binary/1 register=REG-001 spool=soon",
+                "binary/1 register=", "binary/99999999999 register=REG-001"}) {
+            assertThrows(IllegalArgumentException.class, () -> JournalProtocol.Hello.parse(text), text);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.journal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every event encoded by JournalEncoder and rendered by JournalRenderer must
+ * read exactly like the line VirtualJournalClient used to build with
+ * String.format("[%s] %s", time, message).
+ */
+class JournalRendererTest {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private static final String[] TEXTS = {
+            "ORGANIC WHOLE MILK 1GAL", "", "CRÈME BRÛLÉE", "日本茶 500ML", "🍕 PIZZA SLICE",
+            "PIPE | AND 100% \"QUOTES\"", "TAB\tAND\\BACKSLASH"};
+    private static final long[] CENTS = {0, 1, 5, 99, 100, 499, 123_456, 99_999_999, -5, -1_250};
+
+    private final JournalEncoder encoder = new JournalEncoder();
+    private final JournalRenderer renderer = new JournalRenderer();
+
+    /**
+     * The previous line for a message: "[HH:mm:ss.SSS] message".
+     */
+    private static String before(long millis, String message) {
+        String time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault())
+                .format(TIME_FORMAT);
+        return String.format("[%s] %s", time, message);
+    }
+
+    private static double dollars(long cents) {
+        return cents / 100.0;
+    }
+
+    private String render(JournalEncoder encoded) {
+        return renderer.render(encoded.buffer(), 0, encoded.length(), new StringBuilder()).toString();
+    }
+
+    private void assertLine(String expected, JournalEncoder encoded) throws IOException {
+        byte[] event = encoded.toByteArray();
+        assertEquals(expected, render(encoded));
+        assertEquals(expected, JournalEvent.render(event));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int bytes = renderer.writeLine(event, out);
+        byte[] line = (expected + "\n").getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(line, out.toByteArray());
+        assertEquals(line.length, bytes);
+    }
+
+    @Test
+    void everyEventMatchesTheFormattedLine() throws IOException {
+        Random random = new Random(21);
+        for (int i = 0; i < 2_000; i++) {
+            long millis = randomMillis(random);
+            String text = TEXTS[random.nextInt(TEXTS.length)];
+            String other = TEXTS[random.nextInt(TEXTS.length)];
+            long cents = CENTS[random.nextInt(CENTS.length)];
+            int quantity = random.nextInt(100) - 1;
+
+            assertLine(before(millis, String.format(Locale.ROOT, "%s | UPC: %s | Desc: %s | Price: $%.2f",
+                            "SCAN", "012345678905", text, dollars(cents))),
+                    encoder.scan(millis, "SCAN", "012345678905", text, cents));
+            assertLine(before(millis, String.format("%s | UPC: %s | NOT FOUND", "MANUAL", other)),
+                    encoder.scan(millis, "MANUAL", other, null, cents));
+            assertLine(before(millis, String.format(Locale.ROOT, "QUICK_KEY | Desc: %s | Price: $%.2f",
+                            text, dollars(cents))),
+                    encoder.quickKey(millis, text, cents));
+            assertLine(before(millis, String.format(Locale.ROOT, "VOID_ITEM | UPC: %s | Qty: %d | Desc: %s | Total: $%.2f",
+                            other, quantity, text, dollars(cents))),
+                    encoder.voidItem(millis, other, quantity, text, cents));
+            assertLine(before(millis, String.format("QTY_CHANGE | UPC: %s | Desc: %s | Old Qty: %d | New Qty: %d",
+                            other, text, quantity, quantity + 1)),
+                    encoder.quantityChange(millis, other, text, quantity, quantity + 1));
+            assertLine(before(millis, String.format(Locale.ROOT,
+                            "TENDER | Type: %s | Subtotal: $%.2f | Tax: $%.2f | Total: $%.2f | Tendered: $%.2f | Change: $%.2f",
+                            "CASH", dollars(cents), dollars(7), dollars(cents + 7), dollars(100_000), dollars(0))),
+                    encoder.tender(millis, "CASH", cents, 7, cents + 7, 100_000, 0));
+            assertLine(before(millis, String.format(Locale.ROOT, "TRANSACTION | %s | Total: $%.2f",
+                            text, dollars(cents))),
+                    encoder.transaction(millis, text, cents));
+            assertLine(before(millis, String.format("SYSTEM | %s", text)), encoder.system(millis, text));
+            assertLine(before(millis, String.format("CUSTOMER | %s", text)), encoder.customer(millis, text));
+            assertLine(before(millis, "RECEIPT PRINTING"), encoder.receiptPrinting(millis));
+        }
+    }
+
+    @Test
+    void nullStringsRenderAsFormatDid() throws IOException {
+        long millis = 1_700_000_000_123L;
+        assertLine(before(millis, String.format("SYSTEM | %s", (Object) null)), encoder.system(millis, null));
+        assertLine(before(millis, String.format(Locale.ROOT, "QUICK_KEY | Desc: %s | Price: $%.2f", null, 1.0)),
+                encoder.quickKey(millis, null, 100));
+    }
+
+    @Test
+    void receiptIsPrintedAsIs() throws IOException {
+        String receipt = "       CLYDE'S STORE\n----------\n1   CRÈME BRÛLÉE    4.99\n";
+        JournalEncoder encoded = encoder.receipt(1_700_000_000_000L, receipt);
+        assertEquals(receipt, render(encoded));
+        assertEquals(receipt, JournalEvent.render(encoded.toByteArray()));
+    }
+
+    /**
+     * Back-to-back events in one buffer, as the binary protocol batches them.
+     */
+    @Test
+    void renderConsumesOneEventFromABuffer() {
+        ByteBuffer events = ByteBuffer.allocate(4096);
+        List<String> expected = new ArrayList<>();
+        long millis = 1_700_000_000_000L;
+        for (int i = 0; i < TEXTS.length; i++, millis += 333) {
+            events.put(encoder.customer(millis, TEXTS[i]).toByteArray());
+            expected.add(before(millis, "CUSTOMER | " + TEXTS[i]));
+        }
+        events.flip();
+
+        for (String line : expected) {
+            assertEquals(line, renderer.render(events, new StringBuilder()).toString());
+        }
+        assertFalse(events.hasRemaining());
+    }
+
+    /**
+     * Times before 1970 and up to 2100, clustered so the renderer's cached
+     * second is both reused and replaced, with the millis at their extremes.
+     */
+    private static long randomMillis(Random random) {
+        long base = -315_619_200_000L + (long) (random.nextDouble() * 4_417_200_000_000L);
+        return switch (random.nextInt(4)) {
+            case 0 -> base - Math.floorMod(base, 1000L);
+            case 1 -> base - Math.floorMod(base, 1000L) + 999;
+            case 2 -> 1_700_000_000_000L + random.nextInt(3_000);
+            default -> base;
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Entries written, partly acknowledged and compacted must come back after a
+ * reopen as exactly the unacknowledged ones, in order, under the same epoch.
+ */
+class JournalSpoolTest {
+    private static final int SEGMENT_BYTES = 4096;
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private JournalSpool open() throws IOException {
+        return new JournalSpool(dir, SEGMENT_BYTES, MAX_BYTES);
+    }
+
+    private static byte[] payload(long sequence) {
+        // Varying lengths, so records straddle segment ends at odd offsets
+        int padding = new Random(sequence).nextInt(300);
+        return ("entry " + sequence + " " + "x".repeat(padding)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".spool")).count();
+        }
+    }
+
+    /**
+     * Everything after the sequence, read in small batches as the writer does.
+     */
+    private static List<JournalSpool.Entry> readAll(JournalSpool spool, long after) {
+        List<JournalSpool.Entry> all = new ArrayList<>();
+        List<JournalSpool.Entry> batch;
+        while (!(batch = spool.read(after, 7)).isEmpty()) {
+            all.addAll(batch);
+            after = batch.get(batch.size() - 1).sequence();
+        }
+        return all;
+    }
+
+    private static void assertEntries(long first, long last, List<JournalSpool.Entry> entries) {
+        assertEquals(last - first + 1, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            long sequence = first + i;
+            assertEquals(sequence, entries.get(i).sequence());
+            assertArrayEquals(payload(sequence), entries.get(i).payload(), "entry #" + sequence);
+        }
+    }
+
+    @Test
+    void onlyUnacknowledgedEntriesSurviveAReopen() throws IOException {
+        long epoch;
+        try (JournalSpool spool = open()) {
+            epoch = spool.getEpoch();
+            for (long sequence = 1; sequence <= 500; sequence++) {
+                assertEquals(sequence, spool.append(payload(sequence)));
+            }
+            assertEntries(1, 500, readAll(spool, 0));
+
+            long before = segmentFiles();
+            spool.acknowledge(317);
+            assertTrue(segmentFiles() < before, "acknowledged segments are deleted");
+            assertEquals(183, spool.getPendingCount());
+            assertEntries(318, 500, readAll(spool, spool.getAcknowledged()));
+        }
+
+        try (JournalSpool spool = open()) {
+            assertEquals(epoch, spool.getEpoch());
+            assertEquals(317, spool.getAcknowledged());
+            assertEquals(500, spool.getLastSequence());
+            assertEntries(318, 500, readAll(spool, spool.getAcknowledged()));
+
+            // Numbering carries on after the recovered entries
+            assertEquals(501, spool.append(payload(501)));
+            assertEntries(318, 501, readAll(spool, 317));
+        }
+    }
+
+    @Test
+    void fullyAcknowledgedSpoolKeepsItsNumbering() throws IOException {
+        try (JournalSpool spool = open()) {
+            for (long sequence = 1; sequence <= 200; sequence++) {
+                spool.append(payload(sequence));
+            }
+            spool.acknowledge(200);
+            assertEquals(0, spool.getPendingCount());
+        }
+
+        try (JournalSpool spool = open()) {
+            assertEquals(200, spool.getLastSequence());
+            assertTrue(readAll(spool, 200).isEmpty());
+            assertEquals(201, spool.append(payload(201)));
+        }
+        try (JournalSpool spool = open()) {
+            assertEntries(201, 201, readAll(spool, spool.getAcknowledged()));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package org.example.journal.server;
+
+import org.example.config.VJConfig;
+import org.example.journal.JournalEvent;
+import org.example.journal.JournalProtocol;
+import org.example.journal.JournalSpool;
+import org.example.journal.JournalWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A JournalServer and its registers in one process, both restarted along the
+ * way, checking that every event ends up in the journal exactly once: resent
+ * batches are skipped, a reset spool (new epoch) numbers from #1 again, and
+ * an ACK is only sent once what it covers can be read back from disk.
+ */
+class JournalServerTest {
+    private static final String REGISTER = "REG-001";
+
+    @TempDir
+    Path dir;
+
+    private Path journalDirectory() {
+        return dir.resolve("journal");
+    }
+
+    private JournalServer server() throws IOException {
+        return new JournalServer(new InetSocketAddress("127.0.0.1", 0), journalDirectory(), 1024 * 1024,
+                TimeUnit.HOURS.toMillis(1), 0);
+    }
+
+    private static JournalWriter writer(JournalServer server, Path spool) throws InterruptedException {
+        Properties settings = new Properties();
+        settings.setProperty("vj.server.host", "127.0.0.1");
+        settings.setProperty("vj.server.port", String.valueOf(server.getPort()));
+        settings.setProperty("vj.spool.dir", spool.toString());
+        settings.setProperty("vj.protocol", "AUTO");
+        settings.setProperty("vj.batch.max-entries", "16"); // several batches per run
+        JournalWriter writer = new JournalWriter(new VJConfig(settings), REGISTER, null);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!writer.isConnected()) {
+            assertTrue(System.nanoTime() < deadline, "writer did not connect");
+            Thread.sleep(10);
+        }
+        return writer;
+    }
+
+    /**
+     * Submit the events and close the writer, which waits for the server's ACKs.
+     */
+    private static void deliver(JournalWriter writer, Path spool, List<String> messages) throws IOException {
+        for (String message : messages) {
+            writer.submit(JournalEvent.system(System.currentTimeMillis(), message));
+        }
+        writer.close(TimeUnit.SECONDS.toMillis(10));
+        try (JournalSpool reopened = new JournalSpool(spool, 1024 * 1024, 64L * 1024 * 1024)) {
+            assertEquals(0, reopened.getPendingCount(), "unacknowledged entries left in " + spool);
+        }
+    }
+
+    private static List<String> messages(String prefix, int from, int to) {
+        List<String> messages = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            messages.add(prefix + i);
+        }
+        return messages;
+    }
+
+    @SafeVarargs
+    private static List<String> concat(List<String>... parts) {
+        List<String> all = new ArrayList<>();
+        for (List<String> part : parts) {
+            all.addAll(part);
+        }
+        return all;
+    }
+
+    /**
+     * The messages stored for a register, in segment order, reading an
+     * unfinished segment up to its last flush as JournalIndex does.
+     */
+    private List<String> stored(String register) throws IOException {
+        Path directory = RegisterJournal.directoryFor(journalDirectory(), register);
+        List<String> messages = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve(RegisterJournal.INDEX_FILE))) {
+            String[] fields = line.split("\t");
+            if (!fields[0].equals("segment")) {
+                continue;
+            }
+            ByteArrayOutputStream text = new ByteArrayOutputStream();
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(fields[1])))) {
+                in.transferTo(text);
+            } catch (EOFException e) {
+                // Still being written
+            }
+            for (String stored : text.toString(StandardCharsets.UTF_8).split("\n")) {
+                if (!stored.isEmpty()) {
+                    messages.add(stored.substring(stored.indexOf("SYSTEM | ") + "SYSTEM | ".length()));
+                }
+            }
+        }
+        return messages;
+    }
+
+    @Test
+    void restartedServerAndRegisterStoreEachEventOnce() throws IOException, InterruptedException {
+        Path spool = dir.resolve("spool");
+        List<String> first = messages("EVENT ", 1, 100);
+        List<String> second = messages("EVENT ", 101, 150);
+        List<String> afterReset = messages("EVENT ", 151, 170);
+        List<String> last = messages("EVENT ", 171, 180);
+
+        try (JournalServer server = server()) {
+            deliver(writer(server, spool), spool, first);
+            // The ACKs have arrived, so the entries must be readable while the server still runs
+            assertEquals(first, stored(REGISTER));
+        }
+
+        Path resetSpool = dir.resolve("spool-reset");
+        try (JournalServer server = server()) {
+            deliver(writer(server, spool), spool, second);
+            assertEquals(concat(first, second), stored(REGISTER));
+
+            // A new spool has a new epoch and numbers from #1 again
+            deliver(writer(server, resetSpool), resetSpool, afterReset);
+            assertEquals(concat(first, second, afterReset), stored(REGISTER));
+        }
+
+        // The server remembers the new epoch, so the reset spool's later sequences carry on
+        try (JournalServer server = server()) {
+            deliver(writer(server, resetSpool), resetSpool, last);
+        }
+        assertEquals(concat(first, second, afterReset, last), stored(REGISTER));
+    }
+
+    @Test
+    void resentBatchesAreStoredOnce() throws IOException {
+        try (JournalServer server = server()) {
+            try (BinaryRegister register = new BinaryRegister(server, "REG-002", 1_000)) {
+                assertEquals(5, register.send(1, messages("A", 1, 5)));
+                assertEquals(messages("A", 1, 5), stored("REG-002"));
+
+                // Overlaps what is stored: only A6 to A8 are new
+                assertEquals(8, register.send(3, messages("A", 3, 8)));
+                assertEquals(messages("A", 1, 8), stored("REG-002"));
+            }
+            try (BinaryRegister register = new BinaryRegister(server, "REG-002", 1_000)) {
+                // Everything resent after a reconnect is acknowledged, none stored again
+                assertEquals(8, register.send(1, messages("A", 1, 8)));
+                assertEquals(messages("A", 1, 8), stored("REG-002"));
+            }
+        }
+
+        try (JournalServer server = server()) {
+            try (BinaryRegister register = new BinaryRegister(server, "REG-002", 1_000)) {
+                assertEquals(10, register.send(6, messages("A", 6, 10)));
+            }
+            try (BinaryRegister register = new BinaryRegister(server, "REG-002", 2_000)) {
+                assertEquals(2, register.send(1, messages("B", 1, 2)));
+            }
+            assertEquals(concat(messages("A", 1, 10), messages("B", 1, 2)), stored("REG-002"));
+        }
+    }
+
+    @Test
+    void registerIdsStayInsideTheJournalDirectory() throws IOException {
+        Path root = journalDirectory().toAbsolutePath().normalize();
+        for (String register : new String[]{".", "..", "...", "", "../REG-001", "/etc", "REG.001"}) {
+            Path directory = RegisterJournal.directoryFor(journalDirectory(), register);
+            assertEquals(root, directory.getParent(), register);
+        }
+        assertEquals(root.resolve("_.."), RegisterJournal.directoryFor(journalDirectory(), ".."));
+        assertEquals(root.resolve("REG.001"), RegisterJournal.directoryFor(journalDirectory(), "REG.001"));
+    }
+
+    /**
+     * A register speaking the binary protocol by hand, to control exactly
+     * which batches the server sees.
+     */
+    private static final class BinaryRegister implements Closeable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final DataInputStream in;
+
+        BinaryRegister(JournalServer server, String register, long epoch) throws IOException {
+            socket = new Socket("127.0.0.1", server.getPort());
+            socket.setSoTimeout(10_000);
+            out = socket.getOutputStream();
+            in = new DataInputStream(socket.getInputStream());
+
+            JournalProtocol.Hello hello = new JournalProtocol.Hello(JournalProtocol.VERSION, register, false, epoch);
+            String line = JournalEvent.render(JournalEvent.system(System.currentTimeMillis(),
+                    "VJ-HELLO " + hello.toLine())) + "\n";
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            StringBuilder reply = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                reply.append((char) b);
+            }
+            assertTrue(reply.toString().startsWith(JournalProtocol.BINARY_REPLY), reply.toString());
+        }
+
+        /**
+         * Send one batch and return the sequence the server acknowledges.
+         */
+        long send(long firstSequence, List<String> messages) throws IOException {
+            List<byte[]> events = new ArrayList<>();
+            for (String message : messages) {
+                events.add(JournalEvent.system(System.currentTimeMillis(), message));
+            }
+            out.write(JournalProtocol.encodeBatch(firstSequence, events, null));
+            out.flush();
+            return JournalProtocol.readAck(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
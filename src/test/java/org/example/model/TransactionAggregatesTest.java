@@ -0,0 +1,91 @@
+package org.example.model;
+
+import org.example.promo.Promotion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Random baskets built by adds, voids, quantity changes and clears, checking
+ * after every step that the running subtotal and PromoState counters equal a
+ * full recount of the lines.
+ */
+class TransactionAggregatesTest {
+    private static final List<Product> CATALOG = List.of(
+            Product.ofCents("000000000101", "POLAR POP 32OZ", 99, "BEVERAGE"),
+            Product.ofCents("000000000102", "POLAR POP 44OZ", 129, "BEVERAGE"),
+            Product.ofCents("070847811169", "MONSTER ENERGY 16OZ", 329, "BEVERAGE"),
+            Product.ofCents("070847811170", "MONSTER ZERO ULTRA", 349, "BEVERAGE"),
+            Product.ofCents("049000028911", "COKE 20OZ", 229, "BEVERAGE"),
+            Product.ofCents("000000000202", "PIZZA SLICE", 299, "FOOD"),
+            Product.ofCents("000000000303", "HOT DOG QUARTER POUND", 249, "FOOD"),
+            Product.ofCents("028400090858", "DORITOS NACHO CHEESE", 199, "SNACK"),
+            Product.ofCents("012345678905", "PAPER TOWELS", 499, "OTHER"),
+            Product.ofCents("000000000404", "FREE SAMPLE", 0, "FOOD"));
+
+    @Test
+    void incrementalAggregatesMatchARecount() {
+        Random random = new Random(15);
+        Transaction transaction = new Transaction();
+        for (int step = 0; step < 20_000; step++) {
+            int lines = transaction.getItemCount();
+            int action = random.nextInt(100);
+            String done;
+            if (action < 50 || lines == 0) {
+                Product product = CATALOG.get(random.nextInt(CATALOG.size()));
+                int quantity = 1 + random.nextInt(3);
+                transaction.addItem(product, quantity);
+                done = "add " + product.getUpc() + " x" + quantity;
+            } else if (action < 70) {
+                int index = random.nextInt(lines);
+                transaction.voidItem(index);
+                done = "void " + index;
+            } else if (action < 98) {
+                int index = random.nextInt(lines);
+                int quantity = random.nextInt(6);
+                transaction.changeQuantity(index, quantity);
+                done = "qty " + index + " -> " + quantity;
+            } else {
+                transaction.clear();
+                done = "clear";
+            }
+            assertMatchesRecount(transaction, "step " + step + " (" + done + ")");
+        }
+    }
+
+    private static void assertMatchesRecount(Transaction transaction, String step) {
+        long subtotal = 0;
+        for (Product line : transaction.getItemsView()) {
+            subtotal += line.getPriceCents() * line.getQuantity();
+        }
+        assertEquals(subtotal, transaction.getSubtotalCents(), step);
+        assertEquals(Money.percentOf(subtotal, Transaction.TAX_RATE_BASIS_POINTS), transaction.getTaxCents(), step);
+
+        PromoState state = transaction.getPromoState();
+        for (Promotion promotion : state.getBook().getPromotions()) {
+            int units = 0;
+            long cents = 0;
+            long cheapest = Long.MAX_VALUE;
+            for (Product line : transaction.getItemsView()) {
+                if (!state.applicable(line).contains(promotion)) {
+                    continue;
+                }
+                units += line.getQuantity();
+                cents += line.getPriceCents() * line.getQuantity();
+                if (line.getQuantity() > 0) {
+                    cheapest = Math.min(cheapest, line.getPriceCents());
+                }
+            }
+            if (cheapest == Long.MAX_VALUE || promotion.type() == Promotion.Type.PERCENT_OFF) {
+                cheapest = 0; // PERCENT_OFF keeps no price multiset
+            }
+            String name = step + " " + promotion.name();
+            assertEquals(units, state.getUnits(promotion), name);
+            assertEquals(cents, state.getCents(promotion), name);
+            assertEquals(cheapest, state.getCheapestCents(promotion), name);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Adding a line (and merging a rescan into it) must cost the same at the end
+ * of a 10k-line ticket as at the start. Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class TransactionBenchmark {
+    private static final int LINES = 10_000;
+    private static final int ROUNDS = 20;
+    private static final String[] NAMES = {"COKE 20OZ", "POLAR POP 32OZ", "PIZZA SLICE", "DORITOS NACHO CHEESE",
+            "MONSTER ENERGY 16OZ", "PAPER TOWELS"};
+
+    private static Product[] products(int count) {
+        Product[] products = new Product[count];
+        for (int i = 0; i < count; i++) {
+            products[i] = Product.ofCents(String.format("%012d", 100_000L + i), NAMES[i % NAMES.length] + " #" + i,
+                    99 + (i * 37L) % 1_900, "OTHER");
+        }
+        return products;
+    }
+
+    @Test
+    void basketStaysLinear() {
+        Product[] products = products(LINES);
+
+        int[] sizes = {1_000, 2_500, 5_000, products.length};
+        double[] nanosPerLine = new double[sizes.length];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int s = 0; s < sizes.length; s++) {
+                long start = System.nanoTime();
+                Transaction transaction = new Transaction();
+                for (int i = 0; i < sizes[s]; i++) {
+                    transaction.addItem(products[i]);
+                }
+                for (int i = 0; i < sizes[s]; i += 2) {
+                    transaction.addItem(products[i]); // rescans merge into the existing line
+                }
+                long nanos = System.nanoTime() - start;
+                assertEquals(sizes[s], transaction.getItemCount());
+                double perLine = (double) nanos / sizes[s];
+                nanosPerLine[s] = round == 0 ? perLine : Math.min(nanosPerLine[s], perLine);
+            }
+        }
+
+        System.out.printf("Basket build, best of %d:%n", ROUNDS);
+        for (int s = 0; s < sizes.length; s++) {
+            System.out.printf("  %6d lines: %8.1f ns/line%n", sizes[s], nanosPerLine[s]);
+        }
+        // Quadratic merging would make the last basket ~10x the first per line
+        assertTrue(nanosPerLine[sizes.length - 1] < nanosPerLine[0] * 4,
+                "cost per line grows with basket size");
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.pricebook;
+
+import org.example.service.CategoryClassifier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 10k-line pricebook: parallel against sequential parsing.
+ * Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class PricebookBenchmark {
+    private static final int LINES = 10_000;
+    private static final int ROUNDS = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parse() throws IOException {
+        Path file = PricebookParserTest.writePricebook(dir.resolve("pricebook.tsv"), LINES, 1);
+        CategoryClassifier classifier = CategoryClassifier.getDefault();
+
+        long sequential = Long.MAX_VALUE;
+        long parallel = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            PricebookParserTest.parseSequentially(file, classifier::classify, new int[1]);
+            sequential = Math.min(sequential, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            PricebookParser.parse(file, classifier::classify);
+            parallel = Math.min(parallel, System.nanoTime() - start);
+        }
+
+        System.out.printf("Pricebook parse, %d lines (best of %d):%n", LINES, ROUNDS);
+        System.out.printf("  sequential split: %8.2f ms%n", sequential / 1e6);
+        System.out.printf("  parallel chunks:  %8.2f ms%n", parallel / 1e6);
+    }
+}
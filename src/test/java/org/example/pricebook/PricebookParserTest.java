@@ -0,0 +1,172 @@
+package org.example.pricebook;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The parallel byte-level parser against a plain line-by-line parse of the
+ * same file.
+ */
+class PricebookParserTest {
+    private static final String[] WORDS = {
+            "COKE", "PEPSI", "RED BULL", "HOT DOG", "PIZZA", "MARLBORO", "DORITOS", "SNICKERS",
+            "GUM", "WATER", "BREAD", "MILK", "Café Crème", "JALAPEÑO CHIPS", "12OZ", "2 FOR", "KING SIZE"
+    };
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Stand-in for the category rules: the parser only has to call it once
+     * per row, with the trimmed description.
+     */
+    static String classify(String description) {
+        if (description.contains("COKE") || description.contains("PEPSI") || description.contains("WATER")) {
+            return "BEVERAGE";
+        }
+        return description.contains("Café") ? "FOOD" : "OTHER";
+    }
+
+    record Row(String upc, String description, long priceCents, String category) {}
+
+    /**
+     * A pricebook of the given number of data lines, mixed with the rows the
+     * parser has to tolerate: blank lines, CRLF endings, extra columns,
+     * padding, rows with no price and prices that are not numbers.
+     */
+    static Path writePricebook(Path file, int lines, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                String upc = String.format("0%011d", 49_000_000_000L + i);
+                String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + " " + (i % 97);
+                String price = (random.nextInt(5_000) / 100.0) + "";
+                String end = "\n";
+                switch (random.nextInt(40)) {
+                    case 0 -> out.write("\n");
+                    case 1 -> end = "\r\n";
+                    case 2 -> price = price + "\tSNACK";
+                    case 3 -> description = "  " + description + " ";
+                    case 4 -> price = "N/A";
+                    case 5 -> {
+                        out.write(upc + "\t" + description + "\n");
+                        continue;
+                    }
+                    case 6 -> price = String.valueOf(random.nextInt(20));
+                    case 7 -> price = random.nextInt(20) + ".995";
+                    default -> { }
+                }
+                out.write(upc + "\t" + description + "\t" + price + end);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * What the loaders did before the parallel parser: split each line and
+     * parse the price as a decimal.
+     */
+    static List<Row> parseSequentially(Path file, Function<String, String> classifier, int[] rejected) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length < 2) {
+                    continue;
+                }
+                if (parts.length == 2) {
+                    rejected[0]++;
+                    continue;
+                }
+                long cents;
+                try {
+                    cents = new BigDecimal(parts[2].trim()).setScale(2, RoundingMode.HALF_UP)
+                            .movePointRight(2).longValueExact();
+                } catch (NumberFormatException e) {
+                    rejected[0]++;
+                    continue;
+                }
+                String description = parts[1].trim();
+                rows.add(new Row(parts[0].trim(), description, cents,
+                        classifier == null ? null : classifier.apply(description)));
+            }
+        }
+        return rows;
+    }
+
+    static List<Row> flatten(List<PricebookParser.Chunk> chunks) {
+        List<Row> rows = new ArrayList<>();
+        for (PricebookParser.Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                rows.add(new Row(chunk.upcs[i], chunk.descriptions[i], chunk.priceCents[i], chunk.categories[i]));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void parallelParseMatchesSequentialParse() throws IOException {
+        // Large enough to be split into several chunks
+        Path file = writePricebook(dir.resolve("pricebook.tsv"), 50_000, 42);
+        int[] rejected = new int[1];
+        List<Row> expected = parseSequentially(file, PricebookParserTest::classify, rejected);
+        List<PricebookParser.Chunk> chunks = PricebookParser.parse(file, PricebookParserTest::classify);
+
+        assertTrue(chunks.size() > 1, "expected the file to be split, got " + chunks.size() + " chunk");
+        List<Row> actual = flatten(chunks);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "row " + i);
+        }
+        assertEquals(rejected[0], chunks.stream().mapToInt(chunk -> chunk.rejected).sum());
+    }
+
+    @Test
+    void ingestFeedsEveryRowInFileOrder() throws Exception {
+        Path file = writePricebook(dir.resolve("pricebook.tsv"), 10_000, 7);
+        int[] rejected = new int[1];
+        List<Row> expected = parseSequentially(file, null, rejected);
+
+        List<Row> written = new ArrayList<>();
+        PricebookParser.IngestStats stats = PricebookParser.ingest(file, null, chunk -> {
+            for (int i = 0; i < chunk.size; i++) {
+                written.add(new Row(chunk.upcs[i], chunk.descriptions[i], chunk.priceCents[i], chunk.categories[i]));
+            }
+        });
+
+        assertEquals(expected, written);
+        assertEquals(expected.size(), stats.rows());
+        assertEquals(rejected[0], stats.rejected());
+    }
+
+    @Test
+    void parsesPricesToCents() {
+        String[] prices = {"8.91", "9", "0.5", ".5", "5.", "1.005", "1.004", "-2.50", " 3.10\r"};
+        long[] cents = {891, 900, 50, 50, 500, 101, 100, -250, 310};
+        for (int i = 0; i < prices.length; i++) {
+            byte[] bytes = prices[i].getBytes(StandardCharsets.US_ASCII);
+            assertEquals(cents[i], PricebookParser.parseCents(bytes, 0, bytes.length), prices[i]);
+        }
+        for (String bad : new String[]{"", " ", "N/A", "1.2.3", "-", "."}) {
+            byte[] bytes = bad.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Long.MIN_VALUE, PricebookParser.parseCents(bytes, 0, bytes.length), "'" + bad + "'");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.printer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The exact ESC/POS bytes for each command and for a whole receipt.
+ */
+class EscPosEncoderTest {
+    private final EscPosEncoder encoder = new EscPosEncoder();
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    @Test
+    void commands() {
+        assertArrayEquals(bytes(0x1B, '@', 0x1B, 't', 0), encoder.reset().initialize().toByteArray());
+        assertArrayEquals(bytes(0x1B, 'E', 1, 0x1B, 'E', 0), encoder.reset().bold(true).bold(false).toByteArray());
+        assertArrayEquals(bytes(0x1B, 'd', 3, 0x1B, 'd', 255, 0x1B, 'd', 0),
+                encoder.reset().feed(3).feed(300).feed(-1).toByteArray());
+        assertArrayEquals(bytes(0x1D, 'V', 66, 0), encoder.reset().cut().toByteArray());
+        assertArrayEquals(bytes(0x1B, 'p', 0, 25, 250), encoder.reset().kickDrawer().toByteArray());
+    }
+
+    @Test
+    void textIsCodePage437() {
+        // É and é are in code page 437; 日 and control characters are not
+        String text = "A\r\nÉéñ日\u0007Z";
+        assertArrayEquals(bytes('A', 0x0A, 0x90, 0x82, 0xA4, '?', '?', 'Z'),
+                encoder.reset().text(text, 0, text.length()).toByteArray());
+    }
+
+    @Test
+    void characterOutsideTheBasicPlaneIsOneQuestionMark() {
+        String text = "🍕 PIZZA";
+        assertEquals(8, text.length());
+        assertArrayEquals(bytes('?', ' ', 'P', 'I', 'Z', 'Z', 'A'),
+                encoder.reset().text(text, 0, text.length()).toByteArray());
+        // A pair cut by the end of the range is a lone surrogate, printed as '?'
+        assertArrayEquals(bytes('?'), encoder.reset().text(text, 0, 1).toByteArray());
+    }
+
+    @Test
+    void receiptKicksTheDrawerPrintsBoldRangesThenFeedsAndCuts() {
+        String text = "ITEM 1.00\nTOTAL 1.07\nTHANK YOU";
+        int totalStart = text.indexOf("TOTAL");
+        int totalEnd = text.indexOf('\n', totalStart);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.writeBytes(bytes(0x1B, '@', 0x1B, 't', 0));
+        expected.writeBytes(bytes(0x1B, 'p', 0, 25, 250));
+        expected.writeBytes("ITEM 1.00\n".getBytes());
+        expected.writeBytes(bytes(0x1B, 'E', 1));
+        expected.writeBytes("TOTAL 1.07".getBytes());
+        expected.writeBytes(bytes(0x1B, 'E', 0));
+        expected.writeBytes("\nTHANK YOU\n".getBytes());
+        expected.writeBytes(bytes(0x1B, 'd', 4, 0x1D, 'V', 66, 0));
+
+        assertArrayEquals(expected.toByteArray(),
+                encoder.reset().receipt(text, new int[]{totalStart, totalEnd}, true).toByteArray());
+
+        // Without the drawer the kick is the only difference
+        byte[] withDrawer = expected.toByteArray();
+        ByteArrayOutputStream withoutDrawer = new ByteArrayOutputStream();
+        withoutDrawer.write(withDrawer, 0, 5);
+        withoutDrawer.write(withDrawer, 10, withDrawer.length - 10);
+        assertArrayEquals(withoutDrawer.toByteArray(),
+                encoder.reset().receipt(text, new int[]{totalStart, totalEnd}, false).toByteArray());
+    }
+
+    @Test
+    void bufferGrowsPastItsInitialSize() {
+        String line = "X".repeat(99) + "\n";
+        String text = line.repeat(100);
+        byte[] encoded = encoder.reset().text(text, 0, text.length()).toByteArray();
+        assertEquals(text.length(), encoded.length);
+        assertEquals(encoded.length, encoder.length());
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.promo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionBookTest {
+    private static final String RULES = """
+            version: 1
+            POLAR_POP_B2G1 | BUY_X_GET_Y | desc:POLAR POP    | 2+1 | Polar Pop Buy 2 Get 1 Free
+            MONSTER_BOGO   | BUY_X_GET_Y | desc:MONSTER      | 1+1 | Monster Buy 1 Get 1 Free | DISPLAY
+            FOOD_5_PERCENT | PERCENT_OFF | category:FOOD     | 5%  | 5% Off Food
+            BEVERAGE_BOGO  | BUY_X_GET_Y | category:BEVERAGE | 1+1 | BOGO Beverages
+            """;
+
+    private static PromotionBook book() throws IOException {
+        return PromotionBook.fromRules(new StringReader(RULES));
+    }
+
+    private static String owner(PromotionBook.Match match) {
+        return match.owner() == null ? null : match.owner().name();
+    }
+
+    @Test
+    void firstPricingPromotionOwnsTheItem() throws IOException {
+        PromotionBook book = book();
+        PromotionBook.Match match = book.match("1", "POLAR POP 32OZ", "BEVERAGE");
+        assertEquals("POLAR_POP_B2G1", owner(match));
+        assertEquals(2, match.candidates().size());
+
+        match = book.match("2", "MONSTER ENERGY", "BEVERAGE");
+        assertEquals("BEVERAGE_BOGO", owner(match));
+        assertEquals(2, match.applicable().size(), "display promotion counts as well");
+
+        assertSame(PromotionBook.Match.NONE, book.match("3", "PAPER TOWELS", "OTHER"));
+    }
+
+    @Test
+    void changedDescriptionOrCategoryIsMatchedAfresh() throws IOException {
+        PromotionBook book = book();
+        assertEquals("BEVERAGE_BOGO", owner(book.match("1", "COFFEE 16OZ", "BEVERAGE")));
+
+        // Same UPC after a price update renames or reclassifies it
+        assertEquals("POLAR_POP_B2G1", owner(book.match("1", "POLAR POP 16OZ", "BEVERAGE")));
+        assertEquals("FOOD_5_PERCENT", owner(book.match("1", "COFFEE 16OZ", "FOOD")));
+        assertNull(owner(book.match("1", "COFFEE 16OZ", "OTHER")));
+
+        assertEquals("BEVERAGE_BOGO", owner(book.match("1", "COFFEE 16OZ", "BEVERAGE")));
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.promo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Solve time for random baskets of 10, 50 and 500 lines against the default
+ * promotions, and how often the budget forced the priority fallback. Run
+ * with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class PromotionSolverBenchmark {
+    private static final long BUDGET_MICROS = 1000;
+    private static final int BASKETS = 2000;
+
+    private static final String[][] CATALOGUE = {
+            {"POLAR POP 32OZ", "BEVERAGE"}, {"POLAR POP 44OZ", "BEVERAGE"}, {"MONSTER ENERGY", "BEVERAGE"},
+            {"COKE 20OZ", "BEVERAGE"}, {"PEPSI 2L", "BEVERAGE"}, {"RED BULL 12OZ", "BEVERAGE"},
+            {"PIZZA SLICE", "FOOD"}, {"HOT DOG", "FOOD"}, {"DORITOS", "SNACK"}, {"MARLBORO", "TOBACCO"}};
+
+    private record Basket(long[] priceCents, List<List<Promotion>> candidates) {}
+
+    private static Basket randomBasket(PromotionBook book, Random random, int lines) {
+        List<long[]> units = new ArrayList<>(); // [price, catalogue index]
+        for (int line = 0; line < lines; line++) {
+            long price = 99 + random.nextInt(600);
+            int product = random.nextInt(CATALOGUE.length);
+            for (int q = 1 + random.nextInt(3); q > 0; q--) {
+                units.add(new long[]{price, product});
+            }
+        }
+        units.sort((a, b) -> Long.compare(b[0], a[0]));
+
+        long[] priceCents = new long[units.size()];
+        List<List<Promotion>> candidates = new ArrayList<>(units.size());
+        for (int u = 0; u < priceCents.length; u++) {
+            String[] product = CATALOGUE[(int) units.get(u)[1]];
+            priceCents[u] = units.get(u)[0];
+            candidates.add(book.match(null, product[0], product[1]).candidates());
+        }
+        return new Basket(priceCents, candidates);
+    }
+
+    @Test
+    void solveTime() {
+        PromotionBook book = PromotionBook.getDefault();
+        Random random = new Random(7);
+
+        System.out.printf("Promotion solver, budget %d us, %d baskets per size:%n", BUDGET_MICROS, BASKETS);
+        for (int lines : new int[]{10, 50, 500}) {
+            PromotionSolver solver = new PromotionSolver(BUDGET_MICROS);
+            for (int i = Math.max(1, 20_000 / lines); i > 0; i--) {
+                Basket basket = randomBasket(book, random, lines);
+                solver.solve(basket.priceCents(), basket.candidates()); // JIT warm-up
+            }
+
+            PromotionSolver measured = new PromotionSolver(BUDGET_MICROS);
+            long[] nanos = new long[BASKETS];
+            for (int b = 0; b < BASKETS; b++) {
+                Basket basket = randomBasket(book, random, lines);
+                long start = System.nanoTime();
+                measured.solve(basket.priceCents(), basket.candidates());
+                nanos[b] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(nanos);
+            System.out.printf("  %3d lines: p50 %.1f us, p99 %.1f us, max %.1f us - %d solved, %d fallbacks%n",
+                    lines, nanos[BASKETS / 2] / 1e3, nanos[(int) (BASKETS * 0.99)] / 1e3,
+                    nanos[BASKETS - 1] / 1e3, measured.getSolvedCount(), measured.getFallbackCount());
+        }
+    }
+}
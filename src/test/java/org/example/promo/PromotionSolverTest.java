@@ -0,0 +1,169 @@
+package org.example.promo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The solver against exhaustive search on baskets small enough to try every
+ * assignment.
+ */
+class PromotionSolverTest {
+    private static final long SCALE = 10_000; // 1/10000 cent, so percent-off is exact
+    private static final int BASKETS = 300;
+    private static final int MAX_UNITS = 7;
+
+    // Overlapping deals of every type
+    private static final String RULES = """
+            version: test
+            POLAR_POP_B2G1 | BUY_X_GET_Y   | desc:POLAR POP           | 2+1    | Polar Pop Buy 2 Get 1 Free
+            SNACK_2_FOR_3  | MIX_AND_MATCH | desc:DORITOS, desc:LAYS  | 2@3.00 | Any 2 Chips for $3
+            MEAL_DEAL      | MIX_AND_MATCH | category:FOOD, desc:COKE | 3@6.00 | Any 3 Meal Items for $6
+            FOOD_5_PERCENT | PERCENT_OFF   | category:FOOD            | 5%     | 5% Off Food
+            BEVERAGE_BOGO  | BUY_X_GET_Y   | category:BEVERAGE        | 1+1    | BOGO Beverages
+            """;
+
+    private static final String[][] CATALOGUE = {
+            {"POLAR POP 32OZ", "BEVERAGE"}, {"COKE 20OZ", "BEVERAGE"}, {"PEPSI 2L", "BEVERAGE"},
+            {"DORITOS NACHO", "SNACK"}, {"LAYS CLASSIC", "SNACK"}, {"HOT DOG", "FOOD"},
+            {"PIZZA SLICE", "FOOD"}, {"TRIDENT GUM", "SNACK"}};
+
+    private record Basket(long[] priceCents, List<List<Promotion>> candidates) {}
+
+    private static Basket randomBasket(PromotionBook book, Random random) {
+        int units = 1 + random.nextInt(MAX_UNITS);
+        List<long[]> rows = new ArrayList<>(); // [price, catalogue index]
+        for (int u = 0; u < units; u++) {
+            rows.add(new long[]{49 + random.nextInt(400), random.nextInt(CATALOGUE.length)});
+        }
+        rows.sort((a, b) -> Long.compare(b[0], a[0])); // solve() wants dearest first
+
+        long[] priceCents = new long[units];
+        List<List<Promotion>> candidates = new ArrayList<>(units);
+        for (int u = 0; u < units; u++) {
+            String[] product = CATALOGUE[(int) rows.get(u)[1]];
+            priceCents[u] = rows.get(u)[0];
+            candidates.add(book.match(null, product[0], product[1]).candidates());
+        }
+        return new Basket(priceCents, candidates);
+    }
+
+    /**
+     * Savings of an assignment, priced the way LocalDiscountEngine prices the
+     * units each promotion was given.
+     */
+    private static long savings(PromotionBook book, long[] priceCents, Promotion[] assignment) {
+        long total = 0;
+        for (Promotion promotion : book.getPromotions()) {
+            List<Long> prices = new ArrayList<>();
+            for (int u = 0; u < assignment.length; u++) {
+                if (assignment[u] == promotion) {
+                    prices.add(priceCents[u]);
+                }
+            }
+            prices.sort((a, b) -> Long.compare(b, a));
+            int group = promotion.unitsPerDeal();
+            switch (promotion.type()) {
+                case PERCENT_OFF -> {
+                    for (long price : prices) {
+                        total += price * promotion.basisPoints();
+                    }
+                }
+                case BUY_X_GET_Y -> {
+                    for (int i = 0; i < prices.size() / group * group; i++) {
+                        if (i % group >= promotion.buy()) {
+                            total += prices.get(i) * SCALE;
+                        }
+                    }
+                }
+                case MIX_AND_MATCH -> {
+                    for (int start = 0; start + group <= prices.size(); start += group) {
+                        long cents = 0;
+                        for (int i = start; i < start + group; i++) {
+                            cents += prices.get(i);
+                        }
+                        if (cents <= promotion.groupPriceCents()) {
+                            break;
+                        }
+                        total += (cents - promotion.groupPriceCents()) * SCALE;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Best savings over every way of giving each unit one of its candidates or none.
+     */
+    private static long bruteForce(PromotionBook book, Basket basket) {
+        int units = basket.priceCents().length;
+        Promotion[] assignment = new Promotion[units];
+        int[] choice = new int[units]; // 0 = none, c = candidates.get(c - 1)
+        long best = 0;
+        while (true) {
+            for (int u = 0; u < units; u++) {
+                assignment[u] = choice[u] == 0 ? null : basket.candidates().get(u).get(choice[u] - 1);
+            }
+            best = Math.max(best, savings(book, basket.priceCents(), assignment));
+
+            int u = 0;
+            while (u < units && ++choice[u] > basket.candidates().get(u).size()) {
+                choice[u++] = 0;
+            }
+            if (u == units) {
+                return best;
+            }
+        }
+    }
+
+    @Test
+    void solutionMatchesExhaustiveSearchAndBeatsPriority() throws IOException {
+        PromotionBook book = PromotionBook.fromRules(new StringReader(RULES));
+        PromotionSolver solver = new PromotionSolver(10_000_000); // no time budget fallback here
+        Random random = new Random(17);
+
+        int improved = 0;
+        for (int b = 0; b < BASKETS; b++) {
+            Basket basket = randomBasket(book, random);
+            Promotion[] solved = solver.solve(basket.priceCents(), basket.candidates());
+
+            for (int u = 0; u < solved.length; u++) {
+                assertTrue(solved[u] == null || basket.candidates().get(u).contains(solved[u]),
+                        "basket " + b + " unit " + u + " given a promotion it does not match");
+            }
+            long solvedSavings = savings(book, basket.priceCents(), solved);
+            long prioritySavings = savings(book, basket.priceCents(),
+                    PromotionSolver.priorityAssignment(basket.candidates()));
+            long best = bruteForce(book, basket);
+
+            int basketNumber = b;
+            assertTrue(solvedSavings >= prioritySavings,
+                    () -> "basket " + basketNumber + " worse than priority: " + solvedSavings + " < " + prioritySavings);
+            assertEquals(best, solvedSavings, () -> "basket " + basketNumber + " not optimal");
+            if (solvedSavings > prioritySavings) {
+                improved++;
+            }
+        }
+
+        assertEquals(0, solver.getFallbackCount());
+        assertTrue(improved > 0, "no basket where best price beat priority - test baskets too easy");
+    }
+
+    @Test
+    void fallsBackToPriorityWhenOverBudget() throws IOException {
+        PromotionBook book = PromotionBook.fromRules(new StringReader(RULES));
+        PromotionSolver solver = new PromotionSolver(0);
+        Basket basket = randomBasket(book, new Random(3));
+
+        assertArrayEquals(PromotionSolver.priorityAssignment(basket.candidates()),
+                solver.solve(basket.priceCents(), basket.candidates()));
+        assertEquals(1, solver.getFallbackCount());
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.sales;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sales written to the log in either durability mode come back after a
+ * reopen from the checkpoint on, and the log is only emptied once the
+ * database has caught up.
+ */
+class SaleLogTest {
+    @TempDir
+    Path dir;
+
+    private static SaleRecord sale(int receiptNumber) {
+        long price = 100L + receiptNumber;
+        return new SaleRecord(0, 1_700_000_000_000L + receiptNumber, "COMPLETED", "CASH",
+                price * 2, 0, 14, price * 2 + 14, 2_000, 2_000 - price * 2 - 14, receiptNumber,
+                List.of(new SaleRecord.Line("012345678905", "CRÈME BRÛLÉE \"4OZ\"", price, 2, price * 2, "FOOD")),
+                List.of(new SaleRecord.Discount("none", "No discount", 0)));
+    }
+
+    private static List<SaleRecord> append(SaleLog log, int from, int to) throws IOException {
+        List<SaleRecord> logged = new ArrayList<>();
+        for (int receipt = from; receipt <= to; receipt++) {
+            logged.add(log.append(sale(receipt)));
+        }
+        return logged;
+    }
+
+    @Test
+    void syncModeReplaysFromTheCheckpoint() throws IOException {
+        Path path = dir.resolve("sales.log");
+        List<SaleRecord> logged;
+        try (SaleLog log = new SaleLog(path, SaleLog.Durability.SYNC, 0)) {
+            logged = append(log, 1, 5);
+        }
+        for (int i = 0; i < logged.size(); i++) {
+            assertEquals(i + 1, logged.get(i).sequence());
+            assertEquals(sale(i + 1).withSequence(i + 1), logged.get(i));
+        }
+
+        assertEquals(logged, SaleLog.readPending(path, 0));
+        assertEquals(logged.subList(3, 5), SaleLog.readPending(path, 3));
+        assertTrue(SaleLog.readPending(path, 5).isEmpty());
+
+        // Reopened after the last replayed sale, numbering carries on
+        try (SaleLog log = new SaleLog(path, SaleLog.Durability.SYNC, 5)) {
+            assertEquals(6, log.append(sale(6)).sequence());
+        }
+        assertEquals(6, SaleLog.readPending(path, 5).get(0).sequence());
+    }
+
+    @Test
+    void groupModeTruncatesOnlyOnceTheCheckpointCoversTheLog() throws IOException {
+        Path path = dir.resolve("group/sales.log");
+        try (SaleLog log = new SaleLog(path, SaleLog.Durability.GROUP, 10)) {
+            List<SaleRecord> logged = append(log, 1, 3);
+            assertEquals(List.of(11L, 12L, 13L), logged.stream().map(SaleRecord::sequence).toList());
+            log.sync();
+
+            log.truncateIfCaughtUp(12);
+            assertEquals(logged, SaleLog.readPending(path, 10), "#13 is not in the database yet");
+
+            log.truncateIfCaughtUp(13);
+            assertEquals(0, Files.size(path));
+            assertTrue(SaleLog.readPending(path, 0).isEmpty());
+
+            assertEquals(14, log.append(sale(4)).sequence());
+        }
+        List<SaleRecord> pending = SaleLog.readPending(path, 13);
+        assertEquals(1, pending.size());
+        assertEquals(sale(4).withSequence(14), pending.get(0));
+    }
+
+    @Test
+    void tornLastLineIsSkippedAndTheNextSaleStartsAFreshLine() throws IOException {
+        Path path = dir.resolve("sales.log");
+        try (SaleLog log = new SaleLog(path, SaleLog.Durability.GROUP, 0)) {
+            append(log, 1, 2);
+        }
+        // A crash part way through the third sale
+        Files.writeString(path, "{\"sequence\":3,\"timestamp\":17", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertEquals(2, SaleLog.readPending(path, 0).size());
+
+        try (SaleLog log = new SaleLog(path, SaleLog.Durability.GROUP, 2)) {
+            assertEquals(3, log.append(sale(3)).sequence());
+        }
+        List<SaleRecord> pending = SaleLog.readPending(path, 0);
+        assertEquals(List.of(1L, 2L, 3L), pending.stream().map(SaleRecord::sequence).toList());
+        assertEquals(sale(3).withSequence(3), pending.get(2));
+    }
+}
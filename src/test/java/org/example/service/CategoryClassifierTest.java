@@ -0,0 +1,57 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Descriptions are matched against the keywords the way the keywords were
+ * compiled: upper case, with accents stripped.
+ */
+class CategoryClassifierTest {
+    private static final String RULES = """
+            BEVERAGE: COFFEE, CAFÉ, TEA
+            FOOD: CRÈME, JALAPEÑO, PIZZA
+            SNACK: CHIP
+            """;
+
+    private static CategoryClassifier classifier() throws IOException {
+        return CategoryClassifier.fromRules(new StringReader(RULES));
+    }
+
+    @Test
+    void asciiDescriptions() throws IOException {
+        CategoryClassifier classifier = classifier();
+        assertEquals("FOOD", classifier.classify("PEPPERONI PIZZA SLICE"));
+        assertEquals("BEVERAGE", classifier.classify("iced tea 20oz"));
+        assertEquals("FOOD", classifier.classify("JALAPENO POPPERS"));
+        assertEquals("BEVERAGE", classifier.classify("PIZZA AND COFFEE"), "earlier category wins");
+        assertEquals(CategoryClassifier.OTHER, classifier.classify("PAPER TOWELS"));
+        assertEquals(CategoryClassifier.OTHER, classifier.classify(""));
+        assertEquals(CategoryClassifier.OTHER, classifier.classify(null));
+    }
+
+    @Test
+    void accentedDescriptionsMatchLikeTheKeywords() throws IOException {
+        CategoryClassifier classifier = classifier();
+        assertEquals("FOOD", classifier.classify("CRÈME BRÛLÉE 4OZ"));
+        assertEquals("FOOD", classifier.classify("JALAPEÑO POPPERS FAMILY SIZE"));
+        assertEquals("FOOD", classifier.classify("jalapeño poppers"));
+        assertEquals("FOOD", classifier.classify("CRE\u0300ME FRAI\u0302CHE"), "decomposed accents");
+        assertEquals("BEVERAGE", classifier.classify("Café Latte"));
+        assertEquals("BEVERAGE", classifier.classify("CAFE LATTE"));
+        assertEquals("FOOD", classifier.classify("CRÊPE PIZZA"), "accent ahead of the keyword");
+    }
+
+    @Test
+    void otherScriptsStillBreakAMatch() throws IOException {
+        CategoryClassifier classifier = classifier();
+        assertEquals(CategoryClassifier.OTHER, classifier.classify("日本茶 緑茶 500ML"));
+        assertEquals("FOOD", classifier.classify("日本 PIZZA"));
+        assertEquals(CategoryClassifier.OTHER, classifier.classify("PIZ日ZA"));
+        assertEquals("SNACK", classifier.classify("🍕 CHIPS"));
+    }
+}
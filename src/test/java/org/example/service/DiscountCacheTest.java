@@ -0,0 +1,60 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscountCacheTest {
+
+    private static DiscountService.DiscountRequest.Item item(String upc, String description, String category,
+                                                             double price, int quantity) {
+        DiscountService.DiscountRequest.Item item = new DiscountService.DiscountRequest.Item();
+        item.upc = upc;
+        item.description = description;
+        item.category = category;
+        item.price = price;
+        item.quantity = quantity;
+        return item;
+    }
+
+    @Test
+    void fingerprintIgnoresScanOrder() {
+        var coffee = item("1", "COFFEE 16OZ", "BEVERAGE", 1.99, 1);
+        var donut = item("2", "GLAZED DONUT", "FOOD", 0.99, 2);
+        assertEquals(DiscountCache.fingerprint(List.of(coffee, donut), "2"),
+                DiscountCache.fingerprint(List.of(donut, coffee), "2"));
+    }
+
+    @Test
+    void fingerprintChangesWithEverythingPricingMatchesOn() {
+        String base = DiscountCache.fingerprint(List.of(item("1", "COFFEE 16OZ", "BEVERAGE", 1.99, 1)), "2");
+        assertNotEquals(base, DiscountCache.fingerprint(List.of(item("1", "COFFEE 16OZ", "BEVERAGE", 1.99, 1)), "3"));
+        assertNotEquals(base, DiscountCache.fingerprint(List.of(item("1", "COFFEE 16OZ", "BEVERAGE", 1.99, 2)), "2"));
+        assertNotEquals(base, DiscountCache.fingerprint(List.of(item("1", "COFFEE 16OZ", "BEVERAGE", 2.09, 1)), "2"));
+        // Same UPC and price after a pricebook delta or reclassification
+        assertNotEquals(base, DiscountCache.fingerprint(List.of(item("1", "POLAR POP 16OZ", "BEVERAGE", 1.99, 1)), "2"));
+        assertNotEquals(base, DiscountCache.fingerprint(List.of(item("1", "COFFEE 16OZ", "OTHER", 1.99, 1)), "2"));
+    }
+
+    @Test
+    void descriptionsCannotRunIntoTheNextField() {
+        var a = item("1", "A:1", "X", 1.00, 1);
+        var b = item("1", "A", "X", 1.00, 1);
+        assertNotEquals(DiscountCache.fingerprint(List.of(a), "2"), DiscountCache.fingerprint(List.of(b), "2"));
+    }
+
+    @Test
+    void cachedResultIsReturnedUntilInvalidated() {
+        DiscountCache cache = new DiscountCache(4, 600);
+        DiscountService.DiscountResponse response = new DiscountService.DiscountResponse();
+        String key = DiscountCache.fingerprint(List.of(item("1", "COFFEE 16OZ", "BEVERAGE", 1.99, 1)), "2");
+
+        assertNull(cache.get(key));
+        cache.put(key, response);
+        assertSame(response, cache.get(key));
+        cache.invalidateAll("test");
+        assertNull(cache.get(key));
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.service;
+
+import org.example.promo.PromotionBook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential check: fixed-seed baskets priced by the local engine and by
+ * the stub discount API must charge the same and apply the same discounts.
+ */
+class DiscountDifferentialTest {
+    private static final int BASKETS = 200;
+    private static final int TIMED_BASKETS = 500;
+
+    // Something for every promotion, items matching several, and items matching none
+    private static final Object[][] CATALOGUE = {
+            {"049000000443", "POLAR POP 32OZ", 99},
+            {"049000000450", "POLAR POP 44OZ", 129},
+            {"070847811169", "MONSTER ENERGY 16OZ", 329},
+            {"070847898245", "MONSTER ZERO ULTRA", 349},
+            {"049000028911", "COKE 20OZ", 229},
+            {"012000001291", "PEPSI 2L", 279},
+            {"611269991000", "RED BULL 8.4OZ", 299},
+            {"078000113464", "ICED TEA", 189},
+            {"071990095109", "HOT DOG", 199},
+            {"071990095116", "PEPPERONI PIZZA SLICE", 349},
+            {"071990095123", "BREAKFAST BURRITO", 289},
+            {"071990095130", "COFFEE AND DONUT COMBO", 249},
+            {"028200003843", "MARLBORO RED", 899},
+            {"028400090858", "DORITOS NACHO", 219},
+            {"040000424314", "SNICKERS KING SIZE", 189},
+            {"012546011099", "TRIDENT GUM", 149},
+            {"030000010402", "QUAKER OATS", 459},
+            {"037000127857", "PAPER TOWELS", 599},
+    };
+
+    private StubDiscountApi api;
+    private DiscountReconciler reconciler;
+
+    @BeforeEach
+    void startApi() throws IOException {
+        api = new StubDiscountApi(PromotionBook.getDefault());
+        reconciler = new DiscountReconciler(DiscountReconcilerTest.config(api.url()));
+    }
+
+    @AfterEach
+    void stopApi() {
+        api.close();
+    }
+
+    private static List<DiscountService.DiscountRequest.Item> catalogue() {
+        CategoryClassifier classifier = CategoryClassifier.getDefault();
+        List<DiscountService.DiscountRequest.Item> items = new ArrayList<>();
+        for (Object[] row : CATALOGUE) {
+            DiscountService.DiscountRequest.Item item = new DiscountService.DiscountRequest.Item();
+            item.upc = (String) row[0];
+            item.description = (String) row[1];
+            item.price = (Integer) row[2] / 100.0;
+            item.quantity = 1;
+            item.category = classifier.classify(item.description);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<DiscountService.DiscountRequest.Item> randomBasket(
+            Random random, List<DiscountService.DiscountRequest.Item> catalogue) {
+        int lines = 1 + random.nextInt(12);
+        List<DiscountService.DiscountRequest.Item> basket = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            DiscountService.DiscountRequest.Item product = catalogue.get(random.nextInt(catalogue.size()));
+            DiscountService.DiscountRequest.Item item = new DiscountService.DiscountRequest.Item();
+            item.upc = product.upc;
+            item.description = product.description;
+            item.price = product.price;
+            item.quantity = 1 + random.nextInt(3);
+            item.category = product.category;
+            basket.add(item);
+        }
+        return basket;
+    }
+
+    private static String discounts(DiscountService.DiscountResponse response) {
+        StringBuilder sb = new StringBuilder();
+        for (DiscountService.DiscountResponse.AppliedDiscount discount : response.appliedDiscounts) {
+            sb.append(discount.ruleName).append('=').append(discount.amountCents()).append(' ');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void localEngineAgreesWithTheApi() {
+        List<DiscountService.DiscountRequest.Item> catalogue = catalogue();
+        LocalDiscountEngine engine = LocalDiscountEngine.getDefault();
+        Random random = new Random(42);
+
+        int discounted = 0;
+        List<String> divergent = new ArrayList<>();
+        for (int b = 0; b < BASKETS; b++) {
+            List<DiscountService.DiscountRequest.Item> basket = randomBasket(random, catalogue);
+            DiscountService.DiscountResponse local = engine.calculate(basket);
+            DiscountService.DiscountResponse remote = reconciler.fetchRemote(basket).join();
+
+            String divergence = DiscountReconciler.describeDivergence(local, remote);
+            if (divergence == null && !discounts(local).equals(discounts(remote))) {
+                divergence = discounts(local) + "vs " + discounts(remote);
+            }
+            if (divergence != null) {
+                divergent.add("basket " + b + ": " + divergence);
+            }
+            if (local.totalDiscountCents() > 0) {
+                discounted++;
+            }
+        }
+
+        assertEquals(List.of(), divergent);
+        assertTrue(discounted > BASKETS / 2, "only " + discounted + " baskets had a discount");
+    }
+
+    /**
+     * Per-call latency of both pricers over the same baskets, after a
+     * warm-up. Run with ./gradlew benchmark
+     */
+    @Test
+    @Tag("benchmark")
+    void latencyPerCall() {
+        List<DiscountService.DiscountRequest.Item> catalogue = catalogue();
+        LocalDiscountEngine engine = LocalDiscountEngine.getDefault();
+        Random random = new Random(42);
+
+        long[] local = new long[TIMED_BASKETS];
+        long[] remote = new long[TIMED_BASKETS];
+        for (int b = -BASKETS; b < TIMED_BASKETS; b++) {
+            List<DiscountService.DiscountRequest.Item> basket = randomBasket(random, catalogue);
+            long start = System.nanoTime();
+            engine.calculate(basket);
+            long localNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            reconciler.fetchRemote(basket).join();
+            long remoteNanos = System.nanoTime() - start;
+            if (b >= 0) {
+                local[b] = localNanos;
+                remote[b] = remoteNanos;
+            }
+        }
+        Arrays.sort(local);
+        Arrays.sort(remote);
+
+        System.out.printf("Discount pricing per call, %d baskets after %d warm-up:%n", TIMED_BASKETS, BASKETS);
+        System.out.printf("  local engine  p50 %9.1f us  p99 %9.1f us%n",
+                percentile(local, 50) / 1e3, percentile(local, 99) / 1e3);
+        System.out.printf("  discount API  p50 %9.1f us  p99 %9.1f us%n",
+                percentile(remote, 50) / 1e3, percentile(remote, 99) / 1e3);
+
+        // Pricing locally is only worth it if even its slow calls beat a typical round trip
+        assertTrue(percentile(local, 99) < percentile(remote, 50),
+                "local p99 " + percentile(local, 99) + "ns is not below API p50 " + percentile(remote, 50) + "ns");
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.service;
+
+import org.example.config.PosConfig;
+import org.example.model.Product;
+import org.example.model.Transaction;
+import org.example.promo.PromotionBook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Timeouts, the circuit breaker and the local fallback against a stub
+ * discount API.
+ */
+class DiscountReconcilerTest {
+    private static final int REQUEST_TIMEOUT_MS = 1_000;
+    private static final int OPEN_SECONDS = 1;
+
+    private StubDiscountApi api;
+
+    @BeforeEach
+    void startApi() throws IOException {
+        api = new StubDiscountApi(PromotionBook.getDefault());
+    }
+
+    @AfterEach
+    void stopApi() {
+        api.close();
+    }
+
+    static PosConfig config(String url) {
+        Properties properties = new Properties();
+        properties.setProperty("discount.shadow.enabled", "true");
+        properties.setProperty("discount.pricing.mode", "PRIORITY");
+        properties.setProperty("discount.api.url", url);
+        properties.setProperty("discount.api.connect-timeout-ms", String.valueOf(REQUEST_TIMEOUT_MS));
+        properties.setProperty("discount.api.request-timeout-ms", String.valueOf(REQUEST_TIMEOUT_MS));
+        properties.setProperty("discount.breaker.failure-threshold", "3");
+        properties.setProperty("discount.breaker.open-seconds", String.valueOf(OPEN_SECONDS));
+        return new PosConfig(properties);
+    }
+
+    private static List<DiscountService.DiscountRequest.Item> basket() {
+        Transaction transaction = new Transaction();
+        transaction.addItem(Product.ofCents("049000000443", "POLAR POP 32OZ", 99, null), 3);
+        transaction.addItem(Product.ofCents("071990095109", "HOT DOG", 199, null), 1);
+        return DiscountService.snapshotItems(transaction);
+    }
+
+    private static void reconcile(DiscountReconciler reconciler, List<DiscountService.DiscountRequest.Item> items) {
+        DiscountService.DiscountResponse local = LocalDiscountEngine.getDefault().calculate(items);
+        reconciler.reconcile(items, local, "test").join();
+    }
+
+    private static void failUntilOpen(DiscountReconciler reconciler) {
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(CircuitBreaker.State.CLOSED, reconciler.getCircuitState(), "before failure " + i);
+            reconcile(reconciler, basket());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, reconciler.getCircuitState());
+        assertEquals(3, reconciler.getFailureCount());
+    }
+
+    /**
+     * Once the open period is over, the next call is the single trial:
+     * while it is in flight the breaker is HALF_OPEN and other calls are
+     * skipped; its success closes the breaker.
+     */
+    private void recoverThroughHalfOpen(DiscountReconciler reconciler) throws InterruptedException {
+        Thread.sleep(OPEN_SECONDS * 1000L + 100);
+        api.setMode(StubDiscountApi.Mode.OK);
+        api.setDelayMillis(REQUEST_TIMEOUT_MS / 5);
+
+        List<DiscountService.DiscountRequest.Item> items = basket();
+        DiscountService.DiscountResponse local = LocalDiscountEngine.getDefault().calculate(items);
+        long skipped = reconciler.getSkippedCount();
+        var trial = reconciler.reconcile(items, local, "test");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, reconciler.getCircuitState());
+        reconcile(reconciler, items);
+        assertEquals(skipped + 1, reconciler.getSkippedCount(), "second call during the trial");
+
+        trial.join();
+        assertEquals(CircuitBreaker.State.CLOSED, reconciler.getCircuitState());
+        assertEquals(1, reconciler.getComparedCount());
+        assertEquals(0, reconciler.getDivergenceCount());
+    }
+
+    @Test
+    void slowApiTimesOutAndOpensTheCircuit() throws InterruptedException {
+        api.setMode(StubDiscountApi.Mode.SLOW);
+        DiscountReconciler reconciler = new DiscountReconciler(config(api.url()));
+
+        long start = System.nanoTime();
+        failUntilOpen(reconciler);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 4 * REQUEST_TIMEOUT_MS,
+                "calls must give up at the request timeout, took " + elapsedMillis + "ms");
+
+        // Open: refused without calling the API
+        int requests = api.getRequestCount();
+        reconcile(reconciler, basket());
+        assertEquals(1, reconciler.getSkippedCount());
+        assertEquals(requests, api.getRequestCount());
+
+        recoverThroughHalfOpen(reconciler);
+    }
+
+    @Test
+    void serverErrorsOpenTheCircuitAndAFailedTrialReopensIt() throws InterruptedException {
+        api.setMode(StubDiscountApi.Mode.ERROR);
+        DiscountReconciler reconciler = new DiscountReconciler(config(api.url()));
+        failUntilOpen(reconciler);
+
+        // Trial call while the API still fails: straight back to OPEN
+        Thread.sleep(OPEN_SECONDS * 1000L + 100);
+        reconcile(reconciler, basket());
+        assertEquals(CircuitBreaker.State.OPEN, reconciler.getCircuitState());
+        assertEquals(4, reconciler.getFailureCount());
+
+        recoverThroughHalfOpen(reconciler);
+    }
+
+    @Test
+    void refusedConnectionOpensTheCircuit() throws IOException, InterruptedException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        DiscountReconciler reconciler = new DiscountReconciler(config("http://127.0.0.1:" + closedPort + "/discount"));
+        failUntilOpen(reconciler);
+        reconcile(reconciler, basket());
+        assertEquals(1, reconciler.getSkippedCount());
+
+        Thread.sleep(OPEN_SECONDS * 1000L + 100);
+        reconcile(reconciler, basket());
+        assertEquals(CircuitBreaker.State.OPEN, reconciler.getCircuitState());
+    }
+
+    /**
+     * The register prices locally whatever the API does; a slow or dead API
+     * only costs the shadow comparison.
+     */
+    @Test
+    void discountsArePricedLocallyWhileTheApiIsDown() {
+        api.setMode(StubDiscountApi.Mode.SLOW);
+        DiscountService service = new DiscountService(config(api.url()));
+
+        Transaction transaction = new Transaction();
+        transaction.addItem(Product.ofCents("049000000443", "POLAR POP 32OZ", 99, null), 3);
+        transaction.addItem(Product.ofCents("071990095109", "HOT DOG", 199, null), 2);
+
+        long start = System.nanoTime();
+        DiscountService.DiscountResponse response = service.calculateDiscount(transaction);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < REQUEST_TIMEOUT_MS, "waited on the API for " + elapsedMillis + "ms");
+        DiscountService.DiscountResponse expected = api.price(DiscountService.snapshotItems(transaction));
+        assertNull(DiscountReconciler.describeDivergence(expected, response));
+        assertTrue(response.totalDiscountCents() > 0);
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.model.Money;
+import org.example.model.Transaction;
+import org.example.promo.Promotion;
+import org.example.promo.PromotionBook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the discount API on an ephemeral port.
+ *
+ * In OK mode it prices each basket the way the API does: every item goes to
+ * the first pricing promotion it matches, found by checking the rules one by
+ * one, and each promotion is then priced over its units. This is deliberately
+ * written apart from LocalDiscountEngine and the PromotionBook index, so the
+ * two can be compared. SLOW answers after the client has given up, ERROR
+ * answers 500.
+ */
+class StubDiscountApi implements AutoCloseable {
+    enum Mode { OK, SLOW, ERROR }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PromotionBook book;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Mode mode = Mode.OK;
+    private volatile long delayMillis;
+
+    StubDiscountApi(PromotionBook book) throws IOException {
+        this.book = book;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/discount", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/discount";
+    }
+
+    void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Delay before every answer, in any mode.
+     */
+    void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            DiscountService.DiscountRequest request =
+                    objectMapper.readValue(exchange.getRequestBody(), DiscountService.DiscountRequest.class);
+            Mode current = mode;
+            sleep(current == Mode.SLOW ? 5_000 : delayMillis);
+
+            if (current == Mode.ERROR) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            byte[] body = objectMapper.writeValueAsString(price(request.items)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // Client gave up (timeout) - nothing to answer
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== REFERENCE PRICING ==========
+
+    DiscountService.DiscountResponse price(List<DiscountService.DiscountRequest.Item> items) {
+        Map<Promotion, List<long[]>> units = new LinkedHashMap<>(); // promotion -> [cents, line]
+        long subtotal = 0;
+        for (int line = 0; line < items.size(); line++) {
+            DiscountService.DiscountRequest.Item item = items.get(line);
+            long cents = Money.toCents(item.price);
+            subtotal += cents * item.quantity;
+            Promotion promotion = firstMatch(item);
+            if (promotion != null) {
+                for (int i = 0; i < item.quantity; i++) {
+                    units.computeIfAbsent(promotion, p -> new ArrayList<>()).add(new long[]{cents, line});
+                }
+            }
+        }
+
+        List<DiscountService.DiscountResponse.AppliedDiscount> applied = new ArrayList<>();
+        long totalDiscount = 0;
+        for (Promotion promotion : book.getPromotions()) {
+            List<long[]> matched = units.get(promotion);
+            if (matched == null) {
+                continue;
+            }
+            List<String> affected = new ArrayList<>();
+            long amount = 0;
+            matched.sort((a, b) -> Long.compare(b[0], a[0]));
+            switch (promotion.type()) {
+                case PERCENT_OFF -> {
+                    matched.sort((a, b) -> Long.compare(a[1], b[1]));
+                    long cents = 0;
+                    for (long[] unit : matched) {
+                        cents += unit[0];
+                        String description = items.get((int) unit[1]).description;
+                        if (affected.isEmpty() || !affected.get(affected.size() - 1).equals(description)) {
+                            affected.add(description);
+                        }
+                    }
+                    amount = Money.percentOf(cents, promotion.basisPoints());
+                }
+                case BUY_X_GET_Y -> {
+                    int group = promotion.buy() + promotion.get();
+                    for (int i = 0; i < matched.size() / group * group; i++) {
+                        if (i % group >= promotion.buy()) {
+                            amount += matched.get(i)[0];
+                            affected.add(items.get((int) matched.get(i)[1]).description);
+                        }
+                    }
+                }
+                case MIX_AND_MATCH -> {
+                    for (int start = 0; start + promotion.groupSize() <= matched.size(); start += promotion.groupSize()) {
+                        long cents = 0;
+                        for (int i = start; i < start + promotion.groupSize(); i++) {
+                            cents += matched.get(i)[0];
+                        }
+                        if (cents <= promotion.groupPriceCents()) {
+                            break;
+                        }
+                        amount += cents - promotion.groupPriceCents();
+                        for (int i = start; i < start + promotion.groupSize(); i++) {
+                            affected.add(items.get((int) matched.get(i)[1]).description);
+                        }
+                    }
+                }
+            }
+            if (amount > 0) {
+                DiscountService.DiscountResponse.AppliedDiscount discount =
+                        new DiscountService.DiscountResponse.AppliedDiscount();
+                discount.ruleName = promotion.name();
+                discount.description = promotion.description();
+                discount.amount = Money.toDouble(amount);
+                discount.affectedItems = affected;
+                applied.add(discount);
+                totalDiscount += amount;
+            }
+        }
+
+        long tax = Money.percentOf(subtotal - totalDiscount, Transaction.TAX_RATE_BASIS_POINTS);
+        DiscountService.DiscountResponse response = new DiscountService.DiscountResponse();
+        response.subtotal = Money.toDouble(subtotal);
+        response.totalDiscount = Money.toDouble(totalDiscount);
+        response.tax = Money.toDouble(tax);
+        response.total = Money.toDouble(subtotal - totalDiscount + tax);
+        response.appliedDiscounts = applied;
+        return response;
+    }
+
+    private Promotion firstMatch(DiscountService.DiscountRequest.Item item) {
+        for (Promotion promotion : book.getPromotions()) {
+            if (promotion.displayOnly()) {
+                continue;
+            }
+            if (promotion.upcs().contains(item.upc) || promotion.categories().contains(item.category)) {
+                return promotion;
+            }
+            for (String text : promotion.descriptionTexts()) {
+                if (item.description != null && item.description.toUpperCase().contains(text.toUpperCase())) {
+                    return promotion;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}